@@ -26,6 +26,7 @@ package org.ofbiz.core.entity;
 
 import org.ofbiz.core.entity.config.JdbcDatasourceInfo;
 import org.ofbiz.core.entity.transaction.DBCPConnectionFactory;
+import org.ofbiz.core.entity.transaction.LightweightConnectionFactory;
 import org.ofbiz.core.util.Debug;
 
 import java.sql.Connection;
@@ -64,12 +65,21 @@ public class ConnectionFactory {
     }
 
     public static Connection tryGenericConnectionSources(String helperName, JdbcDatasourceInfo jdbcDatasource) throws SQLException, GenericEntityException {
-        // first try DBCP
-        try {
-            Connection con = DBCPConnectionFactory.getConnection(helperName, jdbcDatasource);
-            if (con != null) return con;
-        } catch (Exception ex) {
-            Debug.logError(ex, "There was an error getting a DBCP datasource.");
+        if (JdbcDatasourceInfo.POOL_TYPE_LIGHTWEIGHT.equals(jdbcDatasource.getPoolType())) {
+            try {
+                Connection con = LightweightConnectionFactory.getConnection(helperName, jdbcDatasource);
+                if (con != null) return con;
+            } catch (Exception ex) {
+                Debug.logError(ex, "There was an error getting a lightweight pool connection.");
+            }
+        } else {
+            // first try DBCP
+            try {
+                Connection con = DBCPConnectionFactory.getConnection(helperName, jdbcDatasource);
+                if (con != null) return con;
+            } catch (Exception ex) {
+                Debug.logError(ex, "There was an error getting a DBCP datasource.");
+            }
         }
 
         // Default to plain JDBC.
@@ -99,5 +109,6 @@ public class ConnectionFactory {
     public static void removeDatasource(String helperName) {
         // Try and remove it from DBCP
         DBCPConnectionFactory.removeDatasource(helperName);
+        LightweightConnectionFactory.removeDatasource(helperName);
     }
 }
@@ -0,0 +1,118 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.util.Debug;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static javax.transaction.Status.STATUS_ACTIVE;
+
+/**
+ * A unit of work outside any transaction that keeps one connection per datasource for the current thread, so that
+ * a series of reads and auto-committed writes does not borrow a connection from the pool for each statement.
+ * Opened with {@link GenericDelegator#openConnectionSession()} and closed with try-with-resources:
+ * <pre>
+ * try (ConnectionSession session = delegator.openConnectionSession()) {
+ *     ...
+ * }
+ * </pre>
+ * Each connection is borrowed the first time it is needed and set to auto-commit, so nothing changes about when
+ * work is committed. Only read-only and auto-commit {@link org.ofbiz.core.entity.jdbc.SQLProcessor}s use it, and not
+ * while a local or JTA transaction is active, which use their own connection as before.
+ * <p>
+ * Opening a session on a thread that already has one joins it, and only the outermost close returns the
+ * connections to the pool. A session must be closed by the thread that opened it.
+ */
+public final class ConnectionSession implements AutoCloseable {
+
+    public static final String module = ConnectionSession.class.getName();
+
+    private static final ThreadLocal<ConnectionSession> currentSession = new ThreadLocal<ConnectionSession>();
+
+    private final Thread owner = Thread.currentThread();
+    private final Map<String, Connection> connections = new HashMap<String, Connection>(4);
+    private int depth = 1;
+
+    private ConnectionSession() {
+    }
+
+    /**
+     * Opens a session on the current thread, or joins the one already open.
+     */
+    static ConnectionSession open() {
+        final ConnectionSession session = currentSession.get();
+        if (session != null) {
+            session.depth++;
+            return session;
+        }
+        final ConnectionSession newSession = new ConnectionSession();
+        currentSession.set(newSession);
+        return newSession;
+    }
+
+    /**
+     * @return whether a session is open on the current thread
+     */
+    public static boolean isOpen() {
+        return currentSession.get() != null;
+    }
+
+    /**
+     * Returns the connection that the session open on the current thread keeps for the given datasource, borrowing
+     * it if this is the first time. The caller must not close it.
+     *
+     * @param helperName the datasource helper
+     * @return null if there is no session or a transaction is active, in which case a connection should be got
+     * the usual way
+     */
+    public static Connection getConnection(final String helperName) throws SQLException, GenericEntityException {
+        final ConnectionSession session = currentSession.get();
+        if (session == null || TransactionUtil.isTransactionActive() || TransactionUtil.getStatus() == STATUS_ACTIVE) {
+            return null;
+        }
+        Connection connection = session.connections.get(helperName);
+        if (connection == null || connection.isClosed()) {
+            connection = ConnectionFactory.getConnection(helperName);
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                closeQuietly(connection);
+                throw e;
+            }
+            session.connections.put(helperName, connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Returns the connections kept by this session to the pool, unless this closes a session that was joined, in
+     * which case the outer session keeps them.
+     */
+    public void close() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("A connection session must be closed by the thread that opened it");
+        }
+        if (depth == 0 || --depth > 0) {
+            return;
+        }
+        if (currentSession.get() == this) {
+            currentSession.remove();
+        }
+        for (Connection connection : connections.values()) {
+            closeQuietly(connection);
+        }
+        connections.clear();
+    }
+
+    private static void closeQuietly(final Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Debug.logWarning(e, "Error closing the connection of a connection session", module);
+        }
+    }
+}
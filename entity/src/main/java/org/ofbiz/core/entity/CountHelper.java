@@ -13,6 +13,8 @@ public class CountHelper {
     private final static String DISTINCT = "DISTINCT ";
     private final static String WHERE = " WHERE ";
     private final static String FROM = " FROM ";
+    private final static String SELECT_MAX = "SELECT MAX(";
+    private final static String COUNT_ALL = "), COUNT(*)";
 
     /**
      * returns the select statement as SELECT COUNT([DISTINCT] fieldName) FROM tableName WHERE whereClause
@@ -44,4 +46,25 @@ public class CountHelper {
         }
         return builder.toString();
     }
+
+    /**
+     * returns the select statement as SELECT MAX(stampField), COUNT(*) FROM tableName WHERE whereClause
+     *
+     * @param tableName   the table to query
+     * @param stampField  the column holding the last updated stamp
+     * @param whereClause the WHERE clause, if specified
+     */
+    public String buildStampSummarySelectStatement(final @Nonnull String tableName, final @Nonnull String stampField,
+                                                   final @Nullable String whereClause) {
+        final StringBuilder builder = new StringBuilder(SELECT_MAX);
+        builder.append(stampField);
+        builder.append(COUNT_ALL);
+        builder.append(FROM);
+        builder.append(tableName);
+        if (whereClause != null) {
+            builder.append(WHERE);
+            builder.append(whereClause);
+        }
+        return builder.toString();
+    }
 }
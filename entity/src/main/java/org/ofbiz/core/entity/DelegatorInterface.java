@@ -24,18 +24,22 @@
  */
 package org.ofbiz.core.entity;
 
+import org.ofbiz.core.entity.cache.CoalescingCacheLoader;
 import org.ofbiz.core.entity.config.EntityConfigUtil;
 import org.ofbiz.core.entity.jdbc.sql.escape.SqlEscapeHelper;
 import org.ofbiz.core.entity.model.ModelEntity;
 import org.ofbiz.core.entity.model.ModelFieldType;
 import org.ofbiz.core.entity.model.ModelGroupReader;
 import org.ofbiz.core.entity.model.ModelReader;
+import org.ofbiz.core.util.OffHeapCache;
 import org.ofbiz.core.util.UtilCache;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Delegator Interface
@@ -162,6 +166,15 @@ public interface DelegatorInterface {
                                                    EntityCondition havingEntityCondition, Collection<String> fieldsToSelect, List<String> orderBy, EntityFindOptions findOptions)
             throws GenericEntityException;
 
+    PreparedEntityCondition prepareCondition(String entityName, EntityCondition condition, Collection<String> fieldsToSelect,
+                                             List<String> orderBy, EntityFindOptions findOptions) throws GenericEntityException;
+
+    List<GenericValue> findByPreparedCondition(PreparedEntityCondition preparedCondition, Map<String, ?> values)
+            throws GenericEntityException;
+
+    EntityListIterator findListIteratorByPreparedCondition(PreparedEntityCondition preparedCondition, Map<String, ?> values)
+            throws GenericEntityException;
+
     int removeByAnd(String entityName, Map<String, ?> fields) throws GenericEntityException;
 
     int removeByAnd(String entityName, Map<String, ?> fields, boolean doCacheClear) throws GenericEntityException;
@@ -170,6 +183,9 @@ public interface DelegatorInterface {
 
     int removeByCondition(String entityName, EntityCondition entityCondition, boolean doCacheClear) throws GenericEntityException;
 
+    int removeByConditionInSlices(String entityName, EntityCondition entityCondition, EntityPurgeOptions options)
+            throws GenericEntityException;
+
     List<GenericValue> getMultiRelation(GenericValue value, String relationNameOne, String relationNameTwo, List<String> orderBy) throws GenericEntityException;
 
     List<GenericValue> getMultiRelation(GenericValue value, String relationNameOne, String relationNameTwo) throws GenericEntityException;
@@ -296,6 +312,32 @@ public interface DelegatorInterface {
 
     UtilCache<String, List<GenericValue>> getAllCache();
 
+    OffHeapCache<GenericPK, Map<String, Object>> getOffHeapPrimaryKeyCache();
+
+    UtilCache<GenericPK, Boolean> getNotFoundPrimaryKeyCache();
+
+    boolean isInNotFoundPrimaryKeyCache(GenericPK primaryKey);
+
+    void putInNotFoundPrimaryKeyCache(GenericPK primaryKey);
+
+    RelatedOneCache getRelatedOneValueCache();
+
+    CoalescingCacheLoader<GenericPK, GenericValue> getPrimaryKeyCacheLoader();
+
+    CoalescingCacheLoader<GenericPK, List<GenericValue>> getAndCacheLoader();
+
+    CoalescingCacheLoader<String, List<GenericValue>> getAllCacheLoader();
+
+    int writeCacheSnapshot() throws IOException;
+
+    Future<Integer> getCacheSnapshotLoad();
+
+    boolean enableTransactionIdentityMap() throws GenericEntityException;
+
+    ConnectionSession openConnectionSession();
+
+    <T> T executeWithRetry(String entityName, TransientFailureRetry.Work<T> work) throws GenericEntityException;
+
     SqlEscapeHelper getSqlEscapeHelper();
 
     /**
@@ -23,6 +23,8 @@
  */
 package org.ofbiz.core.entity;
 
+import java.util.Collection;
+
 /**
  * Distributed Cache Clear interface definition
  *
@@ -41,4 +43,26 @@ public interface DistributedCacheClear {
     public void distributedClearCacheLine(GenericPK primaryKey);
 
     public void clearAllCaches();
+
+    /**
+     * Clears the cache lines written by one committed transaction, see the defer-cache-clear delegator attribute.
+     * Implementations that batch should send them together; by default each one is sent on its own.
+     *
+     * @param values      the values written, as for {@link #distributedClearCacheLine(GenericValue)}
+     * @param primaryKeys the primary keys written, as for {@link #distributedClearCacheLine(GenericPK)}
+     * @param dummyPKs    the partial keys written, as for {@link #distributedClearCacheLineFlexible(GenericEntity)}
+     */
+    public default void distributedClearCacheLines(final Collection<GenericValue> values,
+                                                   final Collection<GenericPK> primaryKeys,
+                                                   final Collection<GenericEntity> dummyPKs) {
+        for (GenericValue value : values) {
+            distributedClearCacheLine(value);
+        }
+        for (GenericPK primaryKey : primaryKeys) {
+            distributedClearCacheLine(primaryKey);
+        }
+        for (GenericEntity dummyPK : dummyPKs) {
+            distributedClearCacheLineFlexible(dummyPK);
+        }
+    }
 }
@@ -0,0 +1,400 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.Iterables;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.util.Debug;
+import org.ofbiz.core.util.UtilCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static org.ofbiz.core.entity.EntityOperator.AND;
+import static org.ofbiz.core.entity.EntityOperator.IN;
+import static org.ofbiz.core.entity.EntityOperator.OR;
+
+/**
+ * Writes the keys (and optionally the values) of a delegator's primary key and "by and" caches to a local file,
+ * and warms those caches up again from such a file, so that a restarted node does not have to refill its caches
+ * from live traffic.
+ * <p>
+ * Reloading always goes back to the database in bulk, using multi-key queries of at most
+ * {@link #BULK_LOAD_SIZE} keys. When values were written as well, they are only trusted if the snapshot is no
+ * older than the configured maximum age; in addition, for entities with a {@link ModelEntity#STAMP_FIELD}, only
+ * values whose stamp still matches the database are used, the rest are fetched again. A "by and" list is only
+ * restored if the database still returns exactly the same rows for its condition, in which case the order in which
+ * they were cached is kept.
+ */
+public class EntityCacheSnapshot {
+
+    public static final String module = EntityCacheSnapshot.class.getName();
+
+    /**
+     * The maximum number of keys looked up by a single query when reloading.
+     */
+    public static final int BULK_LOAD_SIZE = 500;
+
+    private static final int MAGIC = 0x4f464353;
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte PRIMARY_KEY_ENTRY = 1;
+    private static final byte AND_ENTRY = 2;
+
+    private final GenericDelegator delegator;
+    private final int maxEntries;
+    private final boolean includeValues;
+    private final long maxAge;
+
+    /**
+     * @param delegator     the delegator whose caches are written and loaded
+     * @param maxEntries    the maximum number of rows to write and load; a "by and" list counts as one row per value
+     * @param includeValues whether to write the values as well as the keys
+     * @param maxAge        the age in milliseconds after which any values in a snapshot are no longer trusted
+     */
+    public EntityCacheSnapshot(GenericDelegator delegator, int maxEntries, boolean includeValues, long maxAge) {
+        this.delegator = delegator;
+        this.maxEntries = maxEntries;
+        this.includeValues = includeValues;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Writes the current contents of the primary key and "by and" caches to the given file, replacing it.
+     *
+     * @param file the file to write
+     * @return the number of rows written
+     * @throws IOException if the file could not be written
+     */
+    public int write(File file) throws IOException {
+        final File tempFile = new File(file.getPath() + ".tmp");
+        int rows = 0;
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(delegator.getDelegatorName());
+            out.writeLong(System.currentTimeMillis());
+            out.writeBoolean(includeValues);
+
+            for (Map.Entry<GenericEntity, GenericValue> entry : cacheLines(delegator.getPrimaryKeyCache())) {
+                if (rows >= maxEntries) {
+                    break;
+                }
+                out.writeByte(PRIMARY_KEY_ENTRY);
+                out.writeUTF(entry.getKey().getEntityName());
+                out.writeObject(new HashMap<String, Object>(entry.getKey().fields));
+                if (includeValues) {
+                    out.writeObject(new HashMap<String, Object>(entry.getValue().fields));
+                }
+                rows++;
+            }
+
+            for (Map.Entry<GenericPK, List<GenericValue>> entry : cacheLines(delegator.getAndCache())) {
+                final List<GenericValue> values = entry.getValue();
+                if (rows + values.size() > maxEntries) {
+                    continue;
+                }
+                final ArrayList<HashMap<String, Object>> primaryKeys = new ArrayList<HashMap<String, Object>>(values.size());
+                for (GenericValue value : values) {
+                    primaryKeys.add(new HashMap<String, Object>(value.getPrimaryKey().fields));
+                }
+                out.writeByte(AND_ENTRY);
+                out.writeUTF(entry.getKey().getEntityName());
+                out.writeObject(new HashMap<String, Object>(entry.getKey().fields));
+                out.writeObject(primaryKeys);
+                if (includeValues) {
+                    final ArrayList<HashMap<String, Object>> fields = new ArrayList<HashMap<String, Object>>(values.size());
+                    for (GenericValue value : values) {
+                        fields.add(new HashMap<String, Object>(value.fields));
+                    }
+                    out.writeObject(fields);
+                }
+                rows += Math.max(1, values.size());
+            }
+            out.writeByte(END);
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace cache snapshot " + file);
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+        if (Debug.infoOn()) {
+            Debug.logInfo("Wrote " + rows + " cached rows of delegator " + delegator.getDelegatorName() + " to " + file, module);
+        }
+        return rows;
+    }
+
+    /**
+     * Loads the given snapshot on a background thread. Callers that need the caches warm before they start serving
+     * requests should wait on the returned future.
+     *
+     * @param file the snapshot to load
+     * @return the number of rows put back into the caches
+     */
+    public Future<Integer> loadAsync(final File file) {
+        final FutureTask<Integer> task = new FutureTask<Integer>(() -> {
+            try {
+                return load(file);
+            } catch (Exception e) {
+                Debug.logWarning(e, "Could not load cache snapshot " + file + ", caches will be cold", module);
+                return 0;
+            }
+        });
+        final Thread thread = new Thread(task, "EntityCacheSnapshot-" + delegator.getDelegatorName());
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Loads the given snapshot into the primary key and "by and" caches on the calling thread. A missing file is
+     * not an error, there is simply nothing to load.
+     *
+     * @param file the snapshot to load
+     * @return the number of rows put back into the caches
+     * @throws IOException            if the file could not be read
+     * @throws GenericEntityException if the database could not be queried
+     */
+    public int load(File file) throws IOException, GenericEntityException {
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        final List<GenericPK> primaryKeyEntries = new ArrayList<GenericPK>();
+        final List<AndEntry> andEntries = new ArrayList<AndEntry>();
+        // all the rows needed to restore the entries above, with the snapshot values if they can still be used
+        final Map<String, Map<GenericPK, Map<String, Object>>> rowsByEntity = new HashMap<String, Map<GenericPK, Map<String, Object>>>();
+
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Debug.logWarning("Ignoring cache snapshot " + file + " with unknown format", module);
+                return 0;
+            }
+            if (!delegator.getDelegatorName().equals(in.readUTF())) {
+                Debug.logWarning("Ignoring cache snapshot " + file + " written by another delegator", module);
+                return 0;
+            }
+            final boolean useValues = System.currentTimeMillis() - in.readLong() <= maxAge;
+            final boolean hasValues = in.readBoolean();
+
+            int rows = 0;
+            for (byte type = in.readByte(); type != END && rows < maxEntries; type = in.readByte()) {
+                final String entityName = in.readUTF();
+                final ModelEntity modelEntity = delegator.getModelEntity(entityName);
+                if (type == PRIMARY_KEY_ENTRY) {
+                    final Map<String, Object> keyFields = readMap(in);
+                    final Map<String, Object> fields = hasValues ? readMap(in) : null;
+                    if (isCacheable(modelEntity)) {
+                        final GenericPK primaryKey = delegator.makePK(entityName, keyFields);
+                        primaryKeyEntries.add(primaryKey);
+                        addRow(rowsByEntity, primaryKey, useValues ? fields : null);
+                    }
+                    rows++;
+                } else if (type == AND_ENTRY) {
+                    final Map<String, Object> conditionFields = readMap(in);
+                    final List<Map<String, Object>> keyFields = readList(in);
+                    final List<Map<String, Object>> fields = hasValues ? readList(in) : null;
+                    if (isCacheable(modelEntity)) {
+                        final AndEntry andEntry = new AndEntry(modelEntity, conditionFields);
+                        for (int i = 0; i < keyFields.size(); i++) {
+                            final GenericPK primaryKey = delegator.makePK(entityName, keyFields.get(i));
+                            andEntry.primaryKeys.add(primaryKey);
+                            addRow(rowsByEntity, primaryKey, useValues && fields != null ? fields.get(i) : null);
+                        }
+                        andEntries.add(andEntry);
+                    }
+                    rows += Math.max(1, keyFields.size());
+                } else {
+                    throw new IOException("Corrupt cache snapshot " + file);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cache snapshot " + file + " contains an unknown class", e);
+        }
+
+        final Map<GenericPK, GenericValue> loaded = new HashMap<GenericPK, GenericValue>();
+        for (Map.Entry<String, Map<GenericPK, Map<String, Object>>> entry : rowsByEntity.entrySet()) {
+            loaded.putAll(loadRows(delegator.getModelEntity(entry.getKey()), entry.getValue()));
+        }
+
+        int restored = 0;
+        for (GenericPK primaryKey : primaryKeyEntries) {
+            final GenericValue value = loaded.get(primaryKey);
+            if (value != null && delegator.getFromPrimaryKeyCache(primaryKey) == null) {
+                delegator.putInPrimaryKeyCache(primaryKey, value);
+                restored++;
+            }
+        }
+        for (AndEntry andEntry : andEntries) {
+            restored += restore(andEntry, loaded);
+        }
+        if (Debug.infoOn()) {
+            Debug.logInfo("Restored " + restored + " cached rows of delegator " + delegator.getDelegatorName() + " from " + file, module);
+        }
+        return restored;
+    }
+
+    private int restore(AndEntry andEntry, Map<GenericPK, GenericValue> loaded) throws GenericEntityException {
+        if (delegator.getFromAndCache(andEntry.modelEntity, andEntry.conditionFields) != null) {
+            return 0;
+        }
+        // only restore the list if the condition still matches exactly the same rows
+        final List<GenericValue> currentKeys = delegator.findByCondition(andEntry.modelEntity.getEntityName(),
+                new EntityFieldMap(andEntry.conditionFields, AND), andEntry.modelEntity.getPkFieldNames(), null);
+        final Set<GenericPK> current = new HashSet<GenericPK>();
+        for (GenericValue currentKey : currentKeys) {
+            current.add(currentKey.getPrimaryKey());
+        }
+        if (!current.equals(new HashSet<GenericPK>(andEntry.primaryKeys))) {
+            return 0;
+        }
+        final List<GenericValue> values = new ArrayList<GenericValue>(andEntry.primaryKeys.size());
+        for (GenericPK primaryKey : andEntry.primaryKeys) {
+            final GenericValue value = loaded.get(primaryKey);
+            if (value == null) {
+                return 0;
+            }
+            // each list gets its own copies, as the by and cache would have if it had been filled by queries
+            final GenericValue copy = new GenericValue(value);
+            copy.copyOriginalDbValues();
+            values.add(copy);
+        }
+        delegator.putInAndCache(andEntry.modelEntity, andEntry.conditionFields, values);
+        return Math.max(1, values.size());
+    }
+
+    /**
+     * Gets the current values for the given rows, using the snapshot values that are still valid and fetching the
+     * rest from the database in bulk.
+     */
+    private Map<GenericPK, GenericValue> loadRows(ModelEntity modelEntity, Map<GenericPK, Map<String, Object>> rows)
+            throws GenericEntityException {
+        final Map<GenericPK, GenericValue> values = new HashMap<GenericPK, GenericValue>();
+        final Map<GenericPK, Map<String, Object>> candidates = new HashMap<GenericPK, Map<String, Object>>();
+        for (Map.Entry<GenericPK, Map<String, Object>> row : rows.entrySet()) {
+            if (row.getValue() != null) {
+                candidates.put(row.getKey(), row.getValue());
+            }
+        }
+
+        if (!candidates.isEmpty() && modelEntity.isField(ModelEntity.STAMP_FIELD)) {
+            // staleness guard: only keep the snapshot values whose stamp is unchanged
+            final List<String> selectFields = new ArrayList<String>(modelEntity.getPkFieldNames());
+            selectFields.add(ModelEntity.STAMP_FIELD);
+            final Map<GenericPK, Object> currentStamps = new HashMap<GenericPK, Object>();
+            for (GenericValue current : findInBulk(modelEntity, candidates.keySet(), selectFields)) {
+                currentStamps.put(current.getPrimaryKey(), current.get(ModelEntity.STAMP_FIELD));
+            }
+            candidates.entrySet().removeIf(candidate -> {
+                final Object stamp = candidate.getValue().get(ModelEntity.STAMP_FIELD);
+                return stamp == null || !stamp.equals(currentStamps.get(candidate.getKey()));
+            });
+        }
+
+        for (Map.Entry<GenericPK, Map<String, Object>> candidate : candidates.entrySet()) {
+            final GenericValue value = new GenericValue(delegator, modelEntity, candidate.getValue());
+            value.modified = false;
+            value.copyOriginalDbValues();
+            values.put(candidate.getKey(), value);
+        }
+
+        final Set<GenericPK> missing = new HashSet<GenericPK>(rows.keySet());
+        missing.removeAll(values.keySet());
+        for (GenericValue value : findInBulk(modelEntity, missing, null)) {
+            values.put(value.getPrimaryKey(), value);
+        }
+        return values;
+    }
+
+    private List<GenericValue> findInBulk(ModelEntity modelEntity, Collection<GenericPK> primaryKeys, List<String> fieldsToSelect)
+            throws GenericEntityException {
+        final List<GenericValue> values = new ArrayList<GenericValue>(primaryKeys.size());
+        for (List<GenericPK> batch : Iterables.partition(primaryKeys, BULK_LOAD_SIZE)) {
+            values.addAll(delegator.findByCondition(modelEntity.getEntityName(), makeCondition(modelEntity, batch), fieldsToSelect, null));
+        }
+        return values;
+    }
+
+    private static EntityCondition makeCondition(ModelEntity modelEntity, List<GenericPK> primaryKeys) {
+        if (modelEntity.getPksSize() == 1) {
+            final String pkName = modelEntity.getPk(0).getName();
+            final List<Object> keys = new ArrayList<Object>(primaryKeys.size());
+            for (GenericPK primaryKey : primaryKeys) {
+                keys.add(primaryKey.get(pkName));
+            }
+            return new EntityExpr(pkName, IN, keys);
+        }
+        final List<EntityCondition> conditions = new ArrayList<EntityCondition>(primaryKeys.size());
+        for (GenericPK primaryKey : primaryKeys) {
+            conditions.add(new EntityFieldMap(primaryKey.getAllFields(), AND));
+        }
+        return new EntityConditionList(conditions, OR);
+    }
+
+    private static boolean isCacheable(ModelEntity modelEntity) {
+        return modelEntity != null && !modelEntity.getNeverCache() && modelEntity.getPksSize() > 0;
+    }
+
+    private static void addRow(Map<String, Map<GenericPK, Map<String, Object>>> rowsByEntity, GenericPK primaryKey,
+                               Map<String, Object> fields) {
+        final Map<GenericPK, Map<String, Object>> rows =
+                rowsByEntity.computeIfAbsent(primaryKey.getEntityName(), entityName -> new LinkedHashMap<GenericPK, Map<String, Object>>());
+        if (fields != null || !rows.containsKey(primaryKey)) {
+            rows.put(primaryKey, fields);
+        }
+    }
+
+    private static <K, V> List<Map.Entry<K, V>> cacheLines(UtilCache<K, V> cache) {
+        final List<Map.Entry<K, UtilCache.CacheLine<V>>> lines;
+        synchronized (cache) {
+            lines = new ArrayList<Map.Entry<K, UtilCache.CacheLine<V>>>(cache.cacheLineTable.entrySet());
+        }
+        final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>(lines.size());
+        for (Map.Entry<K, UtilCache.CacheLine<V>> line : lines) {
+            final V value = line.getValue().getValue();
+            if (value != null) {
+                entries.add(new SimpleImmutableEntry<K, V>(line.getKey(), value));
+            }
+        }
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readMap(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        return (Map<String, Object>) in.readObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> readList(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        return (List<Map<String, Object>>) in.readObject();
+    }
+
+    private static final class AndEntry {
+        final ModelEntity modelEntity;
+        final Map<String, Object> conditionFields;
+        final List<GenericPK> primaryKeys = new ArrayList<GenericPK>();
+
+        AndEntry(ModelEntity modelEntity, Map<String, Object> conditionFields) {
+            this.modelEntity = modelEntity;
+            this.conditionFields = conditionFields;
+        }
+    }
+}
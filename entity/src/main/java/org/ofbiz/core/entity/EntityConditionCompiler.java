@@ -0,0 +1,527 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.entity.jdbc.SqlJdbcUtil.FieldType;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.ofbiz.core.entity.EntityOperator.AND;
+import static org.ofbiz.core.entity.EntityOperator.OR;
+import static org.ofbiz.core.entity.jdbc.SqlJdbcUtil.getFieldType;
+
+/**
+ * Compiles an {@link EntityCondition} into a {@link Predicate} that evaluates it against values in memory, with
+ * the meaning of the SQL the condition would be turned into: a null right-hand side means IS NULL (or IS NOT NULL
+ * for {@link EntityOperator#NOT_EQUAL}), a null field value matches no comparison, and numbers of different
+ * classes are compared by value.
+ * <p>
+ * The field names, operators and constant values are all resolved when compiling, so evaluating the predicate
+ * does no lookups in the model and no dispatch on the operator; this makes it suitable for filtering cached lists
+ * over and over. Conditions containing an {@link EntityWhereString}, an {@link EntityConditionPlaceholder} or an
+ * operator that has no in-memory meaning (such as BETWEEN) cannot be compiled; see {@link #isCompilable}.
+ * <p>
+ * When given the field types, the constant values are also converted to the Java type of their field as the
+ * database would, so that for example <code>"3"</code> matches a Long field holding 3; constants that cannot be
+ * converted exactly make the condition impossible to compile.
+ */
+public final class EntityConditionCompiler {
+
+    private static final Predicate<GenericEntity> ALWAYS = value -> true;
+
+    private EntityConditionCompiler() {
+    }
+
+    /**
+     * Indicates whether the given condition can be compiled.
+     *
+     * @param condition the condition to check (can be null, meaning no condition)
+     * @return false if {@link #compile} would throw an {@link UnsupportedOperationException}
+     */
+    public static boolean isCompilable(final EntityCondition condition) {
+        if (condition == null) {
+            return true;
+        }
+        if (condition instanceof EntityFieldMap) {
+            return isJunction(((EntityFieldMap) condition).getOperator());
+        }
+        if (condition instanceof EntityConditionList) {
+            final EntityConditionList list = (EntityConditionList) condition;
+            if (!isJunction(list.getOperator())) {
+                return false;
+            }
+            for (Iterator<? extends EntityCondition> it = list.getConditionIterator(); it.hasNext(); ) {
+                if (!isCompilable(it.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition instanceof EntityExprList) {
+            final EntityExprList list = (EntityExprList) condition;
+            if (!isJunction(list.getOperator())) {
+                return false;
+            }
+            for (Iterator<? extends EntityExpr> it = list.getExprIterator(); it.hasNext(); ) {
+                if (!isCompilable(it.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition instanceof EntityExpr) {
+            final EntityExpr expr = (EntityExpr) condition;
+            if (expr.getLhs() instanceof EntityCondition) {
+                return isJunction(expr.getOperator()) && isCompilable((EntityCondition) expr.getLhs())
+                        && isCompilable((EntityCondition) expr.getRhs());
+            }
+            return isCompilableComparison(expr);
+        }
+        return false;
+    }
+
+    private static boolean isJunction(final EntityOperator operator) {
+        return AND.equals(operator) || OR.equals(operator);
+    }
+
+    private static boolean isCompilableComparison(final EntityExpr expr) {
+        final Object rhs = expr.getRhs();
+        if (rhs == null) {
+            return true;
+        }
+        if (rhs instanceof EntityConditionPlaceholder || rhs instanceof EntityCondition) {
+            return false;
+        }
+        switch (expr.getOperator().getId()) {
+            case EntityOperator.ID_EQUALS:
+            case EntityOperator.ID_NOT_EQUAL:
+            case EntityOperator.ID_LESS_THAN:
+            case EntityOperator.ID_GREATER_THAN:
+            case EntityOperator.ID_LESS_THAN_EQUAL_TO:
+            case EntityOperator.ID_GREATER_THAN_EQUAL_TO:
+                return !(rhs instanceof Collection);
+            case EntityOperator.ID_IN:
+                if (rhs instanceof Collection) {
+                    for (Object element : (Collection<?>) rhs) {
+                        if (element instanceof EntityConditionPlaceholder) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            case EntityOperator.ID_LIKE:
+                return rhs instanceof String;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compiles the given condition, comparing the constant values in it with the field values as they are.
+     *
+     * @param modelEntity the entity whose values will be tested (required)
+     * @param condition   the condition to compile (can be null, meaning that every value matches)
+     * @return a predicate that is true for the values matching the condition; it is thread-safe
+     * @throws GenericModelException         if the condition names a field that the entity does not have
+     * @throws UnsupportedOperationException if the condition cannot be evaluated in memory
+     */
+    public static Predicate<GenericEntity> compile(final ModelEntity modelEntity, final EntityCondition condition)
+            throws GenericModelException {
+        return compile(modelEntity, null, condition);
+    }
+
+    /**
+     * Compiles the given condition, converting the constant values in it to the Java types of their fields.
+     *
+     * @param modelEntity the entity whose values will be tested (required)
+     * @param fieldTypes  the field types of the entity's datasource, or null to compare the constants as they are
+     * @param condition   the condition to compile (can be null, meaning that every value matches)
+     * @return a predicate that is true for the values matching the condition; it is thread-safe
+     * @throws GenericModelException         if the condition names a field that the entity does not have
+     * @throws UnsupportedOperationException if the condition cannot be evaluated in memory, including when a
+     *                                       constant cannot be converted to the type of its field
+     */
+    public static Predicate<GenericEntity> compile(final ModelEntity modelEntity, final ModelFieldTypeReader fieldTypes,
+                                                   final EntityCondition condition) throws GenericModelException {
+        if (condition == null) {
+            return ALWAYS;
+        }
+        if (condition instanceof EntityExpr) {
+            final EntityExpr expr = (EntityExpr) condition;
+            if (expr.getLhs() instanceof EntityCondition) {
+                final List<Predicate<GenericEntity>> operands = new ArrayList<Predicate<GenericEntity>>(2);
+                operands.add(compile(modelEntity, fieldTypes, (EntityCondition) expr.getLhs()));
+                operands.add(compile(modelEntity, fieldTypes, (EntityCondition) expr.getRhs()));
+                return junction(expr.getOperator(), operands, condition);
+            }
+            return comparison(modelEntity, fieldTypes, expr);
+        }
+        if (condition instanceof EntityConditionList) {
+            final EntityConditionList list = (EntityConditionList) condition;
+            final List<Predicate<GenericEntity>> operands = new ArrayList<Predicate<GenericEntity>>(list.getConditionListSize());
+            for (Iterator<? extends EntityCondition> it = list.getConditionIterator(); it.hasNext(); ) {
+                operands.add(compile(modelEntity, fieldTypes, it.next()));
+            }
+            return junction(list.getOperator(), operands, condition);
+        }
+        if (condition instanceof EntityExprList) {
+            final EntityExprList list = (EntityExprList) condition;
+            final List<Predicate<GenericEntity>> operands = new ArrayList<Predicate<GenericEntity>>(list.getExprListSize());
+            for (Iterator<? extends EntityExpr> it = list.getExprIterator(); it.hasNext(); ) {
+                operands.add(compile(modelEntity, fieldTypes, it.next()));
+            }
+            return junction(list.getOperator(), operands, condition);
+        }
+        if (condition instanceof EntityFieldMap) {
+            final EntityFieldMap fieldMap = (EntityFieldMap) condition;
+            final List<Predicate<GenericEntity>> operands = new ArrayList<Predicate<GenericEntity>>();
+            for (Iterator<? extends Map.Entry<String, ?>> it = fieldMap.getFieldEntryIterator(); it.hasNext(); ) {
+                final Map.Entry<String, ?> entry = it.next();
+                final ModelField field = field(modelEntity, entry.getKey());
+                operands.add(equalTo(field.getName(), false, literal(field, fieldTypes, entry.getValue())));
+            }
+            return junction(fieldMap.getOperator(), operands, condition);
+        }
+        throw new UnsupportedOperationException("Cannot evaluate " + condition.getClass().getName() + " in memory: " + condition);
+    }
+
+    private static Predicate<GenericEntity> junction(final EntityOperator operator, final List<Predicate<GenericEntity>> operands,
+                                                     final EntityCondition condition) {
+        if (!isJunction(operator)) {
+            throw new UnsupportedOperationException("Cannot evaluate operator " + operator + " in memory: " + condition);
+        }
+        // an empty list makes no WHERE clause at all
+        if (operands.isEmpty()) {
+            return ALWAYS;
+        }
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+        final List<Predicate<GenericEntity>> list = new ArrayList<Predicate<GenericEntity>>(operands);
+        if (AND.equals(operator)) {
+            return value -> {
+                for (Predicate<GenericEntity> operand : list) {
+                    if (!operand.test(value)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return value -> {
+            for (Predicate<GenericEntity> operand : list) {
+                if (operand.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static ModelField field(final ModelEntity modelEntity, final Object lhs) throws GenericModelException {
+        final ModelField field = modelEntity.getField((String) lhs);
+        if (field == null) {
+            throw new GenericModelException("Field with name " + lhs + " not found in the " + modelEntity.getEntityName() + " Entity");
+        }
+        return field;
+    }
+
+    private static Predicate<GenericEntity> comparison(final ModelEntity modelEntity, final ModelFieldTypeReader fieldTypes,
+                                                       final EntityExpr expr) throws GenericModelException {
+        if (!isCompilableComparison(expr)) {
+            throw new UnsupportedOperationException("Cannot evaluate " + expr + " in memory");
+        }
+        final ModelField field = field(modelEntity, expr.getLhs());
+        final String fieldName = field.getName();
+        final boolean leftUpper = expr.isLUpper();
+        final Object rhs;
+        if (expr.getOperator().getId() == EntityOperator.ID_LIKE) {
+            // the pattern is matched against the text of the field value, which only means the same for text fields
+            if (fieldTypes != null && !isText(fieldType(field, fieldTypes))) {
+                throw new UnsupportedOperationException("Cannot evaluate " + expr + " in memory on a field that is not text");
+            }
+            rhs = expr.isRUpper() ? upper(expr.getRhs()) : expr.getRhs();
+        } else {
+            final Object literal = literal(field, fieldTypes, expr.getRhs());
+            rhs = expr.isRUpper() ? upper(literal) : literal;
+        }
+
+        if (rhs == null) {
+            // as in EntityExpr.makeWhereString, every operator but NOT_EQUAL means IS NULL
+            if (expr.getOperator().getId() == EntityOperator.ID_NOT_EQUAL) {
+                return value -> value.fields.get(fieldName) != null;
+            }
+            return value -> value.fields.get(fieldName) == null;
+        }
+        switch (expr.getOperator().getId()) {
+            case EntityOperator.ID_EQUALS:
+                return equalTo(fieldName, leftUpper, rhs);
+            case EntityOperator.ID_NOT_EQUAL: {
+                final Predicate<GenericEntity> equalTo = equalTo(fieldName, leftUpper, rhs);
+                return value -> value.fields.get(fieldName) != null && !equalTo.test(value);
+            }
+            case EntityOperator.ID_LESS_THAN:
+                return value -> {
+                    final Object fieldValue = get(value, fieldName, leftUpper);
+                    return fieldValue != null && compare(fieldValue, rhs) < 0;
+                };
+            case EntityOperator.ID_GREATER_THAN:
+                return value -> {
+                    final Object fieldValue = get(value, fieldName, leftUpper);
+                    return fieldValue != null && compare(fieldValue, rhs) > 0;
+                };
+            case EntityOperator.ID_LESS_THAN_EQUAL_TO:
+                return value -> {
+                    final Object fieldValue = get(value, fieldName, leftUpper);
+                    return fieldValue != null && compare(fieldValue, rhs) <= 0;
+                };
+            case EntityOperator.ID_GREATER_THAN_EQUAL_TO:
+                return value -> {
+                    final Object fieldValue = get(value, fieldName, leftUpper);
+                    return fieldValue != null && compare(fieldValue, rhs) >= 0;
+                };
+            case EntityOperator.ID_IN:
+                return rhs instanceof Collection ? in(fieldName, leftUpper, (Collection<?>) rhs) : equalTo(fieldName, leftUpper, rhs);
+            case EntityOperator.ID_LIKE: {
+                final Pattern pattern = likePattern((String) rhs);
+                return value -> {
+                    final Object fieldValue = get(value, fieldName, leftUpper);
+                    return fieldValue != null && pattern.matcher(fieldValue.toString()).matches();
+                };
+            }
+            default:
+                throw new UnsupportedOperationException("Cannot evaluate " + expr + " in memory");
+        }
+    }
+
+    private static Predicate<GenericEntity> equalTo(final String fieldName, final boolean leftUpper, final Object rhs) {
+        if (rhs == null) {
+            return value -> value.fields.get(fieldName) == null;
+        }
+        if (rhs instanceof Number) {
+            final Number number = (Number) rhs;
+            return value -> {
+                final Object fieldValue = value.fields.get(fieldName);
+                return number.equals(fieldValue) || fieldValue instanceof Number && compareNumbers((Number) fieldValue, number) == 0;
+            };
+        }
+        if (leftUpper) {
+            return value -> rhs.equals(get(value, fieldName, true));
+        }
+        if (rhs instanceof java.util.Date) {
+            // a Timestamp never equals a Date, but compares to it by time
+            return value -> {
+                final Object fieldValue = value.fields.get(fieldName);
+                return fieldValue instanceof java.util.Date && compare(fieldValue, rhs) == 0;
+            };
+        }
+        return value -> rhs.equals(value.fields.get(fieldName));
+    }
+
+    private static Predicate<GenericEntity> in(final String fieldName, final boolean leftUpper, final Collection<?> rhs) {
+        final Set<Object> values = new HashSet<Object>(rhs.size());
+        final Set<Long> integers = new HashSet<Long>();
+        final List<Number> otherNumbers = new ArrayList<Number>();
+        for (Object element : rhs) {
+            if (element == null) {
+                // NULL is never IN anything
+                continue;
+            }
+            if (isIntegral(element)) {
+                integers.add(((Number) element).longValue());
+            } else if (element instanceof Number) {
+                otherNumbers.add((Number) element);
+            } else {
+                values.add(element);
+            }
+        }
+        if (integers.isEmpty() && otherNumbers.isEmpty()) {
+            return value -> {
+                final Object fieldValue = get(value, fieldName, leftUpper);
+                return fieldValue != null && values.contains(fieldValue);
+            };
+        }
+        return value -> {
+            final Object fieldValue = get(value, fieldName, leftUpper);
+            if (fieldValue == null) {
+                return false;
+            }
+            if (isIntegral(fieldValue) && integers.contains(((Number) fieldValue).longValue())) {
+                return true;
+            }
+            if (fieldValue instanceof Number) {
+                for (Number number : otherNumbers) {
+                    if (compareNumbers((Number) fieldValue, number) == 0) {
+                        return true;
+                    }
+                }
+                if (integers.isEmpty() || isIntegral(fieldValue)) {
+                    return false;
+                }
+                for (Long integer : integers) {
+                    if (compareNumbers((Number) fieldValue, integer) == 0) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return values.contains(fieldValue);
+        };
+    }
+
+    /**
+     * Converts a constant, or each element of a collection of them, to the Java type of the given field, as binding
+     * it to a statement parameter would. Only exact conversions are done: numbers given as text are read as decimals,
+     * and anything else must already be of a type the field's values can be compared with.
+     *
+     * @throws UnsupportedOperationException if the constant cannot be converted
+     */
+    private static Object literal(final ModelField field, final ModelFieldTypeReader fieldTypes, final Object rhs) {
+        if (fieldTypes == null || rhs == null) {
+            return rhs;
+        }
+        final FieldType fieldType = fieldType(field, fieldTypes);
+        if (rhs instanceof Collection) {
+            final List<Object> values = new ArrayList<Object>(((Collection<?>) rhs).size());
+            for (Object element : (Collection<?>) rhs) {
+                values.add(element == null ? null : literal(field, fieldType, element));
+            }
+            return values;
+        }
+        return literal(field, fieldType, rhs);
+    }
+
+    private static Object literal(final ModelField field, final FieldType fieldType, final Object rhs) {
+        switch (fieldType) {
+            case STRING:
+            case CLOB:
+                if (rhs instanceof String) {
+                    return rhs;
+                }
+                break;
+            case INTEGER:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                if (rhs instanceof Number) {
+                    return rhs;
+                }
+                if (rhs instanceof String) {
+                    try {
+                        return new BigDecimal(((String) rhs).trim());
+                    } catch (NumberFormatException e) {
+                        // not a number, so only the database knows what it means
+                    }
+                }
+                break;
+            case TIMESTAMP:
+            case TIME:
+            case DATE:
+                if (rhs instanceof java.util.Date) {
+                    return rhs;
+                }
+                break;
+            case BOOLEAN:
+                if (rhs instanceof Boolean) {
+                    return rhs;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException("Cannot compare the " + fieldType + " field " + field.getName() +
+                " with the " + rhs.getClass().getName() + " " + rhs + " in memory");
+    }
+
+    private static FieldType fieldType(final ModelField field, final ModelFieldTypeReader fieldTypes) {
+        final ModelFieldType type = fieldTypes.getModelFieldType(field.getType());
+        if (type == null) {
+            throw new UnsupportedOperationException("No field type " + field.getType() + " for field " + field.getName());
+        }
+        try {
+            return getFieldType(type.getJavaType());
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedOperationException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean isText(final FieldType fieldType) {
+        return fieldType == FieldType.STRING || fieldType == FieldType.CLOB;
+    }
+
+    private static Object get(final GenericEntity value, final String fieldName, final boolean upper) {
+        final Object fieldValue = value.fields.get(fieldName);
+        return upper ? upper(fieldValue) : fieldValue;
+    }
+
+    private static Object upper(final Object value) {
+        if (value instanceof String) {
+            return ((String) value).toUpperCase();
+        }
+        if (value instanceof Collection) {
+            final List<Object> values = new ArrayList<Object>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                values.add(upper(element));
+            }
+            return values;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(final Object fieldValue, final Object rhs) {
+        if (fieldValue instanceof Number && rhs instanceof Number && fieldValue.getClass() != rhs.getClass()) {
+            return compareNumbers((Number) fieldValue, (Number) rhs);
+        }
+        return ((Comparable<Object>) fieldValue).compareTo(rhs);
+    }
+
+    private static boolean isIntegral(final Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private static int compareNumbers(final Number left, final Number right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        if (left instanceof BigDecimal || right instanceof BigDecimal || left instanceof BigInteger || right instanceof BigInteger) {
+            return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString()));
+        }
+        return Double.compare(left.doubleValue(), right.doubleValue());
+    }
+
+    /**
+     * Translates a SQL LIKE pattern, where % matches any characters and _ matches one character, to a regular
+     * expression.
+     */
+    static Pattern likePattern(final String like) {
+        final StringBuilder regex = new StringBuilder(like.length() + 8);
+        int literalStart = 0;
+        for (int i = 0; i < like.length(); i++) {
+            final char c = like.charAt(i);
+            if (c == '%' || c == '_') {
+                if (i > literalStart) {
+                    regex.append(Pattern.quote(like.substring(literalStart, i)));
+                }
+                regex.append(c == '%' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < like.length()) {
+            regex.append(Pattern.quote(like.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
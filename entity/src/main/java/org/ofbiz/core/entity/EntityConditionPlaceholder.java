@@ -0,0 +1,54 @@
+package org.ofbiz.core.entity;
+
+import java.io.Serializable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A named value for a {@link PreparedEntityCondition}, given as the right-hand side of an {@link EntityExpr}
+ * (or as an element of the collection of an {@link EntityOperator#IN IN} expression) in place of the value
+ * itself. The value is supplied each time the prepared condition is executed, for example:
+ * <pre>
+ *     new EntityExpr("project", EntityOperator.EQUALS, placeholder("project"))
+ * </pre>
+ * A placeholder stands for exactly one non-null value.
+ */
+public final class EntityConditionPlaceholder implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    private EntityConditionPlaceholder(final String name) {
+        this.name = requireNonNull(name, "name");
+    }
+
+    /**
+     * Returns the placeholder with the given name.
+     *
+     * @param name the key of the placeholder's value in the map passed when executing
+     * @return the placeholder
+     */
+    public static EntityConditionPlaceholder placeholder(final String name) {
+        return new EntityConditionPlaceholder(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof EntityConditionPlaceholder && name.equals(((EntityConditionPlaceholder) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return ':' + name;
+    }
+}
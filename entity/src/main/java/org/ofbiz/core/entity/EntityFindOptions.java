@@ -340,11 +340,25 @@ public class EntityFindOptions implements Serializable {
         this.fetchSize = fetchSize;
     }
 
+    /**
+     * Indicates whether the results will only be read forwards, which is the default. The
+     * {@link EntityListIterator} for such a find reads one row ahead to implement
+     * {@link EntityListIterator#hasNext()} instead of asking the ResultSet for its position, so
+     * together with a {@link #fetchSize(int) fetch size} this is the efficient way of streaming
+     * through large numbers of rows.
+     *
+     * @return see above
+     */
+    public boolean isForwardOnly() {
+        return specifyTypeAndConcurrency && resultSetType == ResultSet.TYPE_FORWARD_ONLY;
+    }
+
     /**
      * Same as using both {@link #setSpecifyTypeAndConcur(boolean) setSpecifyTypeAndConcur(true)}
      * and {@link #setResultSetType(int) setResultSetType(TYPE_FORWARD_ONLY)}.  Note that you
      * should also use either {@link #readOnly()} or {@link #updatable()} for maximum driver
-     * compatibility.
+     * compatibility. This is the default, and makes the resulting {@link EntityListIterator}
+     * forward only; see {@link #isForwardOnly()}.
      *
      * @return {@code this}, for convenient use as a chained builder
      */
@@ -23,8 +23,8 @@
 package org.ofbiz.core.entity;
 
 
+import org.ofbiz.core.entity.jdbc.RowMapper;
 import org.ofbiz.core.entity.jdbc.SQLProcessor;
-import org.ofbiz.core.entity.jdbc.SqlJdbcUtil;
 import org.ofbiz.core.entity.model.ModelEntity;
 import org.ofbiz.core.entity.model.ModelField;
 import org.ofbiz.core.entity.model.ModelFieldTypeReader;
@@ -44,6 +44,13 @@ import java.util.ListIterator;
  *
  * Note that you should *not* rely on this for streaming large datasets, as the backing ResultSet will pull the entire
  * dataset into memory anyway. For more information, see <a href="https://extranet.atlassian.com/display/JIRADEV/2015/08/04/PSA%3A+OfBizListIterator+Is+Not+Good+Enough">PSA: OfBizListIterator is not good enough</a>
+ * The exception is a forward only iterator over a forward only result set with a fetch size the driver honours,
+ * see {@link EntityFindOptions#forwardOnly()}.
+ * <p>
+ * A forward only iterator reads one row ahead to answer {@link #hasNext()}, rather than asking the ResultSet
+ * about its position, which many drivers can only do by buffering or fetching ahead, and some only for scrollable
+ * result sets. It can only be moved in other ways, such as by {@link #previous()} or {@link #absolute(int)}, when
+ * the ResultSet beneath it is scrollable; it then carries on from wherever it was moved to.
  *
  * @author     <a href="mailto:jonesde@ofbiz.org">David E. Jones</a>
  * @created    July 12, 2002
@@ -58,13 +65,48 @@ public class EntityListIterator implements ListIterator<GenericValue> {
     protected boolean closed = false;
     protected boolean haveMadeValue = false;
     protected GenericDelegator delegator = null;
+    // resolved from the select fields when the first value is made
+    private RowMapper rowMapper;
+
+    // the following are only used when forward only
+    protected final boolean forwardOnly;
+    // the row read by hasNext() but not yet returned by next()
+    private GenericValue lookAhead;
+    // the value at the current row, once made
+    private GenericValue current;
+    // the index of the current row
+    private int rowsReturned;
+    // whether the ResultSet has been moved past the current row to read ahead
+    private boolean ahead;
+    private boolean exhausted;
+    // whether the ResultSet has been moved by something other than next()
+    private boolean repositioned;
 
     public EntityListIterator(SQLProcessor sqlp, ModelEntity modelEntity, List<ModelField> selectFields, ModelFieldTypeReader modelFieldTypeReader) {
+        this(sqlp, modelEntity, selectFields, modelFieldTypeReader, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param forwardOnly whether this iterator only moves forwards, in which case {@link #hasNext()} reads a row ahead
+     *                    instead of calling the positional methods of the ResultSet
+     */
+    public EntityListIterator(SQLProcessor sqlp, ModelEntity modelEntity, List<ModelField> selectFields,
+                              ModelFieldTypeReader modelFieldTypeReader, boolean forwardOnly) {
         this.sqlp = sqlp;
         this.resultSet = sqlp.getResultSet();
         this.modelEntity = modelEntity;
         this.selectFields = selectFields;
         this.modelFieldTypeReader = modelFieldTypeReader;
+        this.forwardOnly = forwardOnly;
+    }
+
+    /**
+     * Indicates whether this iterator reads ahead instead of asking the ResultSet about its position.
+     */
+    public boolean isForwardOnly() {
+        return forwardOnly;
     }
 
     public void setDelegator(GenericDelegator delegator) {
@@ -119,7 +161,9 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      */
     public void afterLast() throws GenericEntityException {
         try {
+            checkScrollable("afterLast");
             resultSet.afterLast();
+            repositioned();
         } catch (SQLException e) {
             throw new GenericEntityException("Error setting the cursor to afterLast", e);
         }
@@ -130,7 +174,9 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      */
     public void beforeFirst() throws GenericEntityException {
         try {
+            checkScrollable("beforeFirst");
             resultSet.beforeFirst();
+            repositioned();
         } catch (SQLException e) {
             throw new GenericEntityException("Error setting the cursor to beforeFirst", e);
         }
@@ -141,7 +187,10 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      */
     public boolean last() throws GenericEntityException {
         try {
-            return resultSet.last();
+            checkScrollable("last");
+            final boolean onRow = resultSet.last();
+            repositioned();
+            return onRow;
         } catch (SQLException e) {
             throw new GenericEntityException("Error setting the cursor to last", e);
         }
@@ -152,7 +201,10 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      */
     public boolean first() throws GenericEntityException {
         try {
-            return resultSet.first();
+            checkScrollable("first");
+            final boolean onRow = resultSet.first();
+            repositioned();
+            return onRow;
         } catch (SQLException e) {
             throw new GenericEntityException("Error setting the cursor to first", e);
         }
@@ -173,13 +225,25 @@ public class EntityListIterator implements ListIterator<GenericValue> {
         if (closed)
             throw new GenericResultSetClosedException("This EntityListIterator has been closed, this operation cannot be performed");
 
-        GenericValue value = new GenericValue(modelEntity);
-
-        for (int j = 0; j < selectFields.size(); j++) {
-            ModelField curField = selectFields.get(j);
+        if (forwardOnly) {
+            if (current == null) {
+                if (ahead) {
+                    // the ResultSet is already on the row after this one
+                    throw new GenericEntityException("There is no current value before next() has been called");
+                }
+                current = makeValue();
+            }
+            return current;
+        }
+        return makeValue();
+    }
 
-            SqlJdbcUtil.getValue(resultSet, j + 1, curField, value, modelFieldTypeReader);
+    private GenericValue makeValue() throws GenericEntityException {
+        if (rowMapper == null) {
+            rowMapper = RowMapper.forFields(modelEntity, selectFields, modelFieldTypeReader);
         }
+        GenericValue value = new GenericValue(modelEntity);
+        rowMapper.map(resultSet, value);
 
         value.modified = false;
         value.copyOriginalDbValues();
@@ -192,6 +256,9 @@ public class EntityListIterator implements ListIterator<GenericValue> {
         if (closed)
             throw new GenericResultSetClosedException("This EntityListIterator has been closed, this operation cannot be performed");
 
+        if (forwardOnly) {
+            return rowsReturned;
+        }
         try {
             return resultSet.getRow();
         } catch (SQLException e) {
@@ -210,7 +277,10 @@ public class EntityListIterator implements ListIterator<GenericValue> {
             throw new GenericResultSetClosedException("This EntityListIterator has been closed, this operation cannot be performed");
 
         try {
-            return resultSet.absolute(rowNum);
+            checkScrollable("absolute");
+            final boolean onRow = resultSet.absolute(rowNum);
+            repositioned();
+            return onRow;
         } catch (SQLException e) {
             throw new GenericEntityException("Error setting the absolute index to " + rowNum, e);
         }
@@ -220,6 +290,9 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      * PLEASE NOTE: Because of the nature of the JDBC ResultSet interface this method can be very inefficient; it is much better to just use next() until it returns null
      */
     public boolean hasNext() {
+        if (forwardOnly) {
+            return peek() != null;
+        }
         try {
             if (resultSet.isLast() || resultSet.isAfterLast()) {
                 return false;
@@ -241,6 +314,9 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      * PLEASE NOTE: Because of the nature of the JDBC ResultSet interface this method can be very inefficient; it is much better to just use previous() until it returns null
      */
     public boolean hasPrevious() {
+        if (forwardOnly && ahead) {
+            return rowsReturned > 1;
+        }
         try {
             if (resultSet.isFirst() || resultSet.isBeforeFirst()) {
                 return false;
@@ -262,6 +338,16 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      * Moves the cursor to the next position and returns the GenericValue object for that position; if there is no next, returns null
      */
     public GenericValue next() {
+        if (forwardOnly) {
+            final GenericValue next = peek();
+            lookAhead = null;
+            if (next != null) {
+                current = next;
+                rowsReturned++;
+                ahead = false;
+            }
+            return next;
+        }
         try {
             if (resultSet.next()) {
                 return currentGenericValue();
@@ -275,6 +361,55 @@ public class EntityListIterator implements ListIterator<GenericValue> {
         }
     }
 
+    /**
+     * Reads the next row, if it has not been read already, without moving past it.
+     *
+     * @return the next value, or null if there are no more
+     */
+    private GenericValue peek() {
+        if (lookAhead == null && !exhausted) {
+            try {
+                ahead = true;
+                if (resultSet.next()) {
+                    lookAhead = makeValue();
+                } else {
+                    exhausted = true;
+                }
+            } catch (SQLException e) {
+                throw new GeneralRuntimeException("Error getting the next result", e);
+            } catch (GenericEntityException e) {
+                throw new GeneralRuntimeException("Error creating GenericValue", e);
+            }
+        }
+        return lookAhead;
+    }
+
+    /**
+     * Forgets what has been read ahead once the ResultSet has been moved by something other than next(), so that
+     * this iterator carries on from the row the ResultSet is now on.
+     */
+    private void repositioned() throws SQLException {
+        if (forwardOnly) {
+            lookAhead = null;
+            current = null;
+            ahead = false;
+            exhausted = false;
+            rowsReturned = resultSet.getRow();
+            repositioned = true;
+        }
+    }
+
+    /**
+     * Fails clearly, rather than with whatever the driver makes of it, when a forward only iterator is asked to move
+     * in a way its ResultSet does not allow.
+     */
+    private void checkScrollable(final String operation) throws SQLException, GenericEntityException {
+        if (forwardOnly && resultSet.getType() == ResultSet.TYPE_FORWARD_ONLY) {
+            throw new GenericEntityException("Cannot call " + operation + "() on an EntityListIterator over a forward only" +
+                    " ResultSet; find with a scrollable result set type to move it other than forwards");
+        }
+    }
+
     /**
      * Returns the index of the next result, but does not guarantee that there will be a next result
      */
@@ -291,7 +426,14 @@ public class EntityListIterator implements ListIterator<GenericValue> {
      */
     public GenericValue previous() {
         try {
-            if (resultSet.previous()) {
+            checkScrollable("previous");
+            if (forwardOnly && ahead) {
+                // step back onto the current row first
+                resultSet.previous();
+            }
+            final boolean onRow = resultSet.previous();
+            repositioned();
+            if (onRow) {
                 return currentGenericValue();
             } else {
                 return null;
@@ -324,6 +466,13 @@ public class EntityListIterator implements ListIterator<GenericValue> {
 
     public List<GenericValue> getCompleteList() throws GenericEntityException {
         try {
+            if (forwardOnly) {
+                if (rowsReturned > 0 || repositioned) {
+                    // only possible if the ResultSet is scrollable
+                    beforeFirst();
+                }
+                return drain(new LinkedList<GenericValue>(), Integer.MAX_VALUE);
+            }
             // if the resultSet has been moved forward at all, move back to the beginning
             if (haveMadeValue && !resultSet.isBeforeFirst()) {
                 // do a quick check to see if the ResultSet is empty
@@ -352,8 +501,21 @@ public class EntityListIterator implements ListIterator<GenericValue> {
             if (number == 0) return new ArrayList<GenericValue>();
             List<GenericValue> list = new ArrayList<GenericValue>(number);
 
+            if (forwardOnly && start > rowsReturned) {
+                // skip forward rather than repositioning, which forward only result sets may not allow
+                while (rowsReturned < start - 1) {
+                    if (next() == null) {
+                        throw new GenericEntityException("Could not move to the start position of " + start + ", there are probably not that many results for this find.");
+                    }
+                }
+                if (!hasNext()) {
+                    throw new GenericEntityException("Could not move to the start position of " + start + ", there are probably not that many results for this find.");
+                }
+                return drain(list, number);
+            }
+
             // if can't reposition to desired index, throw exception
-            if (!resultSet.absolute(start)) {
+            if (!absolute(start)) {
                 throw new GenericEntityException("Could not move to the start position of " + start + ", there are probably not that many results for this find.");
             }
 
@@ -370,13 +532,19 @@ public class EntityListIterator implements ListIterator<GenericValue> {
                 numRetreived++;
             }
             return list;
-        } catch (SQLException e) {
-            throw new GeneralRuntimeException("Error getting results", e);
         } catch (GeneralRuntimeException e) {
             throw new GenericEntityException(e.getNonNestedMessage(), e.getNested());
         }
     }
 
+    private List<GenericValue> drain(final List<GenericValue> list, final int number) {
+        GenericValue nextValue;
+        while (list.size() < number && (nextValue = next()) != null) {
+            list.add(nextValue);
+        }
+        return list;
+    }
+
     public void add(GenericValue obj) {
         throw new GeneralRuntimeException("CursorListIterator currently only supports read-only access");
     }
@@ -0,0 +1,170 @@
+package org.ofbiz.core.entity;
+
+/**
+ * Options for removing large numbers of rows in slices with
+ * {@link GenericDelegator#removeByConditionInSlices(String, EntityCondition, EntityPurgeOptions)}.
+ * Examples:
+ * <p>
+ * <pre><code>
+ *     EntityPurgeOptions options1 = new EntityPurgeOptions().sliceSize(500).pauseMillis(100);
+ *
+ *     EntityPurgeOptions options2 = EntityPurgeOptions.purgeOptions()
+ *          .targetSliceMillis(200)
+ *          .listener((entityName, sliceRemoved, totalRemoved, sliceMillis) -> log(totalRemoved));
+ * </code></pre>
+ * </p>
+ */
+public class EntityPurgeOptions {
+
+    public static final int DEFAULT_SLICE_SIZE = 1000;
+    public static final int DEFAULT_MIN_SLICE_SIZE = 10;
+    public static final int DEFAULT_MAX_SLICE_SIZE = 10000;
+
+    private int sliceSize = DEFAULT_SLICE_SIZE;
+    private int minSliceSize = DEFAULT_MIN_SLICE_SIZE;
+    private int maxSliceSize = DEFAULT_MAX_SLICE_SIZE;
+    private long targetSliceMillis;
+    private long pauseMillis;
+    private ProgressListener listener;
+
+    /**
+     * Creates a new set of purge options with the default values. Equivalent to calling the
+     * default constructor, but reads more fluently when chaining builder methods.
+     *
+     * @return a new instance
+     */
+    public static EntityPurgeOptions purgeOptions() {
+        return new EntityPurgeOptions();
+    }
+
+    /**
+     * Returns the number of rows to remove in the first slice, and in every slice if no
+     * {@link #getTargetSliceMillis() target duration} is set.
+     *
+     * @return see above
+     */
+    public int getSliceSize() {
+        return sliceSize;
+    }
+
+    /**
+     * Same as {@link #getSliceSize()}.
+     *
+     * @param sliceSize the number of rows; must be positive
+     * @return {@code this}, for convenient use as a chained builder
+     */
+    public EntityPurgeOptions sliceSize(final int sliceSize) {
+        this.sliceSize = positive(sliceSize, "sliceSize");
+        return this;
+    }
+
+    public int getMinSliceSize() {
+        return minSliceSize;
+    }
+
+    public int getMaxSliceSize() {
+        return maxSliceSize;
+    }
+
+    /**
+     * Specifies the bounds within which the slice size adapts to the target duration.
+     *
+     * @param minSliceSize the smallest slice; must be positive
+     * @param maxSliceSize the largest slice; must not be less than the smallest
+     * @return {@code this}, for convenient use as a chained builder
+     */
+    public EntityPurgeOptions sliceSizeRange(final int minSliceSize, final int maxSliceSize) {
+        if (maxSliceSize < minSliceSize) {
+            throw new IllegalArgumentException("maxSliceSize " + maxSliceSize + " is less than minSliceSize " + minSliceSize);
+        }
+        this.minSliceSize = positive(minSliceSize, "minSliceSize");
+        this.maxSliceSize = maxSliceSize;
+        return this;
+    }
+
+    /**
+     * Returns how long each slice should take. After each slice the size of the next one is scaled towards this
+     * duration, by at most a factor of two either way. Zero or less keeps the slice size fixed, which is the default.
+     *
+     * @return see above
+     */
+    public long getTargetSliceMillis() {
+        return targetSliceMillis;
+    }
+
+    /**
+     * Same as {@link #getTargetSliceMillis()}.
+     *
+     * @return {@code this}, for convenient use as a chained builder
+     */
+    public EntityPurgeOptions targetSliceMillis(final long targetSliceMillis) {
+        this.targetSliceMillis = targetSliceMillis;
+        return this;
+    }
+
+    /**
+     * Returns how long to sleep between slices, giving other transactions and replicas a chance to catch up.
+     * Zero or less does not pause, which is the default.
+     *
+     * @return see above
+     */
+    public long getPauseMillis() {
+        return pauseMillis;
+    }
+
+    /**
+     * Same as {@link #getPauseMillis()}.
+     *
+     * @return {@code this}, for convenient use as a chained builder
+     */
+    public EntityPurgeOptions pauseMillis(final long pauseMillis) {
+        this.pauseMillis = pauseMillis;
+        return this;
+    }
+
+    /**
+     * Returns the listener told about each committed slice, if any.
+     *
+     * @return null if there is none
+     */
+    public ProgressListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Same as {@link #getListener()}.
+     *
+     * @return {@code this}, for convenient use as a chained builder
+     */
+    public EntityPurgeOptions listener(final ProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    private static int positive(final int value, final String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive but was " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityPurgeOptions[sliceSize=" + sliceSize + ",minSliceSize=" + minSliceSize +
+                ",maxSliceSize=" + maxSliceSize + ",targetSliceMillis=" + targetSliceMillis +
+                ",pauseMillis=" + pauseMillis + ']';
+    }
+
+    /**
+     * Told about the progress of a purge after each slice has been committed.
+     */
+    public interface ProgressListener {
+        /**
+         * @param entityName   the entity being purged
+         * @param sliceRemoved the number of rows removed by this slice
+         * @param totalRemoved the number of rows removed so far
+         * @param sliceMillis  how long the slice took
+         */
+        void sliceRemoved(String entityName, int sliceRemoved, int totalRemoved, long sliceMillis);
+    }
+}
@@ -0,0 +1,76 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.entity.model.ModelEntity;
+
+import javax.annotation.Nullable;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * The number of rows matching some condition together with the latest {@link ModelEntity#STAMP_FIELD} among them.
+ * Because every insert and update sets the stamp, two equal summaries taken at different times mean that no row
+ * was added, updated or removed in between, which makes this a cheap way of checking that a cached list is still
+ * current.
+ */
+public final class EntityStampSummary {
+
+    private final Timestamp maxStamp;
+    private final int count;
+
+    public EntityStampSummary(@Nullable final Timestamp maxStamp, final int count) {
+        this.maxStamp = maxStamp;
+        this.count = count;
+    }
+
+    /**
+     * Summarises the given values, which must be of an entity that has a {@link ModelEntity#STAMP_FIELD}.
+     *
+     * @param values the values to summarise
+     * @return a summary of the values
+     */
+    public static EntityStampSummary of(final Collection<? extends GenericEntity> values) {
+        Timestamp maxStamp = null;
+        for (final GenericEntity value : values) {
+            final Timestamp stamp = value.getTimestamp(ModelEntity.STAMP_FIELD);
+            if (stamp != null && (maxStamp == null || stamp.after(maxStamp))) {
+                maxStamp = stamp;
+            }
+        }
+        return new EntityStampSummary(maxStamp, values.size());
+    }
+
+    /**
+     * Returns the latest stamp, or null if there are no rows or none of them has been stamped.
+     */
+    @Nullable
+    public Timestamp getMaxStamp() {
+        return maxStamp;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EntityStampSummary)) {
+            return false;
+        }
+        final EntityStampSummary other = (EntityStampSummary) o;
+        return count == other.count && Objects.equals(maxStamp, other.maxStamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(maxStamp) + count;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityStampSummary[maxStamp=" + maxStamp + ", count=" + count + "]";
+    }
+}
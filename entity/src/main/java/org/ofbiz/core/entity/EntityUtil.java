@@ -37,6 +37,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 
 /**
@@ -312,6 +313,30 @@ public class EntityUtil {
         return result;
     }
 
+    /**
+     * returns the values that match the condition, which is compiled once by
+     * {@link EntityConditionCompiler} and then evaluated against each value
+     *
+     * @param values    List of GenericValues, all of the same entity
+     * @param condition the condition the values must match
+     * @return List of GenericValue's that match the condition
+     * @throws GenericModelException if the condition names a field that the entity does not have
+     */
+    public static <T extends GenericEntity> List<T> filterByCondition(List<? extends T> values, EntityCondition condition) throws GenericModelException {
+        if (values == null) return null;
+        if (condition == null || values.isEmpty()) return new ArrayList<T>(values);
+
+        Predicate<GenericEntity> predicate = EntityConditionCompiler.compile(values.get(0).getModelEntity(), condition);
+        List<T> result = new ArrayList<T>(values.size());
+
+        for (T value : values) {
+            if (predicate.test(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
     /**
      * returns the values in the order specified
      *
@@ -27,6 +27,7 @@ package org.ofbiz.core.entity;
 import com.atlassian.util.concurrent.CopyOnWriteMap;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -40,6 +41,7 @@ import org.ofbiz.core.entity.jdbc.DatabaseUtil;
 import org.ofbiz.core.entity.jdbc.ExplicitCommitSQLProcessor;
 import org.ofbiz.core.entity.jdbc.PassThruSQLProcessor;
 import org.ofbiz.core.entity.jdbc.ReadOnlySQLProcessor;
+import org.ofbiz.core.entity.jdbc.RowMapper;
 import org.ofbiz.core.entity.jdbc.SQLProcessor;
 import org.ofbiz.core.entity.jdbc.SqlJdbcUtil;
 import org.ofbiz.core.entity.jdbc.dbtype.DatabaseType;
@@ -61,6 +63,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -107,6 +110,9 @@ public class GenericDAO {
     // The maximum amount of time to back off when contending with another thread for an atomic update
     private static final int MAX_BACK_OFF_MILLIS = 30;
 
+    // The maximum number of rows that storeAll sends to the database in one upsert batch
+    private static final int UPSERT_BATCH_SIZE = 500;
+
     protected static Map<String, GenericDAO> genericDAOs = CopyOnWriteMap.newHashMap();
     protected String helperName;
     protected ModelFieldTypeReader modelFieldTypeReader;
@@ -421,9 +427,27 @@ public class GenericDAO {
 
         final SQLProcessor sqlP = new ExplicitCommitSQLProcessor(helperName);
         try {
+            final Connection connection = sqlP.getConnection();
+            final DatabaseType databaseType = datasourceInfo.getDatabaseTypeFromJDBCConnection();
+            final List<GenericEntity> batch = new ArrayList<GenericEntity>();
+            String batchSql = null;
             int totalStored = 0;
             for (final GenericEntity entity : entities) {
-                totalStored += singleStore(entity, sqlP.getConnection());
+                final String upsertSql = getUpsertSql(databaseType, entity);
+                if (!batch.isEmpty() && (!batch.get(0).getEntityName().equals(entity.getEntityName()) ||
+                        !batchSql.equals(upsertSql) || batch.size() >= UPSERT_BATCH_SIZE)) {
+                    totalStored += upsertBatch(batchSql, batch, connection);
+                    batch.clear();
+                }
+                if (upsertSql == null) {
+                    totalStored += singleStore(entity, connection);
+                } else {
+                    batch.add(entity);
+                    batchSql = upsertSql;
+                }
+            }
+            if (!batch.isEmpty()) {
+                totalStored += upsertBatch(batchSql, batch, connection);
             }
             return totalStored;
         } catch (GenericDataSourceException e) {
@@ -434,6 +458,89 @@ public class GenericDAO {
         }
     }
 
+    /**
+     * Builds the statement that inserts or updates the given entity in one round trip, instead of selecting it
+     * first to find out which one to do.
+     *
+     * @param databaseType the type of the database (can be null)
+     * @param entity       the entity to store
+     * @return null if the entity has to be stored by {@link #singleStore}, because the database has no upsert
+     * statement, or the entity is a view, has no primary key, or is optimistically locked
+     */
+    private String getUpsertSql(final DatabaseType databaseType, final GenericEntity entity) {
+        final ModelEntity modelEntity = entity.getModelEntity();
+        if (databaseType == null || modelEntity instanceof ModelViewEntity || modelEntity.lock() ||
+                modelEntity.getPksSize() == 0) {
+            return null;
+        }
+
+        // like singleStore, only update the non-PK fields that are in the passed GenericEntity
+        final List<String> updateColumnNames = new ArrayList<String>();
+        final Collection<String> keys = entity.getAllKeys();
+        for (int fi = 0; fi < modelEntity.getNopksSize(); fi++) {
+            final ModelField curField = modelEntity.getNopk(fi);
+            if (keys.contains(curField.getName()) || ModelEntity.STAMP_FIELD.equals(curField.getName())) {
+                updateColumnNames.add(sqlEscapeHelper.escapeColumn(curField.getColName()));
+            }
+        }
+        return databaseType.getUpsertSQL(modelEntity.getTableName(datasourceInfo),
+                escapeColumnNames(modelEntity.getPksCopy()), escapeColumnNames(modelEntity.getFieldsCopy()),
+                updateColumnNames);
+    }
+
+    private List<String> escapeColumnNames(final List<ModelField> fields) {
+        final List<String> columnNames = new ArrayList<String>(fields.size());
+        for (final ModelField field : fields) {
+            columnNames.add(sqlEscapeHelper.escapeColumn(field.getColName()));
+        }
+        return columnNames;
+    }
+
+    /**
+     * Upserts the given entities of one entity type as a single JDBC batch.
+     *
+     * @param sql        the upsert statement returned by {@link #getUpsertSql} for each of the entities
+     * @param entities   the entities to store (required, not empty)
+     * @param connection the connection to use (required)
+     * @return the number of entities the database reports as stored
+     */
+    private int upsertBatch(final String sql, final List<GenericEntity> entities, final Connection connection)
+            throws GenericEntityException {
+        final ModelEntity modelEntity = entities.get(0).getModelEntity();
+        final List<ModelField> fieldsToSave = modelEntity.getFieldsCopy();
+        final SQLProcessor sqlP = new PassThruSQLProcessor(helperName, connection);
+        int stored = 0;
+        try {
+            sqlP.prepareStatement(sql);
+            for (final GenericEntity entity : entities) {
+                // if we have a STAMP_FIELD then set it with NOW.
+                if (modelEntity.isField(ModelEntity.STAMP_FIELD)) {
+                    entity.set(ModelEntity.STAMP_FIELD, UtilDateTime.nowTimestamp());
+                }
+                SqlJdbcUtil.setValues(sqlP, fieldsToSave, entity, modelFieldTypeReader);
+                sqlP.addBatch();
+            }
+            for (final int updateCount : sqlP.executeBatch()) {
+                // MySQL counts an updated row twice, and drivers may not know the count at all
+                if (updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO) {
+                    stored++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new GenericDataSourceException("SQL Exception while batching the following:" + sql, e);
+        } finally {
+            closeSafely(sql, sqlP);
+        }
+
+        for (final GenericEntity entity : entities) {
+            entity.modified = false;
+            if (entity instanceof GenericValue) {
+                ((GenericValue) entity).copyOriginalDbValues();
+            }
+        }
+        return stored;
+    }
+
     /**
      * Try to update the given ModelViewEntity by trying to insert/update on the entities of which the view is composed.
      * <p>
@@ -627,11 +734,7 @@ public class GenericDAO {
             sqlP.executeQuery();
 
             if (sqlP.next()) {
-                for (int j = 0; j < modelEntity.getNopksSize(); j++) {
-                    ModelField curField = modelEntity.getNopk(j);
-
-                    SqlJdbcUtil.getValue(sqlP.getResultSet(), j + 1, curField, entity, modelFieldTypeReader);
-                }
+                RowMapper.forFields(modelEntity, modelEntity.getNopksCopy(), modelFieldTypeReader).map(sqlP.getResultSet(), entity);
 
                 entity.modified = false;
                 if (entity instanceof GenericValue) {
@@ -698,11 +801,7 @@ public class GenericDAO {
             sqlP.executeQuery();
 
             if (sqlP.next()) {
-                for (int j = 0; j < partialFields.size(); j++) {
-                    ModelField curField = partialFields.get(j);
-
-                    SqlJdbcUtil.getValue(sqlP.getResultSet(), j + 1, curField, entity, modelFieldTypeReader);
-                }
+                RowMapper.forFields(modelEntity, partialFields, modelFieldTypeReader).map(sqlP.getResultSet(), entity);
 
                 entity.modified = false;
                 if (entity instanceof GenericValue) {
@@ -863,6 +962,60 @@ public class GenericDAO {
                 inQueryRewritter.getTableCleanUpHandler());
     }
 
+    /**
+     * Turns the given condition, which may contain {@link EntityConditionPlaceholder}s, into SQL once, for executing
+     * many times with {@link #selectListIteratorByPreparedCondition}.
+     *
+     * @param modelEntity    The ModelEntity of the Entity as defined in the entity XML file
+     * @param condition      The EntityCondition object that specifies how to constrain the query (null means all rows)
+     * @param fieldsToSelect The fields of the named entity to get from the database; if empty or null all fields will be retreived
+     * @param orderBy        The fields of the named entity to order the query by; optionally add a " ASC" for ascending or " DESC" for descending
+     * @param findOptions    can be null to use the default options
+     * @return the prepared condition
+     */
+    public PreparedEntityCondition prepareCondition(final ModelEntity modelEntity, final EntityCondition condition,
+                                                    final Collection<String> fieldsToSelect, final List<String> orderBy,
+                                                    final EntityFindOptions findOptions)
+            throws GenericEntityException {
+        final EntityFindOptions nonNullFindOptions = findOptions == null ? new EntityFindOptions() : findOptions;
+
+        EntityCondition whereEntityCondition = condition;
+        final DatabaseType databaseType = datasourceInfo.getDatabaseTypeFromJDBCConnection();
+        if (databaseType == ORACLE_8I || databaseType == ORACLE_10G) {
+            whereEntityCondition = rewriteConditionToSplitListsLargerThan(whereEntityCondition, ORACLE_MAX_LIST_SIZE);
+        }
+
+        final List<ModelField> selectFields = getSelectFields(modelEntity, fieldsToSelect);
+        final List<EntityConditionParam> whereEntityConditionParams = new ArrayList<EntityConditionParam>();
+        final String sql = getSelectQuery(selectFields, nonNullFindOptions, modelEntity, orderBy, whereEntityCondition,
+                null, whereEntityConditionParams, Collections.<EntityConditionParam>emptyList(), databaseType);
+
+        return PreparedEntityCondition.compiled(helperName, modelEntity, condition, fieldsToSelect, orderBy, nonNullFindOptions,
+                sql, selectFields, whereEntityConditionParams, modelFieldTypeReader);
+    }
+
+    /**
+     * Executes a condition prepared by {@link #prepareCondition}.
+     *
+     * @param preparedCondition the prepared condition
+     * @param values            the value of each of its placeholders, by name
+     * @return EntityListIterator representing the result of the query: NOTE THAT THIS MUST BE CLOSED WHEN YOU ARE
+     * DONE WITH IT, AND DON'T LEAVE IT OPEN TOO LONG BECAUSE IT WILL MAINTAIN A DATABASE CONNECTION.
+     */
+    public EntityListIterator selectListIteratorByPreparedCondition(final PreparedEntityCondition preparedCondition,
+                                                                    final Map<String, ?> values)
+            throws GenericEntityException {
+        if (!helperName.equals(preparedCondition.getHelperName()) || preparedCondition.getSql() == null) {
+            throw new IllegalArgumentException("Condition was not prepared by helper " + helperName + ": " + preparedCondition);
+        }
+        preparedCondition.checkValues(values);
+
+        final String sql = preparedCondition.getSql();
+        return openEntityListIterator(new ReadOnlySQLProcessor(helperName), sql, preparedCondition.getFindOptions(),
+                preparedCondition.getModelEntity(), preparedCondition.getSelectFields(),
+                sqlP -> preparedCondition.bind(sqlP, values), null);
+    }
+
     @VisibleForTesting
     EntityListIterator createEntityListIterator(final SQLProcessor sqlP, final String sql,
                                                 final EntityFindOptions nonNullFindOptions, final ModelEntity modelEntity,
@@ -870,22 +1023,33 @@ public class GenericDAO {
                                                 final List<EntityConditionParam> havingEntityConditionParams,
                                                 final TableCleanUp tableCleanUp)
             throws GenericEntityException {
+        return openEntityListIterator(sqlP, sql, nonNullFindOptions, modelEntity, selectFields, boundSqlP -> {
+            bindParameterValues(boundSqlP, modelEntity, whereEntityConditionParams, "where");
+            bindParameterValues(boundSqlP, modelEntity, havingEntityConditionParams, "having");
+        }, tableCleanUp);
+    }
+
+    private EntityListIterator openEntityListIterator(final SQLProcessor sqlP, final String sql,
+                                                      final EntityFindOptions nonNullFindOptions, final ModelEntity modelEntity,
+                                                      final List<ModelField> selectFields, final ParameterBinding parameterBinding,
+                                                      final TableCleanUp tableCleanUp)
+            throws GenericEntityException {
         try {
             // A data base connection is open when the call to prepareStatement is done (SQLProcessor's constructor does not open the connection)
             sqlP.prepareStatement(sql, nonNullFindOptions.isCustomResultSetTypeAndConcurrency(),
                     nonNullFindOptions.getResultSetType(), nonNullFindOptions.getResultSetConcurrency());
 
-            bindParameterValues(sqlP, modelEntity, whereEntityConditionParams, "where");
-            bindParameterValues(sqlP, modelEntity, havingEntityConditionParams, "having");
+            parameterBinding.bind(sqlP);
 
             setFetchSize(sqlP, nonNullFindOptions.getFetchSize());
             sqlP.executeQuery();
 
             //If we have any temporary tables they can be dropped after the list iterator is closed
+            final boolean forwardOnly = nonNullFindOptions.isForwardOnly();
             if (tableCleanUp == null) {
-                return new EntityListIterator(sqlP, modelEntity, selectFields, modelFieldTypeReader);
+                return new EntityListIterator(sqlP, modelEntity, selectFields, modelFieldTypeReader, forwardOnly);
             } else {
-                return new EntityListIteratorWithTemporaryTableCleanup(sqlP, modelEntity, selectFields, modelFieldTypeReader, tableCleanUp);
+                return new EntityListIteratorWithTemporaryTableCleanup(sqlP, modelEntity, selectFields, modelFieldTypeReader, forwardOnly, tableCleanUp);
             }
 
         }
@@ -1155,18 +1319,16 @@ public class GenericDAO {
                 SqlJdbcUtil.setValue(sqlP, mf, modelEntityOne.getEntityName(), curvalue, modelFieldTypeReader);
             }
             sqlP.executeQuery();
-            int collsize = collist.size();
+            List<ModelField> selectFields = new ArrayList<ModelField>(fldlist.size());
+            for (String fldname : fldlist) {
+                selectFields.add(modelEntityTwo.getField(fldname));
+            }
+            RowMapper rowMapper = RowMapper.forFields(modelEntityTwo, selectFields, modelFieldTypeReader);
 
             while (sqlP.next()) {
                 GenericValue gv = gd.makeValue(modelEntityTwo.getEntityName(), Collections.<String, Object>emptyMap());
 
-                // loop thru all columns for in one row
-                for (int j = 0; j < collsize; j++) {
-                    String fldname = fldlist.get(j);
-                    ModelField mf = modelEntityTwo.getField(fldname);
-
-                    SqlJdbcUtil.getValue(sqlP.getResultSet(), j + 1, mf, gv, modelFieldTypeReader);
-                }
+                rowMapper.map(sqlP.getResultSet(), gv);
                 retlist.add(gv);
             }
         } finally {
@@ -1278,6 +1440,7 @@ public class GenericDAO {
         }
 
         final SQLProcessor sqlP = new PassThruSQLProcessor(helperName, connection);
+        int stored = 0;
         try {
             sqlP.prepareStatement(sql);
             if (!whereFieldValues.isEmpty()) {
@@ -1312,20 +1475,32 @@ public class GenericDAO {
 
         SQLProcessor sqlP = new ExplicitCommitSQLProcessor(helperName);
         try {
-            Iterator<? extends GenericEntity> iter = dummyPKs.iterator();
-
+            final Connection connection = sqlP.getConnection();
+            // consecutive complete primary keys of the same entity are deleted together, keeping the given order
+            // between entities in case it matters to foreign keys
+            final List<GenericEntity> primaryKeys = new ArrayList<GenericEntity>();
             int numDeleted = 0;
 
-            while (iter.hasNext()) {
-                GenericEntity entity = iter.next();
+            for (final GenericEntity entity : dummyPKs) {
+                final boolean bulkDeletable = isBulkDeletable(entity);
+                if (!primaryKeys.isEmpty() &&
+                        (!bulkDeletable || !primaryKeys.get(0).getEntityName().equals(entity.getEntityName()))) {
+                    numDeleted += deleteByPrimaryKeys(primaryKeys, connection);
+                    primaryKeys.clear();
+                }
 
                 // if it contains a complete primary key, delete the one, otherwise deleteByAnd
-                if (entity.containsPrimaryKey()) {
-                    numDeleted += deleteImpl(entity, sqlP.getConnection());
+                if (bulkDeletable) {
+                    primaryKeys.add(entity);
+                } else if (entity.containsPrimaryKey()) {
+                    numDeleted += deleteImpl(entity, connection);
                 } else {
-                    numDeleted += deleteByAnd(entity.getModelEntity(), entity.getAllFields(), sqlP.getConnection());
+                    numDeleted += deleteByAnd(entity.getModelEntity(), entity.getAllFields(), connection);
                 }
             }
+            if (!primaryKeys.isEmpty()) {
+                numDeleted += deleteByPrimaryKeys(primaryKeys, connection);
+            }
             return numDeleted;
         } catch (GenericDataSourceException e) {
             sqlP.rollback();
@@ -1335,6 +1510,70 @@ public class GenericDAO {
         }
     }
 
+    private static boolean isBulkDeletable(final GenericEntity entity) {
+        final ModelEntity modelEntity = entity.getModelEntity();
+        if (modelEntity == null || modelEntity instanceof ModelViewEntity || modelEntity.getPksSize() == 0 ||
+                !entity.containsPrimaryKey()) {
+            return false;
+        }
+        // a null key value needs an IS NULL of its own
+        for (int i = 0; i < modelEntity.getPksSize(); i++) {
+            if (entity.get(modelEntity.getPk(i).getName()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the rows with the given primary keys, as few statements as the database's parameter limits allow.
+     * A single-column key is matched with IN, a composite key with an OR of each key's columns; either way every
+     * statement reports exactly how many rows it deleted, which a JDBC batch does not guarantee.
+     *
+     * @param primaryKeys complete, non-null primary keys of one entity (required, not empty)
+     * @param connection  the connection to use (required)
+     * @return the number of rows deleted
+     */
+    private int deleteByPrimaryKeys(final List<GenericEntity> primaryKeys, final Connection connection)
+            throws GenericEntityException {
+        final ModelEntity modelEntity = primaryKeys.get(0).getModelEntity();
+        final List<ModelField> pkFields = modelEntity.getPksCopy();
+        final int keysPerStatement = Math.max(1, ORACLE_MAX_LIST_SIZE / pkFields.size());
+
+        int numDeleted = 0;
+        for (final List<GenericEntity> chunk : Iterables.partition(primaryKeys, keysPerStatement)) {
+            final String sql = "DELETE FROM " + modelEntity.getTableName(datasourceInfo) + " WHERE " +
+                    makeWhereStringForPrimaryKeys(pkFields, chunk.size());
+
+            final SQLProcessor sqlP = new PassThruSQLProcessor(helperName, connection);
+            try {
+                sqlP.prepareStatement(sql);
+                for (final GenericEntity entity : chunk) {
+                    SqlJdbcUtil.setPkValues(sqlP, modelEntity, entity, modelFieldTypeReader);
+                }
+                numDeleted += sqlP.executeUpdate();
+            } finally {
+                closeSafely(sql, sqlP);
+            }
+        }
+
+        for (final GenericEntity entity : primaryKeys) {
+            entity.modified = true;
+        }
+        return numDeleted;
+    }
+
+    @VisibleForTesting
+    String makeWhereStringForPrimaryKeys(final List<ModelField> pkFields, final int keyCount) {
+        if (pkFields.size() == 1) {
+            return sqlEscapeHelper.escapeColumn(pkFields.get(0).getColName()) + " IN (" +
+                    Joiner.on(", ").join(Collections.nCopies(keyCount, "?")) + ')';
+        }
+        final String keyCondition = '(' + Joiner.on(" AND ").join(Iterables.transform(pkFields,
+                pkField -> sqlEscapeHelper.escapeColumn(pkField.getColName()) + "=?")) + ')';
+        return Joiner.on(" OR ").join(Collections.nCopies(keyCount, keyCondition));
+    }
+
     public void checkDb(Map<String, ? extends ModelEntity> modelEntities, Collection<String> messages, boolean addMissing) {
         DatabaseUtil dbUtil = new DatabaseUtil(this.helperName);
 
@@ -1413,6 +1652,54 @@ public class GenericDAO {
         return count;
     }
 
+    /**
+     * Returns the number of rows matching the given condition and the latest {@link ModelEntity#STAMP_FIELD} among
+     * them, using a single SELECT MAX(stamp), COUNT(*) query.
+     *
+     * @param modelEntity     the entity to query, which must have a stamp field
+     * @param entityCondition the condition to match (null means all rows)
+     * @return the summary of the matching rows
+     */
+    public EntityStampSummary stampSummary(final ModelEntity modelEntity, final EntityCondition entityCondition)
+            throws GenericEntityException {
+        final ModelField stampField = modelEntity.getField(ModelEntity.STAMP_FIELD);
+        if (stampField == null) {
+            throw new GenericModelException("Entity " + modelEntity.getEntityName() + " has no " + ModelEntity.STAMP_FIELD + " field");
+        }
+        final String tableName = modelEntity.getTableName(datasourceInfo);
+        final List<EntityConditionParam> whereEntityConditionParams = new LinkedList<EntityConditionParam>();
+        String entityCondWhereString = null;
+        if (entityCondition != null) {
+            entityCondWhereString = entityCondition.makeWhereString(modelEntity, whereEntityConditionParams, sqlEscapeHelper);
+        }
+        final String sql = countHelper.buildStampSummarySelectStatement(tableName,
+                sqlEscapeHelper.escapeColumn(stampField.getColName()), entityCondWhereString);
+
+        ResultSet resultSet = null;
+        SQLProcessor sqlP = new ReadOnlySQLProcessor(helperName);
+        try {
+            sqlP.prepareStatement(sql);
+            for (EntityConditionParam param : whereEntityConditionParams) {
+                SqlJdbcUtil.setValue(sqlP, param.getModelField(), modelEntity.getEntityName(), param.getFieldValue(), modelFieldTypeReader);
+            }
+            resultSet = sqlP.executeQuery();
+            if (resultSet.next()) {
+                return new EntityStampSummary(resultSet.getTimestamp(1), resultSet.getInt(2));
+            }
+            return new EntityStampSummary(null, 0);
+        } catch (SQLException e) {
+            throw new GenericEntityException("SQL Exception while executing the following:" + sql, e);
+        } finally {
+            if (resultSet != null) {
+                try {
+                    resultSet.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            closeSafely(sql, sqlP);
+        }
+    }
+
     /**
      * Applies the given transformation to any entities matching the given
      * condition, by performing a SELECT followed by an UPDATE. Does NOT do
@@ -1548,8 +1835,9 @@ public class GenericDAO {
         private TableCleanUp cleanUp;
 
         public EntityListIteratorWithTemporaryTableCleanup(SQLProcessor sqlp, ModelEntity modelEntity,
-                                                           List<ModelField> selectFields, ModelFieldTypeReader modelFieldTypeReader, TableCleanUp cleanUp) {
-            super(sqlp, modelEntity, selectFields, modelFieldTypeReader);
+                                                           List<ModelField> selectFields, ModelFieldTypeReader modelFieldTypeReader,
+                                                           boolean forwardOnly, TableCleanUp cleanUp) {
+            super(sqlp, modelEntity, selectFields, modelFieldTypeReader, forwardOnly);
             this.cleanUp = cleanUp;
         }
 
@@ -1567,6 +1855,10 @@ public class GenericDAO {
         void cleanUp(final SQLProcessor sqlP) throws GenericEntityException;
     }
 
+    private interface ParameterBinding {
+        void bind(SQLProcessor sqlP) throws GenericEntityException;
+    }
+
     /**
      * JDEV-31097: SQL server does not allow more than 2000 parameter markers (?) which can happen with huge IN queries
      * (e.g. where pid in (1, 2, 3, 4, ...)
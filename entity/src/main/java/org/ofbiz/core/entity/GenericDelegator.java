@@ -23,9 +23,11 @@
  */
 package org.ofbiz.core.entity;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import org.ofbiz.core.entity.cache.CoalescingCacheLoader;
 import org.ofbiz.core.entity.config.DatasourceInfo;
 import org.ofbiz.core.entity.config.EntityConfigUtil;
 import org.ofbiz.core.entity.jdbc.sql.escape.SqlEscapeHelper;
@@ -37,7 +39,9 @@ import org.ofbiz.core.entity.model.ModelGroupReader;
 import org.ofbiz.core.entity.model.ModelKeyMap;
 import org.ofbiz.core.entity.model.ModelReader;
 import org.ofbiz.core.entity.model.ModelRelation;
+import org.ofbiz.core.entity.model.ModelViewEntity;
 import org.ofbiz.core.util.Debug;
+import org.ofbiz.core.util.OffHeapCache;
 import org.ofbiz.core.util.UtilCache;
 import org.ofbiz.core.util.UtilMisc;
 import org.ofbiz.core.util.UtilXml;
@@ -47,8 +51,10 @@ import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,9 +65,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import static java.util.Optional.ofNullable;
+import static javax.transaction.Status.STATUS_ACTIVE;
 import static org.ofbiz.core.entity.EntityOperator.AND;
 import static org.ofbiz.core.entity.EntityOperator.LIKE;
 import static org.ofbiz.core.entity.EntityOperator.OR;
@@ -86,13 +95,17 @@ public class GenericDelegator implements DelegatorInterface {
     public static final String module = GenericDelegator.class.getName();
 
     private static final String MESSAGE = "Database is locked";
+    // the default number of primary keys kept in the not found cache, which cache.properties can override
+    private static final long NOT_FOUND_CACHE_MAX_SIZE = 10000;
 
     // A cache of delegator names to instances
     private static final LoadingCache<String, GenericDelegator> delegatorCache =
             CacheBuilder.newBuilder().build(new CacheLoader<String, GenericDelegator>() {
                 @Override
                 public GenericDelegator load(final String delegatorName) throws GenericEntityException {
-                    return new GenericDelegator(delegatorName);
+                    final GenericDelegator delegator = new GenericDelegator(delegatorName);
+                    delegator.startCacheSnapshot();
+                    return delegator;
                 }
             });
 
@@ -115,6 +128,10 @@ public class GenericDelegator implements DelegatorInterface {
      * @param delegatorName the name of the server configuration that corresponds to this delegator
      */
     public static synchronized void removeGenericDelegator(final String delegatorName) {
+        final GenericDelegator delegator = delegatorCache.getIfPresent(delegatorName);
+        if (delegator != null) {
+            delegator.stopCacheSnapshot();
+        }
         delegatorCache.invalidate(delegatorName);
     }
 
@@ -136,25 +153,53 @@ public class GenericDelegator implements DelegatorInterface {
     protected final ModelReader modelReader;
     protected final String delegatorName;
     protected final UtilCache<GenericEntity, GenericValue> primaryKeyCache;
+    // primary keys that findByPrimaryKeyCache found no value for, or null if not-found-cache-expire-time is not set
+    protected final UtilCache<GenericPK, Boolean> notFoundPrimaryKeyCache;
     protected final UtilCache<GenericPK, List<GenericValue>> andCache;
     protected final UtilCache<String, List<GenericValue>> allCache;
+    // second level by primary key cache for entities with off-heap-cache set, holds the serialized field values
+    protected final OffHeapCache<GenericPK, Map<String, Object>> offHeapPrimaryKeyCache;
+    // the values found by getRelatedOneCache, by relation and foreign key values
+    protected final RelatedOneCache relatedOneCache;
+    // let only one thread at a time load each missing line of the primary key, by and and all caches
+    protected final CoalescingCacheLoader<GenericPK, GenericValue> primaryKeyCacheLoader;
+    protected final CoalescingCacheLoader<GenericPK, List<GenericValue>> andCacheLoader;
+    protected final CoalescingCacheLoader<String, List<GenericValue>> allCacheLoader;
 
     // keeps a list of field key sets used in the by and cache, a Set (of Sets of fieldNames) for each entityName
     protected final Map<String, Set<Set<String>>> andCacheFieldSets = new HashMap<>();
 
+    // when each list in the all and by and caches was last found to match the stamps in the database, keyed by
+    // identity so that entries go away with the lists themselves
+    protected final Cache<List<GenericValue>, Long> cachedListValidationTimes = CacheBuilder.newBuilder().weakKeys().build();
+
     protected volatile DelegatorInfo delegatorInfo;
     protected volatile DistributedCacheClear distributedCacheClear;
     protected volatile SequenceUtil sequencer;
+    protected volatile Future<Integer> cacheSnapshotLoad;
+    // writes the cache snapshot when the JVM shuts down, if one is configured
+    private Thread cacheSnapshotWriter;
     protected SqlEscapeHelper sqlEscapeHelper;
 
+    // the key under which this delegator binds its identity map to a transaction
+    private final Object transactionIdentityMapKey = new Object();
+    // the key under which this delegator binds its deferred cache clearing to a transaction
+    private final Object transactionCacheClearKey = new Object();
+
     // this is really only for testing and the LockedDatabaseGenericDelegator ..... don't use unless know why!
     protected GenericDelegator() {
         modelGroupReader = null;
         modelReader = null;
         delegatorName = "";
         primaryKeyCache = null;
+        notFoundPrimaryKeyCache = null;
         andCache = null;
         allCache = null;
+        offHeapPrimaryKeyCache = null;
+        relatedOneCache = null;
+        primaryKeyCacheLoader = null;
+        andCacheLoader = null;
+        allCacheLoader = null;
     }
 
     /**
@@ -170,8 +215,16 @@ public class GenericDelegator implements DelegatorInterface {
         this.modelReader = ModelReader.getModelReader(delegatorName);
         this.modelGroupReader = ModelGroupReader.getModelGroupReader(delegatorName);
         this.primaryKeyCache = new UtilCache<GenericEntity, GenericValue>("entity.xFindByPrimaryKey." + delegatorName, 0, 0, true);
+        final long notFoundExpireTime = getDelegatorInfo() == null ? 0 : getDelegatorInfo().notFoundCacheExpireTime;
+        this.notFoundPrimaryKeyCache = notFoundExpireTime <= 0 ? null : new UtilCache<GenericPK, Boolean>(
+                "entity.NotFoundByPrimaryKey." + delegatorName, NOT_FOUND_CACHE_MAX_SIZE, notFoundExpireTime, false);
         this.allCache = new UtilCache<String, List<GenericValue>>("entity.FindAll." + delegatorName, 0, 0, true);
         this.andCache = new UtilCache<GenericPK, List<GenericValue>>("entity.FindByAnd." + delegatorName, 0, 0, true);
+        this.offHeapPrimaryKeyCache = new OffHeapCache<GenericPK, Map<String, Object>>("entity.OffHeapFindByPrimaryKey." + delegatorName);
+        this.relatedOneCache = new RelatedOneCache(delegatorName);
+        this.primaryKeyCacheLoader = new CoalescingCacheLoader<GenericPK, GenericValue>(primaryKeyCache.getName());
+        this.andCacheLoader = new CoalescingCacheLoader<GenericPK, List<GenericValue>>(andCache.getName());
+        this.allCacheLoader = new CoalescingCacheLoader<String, List<GenericValue>>(allCache.getName());
 
         if (!isLocked()) {
             initialiseAndCheckDatabase();
@@ -204,6 +257,42 @@ public class GenericDelegator implements DelegatorInterface {
         }
     }
 
+    /**
+     * If a cache-snapshot-location is configured, starts warming up the caches from the last snapshot in the
+     * background, and registers a shutdown hook that writes a new snapshot when the JVM exits. Called by the
+     * factory method once this delegator has been fully constructed, as the load runs on another thread; subclasses
+     * created some other way must call it themselves to use snapshots.
+     */
+    protected synchronized void startCacheSnapshot() {
+        final DelegatorInfo info = getDelegatorInfo();
+        if (isLocked() || info == null || info.cacheSnapshotLocation == null || cacheSnapshotLoad != null) {
+            return;
+        }
+        cacheSnapshotLoad = createCacheSnapshot().loadAsync(new File(info.cacheSnapshotLocation));
+        cacheSnapshotWriter = new Thread(() -> {
+            try {
+                writeCacheSnapshot();
+            } catch (IOException | RuntimeException e) {
+                Debug.logWarning(e, "Could not write the cache snapshot of delegator " + delegatorName + " on shutdown", module);
+            }
+        }, "EntityCacheSnapshotWriter-" + delegatorName);
+        Runtime.getRuntime().addShutdownHook(cacheSnapshotWriter);
+    }
+
+    /**
+     * Stops a snapshot being written on shutdown, as when this delegator is removed.
+     */
+    protected synchronized void stopCacheSnapshot() {
+        if (cacheSnapshotWriter != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(cacheSnapshotWriter);
+            } catch (IllegalStateException e) {
+                // already shutting down, so the snapshot is being written anyway
+            }
+            cacheSnapshotWriter = null;
+        }
+    }
+
     /**
      * If you got an instance of GenericDelegator while the whole thing was locked, you need to make sure you call this
      * once it becomes unlocked before you do anything.
@@ -564,6 +653,7 @@ public class GenericDelegator implements DelegatorInterface {
         final GenericHelper helper = getEntityHelper(value.getEntityName());
         value.setDelegator(this);
         value = helper.create(value);
+        evictFromTransactionIdentityMap(value);
 
         if (value != null) {
             value.setDelegator(this);
@@ -616,20 +706,34 @@ public class GenericDelegator implements DelegatorInterface {
             throw new IllegalArgumentException(
                     "[GenericDelegator.findByPrimaryKey] Passed primary key is not a valid primary key: " + primaryKey);
         }
+        final TransactionIdentityMap identityMap = getTransactionIdentityMap();
+        if (identityMap != null && identityMap.containsPrimaryKey(primaryKey)) {
+            final GenericValue held = identityMap.getByPrimaryKey(primaryKey);
+            if (held != null) {
+                held.setDelegator(this);
+            }
+            return held;
+        }
         GenericValue value;
         try {
-            value = helper.findByPrimaryKey(primaryKey);
+            value = retryIfTransient(helper, () -> helper.findByPrimaryKey(primaryKey));
         } catch (GenericEntityNotFoundException e) {
             value = null;
         }
         if (value != null) {
             value.setDelegator(this);
         }
+        if (identityMap != null) {
+            identityMap.putByPrimaryKey(primaryKey, value);
+        }
         return value;
     }
 
     /**
-     * Find a cached Generic Entity by its Primary Key.
+     * Find a cached Generic Entity by its Primary Key. If the entity has off-heap-cache
+     * set, the off-heap cache is consulted before going to the database. If the delegator
+     * has a not-found-cache-expire-time, primary keys for which there is no value are also
+     * cached, for that many milliseconds or until the cache line is cleared.
      *
      * @param primaryKey The primary key to find by.
      * @return The GenericValue corresponding to the primaryKey
@@ -638,10 +742,31 @@ public class GenericDelegator implements DelegatorInterface {
         checkIfLocked();
         GenericValue value = getFromPrimaryKeyCache(primaryKey);
         if (value == null) {
-            value = findByPrimaryKey(primaryKey);
+            value = getFromOffHeapPrimaryKeyCache(primaryKey);
             if (value != null) {
-                putInPrimaryKeyCache(primaryKey, value);
+                // promote back into the heap cache, it is already off-heap so don't serialize it again
+                primaryKeyCache.put(primaryKey, value);
+                return value;
             }
+            if (isInNotFoundPrimaryKeyCache(primaryKey)) {
+                return null;
+            }
+            value = primaryKeyCacheLoader.load(primaryKey, getCacheLoadTimeout(null), publisher -> {
+                // another thread may have loaded it since we looked
+                final GenericValue cached = getFromPrimaryKeyCache(primaryKey);
+                if (cached != null) {
+                    return cached;
+                }
+                final GenericValue found = findByPrimaryKey(primaryKey);
+                publisher.publish(() -> {
+                    if (found != null) {
+                        putInPrimaryKeyCache(primaryKey, found);
+                    } else {
+                        putInNotFoundPrimaryKeyCache(primaryKey);
+                    }
+                });
+                return found;
+            });
         }
         return value;
     }
@@ -692,7 +817,7 @@ public class GenericDelegator implements DelegatorInterface {
 
         GenericValue value;
         try {
-            value = helper.findByPrimaryKeyPartial(primaryKey, keys);
+            value = retryIfTransient(helper, () -> helper.findByPrimaryKeyPartial(primaryKey, keys));
         } catch (GenericEntityNotFoundException e) {
             value = null;
         }
@@ -838,11 +963,22 @@ public class GenericDelegator implements DelegatorInterface {
             throws GenericEntityException {
         checkIfLocked();
         List<GenericValue> lst = getFromAllCache(entityName);
+        if (lst != null && !isCachedListCurrent(getModelEntity(entityName), null, lst)) {
+            allCache.remove(entityName);
+            lst = null;
+        }
         if (lst == null) {
-            lst = findAll(entityName, orderBy);
-            if (lst != null) {
-                putInAllCache(entityName, lst);
-            }
+            lst = allCacheLoader.load(entityName, getCacheLoadTimeout(orderBy), publisher -> {
+                final List<GenericValue> cached = getFromAllCache(entityName);
+                if (cached != null) {
+                    return cached;
+                }
+                final List<GenericValue> found = findAll(entityName, orderBy);
+                if (found != null) {
+                    publisher.publish(() -> putInAllCache(entityName, found));
+                }
+                return found;
+            });
         }
         return lst;
     }
@@ -910,8 +1046,19 @@ public class GenericDelegator implements DelegatorInterface {
             throw new GenericModelException("At least one of the passed fields is not valid: " + fields.keySet());
         }
 
-        final List<GenericValue> list = helper.findByAnd(modelEntity, fields, orderBy);
+        final TransactionIdentityMap identityMap = getTransactionIdentityMap();
+        if (identityMap != null) {
+            final List<GenericValue> held = identityMap.getByAnd(modelEntity, fields, orderBy);
+            if (held != null) {
+                absorbList(held);
+                return held;
+            }
+        }
+        final List<GenericValue> list = retryIfTransient(helper, () -> helper.findByAnd(modelEntity, fields, orderBy));
         absorbList(list);
+        if (identityMap != null) {
+            identityMap.putByAnd(modelEntity, fields, orderBy, list);
+        }
         return list;
     }
 
@@ -936,7 +1083,7 @@ public class GenericDelegator implements DelegatorInterface {
                     "[GenericDelegator.findByOr] At least of the passed fields is not valid: " + fields.keySet());
         }
 
-        final List<GenericValue> list = helper.findByOr(modelEntity, fields, orderBy);
+        final List<GenericValue> list = retryIfTransient(helper, () -> helper.findByOr(modelEntity, fields, orderBy));
         absorbList(list);
         return list;
     }
@@ -973,15 +1120,88 @@ public class GenericDelegator implements DelegatorInterface {
         checkIfLocked();
         final ModelEntity modelEntity = getModelReader().getModelEntity(entityName);
         List<GenericValue> lst = getFromAndCache(modelEntity, fields);
+        if (lst != null && !isCachedListCurrent(modelEntity, fields, lst)) {
+            andCache.remove(new GenericPK(modelEntity, fields));
+            lst = null;
+        }
         if (lst == null) {
-            lst = findByAnd(modelEntity, fields, orderBy);
-            if (lst != null) {
-                putInAndCache(modelEntity, fields, lst);
-            }
+            lst = andCacheLoader.load(new GenericPK(modelEntity, fields), getCacheLoadTimeout(orderBy), publisher -> {
+                final List<GenericValue> cached = getFromAndCache(modelEntity, fields);
+                if (cached != null) {
+                    return cached;
+                }
+                final List<GenericValue> found = findByAnd(modelEntity, fields, orderBy);
+                if (found != null) {
+                    publisher.publish(() -> putInAndCache(modelEntity, fields, found));
+                }
+                return found;
+            });
         }
         return lst;
     }
 
+    /**
+     * Checks whether a list from the all or by and cache still matches the database, which is only done for
+     * entities with a {@link ModelEntity#STAMP_FIELD} and at most once per the delegator's cache-validation-interval.
+     * The list is current if the number of matching rows and the latest stamp among them are unchanged, so that
+     * changes made by other nodes are picked up without any cache clearing being broadcast.
+     *
+     * @param modelEntity the entity of the cached values
+     * @param fields      the by and fields the list is cached against, or null for the all cache
+     * @param list        the cached list
+     * @return false if the list should be discarded and read again
+     */
+    private boolean isCachedListCurrent(final ModelEntity modelEntity, final Map<String, ?> fields, final List<GenericValue> list)
+            throws GenericEntityException {
+        final long interval = getCacheValidationInterval();
+        if (interval <= 0 || modelEntity instanceof ModelViewEntity || !modelEntity.isField(ModelEntity.STAMP_FIELD)) {
+            return true;
+        }
+        final long now = System.currentTimeMillis();
+        final Long lastValidated = cachedListValidationTimes.getIfPresent(list);
+        if (lastValidated != null && now - lastValidated < interval) {
+            return true;
+        }
+
+        final EntityCondition condition = fields == null ? null : new EntityFieldMap(fields, AND);
+        final EntityStampSummary current = getEntityHelper(modelEntity).stampSummary(modelEntity, condition);
+        if (!current.equals(EntityStampSummary.of(list))) {
+            if (Debug.verboseOn()) {
+                Debug.logVerbose("Cached " + modelEntity.getEntityName() + " list for " + fields + " is out of date: " + current, module);
+            }
+            return false;
+        }
+        cachedListValidationTimes.put(list, now);
+        return true;
+    }
+
+    private void recordCachedListValidation(final ModelEntity entity, final List<GenericValue> cachedValues) {
+        if (getCacheValidationInterval() > 0 && entity.isField(ModelEntity.STAMP_FIELD)) {
+            cachedListValidationTimes.put(cachedValues, System.currentTimeMillis());
+        }
+    }
+
+    private long getCacheValidationInterval() {
+        final DelegatorInfo info = getDelegatorInfo();
+        return info == null ? 0 : info.cacheValidationInterval;
+    }
+
+    /**
+     * Returns how long to wait for another thread's load of the same cache line, or zero to load it without
+     * coalescing. Callers in a transaction must read the data as their own transaction sees it, and must not stall
+     * behind a load that may be waiting for their locks; ordered finds cannot share the result of another ordering.
+     *
+     * @param orderBy the ordering of the find, null if none
+     */
+    private long getCacheLoadTimeout(final List<String> orderBy) throws GenericTransactionException {
+        if ((orderBy != null && !orderBy.isEmpty()) || TransactionUtil.isTransactionActive() ||
+                TransactionUtil.getStatus() == STATUS_ACTIVE) {
+            return 0;
+        }
+        final DelegatorInfo info = getDelegatorInfo();
+        return info == null ? DelegatorInfo.DEFAULT_CACHE_LOAD_TIMEOUT : info.cacheLoadTimeout;
+    }
+
     /**
      * Finds Generic Entity records by all of the specified expressions (ie: combined using AND).
      *
@@ -1091,12 +1311,66 @@ public class GenericDelegator implements DelegatorInterface {
         if (entityCondition != null) {
             entityCondition.checkCondition(modelEntity);
         }
+        final Predicate<GenericEntity> predicate = getAllCachePredicate(modelEntity, entityCondition);
+        if (predicate != null) {
+            final List<GenericValue> list = new ArrayList<GenericValue>();
+            for (GenericValue cachedValue : findInAllCache(modelEntity, predicate)) {
+                // the cached values are shared, so return copies that the caller can change
+                final GenericValue value = new GenericValue(cachedValue);
+                value.copyOriginalDbValues();
+                list.add(value);
+            }
+            return orderBy == null || orderBy.isEmpty() ? list : EntityUtil.orderBy(list, orderBy);
+        }
         final GenericHelper helper = getEntityHelper(entityName);
-        final List<GenericValue> list = helper.findByCondition(modelEntity, entityCondition, fieldsToSelect, orderBy);
+        final List<GenericValue> list = retryIfTransient(helper,
+                () -> helper.findByCondition(modelEntity, entityCondition, fieldsToSelect, orderBy));
         absorbList(list);
         return list;
     }
 
+    /**
+     * Compiles the given condition if a find or count by it should filter the ALL cache instead of querying the
+     * database. That is the case for entities with find-from-all-cache set and conditions that can be evaluated in
+     * memory with the same result as in the database, but not in a transaction: the ALL cache is shared, so it must
+     * not be filled with what only this transaction can see, and the transaction must see its own changes.
+     *
+     * @return the compiled condition, or null to query the database
+     */
+    private Predicate<GenericEntity> getAllCachePredicate(final ModelEntity modelEntity, final EntityCondition entityCondition)
+            throws GenericEntityException {
+        if (allCache == null || !modelEntity.getFindFromAllCache() || modelEntity.getNeverCache()
+                || !EntityConditionCompiler.isCompilable(entityCondition)
+                || TransactionUtil.isTransactionActive() || TransactionUtil.getStatus() == STATUS_ACTIVE) {
+            return null;
+        }
+        final ModelFieldTypeReader fieldTypes = ModelFieldTypeReader.getModelFieldTypeReader(getEntityHelperName(modelEntity));
+        if (fieldTypes == null) {
+            return null;
+        }
+        try {
+            return EntityConditionCompiler.compile(modelEntity, fieldTypes, entityCondition);
+        } catch (UnsupportedOperationException e) {
+            // a constant that only the database knows how to compare with its field
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached values of the given entity that match the given condition, loading the ALL cache if
+     * needed; the returned values are the cached instances themselves.
+     */
+    private List<GenericValue> findInAllCache(final ModelEntity modelEntity, final Predicate<GenericEntity> predicate)
+            throws GenericEntityException {
+        final List<GenericValue> found = new ArrayList<GenericValue>();
+        for (GenericValue value : findAllCache(modelEntity.getEntityName())) {
+            if (predicate.test(value)) {
+                found.add(value);
+            }
+        }
+        return found;
+    }
+
     /**
      * Returns the count of the results that match all of the specified expressions (i.e. combined using AND).
      *
@@ -1167,8 +1441,26 @@ public class GenericDelegator implements DelegatorInterface {
         if (entityCondition != null) {
             entityCondition.checkCondition(modelEntity);
         }
-        GenericHelper helper = getEntityHelper(entityName);
-        return helper.count(modelEntity, fieldName, entityCondition, findOptions);
+        final Predicate<GenericEntity> predicate = fieldName == null || modelEntity.isField(fieldName)
+                ? getAllCachePredicate(modelEntity, entityCondition) : null;
+        if (predicate != null) {
+            final List<GenericValue> found = findInAllCache(modelEntity, predicate);
+            if (fieldName == null) {
+                return found.size();
+            }
+            // as in SQL, count(field) skips nulls and count(distinct field) also skips duplicates
+            final Collection<Object> fieldValues = findOptions != null && findOptions.getDistinct()
+                    ? new HashSet<Object>() : new ArrayList<Object>();
+            for (GenericValue value : found) {
+                final Object fieldValue = value.get(fieldName);
+                if (fieldValue != null) {
+                    fieldValues.add(fieldValue);
+                }
+            }
+            return fieldValues.size();
+        }
+        final GenericHelper helper = getEntityHelper(entityName);
+        return retryIfTransient(helper, () -> helper.count(modelEntity, fieldName, entityCondition, findOptions));
     }
 
     /**
@@ -1250,6 +1542,74 @@ public class GenericDelegator implements DelegatorInterface {
         return eli;
     }
 
+    /**
+     * Prepares a condition for executing many times with different values. The condition, ordering and options are
+     * turned into SQL once; the values that change between executions are given by
+     * {@link EntityConditionPlaceholder}s in the condition and supplied to {@link #findByPreparedCondition} or
+     * {@link #findListIteratorByPreparedCondition}. The result is immutable and may be kept and shared between threads.
+     *
+     * @param entityName     The Name of the Entity as defined in the entity model XML file
+     * @param condition      The EntityCondition object that specifies how to constrain the query, with placeholders
+     *                       for the values given on each execution (null means all rows)
+     * @param fieldsToSelect The fields of the named entity to get from the
+     *                       database; if empty or null all fields will be retreived
+     * @param orderBy        The fields of the named entity to order the query by;
+     *                       optionally add " ASC" for ascending or " DESC" for descending
+     * @param findOptions    An instance of EntityFindOptions that specifies
+     *                       advanced query options, including any limit on the results; null for the defaults
+     * @return the prepared condition
+     */
+    public PreparedEntityCondition prepareCondition(final String entityName, final EntityCondition condition,
+                                                    final Collection<String> fieldsToSelect, final List<String> orderBy,
+                                                    final EntityFindOptions findOptions)
+            throws GenericEntityException {
+        checkIfLocked();
+        final ModelEntity modelEntity = getModelReader().getModelEntity(entityName);
+        if (condition != null) {
+            condition.checkCondition(modelEntity);
+        }
+        return getEntityHelper(entityName).prepareCondition(modelEntity, condition, fieldsToSelect, orderBy, findOptions);
+    }
+
+    /**
+     * Finds the GenericValues matching a prepared condition with the given values.
+     *
+     * @param preparedCondition the condition returned by {@link #prepareCondition}
+     * @param values            the value of each of its placeholders, by name
+     * @return any matching values
+     */
+    public List<GenericValue> findByPreparedCondition(final PreparedEntityCondition preparedCondition, final Map<String, ?> values)
+            throws GenericEntityException {
+        checkIfLocked();
+        final EntityListIterator eli = findListIteratorByPreparedCondition(preparedCondition, values);
+        try {
+            final List<GenericValue> list = eli.getCompleteList();
+            absorbList(list);
+            return list;
+        } finally {
+            eli.close();
+        }
+    }
+
+    /**
+     * Finds the GenericValues matching a prepared condition with the given values.
+     *
+     * @param preparedCondition the condition returned by {@link #prepareCondition}
+     * @param values            the value of each of its placeholders, by name
+     * @return EntityListIterator representing the result of the query: NOTE
+     * THAT THIS MUST BE CLOSED WHEN YOU ARE DONE WITH IT, AND DON'T LEAVE IT
+     * OPEN TOO LONG BECAUSE IT WILL MAINTAIN A DATABASE CONNECTION.
+     */
+    public EntityListIterator findListIteratorByPreparedCondition(final PreparedEntityCondition preparedCondition,
+                                                                  final Map<String, ?> values)
+            throws GenericEntityException {
+        checkIfLocked();
+        final GenericHelper helper = getEntityHelper(preparedCondition.getEntityName());
+        final EntityListIterator eli = helper.findListIteratorByPreparedCondition(preparedCondition, values);
+        eli.setDelegator(this);
+        return eli;
+    }
+
     /**
      * Remove a Generic Entity corresponding to the primaryKey.
      *
@@ -1275,7 +1635,8 @@ public class GenericDelegator implements DelegatorInterface {
             clearCacheLine(primaryKey);
         }
         final GenericHelper helper = getEntityHelper(primaryKey.getEntityName());
-        return helper.removeByPrimaryKey(primaryKey);
+        evictFromTransactionIdentityMap(primaryKey);
+        return retryIfTransient(helper, () -> helper.removeByPrimaryKey(primaryKey));
     }
 
     /**
@@ -1302,7 +1663,8 @@ public class GenericDelegator implements DelegatorInterface {
         if (doCacheClear) {
             clearCacheLine(value);
         }
-        return helper.removeByPrimaryKey(value.getPrimaryKey());
+        evictFromTransactionIdentityMap(value);
+        return retryIfTransient(helper, () -> helper.removeByPrimaryKey(value.getPrimaryKey()));
     }
 
     /**
@@ -1335,7 +1697,8 @@ public class GenericDelegator implements DelegatorInterface {
             // always clear cache before the operation
             clearCacheLine(entityName, fields);
         }
-        return helper.removeByAnd(modelEntity, dummyValue.getAllFields());
+        evictFromTransactionIdentityMap(entityName);
+        return retryIfTransient(helper, () -> helper.removeByAnd(modelEntity, dummyValue.getAllFields()));
     }
 
     /**
@@ -1371,9 +1734,102 @@ public class GenericDelegator implements DelegatorInterface {
             Collection<GenericValue> toBeDeleted = helper.findByCondition(modelEntity, whereCondition, null, null);
             clearAllCacheLinesByValue(toBeDeleted);
         }
+        evictFromTransactionIdentityMap(entityName);
         return helper.removeByCondition(modelEntity, whereCondition);
     }
 
+    /**
+     * Removes/deletes Generic Entity records found by matching the EntityCondition a slice at a time, for purges that
+     * would lock too many rows or generate too much undo as a single DELETE. Each slice selects the next rows in
+     * primary key order using the database's limit syntax and deletes them by primary key in a local transaction of
+     * its own, then commits, clears their cache lines, reports its progress and optionally pauses.
+     * <br>Unlike {@link #removeByCondition}, the purge as a whole is not atomic: if it fails part way through, the
+     * slices already committed stay removed. For the same reason it cannot be called while a transaction is active,
+     * which would otherwise hold the locks of every slice until it ended. It also stops if a slice finds rows but
+     * removes none of them, which happens when another thread is removing the same rows.
+     *
+     * @param entityName     The Name of the Entity as defined in the entity XML file, which must have a primary key
+     * @param whereCondition The EntityCondition object that specifies how to constrain this query
+     * @param options        How to size, pace and report the slices; null means the defaults
+     * @return int representing number of rows affected by this operation
+     * @throws GenericTransactionException if a transaction is active
+     */
+    public int removeByConditionInSlices(final String entityName, final EntityCondition whereCondition,
+                                         final EntityPurgeOptions options) throws GenericEntityException {
+        checkIfLocked();
+        if (TransactionUtil.isTransactionActive() || TransactionUtil.getStatus() == STATUS_ACTIVE) {
+            throw new GenericTransactionException("Cannot remove " + entityName +
+                    " in slices while a transaction is active, as each slice is committed on its own");
+        }
+        final ModelEntity modelEntity = getModelReader().getModelEntity(entityName);
+        if (modelEntity.getPksSize() == 0) {
+            throw new GenericModelException("Cannot remove " + entityName + " in slices, as it has no primary key");
+        }
+        final EntityPurgeOptions nonNullOptions = options == null ? new EntityPurgeOptions() : options;
+        final GenericHelper helper = getEntityHelper(entityName);
+        final List<String> pkFieldNames = modelEntity.getPkFieldNames();
+        // the full rows are only needed to clear the by and cache
+        final List<String> fieldsToSelect = modelEntity.getNeverCache() ? pkFieldNames : null;
+
+        int sliceSize = nonNullOptions.getSliceSize();
+        int totalRemoved = 0;
+        while (true) {
+            final long sliceStart = System.currentTimeMillis();
+            final List<GenericValue> slice;
+            final int sliceRemoved;
+            final boolean began = TransactionUtil.beginLocalTransaction(helper.getHelperName(), -1);
+            try {
+                final EntityListIterator iterator = helper.findListIteratorByCondition(modelEntity, whereCondition, null,
+                        fieldsToSelect, pkFieldNames, new EntityFindOptions().maxResults(sliceSize));
+                try {
+                    slice = iterator.getCompleteList();
+                } finally {
+                    iterator.close();
+                }
+                sliceRemoved = slice.isEmpty() ? 0 : helper.removeAll(slice);
+                TransactionUtil.commitLocalTransaction(began);
+            } finally {
+                TransactionUtil.rollbackLocalTransaction(began);
+            }
+            if (slice.isEmpty()) {
+                return totalRemoved;
+            }
+
+            clearAllCacheLinesByValue(slice);
+            evictFromTransactionIdentityMap(entityName);
+            totalRemoved += sliceRemoved;
+            final long sliceMillis = System.currentTimeMillis() - sliceStart;
+            if (nonNullOptions.getListener() != null) {
+                nonNullOptions.getListener().sliceRemoved(entityName, sliceRemoved, totalRemoved, sliceMillis);
+            }
+
+            if (slice.size() < sliceSize || sliceRemoved == 0) {
+                return totalRemoved;
+            }
+            sliceSize = nextSliceSize(sliceSize, sliceMillis, nonNullOptions);
+            if (nonNullOptions.getPauseMillis() > 0) {
+                try {
+                    Thread.sleep(nonNullOptions.getPauseMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return totalRemoved;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scales the slice size towards the target duration, at most doubling or halving it at a time so that one
+     * unusually fast or slow slice does not throw it off.
+     */
+    static int nextSliceSize(final int sliceSize, final long sliceMillis, final EntityPurgeOptions options) {
+        if (options.getTargetSliceMillis() <= 0) {
+            return sliceSize;
+        }
+        final double scale = Math.max(0.5d, Math.min(2.0d, (double) options.getTargetSliceMillis() / Math.max(1L, sliceMillis)));
+        return (int) Math.max(options.getMinSliceSize(), Math.min(options.getMaxSliceSize(), Math.round(sliceSize * scale)));
+    }
+
     /**
      * Get the named Related Entity for the GenericValue from the persistent
      * store across another Relation. Helps to get related Values in a
@@ -1608,6 +2064,9 @@ public class GenericDelegator implements DelegatorInterface {
     /**
      * Get related entity where relation is of type one, uses findByPrimaryKey,
      * checking first in the cache to see if the desired value is there.
+     * Values found are also remembered by relation and foreign key, so that
+     * following the same relation again needs neither the model nor a
+     * primary key to be built.
      *
      * @param relationName the name of the relation to get (required)
      * @param value        the value whose relation to get (required)
@@ -1616,25 +2075,20 @@ public class GenericDelegator implements DelegatorInterface {
     public GenericValue getRelatedOneCache(final String relationName, final GenericValue value)
             throws GenericEntityException {
         checkIfLocked();
-        ModelEntity modelEntity = value.getModelEntity();
-        ModelRelation relation = modelEntity.getRelation(relationName);
-
-        if (relation == null) {
-            throw new GenericModelException(
-                    "Could not find relation for relationName: " + relationName + " for value " + value);
-        }
-        if (!"one".equals(relation.getType()) && !"one-nofk".equals(relation.getType())) {
-            throw new IllegalArgumentException("Relation is not a 'one' or a 'one-nofk' relation: " + relationName +
-                    " of entity " + value.getEntityName());
+        final RelatedOneCache.Relation relation = relatedOneCache.getRelation(value.getModelEntity(), relationName, this);
+        final RelatedOneCache.Key key = relation.isCacheable() ? relation.key(value) : null;
+        if (key != null) {
+            final GenericValue related = relatedOneCache.get(key);
+            if (related != null) {
+                return related;
+            }
         }
 
-        Map<String, Object> fields = new HashMap<String, Object>();
-        for (int i = 0; i < relation.getKeyMapsSize(); i++) {
-            ModelKeyMap keyMap = relation.getKeyMap(i);
-            fields.put(keyMap.getRelFieldName(), value.get(keyMap.getFieldName()));
+        final GenericValue related = findByPrimaryKeyCache(relation.getModelRelation().getRelEntityName(), relation.relatedFields(value));
+        if (related != null && key != null) {
+            relatedOneCache.put(key, related);
         }
-
-        return findByPrimaryKeyCache(relation.getRelEntityName(), fields);
+        return related;
     }
 
     /**
@@ -1704,6 +2158,8 @@ public class GenericDelegator implements DelegatorInterface {
             clearCacheLine(value);
         }
         GenericPK pk = value.getPrimaryKey();
+        // read it from the database even if the transaction's identity map holds it
+        evictFromTransactionIdentityMap(pk);
         GenericValue newValue = findByPrimaryKey(pk);
 
         if (newValue == null) {
@@ -1741,7 +2197,8 @@ public class GenericDelegator implements DelegatorInterface {
             clearCacheLine(value);
         }
 
-        final int retVal = helper.store(value);
+        final int retVal = retryIfTransient(helper, () -> helper.store(value));
+        evictFromTransactionIdentityMap(value);
         // refresh the valueObject to get the new version
         if (value.lockEnabled()) {
             refresh(value, doCacheClear);
@@ -1822,6 +2279,9 @@ public class GenericDelegator implements DelegatorInterface {
                     clearAllCacheLinesByValue(stringListEntry.getValue());
                 }
                 numberChanged += helper.storeAll(stringListEntry.getValue());
+                for (GenericValue value : stringListEntry.getValue()) {
+                    evictFromTransactionIdentityMap(value);
+                }
             }
 
             // only commit the transaction if we started one...
@@ -1916,14 +2376,19 @@ public class GenericDelegator implements DelegatorInterface {
                 String helperName = entry.getKey();
                 GenericHelper helper = GenericHelperFactory.getHelper(helperName);
 
-                if (doCacheClear) {
-                    clearAllCacheLinesByDummyPK(entry.getValue());
-                }
                 numRemoved += helper.removeAll(entry.getValue());
+                for (GenericEntity dummyPK : entry.getValue()) {
+                    evictFromTransactionIdentityMap(dummyPK);
+                }
             }
 
             // only commit the transaction if we started one...
             TransactionUtil.commit(beganTransaction);
+
+            // clear the cache in one pass once the rows are gone, so that a concurrent reader cannot cache them again
+            if (doCacheClear) {
+                clearAllCacheLinesByDummyPK(dummyPKs);
+            }
         } catch (GenericEntityException e) {
             try {
                 // only rollback the transaction if we started one...
@@ -1950,10 +2415,16 @@ public class GenericDelegator implements DelegatorInterface {
 
     public void clearAllCaches(boolean distribute) {
         checkIfLocked();
+        if (primaryKeyCacheLoader != null) primaryKeyCacheLoader.invalidateAll();
+        if (andCacheLoader != null) andCacheLoader.invalidateAll();
+        if (allCacheLoader != null) allCacheLoader.invalidateAll();
         if (allCache != null) allCache.clear();
         if (andCache != null) andCache.clear();
         if (andCacheFieldSets != null) andCacheFieldSets.clear();
         if (primaryKeyCache != null) primaryKeyCache.clear();
+        if (notFoundPrimaryKeyCache != null) notFoundPrimaryKeyCache.clear();
+        if (offHeapPrimaryKeyCache != null) offHeapPrimaryKeyCache.clear();
+        if (relatedOneCache != null) relatedOneCache.clear();
 
         if (distribute && distributedCacheClear != null) {
             distributedCacheClear.clearAllCaches();
@@ -1970,6 +2441,9 @@ public class GenericDelegator implements DelegatorInterface {
         checkIfLocked();
         // if no fields passed, do the all cache quickly and return
         if (fields == null && allCache != null) {
+            if (allCacheLoader != null) {
+                allCacheLoader.invalidate(entityName);
+            }
             allCache.remove(entityName);
             return;
         }
@@ -2006,28 +2480,59 @@ public class GenericDelegator implements DelegatorInterface {
             //if never cached, then don't bother clearing
             if (dummyPK.getModelEntity().getNeverCache()) return;
 
+            // stop loads that began before the change from caching what they read
+            if (allCacheLoader != null) {
+                allCacheLoader.invalidate(dummyPK.getEntityName());
+                if (dummyPK.isPrimaryKey()) {
+                    primaryKeyCacheLoader.invalidate(dummyPK);
+                } else {
+                    andCacheLoader.invalidate(dummyPK);
+                }
+            }
+
             // always auto clear the all cache too, since we know it's messed up in any case
             if (allCache != null) {
                 allCache.remove(dummyPK.getEntityName());
             }
 
-            // check to see if passed fields names exactly make the primary key...
-            if (dummyPK.isPrimaryKey()) {
-                // findByPrimaryKey
-                if (primaryKeyCache != null) {
-                    primaryKeyCache.remove(dummyPK);
-                }
-            } else {
-                if (dummyPK.size() > 0) {
-                    // findByAnd
-                    if (andCache != null) {
-                        andCache.remove(dummyPK);
-                    }
+            removeCacheLinesFlexible(dummyPK);
+
+            if (distribute) {
+                final TransactionCacheClear deferred = getTransactionCacheClear();
+                if (deferred != null) {
+                    deferred.addDummyPK(dummyPK);
+                } else if (distributedCacheClear != null) {
+                    distributedCacheClear.distributedClearCacheLineFlexible(dummyPK);
                 }
             }
+        }
+    }
 
-            if (distribute && distributedCacheClear != null) {
-                distributedCacheClear.distributedClearCacheLineFlexible(dummyPK);
+    /**
+     * Removes the primary key or by-and cache lines for the given fields, leaving the all cache alone.
+     */
+    private void removeCacheLinesFlexible(final GenericEntity dummyPK) {
+        // check to see if passed fields names exactly make the primary key...
+        if (dummyPK.isPrimaryKey()) {
+            // findByPrimaryKey
+            if (primaryKeyCache != null) {
+                primaryKeyCache.remove(dummyPK);
+            }
+            if (notFoundPrimaryKeyCache != null) {
+                notFoundPrimaryKeyCache.remove(dummyPK);
+            }
+            if (offHeapPrimaryKeyCache != null) {
+                offHeapPrimaryKeyCache.remove(dummyPK);
+            }
+            if (relatedOneCache != null) {
+                relatedOneCache.remove(dummyPK);
+            }
+        } else {
+            if (dummyPK.size() > 0) {
+                // findByAnd
+                if (andCache != null) {
+                    andCache.remove(dummyPK);
+                }
             }
         }
     }
@@ -2055,6 +2560,12 @@ public class GenericDelegator implements DelegatorInterface {
             return;
         }
 
+        // stop loads that began before the change from caching what they read
+        if (allCacheLoader != null) {
+            allCacheLoader.invalidate(primaryKey.getEntityName());
+            primaryKeyCacheLoader.invalidate(primaryKey);
+        }
+
         // always auto clear the all cache too, since we know it's messed up in any case
         if (allCache != null) {
             allCache.remove(primaryKey.getEntityName());
@@ -2063,9 +2574,23 @@ public class GenericDelegator implements DelegatorInterface {
         if (primaryKeyCache != null) {
             primaryKeyCache.remove(primaryKey);
         }
+        if (notFoundPrimaryKeyCache != null) {
+            notFoundPrimaryKeyCache.remove(primaryKey);
+        }
+        if (offHeapPrimaryKeyCache != null) {
+            offHeapPrimaryKeyCache.remove(primaryKey);
+        }
+        if (relatedOneCache != null) {
+            relatedOneCache.remove(primaryKey);
+        }
 
-        if (distribute && distributedCacheClear != null) {
-            distributedCacheClear.distributedClearCacheLine(primaryKey);
+        if (distribute) {
+            final TransactionCacheClear deferred = getTransactionCacheClear();
+            if (deferred != null) {
+                deferred.addPrimaryKey(primaryKey);
+            } else if (distributedCacheClear != null) {
+                distributedCacheClear.distributedClearCacheLine(primaryKey);
+            }
         }
     }
 
@@ -2098,13 +2623,32 @@ public class GenericDelegator implements DelegatorInterface {
         // If never cached, then don't bother clearing
         if (value.getModelEntity().getNeverCache()) return;
 
+        // stop loads that began before the change from caching what they read; any by and list may hold the value
+        if (allCacheLoader != null) {
+            allCacheLoader.invalidate(value.getEntityName());
+            primaryKeyCacheLoader.invalidate(value.getPrimaryKey());
+            andCacheLoader.invalidateIf(key -> key.getEntityName().equals(value.getEntityName()));
+        }
+
         // always auto clear the all cache too, since we know it's messed up in any case
         if (allCache != null) {
             allCache.remove(value.getEntityName());
         }
 
-        if (primaryKeyCache != null) {
-            primaryKeyCache.remove(value.getPrimaryKey());
+        if (primaryKeyCache != null || notFoundPrimaryKeyCache != null || offHeapPrimaryKeyCache != null) {
+            final GenericPK primaryKey = value.getPrimaryKey();
+            if (primaryKeyCache != null) {
+                primaryKeyCache.remove(primaryKey);
+            }
+            if (notFoundPrimaryKeyCache != null) {
+                notFoundPrimaryKeyCache.remove(primaryKey);
+            }
+            if (offHeapPrimaryKeyCache != null) {
+                offHeapPrimaryKeyCache.remove(primaryKey);
+            }
+        }
+        if (relatedOneCache != null) {
+            relatedOneCache.remove(value);
         }
 
         // now for the tricky part, automatically clearing from the by and cache
@@ -2166,8 +2710,13 @@ public class GenericDelegator implements DelegatorInterface {
             }
         }
 
-        if (distribute && distributedCacheClear != null) {
-            distributedCacheClear.distributedClearCacheLine(value);
+        if (distribute) {
+            final TransactionCacheClear deferred = getTransactionCacheClear();
+            if (deferred != null) {
+                deferred.addValue(value);
+            } else if (distributedCacheClear != null) {
+                distributedCacheClear.distributedClearCacheLine(value);
+            }
         }
     }
 
@@ -2198,11 +2747,72 @@ public class GenericDelegator implements DelegatorInterface {
         if (dummyPKs == null) {
             return;
         }
+        // the all cache only needs to be cleared once per entity, however many of its lines go
+        final Set<String> clearedEntityNames = new HashSet<String>();
+        final TransactionCacheClear deferred = getTransactionCacheClear();
         for (final GenericEntity dummyPK : dummyPKs) {
-            clearCacheLineFlexible(dummyPK);
+            if (dummyPK == null || dummyPK.getModelEntity().getNeverCache()) {
+                continue;
+            }
+            if (allCache != null && clearedEntityNames.add(dummyPK.getEntityName())) {
+                allCache.remove(dummyPK.getEntityName());
+            }
+            removeCacheLinesFlexible(dummyPK);
+            if (deferred != null) {
+                deferred.addDummyPK(dummyPK);
+            } else if (distributedCacheClear != null) {
+                distributedCacheClear.distributedClearCacheLineFlexible(dummyPK);
+            }
         }
     }
 
+    /**
+     * Called once a transaction with deferred cache clearing has committed: clears each cache line it wrote again,
+     * in case a concurrent reader cached the value from before the commit, then sends them all to the
+     * {@link DistributedCacheClear} together.
+     */
+    void clearCommittedCacheLines(final Collection<GenericValue> values, final Collection<GenericPK> primaryKeys,
+                                  final Collection<GenericEntity> dummyPKs) {
+        for (final GenericValue value : values) {
+            clearCacheLine(value, false);
+        }
+        for (final GenericPK primaryKey : primaryKeys) {
+            clearCacheLine(primaryKey, false);
+        }
+        for (final GenericEntity dummyPK : dummyPKs) {
+            clearCacheLineFlexible(dummyPK, false);
+        }
+        if (distributedCacheClear != null && !(values.isEmpty() && primaryKeys.isEmpty() && dummyPKs.isEmpty())) {
+            distributedCacheClear.distributedClearCacheLines(values, primaryKeys, dummyPKs);
+        }
+    }
+
+    /**
+     * @return the cache clearing deferred until the transaction in the current thread commits, or null if
+     * defer-cache-clear is not set or there is no transaction
+     */
+    private TransactionCacheClear getTransactionCacheClear() {
+        final DelegatorInfo info = getDelegatorInfo();
+        if (info == null || !info.deferCacheClear) {
+            return null;
+        }
+        TransactionCacheClear deferred = (TransactionCacheClear) TransactionUtil.getTransactionResource(transactionCacheClearKey);
+        if (deferred != null) {
+            return deferred;
+        }
+        deferred = new TransactionCacheClear(this);
+        try {
+            if (!TransactionUtil.registerSynchronization(deferred)
+                    || !TransactionUtil.bindTransactionResource(transactionCacheClearKey, deferred)) {
+                return null;
+            }
+        } catch (GenericTransactionException e) {
+            Debug.logWarning(e, "Could not defer cache clearing until the transaction commits; clearing now", module);
+            return null;
+        }
+        return deferred;
+    }
+
     public void clearAllCacheLinesByValue(final Collection<? extends GenericValue> values) {
         checkIfLocked();
         if (values == null) return;
@@ -2220,6 +2830,56 @@ public class GenericDelegator implements DelegatorInterface {
         return primaryKeyCache.get(primaryKey);
     }
 
+    /**
+     * Indicates whether findByPrimaryKeyCache recently found no value for the given primary key, within the
+     * delegator's not-found-cache-expire-time.
+     *
+     * @param primaryKey the primary key to look up (can be null)
+     * @return false if not-found caching is off or the key is not known to be missing
+     */
+    public boolean isInNotFoundPrimaryKeyCache(final GenericPK primaryKey) {
+        checkIfLocked();
+        return primaryKey != null && notFoundPrimaryKeyCache != null && notFoundPrimaryKeyCache.get(primaryKey) != null;
+    }
+
+    /**
+     * Records that there is no value for the given primary key, if not-found caching is on. The entry is removed
+     * by the same clearCacheLine calls that clear the primary key cache, so creating the value clears it.
+     *
+     * @param primaryKey the primary key that was not found (can be null)
+     */
+    public void putInNotFoundPrimaryKeyCache(final GenericPK primaryKey) {
+        checkIfLocked();
+        if (primaryKey == null || notFoundPrimaryKeyCache == null || primaryKey.getModelEntity().getNeverCache()) {
+            return;
+        }
+        notFoundPrimaryKeyCache.put(primaryKey, Boolean.TRUE);
+    }
+
+    /**
+     * Gets a value from the off-heap primary key cache, if its entity has off-heap-cache set.
+     *
+     * @param primaryKey the primary key to look up (can be null)
+     * @return a newly deserialized value, or null if the value is not in the off-heap cache
+     */
+    private GenericValue getFromOffHeapPrimaryKeyCache(final GenericPK primaryKey) {
+        if (primaryKey == null || offHeapPrimaryKeyCache == null) {
+            return null;
+        }
+        final ModelEntity modelEntity = primaryKey.getModelEntity();
+        if (modelEntity == null || modelEntity.getNeverCache() || !modelEntity.getOffHeapCache()) {
+            return null;
+        }
+        final Map<String, Object> fields = offHeapPrimaryKeyCache.get(primaryKey);
+        if (fields == null) {
+            return null;
+        }
+        final GenericValue value = new GenericValue(this, modelEntity, fields);
+        value.modified = false;
+        value.copyOriginalDbValues();
+        return value;
+    }
+
     public List<GenericValue> getFromAllCache(final String entityName) {
         checkIfLocked();
         if (entityName == null) {
@@ -2260,6 +2920,12 @@ public class GenericDelegator implements DelegatorInterface {
         }
 
         primaryKeyCache.put(primaryKey, value);
+        if (notFoundPrimaryKeyCache != null) {
+            notFoundPrimaryKeyCache.remove(primaryKey);
+        }
+        if (offHeapPrimaryKeyCache != null && value.getModelEntity().getOffHeapCache()) {
+            offHeapPrimaryKeyCache.put(value.getPrimaryKey(), new HashMap<String, Object>(value.fields));
+        }
     }
 
     public void putAllInPrimaryKeyCache(final List<? extends GenericValue> values) {
@@ -2299,7 +2965,9 @@ public class GenericDelegator implements DelegatorInterface {
             makes the list immutable, but not the elements in it, which will
             still be mutable GenericValue objects.
          */
-        allCache.put(entity.getEntityName(), Collections.unmodifiableList(values));
+        final List<GenericValue> cachedValues = Collections.unmodifiableList(values);
+        allCache.put(entity.getEntityName(), cachedValues);
+        recordCachedListValidation(entity, cachedValues);
     }
 
     public void putInAndCache(
@@ -2333,7 +3001,9 @@ public class GenericDelegator implements DelegatorInterface {
             makes the list immutable, but not the elements in it, which will
             still be mutable GenericValue objects.
          */
-        andCache.put(tempPK, Collections.unmodifiableList(values));
+        final List<GenericValue> cachedValues = Collections.unmodifiableList(values);
+        andCache.put(tempPK, cachedValues);
+        recordCachedListValidation(entity, cachedValues);
 
         // now make sure the fieldName set used for this entry is in the
         // andCacheFieldSets Map which contains a Set of Sets of fieldNames for each entityName
@@ -2521,6 +3191,152 @@ public class GenericDelegator implements DelegatorInterface {
         return allCache;
     }
 
+    public OffHeapCache<GenericPK, Map<String, Object>> getOffHeapPrimaryKeyCache() {
+        checkIfLocked();
+        return offHeapPrimaryKeyCache;
+    }
+
+    public UtilCache<GenericPK, Boolean> getNotFoundPrimaryKeyCache() {
+        checkIfLocked();
+        return notFoundPrimaryKeyCache;
+    }
+
+    public RelatedOneCache getRelatedOneValueCache() {
+        checkIfLocked();
+        return relatedOneCache;
+    }
+
+    public CoalescingCacheLoader<GenericPK, GenericValue> getPrimaryKeyCacheLoader() {
+        checkIfLocked();
+        return primaryKeyCacheLoader;
+    }
+
+    public CoalescingCacheLoader<GenericPK, List<GenericValue>> getAndCacheLoader() {
+        checkIfLocked();
+        return andCacheLoader;
+    }
+
+    public CoalescingCacheLoader<String, List<GenericValue>> getAllCacheLoader() {
+        checkIfLocked();
+        return allCacheLoader;
+    }
+
+    /**
+     * Writes the keys (and, if cache-snapshot-values is set, the values) of the primary key and "by and" caches
+     * to the cache-snapshot-location configured for this delegator, so that they can be warmed up again when the
+     * delegator is next created. Called by a shutdown hook registered when the delegator is created, and may also be
+     * called at any other time, for example before a planned restart that skips the hooks.
+     *
+     * @return the number of rows written, or zero if no cache-snapshot-location is configured
+     * @throws IOException if the snapshot could not be written
+     */
+    public int writeCacheSnapshot() throws IOException {
+        checkIfLocked();
+        final String location = getDelegatorInfo().cacheSnapshotLocation;
+        if (location == null) {
+            return 0;
+        }
+        return createCacheSnapshot().write(new File(location));
+    }
+
+    /**
+     * Returns the background load of the cache snapshot that was started when this delegator was created;
+     * wait on it before taking traffic if warm caches are needed.
+     *
+     * @return null if no cache-snapshot-location is configured
+     */
+    public Future<Integer> getCacheSnapshotLoad() {
+        checkIfLocked();
+        return cacheSnapshotLoad;
+    }
+
+    /**
+     * Turns on the identity map for the transaction in the current thread, so that for the rest of it repeated
+     * findByPrimaryKey and findByAnd calls through this delegator are answered without going back to the database.
+     * The map sees the transaction's own writes through this delegator and is discarded when the transaction
+     * commits or rolls back. Does nothing if it is already on.
+     *
+     * @return false if there is no transaction in the current thread, in which case nothing is turned on
+     * @see TransactionIdentityMap
+     */
+    public boolean enableTransactionIdentityMap() throws GenericEntityException {
+        checkIfLocked();
+        if (getTransactionIdentityMap() != null) {
+            return true;
+        }
+        return TransactionUtil.bindTransactionResource(transactionIdentityMapKey, new TransactionIdentityMap());
+    }
+
+    /**
+     * Runs a unit of work, running it again if it fails transiently, as when it is chosen as a deadlock victim;
+     * see {@link TransientFailureRetry}. The work should begin and end its own transaction, since one that has failed
+     * this way has been rolled back; if a transaction is already active, the work is run once.
+     *
+     * @param entityName an entity of the datasource that the work uses, which decides what failures are transient
+     *                   and how long to keep retrying
+     * @param work       the work to run
+     * @return what the work returned
+     * @throws GenericEntityException the last failure of the work
+     */
+    public <T> T executeWithRetry(final String entityName, final TransientFailureRetry.Work<T> work)
+            throws GenericEntityException {
+        checkIfLocked();
+        return TransientFailureRetry.forHelper(getEntityHelperName(entityName)).execute(work);
+    }
+
+    /**
+     * Runs an idempotent statement through the helper, retrying transient failures if retry-transient-failures is
+     * set; it is only retried outside a transaction.
+     */
+    private <T> T retryIfTransient(final GenericHelper helper, final TransientFailureRetry.Work<T> work)
+            throws GenericEntityException {
+        final DelegatorInfo info = getDelegatorInfo();
+        if (info == null || !info.retryTransientFailures) {
+            return work.run();
+        }
+        return TransientFailureRetry.forHelper(helper.getHelperName()).execute(work);
+    }
+
+    /**
+     * Opens a connection session on the current thread, so that until it is closed, reads and auto-committed writes
+     * outside a transaction reuse one connection per datasource instead of borrowing one from the pool for each
+     * statement. Use it with try-with-resources; if a session is already open on the thread, this joins it.
+     *
+     * @return the session, to be closed by the same thread
+     * @see ConnectionSession
+     */
+    public ConnectionSession openConnectionSession() {
+        checkIfLocked();
+        return ConnectionSession.open();
+    }
+
+    /**
+     * @return the identity map of the transaction in the current thread, or null if it is not turned on
+     */
+    private TransactionIdentityMap getTransactionIdentityMap() {
+        return (TransactionIdentityMap) TransactionUtil.getTransactionResource(transactionIdentityMapKey);
+    }
+
+    private void evictFromTransactionIdentityMap(final GenericEntity entity) {
+        final TransactionIdentityMap identityMap = getTransactionIdentityMap();
+        if (identityMap != null && entity != null) {
+            identityMap.evict(entity);
+        }
+    }
+
+    private void evictFromTransactionIdentityMap(final String entityName) {
+        final TransactionIdentityMap identityMap = getTransactionIdentityMap();
+        if (identityMap != null) {
+            identityMap.evictEntity(entityName);
+        }
+    }
+
+    private EntityCacheSnapshot createCacheSnapshot() {
+        final DelegatorInfo delegatorInfo = getDelegatorInfo();
+        return new EntityCacheSnapshot(this, delegatorInfo.cacheSnapshotMaxEntries, delegatorInfo.cacheSnapshotValues,
+                delegatorInfo.cacheSnapshotMaxAge);
+    }
+
     @Override
     public List<GenericValue> transform(final String entityName, final EntityCondition entityCondition,
                                         final List<String> orderBy, final String lockField, final Transformation transformation)
@@ -2530,6 +3346,7 @@ public class GenericDelegator implements DelegatorInterface {
         final GenericHelper entityHelper = getEntityHelper(entityName);
         final List<GenericValue> transformedEntities =
                 entityHelper.transform(modelEntity, entityCondition, orderBy, lockField, transformation);
+        evictFromTransactionIdentityMap(entityName);
         for (final GenericValue genericValue : transformedEntities) {
             genericValue.setDelegator(this);
         }
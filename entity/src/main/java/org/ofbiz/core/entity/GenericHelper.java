@@ -150,6 +150,42 @@ public interface GenericHelper {
                                                    EntityFindOptions findOptions)
             throws GenericEntityException;
 
+    /**
+     * Prepares the given condition, which may contain {@link EntityConditionPlaceholder}s, for executing many times
+     * with {@link #findListIteratorByPreparedCondition}. By default nothing is prepared in advance and each execution
+     * binds the values into the condition and finds by it; helpers that can reuse a statement should override both.
+     *
+     * @param modelEntity    The ModelEntity of the Entity as defined in the entity XML file
+     * @param condition      The EntityCondition object that specifies how to constrain the query (null means all rows)
+     * @param fieldsToSelect The fields of the named entity to get from the database; if empty or null all fields will
+     *                       be retreived
+     * @param orderBy        The fields of the named entity to order the query by; optionally add a " ASC" for ascending or "
+     *                       DESC" for descending
+     * @param findOptions    An instance of EntityFindOptions that specifies advanced query options, or null for the defaults
+     * @return the prepared condition
+     */
+    default PreparedEntityCondition prepareCondition(ModelEntity modelEntity, EntityCondition condition,
+                                                     Collection<String> fieldsToSelect, List<String> orderBy,
+                                                     EntityFindOptions findOptions)
+            throws GenericEntityException {
+        return new PreparedEntityCondition(getHelperName(), modelEntity, condition, fieldsToSelect, orderBy, findOptions);
+    }
+
+    /**
+     * Executes a condition prepared by {@link #prepareCondition} of this helper.
+     *
+     * @param preparedCondition the prepared condition
+     * @param values            the value of each of its placeholders, by name
+     * @return EntityListIterator representing the result of the query: NOTE THAT THIS MUST BE CLOSED WHEN YOU ARE DONE
+     * WITH IT, AND DON'T LEAVE IT OPEN TOO LONG BECAUSE IT WILL MAINTAIN A DATABASE CONNECTION.
+     */
+    default EntityListIterator findListIteratorByPreparedCondition(PreparedEntityCondition preparedCondition,
+                                                                   Map<String, ?> values)
+            throws GenericEntityException {
+        return findListIteratorByCondition(preparedCondition.getModelEntity(), preparedCondition.bindCondition(values), null,
+                preparedCondition.getFieldsToSelect(), preparedCondition.getOrderBy(), preparedCondition.getFindOptions());
+    }
+
     /**
      * Removes/deletes Generic Entity records found by all of the specified fields (ie: combined using AND)
      *
@@ -228,6 +264,21 @@ public interface GenericHelper {
               final EntityFindOptions findOptions)
             throws GenericEntityException;
 
+    /**
+     * Returns the number of rows matching the given condition along with the latest
+     * {@link ModelEntity#STAMP_FIELD} among them; used to check whether cached results are still current. By default
+     * this finds the matching rows and summarises them, which helpers that can ask for the summary directly should
+     * override.
+     *
+     * @param modelEntity     The ModelEntity of the Entity as defined in the entity XML file; it must have a stamp field
+     * @param entityCondition The EntityCondition object that specifies how to constrain this query (null means all rows)
+     * @return the summary of the matching rows
+     */
+    default EntityStampSummary stampSummary(ModelEntity modelEntity, EntityCondition entityCondition)
+            throws GenericEntityException {
+        return EntityStampSummary.of(findByCondition(modelEntity, entityCondition, null, null));
+    }
+
     /**
      * Applies the given transformation to any entities matching the given condition.
      *
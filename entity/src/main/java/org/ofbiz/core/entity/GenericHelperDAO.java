@@ -217,6 +217,19 @@ public class GenericHelperDAO implements GenericHelper {
                 orderBy, findOptions);
     }
 
+    public PreparedEntityCondition prepareCondition(final ModelEntity modelEntity, final EntityCondition condition,
+                                                    final Collection<String> fieldsToSelect, final List<String> orderBy,
+                                                    final EntityFindOptions findOptions)
+            throws GenericEntityException {
+        return genericDAO.prepareCondition(modelEntity, condition, fieldsToSelect, orderBy, findOptions);
+    }
+
+    public EntityListIterator findListIteratorByPreparedCondition(final PreparedEntityCondition preparedCondition,
+                                                                  final Map<String, ?> values)
+            throws GenericEntityException {
+        return genericDAO.selectListIteratorByPreparedCondition(preparedCondition, values);
+    }
+
     public List<GenericValue> findByMultiRelation(GenericValue value, ModelRelation modelRelationOne, ModelEntity modelEntityOne,
                                                   ModelRelation modelRelationTwo, ModelEntity modelEntityTwo, List<String> orderBy) throws GenericEntityException {
         return genericDAO.selectByMultiRelation(value, modelRelationOne, modelEntityOne, modelRelationTwo, modelEntityTwo, orderBy);
@@ -306,6 +319,11 @@ public class GenericHelperDAO implements GenericHelper {
         return genericDAO.count(modelEntity, fieldName, entityCondition, findOptions);
     }
 
+    public EntityStampSummary stampSummary(final ModelEntity modelEntity, final EntityCondition entityCondition)
+            throws GenericEntityException {
+        return genericDAO.stampSummary(modelEntity, entityCondition);
+    }
+
     @Override
     public List<GenericValue> transform(final ModelEntity modelEntity, final EntityCondition entityCondition,
                                         final List<String> orderBy, final String lockField, final Transformation transformation)
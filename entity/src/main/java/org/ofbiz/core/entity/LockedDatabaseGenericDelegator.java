@@ -1,10 +1,12 @@
 package org.ofbiz.core.entity;
 
+import org.ofbiz.core.entity.cache.CoalescingCacheLoader;
 import org.ofbiz.core.entity.config.EntityConfigUtil;
 import org.ofbiz.core.entity.model.ModelEntity;
 import org.ofbiz.core.entity.model.ModelFieldType;
 import org.ofbiz.core.entity.model.ModelGroupReader;
 import org.ofbiz.core.entity.model.ModelReader;
+import org.ofbiz.core.util.OffHeapCache;
 import org.ofbiz.core.util.UtilCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +21,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Copyright All Rights Reserved.
@@ -228,6 +231,18 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
         throw new UnsupportedOperationException(MESSAGE);
     }
 
+    public PreparedEntityCondition prepareCondition(String entityName, EntityCondition condition, Collection<String> fieldsToSelect, List<String> orderBy, EntityFindOptions findOptions) throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public List<GenericValue> findByPreparedCondition(PreparedEntityCondition preparedCondition, Map<String, ?> values) throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public EntityListIterator findListIteratorByPreparedCondition(PreparedEntityCondition preparedCondition, Map<String, ?> values) throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     public UtilCache<String, List<GenericValue>> getAllCache() {
         throw new UnsupportedOperationException(MESSAGE);
     }
@@ -236,6 +251,22 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
         throw new UnsupportedOperationException(MESSAGE);
     }
 
+    public Future<Integer> getCacheSnapshotLoad() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public boolean enableTransactionIdentityMap() throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public ConnectionSession openConnectionSession() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public <T> T executeWithRetry(String entityName, TransientFailureRetry.Work<T> work) throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     protected EntityConfigUtil.DelegatorInfo getDelegatorInfo() {
         throw new UnsupportedOperationException(MESSAGE);
     }
@@ -336,10 +367,26 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
         throw new UnsupportedOperationException(MESSAGE);
     }
 
+    public OffHeapCache<GenericPK, Map<String, Object>> getOffHeapPrimaryKeyCache() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     public UtilCache<GenericEntity, GenericValue> getPrimaryKeyCache() {
         throw new UnsupportedOperationException(MESSAGE);
     }
 
+    public UtilCache<GenericPK, Boolean> getNotFoundPrimaryKeyCache() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public boolean isInNotFoundPrimaryKeyCache(GenericPK primaryKey) {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public void putInNotFoundPrimaryKeyCache(GenericPK primaryKey) {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     public List<GenericValue> getRelated(String relationName, Map<String, ?> byAndFields, List<String> orderBy, GenericValue value) throws GenericEntityException {
         throw new UnsupportedOperationException(MESSAGE);
     }
@@ -368,6 +415,22 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
         throw new UnsupportedOperationException(MESSAGE);
     }
 
+    public RelatedOneCache getRelatedOneValueCache() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public CoalescingCacheLoader<GenericPK, GenericValue> getPrimaryKeyCacheLoader() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public CoalescingCacheLoader<GenericPK, List<GenericValue>> getAndCacheLoader() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
+    public CoalescingCacheLoader<String, List<GenericValue>> getAllCacheLoader() {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     public List<GenericValue> getRelatedOrderBy(String relationName, List<String> orderBy, GenericValue value) throws GenericEntityException {
         throw new UnsupportedOperationException(MESSAGE);
     }
@@ -459,6 +522,12 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
         throw new UnsupportedOperationException("Not implemented");
     }
 
+    @Override
+    public int removeByConditionInSlices(String entityName, EntityCondition entityCondition, EntityPurgeOptions options)
+            throws GenericEntityException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
+
     public int removeByPrimaryKey(GenericPK primaryKey) throws GenericEntityException {
         throw new UnsupportedOperationException(MESSAGE);
     }
@@ -508,5 +577,9 @@ public class LockedDatabaseGenericDelegator extends GenericDelegator {
                                         final List<String> orderBy, final String lockField, final Transformation transformation) {
         throw new UnsupportedOperationException(MESSAGE);
     }
+
+    public int writeCacheSnapshot() throws IOException {
+        throw new UnsupportedOperationException(MESSAGE);
+    }
 }
 
@@ -44,6 +44,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.function.Predicate;
 
 /**
  * Partial GenericHelper implementation that is entirely memory-based,
@@ -388,70 +389,19 @@ public class MemoryHelper implements GenericHelper {
         if (entityCache == null) {
             return Collections.emptyList();
         }
-        return findByConditionWorker(entityCache, modelEntity, entityCondition, fieldsToSelect, orderBy);
-    }
-
-    private List<GenericValue> findByConditionWorker(Map<GenericEntity, GenericValue> entityCache, ModelEntity modelEntity, EntityCondition entityCondition, Collection<String> fieldsToSelect, List<String> orderBy) throws GenericEntityException {
-        if (entityCondition instanceof EntityExpr) {
-            List<GenericValue> result = new ArrayList<GenericValue>();
-            EntityExpr entityExpr = (EntityExpr) entityCondition;
-
-            // according to the javadocs for Collections.synchronizedMap() we need to
-            // synchronize when iterating over the elements of the collection
-            synchronized (entityCache) {
-                for (Map.Entry<?, GenericValue> mapEntry : entityCache.entrySet()) {
-                    GenericValue value = mapEntry.getValue();
-                    if (checkEntityExpr(value, entityExpr))
-                        result.add(value);
-                }
-            }
+        Predicate<GenericEntity> predicate = EntityConditionCompiler.compile(modelEntity, entityCondition);
+        List<GenericValue> result = new ArrayList<GenericValue>();
 
-            return result;
-        } else if (entityCondition instanceof EntityConditionList) {
-            EntityConditionList entityConditionList = (EntityConditionList) entityCondition;
-            Map<GenericEntity, GenericValue> tempEntityCache = entityCache;
-            List<GenericValue> tempResult = new ArrayList<GenericValue>();
-
-            for (int i = 0; i < entityConditionList.getConditionListSize(); i++) {
-                EntityCondition subEntityCondition = entityConditionList.getCondition(i);
-                if (EntityOperator.AND.equals(entityConditionList.getOperator())) {
-                    tempResult = findByConditionWorker(tempEntityCache, modelEntity, subEntityCondition, fieldsToSelect, orderBy);
-
-                    //result are now a subset and only these should have the next condition run on them so put them in the
-                    //tempEntityCache
-                    tempEntityCache = new HashMap<GenericEntity, GenericValue>();
-                    for (GenericValue genericValue : tempResult) {
-                        tempEntityCache.put(genericValue, genericValue);
-                    }
-                } else if (EntityOperator.OR.equals(entityConditionList.getOperator())) {
-                    // Ensure we do not add the same GenericEntity to the list more than once
-                    List<GenericValue> list = findByConditionWorker(tempEntityCache, modelEntity, subEntityCondition, fieldsToSelect, orderBy);
-                    for (GenericValue o : list) {
-                        if (!tempResult.contains(o))
-                            tempResult.add(o);
-                    }
+        // according to the javadocs for Collections.synchronizedMap() we need to
+        // synchronize when iterating over the elements of the collection
+        synchronized (entityCache) {
+            for (GenericValue value : entityCache.values()) {
+                if (predicate.test(value)) {
+                    result.add(value);
                 }
             }
-            return tempResult;
-        } else if (entityCondition instanceof EntityFieldMap) {
-            EntityFieldMap entityCond = (EntityFieldMap) entityCondition;
-
-            if (entityCond.getOperator().equals(EntityOperator.AND)) {
-                return findByAnd(modelEntity, entityCond.fieldMap, orderBy);
-            } else {
-                return findByOr(modelEntity, entityCond.fieldMap, orderBy);
-            }
-
-        } else if (entityCondition == null) {
-            return new ArrayList<GenericValue>(entityCache.values());
-        } else {
-            throw new UnsupportedOperationException("findByCondidition not implemented for expression:" + entityCondition.getClass().getName());
         }
-    }
-
-    private boolean checkEntityExpr(GenericValue value, EntityExpr entityExpr) {
-        EntityOperator operator = entityExpr.getOperator();
-        return operator.compare(value.get(entityExpr.getLhs()), entityExpr.getRhs());
+        return result;
     }
 
     public List<GenericValue> findByMultiRelation(GenericValue value, ModelRelation modelRelationOne, ModelEntity modelEntityOne,
@@ -0,0 +1,246 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.ofbiz.core.entity.jdbc.ParameterBinder;
+import org.ofbiz.core.entity.jdbc.SQLProcessor;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A condition on an entity, together with the fields to select, the ordering and the find options, that has
+ * been turned into SQL once so that it can be executed many times with different values. The values are given
+ * by {@link EntityConditionPlaceholder}s in the condition, and supplied by name on each execution; any other
+ * values in the condition are fixed.
+ * <p>
+ * Instances are created by {@link GenericDelegator#prepareCondition}, are immutable and thread-safe, and are
+ * meant to be kept, for example in a static field, for as long as the entity model is not reloaded.
+ * <p>
+ * Compared to {@link GenericDelegator#findListIteratorByCondition}, no large IN lists are moved to temporary
+ * tables, and an expression with a placeholder may not upper-case its right-hand side.
+ */
+public final class PreparedEntityCondition {
+
+    private final String helperName;
+    private final ModelEntity modelEntity;
+    private final EntityCondition condition;
+    private final List<String> fieldsToSelect;
+    private final List<String> orderBy;
+    private final EntityFindOptions findOptions;
+    private final Set<String> placeholderNames;
+
+    // null unless compiled to SQL
+    private final String sql;
+    private final List<ModelField> selectFields;
+    private final List<Parameter> parameters;
+
+    /**
+     * Constructor for a helper that does not use SQL, which applies the values to the condition on each execution.
+     */
+    PreparedEntityCondition(final String helperName, final ModelEntity modelEntity, final EntityCondition condition,
+                            final Collection<String> fieldsToSelect, final List<String> orderBy, final EntityFindOptions findOptions) {
+        this(helperName, modelEntity, condition, fieldsToSelect, orderBy, findOptions, null, null, null);
+    }
+
+    private PreparedEntityCondition(final String helperName, final ModelEntity modelEntity, final EntityCondition condition,
+                                    final Collection<String> fieldsToSelect, final List<String> orderBy,
+                                    final EntityFindOptions findOptions, final String sql, final List<ModelField> selectFields,
+                                    final List<Parameter> parameters) {
+        this.helperName = helperName;
+        this.modelEntity = modelEntity;
+        this.condition = condition;
+        this.fieldsToSelect = fieldsToSelect == null ? null : ImmutableList.copyOf(fieldsToSelect);
+        this.orderBy = orderBy == null ? null : ImmutableList.copyOf(orderBy);
+        this.findOptions = findOptions == null ? new EntityFindOptions() : findOptions;
+        this.placeholderNames = findPlaceholders(condition);
+        this.sql = sql;
+        this.selectFields = selectFields == null ? null : ImmutableList.copyOf(selectFields);
+        this.parameters = parameters;
+    }
+
+    /**
+     * Creates a condition compiled to the given SQL.
+     *
+     * @param params the parameters of the SQL in order, whose values are either fixed or placeholders
+     */
+    static PreparedEntityCondition compiled(final String helperName, final ModelEntity modelEntity, final EntityCondition condition,
+                                            final Collection<String> fieldsToSelect, final List<String> orderBy,
+                                            final EntityFindOptions findOptions, final String sql, final List<ModelField> selectFields,
+                                            final List<EntityConditionParam> params, final ModelFieldTypeReader modelFieldTypeReader)
+            throws GenericModelException {
+        final List<Parameter> parameters = new ArrayList<Parameter>(params.size());
+        for (EntityConditionParam param : params) {
+            parameters.add(new Parameter(ParameterBinder.forField(param.getModelField(), modelFieldTypeReader,
+                    modelEntity.getEntityName()), param.getFieldValue()));
+        }
+        return new PreparedEntityCondition(helperName, modelEntity, condition, fieldsToSelect, orderBy, findOptions,
+                sql, selectFields, ImmutableList.copyOf(parameters));
+    }
+
+    private static Set<String> findPlaceholders(final EntityCondition condition) {
+        final Set<String> names = new LinkedHashSet<String>();
+        if (condition != null) {
+            EntityConditionHelper.predicateTrueForEachLeafExpression(condition, expr -> {
+                final boolean found = addPlaceholders(expr.getRhs(), names);
+                if (found && expr.isRUpper()) {
+                    throw new IllegalArgumentException("The value of a placeholder cannot be upper-cased: " + expr);
+                }
+                return true;
+            });
+        }
+        return ImmutableSet.copyOf(names);
+    }
+
+    private static boolean addPlaceholders(final Object rhs, final Set<String> names) {
+        if (rhs instanceof EntityConditionPlaceholder) {
+            names.add(((EntityConditionPlaceholder) rhs).getName());
+            return true;
+        }
+        boolean found = false;
+        if (rhs instanceof Collection) {
+            for (Object element : (Collection<?>) rhs) {
+                found |= addPlaceholders(element, names);
+            }
+        }
+        return found;
+    }
+
+    public String getHelperName() {
+        return helperName;
+    }
+
+    public String getEntityName() {
+        return modelEntity.getEntityName();
+    }
+
+    public ModelEntity getModelEntity() {
+        return modelEntity;
+    }
+
+    /**
+     * Returns the condition as given, with its placeholders.
+     */
+    public EntityCondition getCondition() {
+        return condition;
+    }
+
+    public List<String> getFieldsToSelect() {
+        return fieldsToSelect;
+    }
+
+    public List<String> getOrderBy() {
+        return orderBy;
+    }
+
+    public EntityFindOptions getFindOptions() {
+        return findOptions;
+    }
+
+    /**
+     * Returns the names of the placeholders that need a value on each execution.
+     */
+    public Set<String> getPlaceholderNames() {
+        return placeholderNames;
+    }
+
+    /**
+     * Returns the SQL this condition was compiled to, or null if the helper does not use SQL.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the fields selected by the SQL, in column order, or null if the helper does not use SQL.
+     */
+    public List<ModelField> getSelectFields() {
+        return selectFields;
+    }
+
+    /**
+     * Checks that the given values supply every placeholder.
+     *
+     * @param values the values by placeholder name
+     * @throws IllegalArgumentException if a placeholder has no value, or a null one
+     */
+    public void checkValues(final Map<String, ?> values) {
+        for (String name : placeholderNames) {
+            if (values == null || values.get(name) == null) {
+                throw new IllegalArgumentException("No value given for placeholder :" + name + " of " + this);
+            }
+        }
+    }
+
+    /**
+     * Returns the condition with the given values in place of its placeholders.
+     *
+     * @param values the values by placeholder name
+     * @return a new condition, or the same one if it has no placeholders
+     */
+    public EntityCondition bindCondition(final Map<String, ?> values) {
+        checkValues(values);
+        if (placeholderNames.isEmpty()) {
+            return condition;
+        }
+        return EntityConditionHelper.transformCondition(condition, expr -> {
+            final Object rhs = expr.getRhs();
+            if (rhs instanceof EntityConditionPlaceholder || rhs instanceof Collection) {
+                return new EntityExpr((String) expr.getLhs(), expr.isLUpper(), expr.getOperator(), resolve(rhs, values), expr.isRUpper());
+            }
+            return expr;
+        });
+    }
+
+    private static Object resolve(final Object value, final Map<String, ?> values) {
+        if (value instanceof EntityConditionPlaceholder) {
+            return values.get(((EntityConditionPlaceholder) value).getName());
+        }
+        if (value instanceof Collection) {
+            final List<Object> resolved = new ArrayList<Object>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                resolved.add(resolve(element, values));
+            }
+            return resolved;
+        }
+        return value;
+    }
+
+    /**
+     * Binds the parameters of the compiled SQL, in order.
+     *
+     * @param sqlP   the processor holding the statement prepared from {@link #getSql()}
+     * @param values the values by placeholder name, already checked
+     */
+    void bind(final SQLProcessor sqlP, final Map<String, ?> values) throws GenericEntityException {
+        final String entityName = modelEntity.getEntityName();
+        for (Parameter parameter : parameters) {
+            parameter.binder.bind(sqlP, entityName, resolve(parameter.value, values));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedEntityCondition[entity=" + getEntityName() + ",condition=" + condition + ",orderBy=" + orderBy + ']';
+    }
+
+    /**
+     * One parameter of the compiled SQL, with either a fixed value or a placeholder.
+     */
+    private static final class Parameter {
+        final ParameterBinder binder;
+        final Object value;
+
+        Parameter(final ParameterBinder binder, final Object value) {
+            this.binder = binder;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelKeyMap;
+import org.ofbiz.core.entity.model.ModelRelation;
+import org.ofbiz.core.util.UtilCache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The delegator's cache of the values found by {@link GenericDelegator#getRelatedOneCache}, keyed by the
+ * relation and the foreign key values of the value it was followed from. Once a relation has been resolved,
+ * finding the related value again is a hash probe, without searching the entity's relations or building a
+ * primary key.
+ * <p>
+ * An entry is the same object as held in the primary key cache for the related value, and is removed
+ * whenever that primary key's cache line is cleared.
+ */
+public class RelatedOneCache {
+
+    private final UtilCache<Key, GenericValue> cache;
+    // the resolved "one" relations of each entity by relation name
+    private final ConcurrentMap<ModelEntity, ConcurrentMap<String, Relation>> relationsByEntity =
+            new ConcurrentHashMap<ModelEntity, ConcurrentMap<String, Relation>>();
+    // the resolved relations that lead to each entity, for clearing
+    private final ConcurrentMap<String, Set<Relation>> relationsByRelEntityName = new ConcurrentHashMap<String, Set<Relation>>();
+
+    public RelatedOneCache(final String delegatorName) {
+        this.cache = new UtilCache<Key, GenericValue>("entity.RelatedOne." + delegatorName, 0, 0, true);
+    }
+
+    /**
+     * Resolves the named "one" relation of the given entity, which is only looked up in the model once.
+     *
+     * @param modelEntity  the entity the relation is from
+     * @param relationName the relation title plus the related entity name
+     * @param delegator    the delegator, to look up the related entity
+     * @return the relation
+     * @throws GenericModelException    if there is no such relation
+     * @throws IllegalArgumentException if the relation is not a "one" relation
+     */
+    public Relation getRelation(final ModelEntity modelEntity, final String relationName, final GenericDelegator delegator)
+            throws GenericModelException {
+        ConcurrentMap<String, Relation> relations = relationsByEntity.get(modelEntity);
+        if (relations == null) {
+            relations = new ConcurrentHashMap<String, Relation>();
+            final ConcurrentMap<String, Relation> existing = relationsByEntity.putIfAbsent(modelEntity, relations);
+            if (existing != null) {
+                relations = existing;
+            }
+        }
+        Relation relation = relations.get(relationName);
+        if (relation == null) {
+            final ModelRelation modelRelation = modelEntity.getRelation(relationName);
+            if (modelRelation == null) {
+                throw new GenericModelException("Could not find relation for relationName: " + relationName +
+                        " for entity " + modelEntity.getEntityName());
+            }
+            if (!"one".equals(modelRelation.getType()) && !"one-nofk".equals(modelRelation.getType())) {
+                throw new IllegalArgumentException("Relation is not a 'one' or a 'one-nofk' relation: " + relationName +
+                        " of entity " + modelEntity.getEntityName());
+            }
+            relation = new Relation(modelRelation, delegator.getModelEntity(modelRelation.getRelEntityName()));
+            final Relation existing = relations.putIfAbsent(relationName, relation);
+            if (existing != null) {
+                relation = existing;
+            } else {
+                relationsByRelEntityName.computeIfAbsent(modelRelation.getRelEntityName(),
+                        name -> ConcurrentHashMap.<Relation>newKeySet()).add(relation);
+            }
+        }
+        return relation;
+    }
+
+    public GenericValue get(final Key key) {
+        return cache.get(key);
+    }
+
+    public void put(final Key key, final GenericValue relatedValue) {
+        cache.put(key, relatedValue);
+    }
+
+    /**
+     * Removes every entry that resolves to the given primary key, by whichever relation.
+     *
+     * @param primaryKey the primary key, or other entity holding the primary key fields, of the related value
+     */
+    public void remove(final GenericEntity primaryKey) {
+        final Set<Relation> relations = relationsByRelEntityName.get(primaryKey.getEntityName());
+        if (relations == null) {
+            return;
+        }
+        for (Relation relation : relations) {
+            final Key key = relation.keyForRelated(primaryKey);
+            if (key != null) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public UtilCache<Key, GenericValue> getCache() {
+        return cache;
+    }
+
+    /**
+     * A resolved "one" relation.
+     */
+    public static final class Relation {
+        private final ModelRelation modelRelation;
+        private final ModelEntity relEntity;
+        private final String[] fieldNames;
+        private final String[] relFieldNames;
+
+        Relation(final ModelRelation modelRelation, final ModelEntity relEntity) {
+            this.modelRelation = modelRelation;
+            this.relEntity = relEntity;
+            this.fieldNames = new String[modelRelation.getKeyMapsSize()];
+            this.relFieldNames = new String[fieldNames.length];
+            for (int i = 0; i < fieldNames.length; i++) {
+                final ModelKeyMap keyMap = modelRelation.getKeyMap(i);
+                fieldNames[i] = keyMap.getFieldName();
+                relFieldNames[i] = keyMap.getRelFieldName();
+            }
+        }
+
+        public ModelRelation getModelRelation() {
+            return modelRelation;
+        }
+
+        /**
+         * Returns the related entity, or null if it is not in the model.
+         */
+        public ModelEntity getRelEntity() {
+            return relEntity;
+        }
+
+        /**
+         * Returns whether values found through this relation may be cached.
+         */
+        public boolean isCacheable() {
+            return relEntity != null && !relEntity.getNeverCache();
+        }
+
+        /**
+         * Returns the key for the value related to the given one.
+         *
+         * @param value the value to follow the relation from
+         * @return null if any of the foreign key fields is null
+         */
+        public Key key(final GenericEntity value) {
+            return makeKey(value, fieldNames);
+        }
+
+        Key keyForRelated(final GenericEntity relatedValue) {
+            return makeKey(relatedValue, relFieldNames);
+        }
+
+        private Key makeKey(final GenericEntity entity, final String[] names) {
+            final Object[] values = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                values[i] = entity.fields.get(names[i]);
+                if (values[i] == null) {
+                    return null;
+                }
+            }
+            return new Key(this, values);
+        }
+
+        /**
+         * Returns the fields of the primary key of the value related to the given one.
+         *
+         * @param value the value to follow the relation from
+         * @return the related primary key fields
+         */
+        public Map<String, Object> relatedFields(final GenericEntity value) {
+            final Map<String, Object> fields = new HashMap<String, Object>();
+            for (int i = 0; i < fieldNames.length; i++) {
+                fields.put(relFieldNames[i], value.get(fieldNames[i]));
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * A relation together with the foreign key values it was followed with.
+     */
+    public static final class Key {
+        private final Relation relation;
+        private final Object[] values;
+        private final int hashCode;
+
+        Key(final Relation relation, final Object[] values) {
+            this.relation = relation;
+            this.values = values;
+            this.hashCode = 31 * System.identityHashCode(relation) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return relation == other.relation && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return relation.modelRelation.getTitle() + relation.modelRelation.getRelEntityName() + Arrays.toString(values);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.ofbiz.core.entity;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The cache clearing requested by the writes of one transaction, for a delegator with defer-cache-clear set. The
+ * delegator still clears its own caches as each write is made, so that the transaction does not read back what it
+ * has just changed, but records the request here instead of distributing it. Once the transaction commits, each
+ * distinct cache line is cleared again, dropping any value that a concurrent reader cached from before the commit,
+ * and the lot is sent to the {@link DistributedCacheClear} as one batch. Nothing is sent if it rolls back.
+ * <p>
+ * A JTA transaction can complete on another thread, for example when it times out, so access is synchronized.
+ */
+final class TransactionCacheClear implements Synchronization {
+
+    private final GenericDelegator delegator;
+    private final Set<GenericValue> values = new LinkedHashSet<GenericValue>();
+    private final Set<GenericPK> primaryKeys = new LinkedHashSet<GenericPK>();
+    private final Set<GenericEntity> dummyPKs = new LinkedHashSet<GenericEntity>();
+    private boolean completed;
+
+    TransactionCacheClear(final GenericDelegator delegator) {
+        this.delegator = delegator;
+    }
+
+    /**
+     * Records a value written by the transaction, together with its original values if it was changed, since the
+     * by and lists that held it before need clearing too.
+     */
+    synchronized void addValue(final GenericValue value) {
+        if (completed) {
+            return;
+        }
+        values.add(new GenericValue(value));
+        if (value.isModified() && value.originalDbValuesAvailable()) {
+            final Map<String, Object> originalFields = new HashMap<String, Object>();
+            for (String fieldName : value.getModelEntity().getAllFieldNames()) {
+                originalFields.put(fieldName, value.getOriginalDbValue(fieldName));
+            }
+            values.add(new GenericValue(delegator, value.getModelEntity(), originalFields));
+        }
+    }
+
+    synchronized void addPrimaryKey(final GenericPK primaryKey) {
+        if (!completed) {
+            primaryKeys.add(new GenericPK(primaryKey));
+        }
+    }
+
+    synchronized void addDummyPK(final GenericEntity dummyPK) {
+        if (!completed) {
+            dummyPKs.add(new GenericPK(delegator, dummyPK.getModelEntity(), dummyPK.getAllFields()));
+        }
+    }
+
+    /**
+     * @return the number of distinct cache lines recorded so far
+     */
+    synchronized int size() {
+        return values.size() + primaryKeys.size() + dummyPKs.size();
+    }
+
+    public void beforeCompletion() {
+    }
+
+    public void afterCompletion(final int status) {
+        final List<GenericValue> committedValues;
+        final List<GenericPK> committedPrimaryKeys;
+        final List<GenericEntity> committedDummyPKs;
+        synchronized (this) {
+            completed = true;
+            committedValues = new ArrayList<GenericValue>(values);
+            committedPrimaryKeys = new ArrayList<GenericPK>(primaryKeys);
+            committedDummyPKs = new ArrayList<GenericEntity>(dummyPKs);
+            values.clear();
+            primaryKeys.clear();
+            dummyPKs.clear();
+        }
+        // the caches were cleared as the writes were made, and a rollback leaves the database as it was
+        if (status != Status.STATUS_ROLLEDBACK) {
+            delegator.clearCommittedCacheLines(committedValues, committedPrimaryKeys, committedDummyPKs);
+        }
+    }
+}
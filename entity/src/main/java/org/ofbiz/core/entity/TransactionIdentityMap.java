@@ -0,0 +1,171 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelViewEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The first level cache of one transaction: the values found by primary key or by and within the transaction, so
+ * that finding them again in the same transaction does not go back to the database. It is opted into per
+ * transaction with {@link GenericDelegator#enableTransactionIdentityMap()}, and bound to the transaction with
+ * {@link TransactionUtil#bindTransactionResource}, so it is discarded when the transaction commits or rolls back.
+ * <p>
+ * Writes made through the delegator within the transaction evict what they may have changed: the primary key
+ * written and every by and result of its entity, or everything held for the entity if the write was by condition.
+ * Writes made any other way, by SQL or by other transactions, are not seen, so what the map holds reads the same
+ * for the rest of the transaction. View entities are not held, since writes to their member entities change them.
+ * Values are copied in and out, so changing a value that was found does not change the map.
+ * <p>
+ * Only used by the thread that owns the transaction, so not thread-safe.
+ */
+final class TransactionIdentityMap {
+
+    /**
+     * The most values held, counting each value in a by and result; once full, further finds are not held.
+     */
+    static final int MAX_VALUES = 10000;
+
+    private final Map<GenericPK, GenericValue> values = new HashMap<GenericPK, GenericValue>();
+    private final Set<GenericPK> notFound = new HashSet<GenericPK>();
+    // by entity name, the by and results keyed by their fields and order by
+    private final Map<String, Map<List<Object>, List<GenericValue>>> lists = new HashMap<String, Map<List<Object>, List<GenericValue>>>();
+    private int listValueCount;
+
+    /**
+     * @return whether the value for the primary key is held, including a known absence
+     */
+    boolean containsPrimaryKey(final GenericPK primaryKey) {
+        return values.containsKey(primaryKey) || notFound.contains(primaryKey);
+    }
+
+    /**
+     * @return a copy of the value held for the primary key, or null if there is none or it is known to be absent
+     */
+    GenericValue getByPrimaryKey(final GenericPK primaryKey) {
+        final GenericValue value = values.get(primaryKey);
+        return value == null ? null : new GenericValue(value);
+    }
+
+    /**
+     * Holds the value found for the primary key.
+     *
+     * @param value the value found, or null if there was none
+     */
+    void putByPrimaryKey(final GenericPK primaryKey, final GenericValue value) {
+        if (!isHeld(primaryKey.getModelEntity()) || isFull(1)) {
+            return;
+        }
+        final GenericPK key = new GenericPK(primaryKey);
+        if (value == null) {
+            values.remove(key);
+            notFound.add(key);
+        } else {
+            notFound.remove(key);
+            values.put(key, new GenericValue(value));
+        }
+    }
+
+    /**
+     * @return copies of the values held for the by and find, or null if it is not held
+     */
+    List<GenericValue> getByAnd(final ModelEntity modelEntity, final Map<String, ?> fields, final List<String> orderBy) {
+        final Map<List<Object>, List<GenericValue>> entityLists = lists.get(modelEntity.getEntityName());
+        if (entityLists == null) {
+            return null;
+        }
+        final List<GenericValue> list = entityLists.get(listKey(fields, orderBy));
+        return list == null ? null : copyOf(list);
+    }
+
+    void putByAnd(final ModelEntity modelEntity, final Map<String, ?> fields, final List<String> orderBy,
+                  final List<GenericValue> list) {
+        if (!isHeld(modelEntity) || isFull(list.size())) {
+            return;
+        }
+        Map<List<Object>, List<GenericValue>> entityLists = lists.get(modelEntity.getEntityName());
+        if (entityLists == null) {
+            entityLists = new HashMap<List<Object>, List<GenericValue>>();
+            lists.put(modelEntity.getEntityName(), entityLists);
+        }
+        final List<GenericValue> previous = entityLists.put(listKey(fields, orderBy), copyOf(list));
+        listValueCount += list.size() - (previous == null ? 0 : previous.size());
+    }
+
+    /**
+     * Evicts what a write to the given entity may have changed: its primary key if it has a complete one, otherwise
+     * everything held for its entity, and in either case the by and results of its entity.
+     */
+    void evict(final GenericEntity entity) {
+        if (entity.getModelEntity().getPksSize() > 0 && entity.containsPrimaryKey()) {
+            final GenericPK primaryKey = entity.getPrimaryKey();
+            values.remove(primaryKey);
+            notFound.remove(primaryKey);
+            evictLists(entity.getEntityName());
+        } else {
+            evictEntity(entity.getEntityName());
+        }
+    }
+
+    /**
+     * Evicts everything held for the named entity.
+     */
+    void evictEntity(final String entityName) {
+        for (Iterator<GenericPK> iter = values.keySet().iterator(); iter.hasNext(); ) {
+            if (entityName.equals(iter.next().getEntityName())) {
+                iter.remove();
+            }
+        }
+        for (Iterator<GenericPK> iter = notFound.iterator(); iter.hasNext(); ) {
+            if (entityName.equals(iter.next().getEntityName())) {
+                iter.remove();
+            }
+        }
+        evictLists(entityName);
+    }
+
+    private void evictLists(final String entityName) {
+        final Map<List<Object>, List<GenericValue>> entityLists = lists.remove(entityName);
+        if (entityLists != null) {
+            for (List<GenericValue> list : entityLists.values()) {
+                listValueCount -= list.size();
+            }
+        }
+    }
+
+    /**
+     * @return the number of values held, counting each value in a by and result and each known absence
+     */
+    int size() {
+        return values.size() + notFound.size() + listValueCount;
+    }
+
+    private boolean isFull(final int adding) {
+        return size() + adding > MAX_VALUES;
+    }
+
+    private static boolean isHeld(final ModelEntity modelEntity) {
+        return !(modelEntity instanceof ModelViewEntity) && !modelEntity.getNeverCache();
+    }
+
+    private static List<Object> listKey(final Map<String, ?> fields, final List<String> orderBy) {
+        return Arrays.<Object>asList(fields == null ? Collections.emptyMap() : new HashMap<String, Object>(fields),
+                orderBy == null ? Collections.emptyList() : new ArrayList<String>(orderBy));
+    }
+
+    private static List<GenericValue> copyOf(final List<GenericValue> list) {
+        final List<GenericValue> copy = new ArrayList<GenericValue>(list.size());
+        for (GenericValue value : list) {
+            copy.add(new GenericValue(value));
+        }
+        return copy;
+    }
+}
@@ -30,6 +30,7 @@ import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
+import javax.transaction.Synchronization;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -37,6 +38,11 @@ import javax.transaction.UserTransaction;
 import javax.transaction.xa.XAResource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Transaction Utility to help with some common transaction tasks
@@ -52,6 +58,8 @@ public class TransactionUtil implements javax.transaction.Status {
 
     public static final ThreadLocal<LocalTransaction> localTransaction = new ThreadLocal<>();
 
+    private static final ThreadLocal<JtaTransactionResources> jtaTransactionResources = new ThreadLocal<>();
+
     /**
      * Begins a transaction in the current thread IF transactions are available; only
      * tries if the current transaction status is ACTIVE, if not active it returns false.
@@ -260,6 +268,115 @@ public class TransactionUtil implements javax.transaction.Status {
         }
     }
 
+    /**
+     * Binds a resource to the transaction in the current thread, either the local transaction (see
+     * {@link #beginLocalTransaction}) or the active JTA transaction, replacing any resource bound under the same
+     * key. Resources are discarded when the transaction commits or rolls back.
+     *
+     * @param key      identifies the resource
+     * @param resource the resource
+     * @return false if there is no transaction in the current thread, in which case nothing is bound
+     */
+    public static boolean bindTransactionResource(final Object key, final Object resource) throws GenericTransactionException {
+        final LocalTransaction transaction = localTransaction.get();
+        if (transaction != null) {
+            transaction.putResource(key, resource);
+            return true;
+        }
+        try {
+            final TransactionManager tm = TransactionFactory.getTransactionManager();
+            if (tm == null || tm.getStatus() != STATUS_ACTIVE) {
+                return false;
+            }
+            final Transaction tx = tm.getTransaction();
+            if (tx == null) {
+                return false;
+            }
+            JtaTransactionResources resources = getJtaTransactionResources(tx);
+            if (resources == null) {
+                resources = new JtaTransactionResources(tx);
+                tx.registerSynchronization(resources);
+                jtaTransactionResources.set(resources);
+            }
+            resources.put(key, resource);
+            return true;
+        } catch (RollbackException e) {
+            throw new GenericTransactionException("Roll Back error, could not bind a resource to the transaction, current transaction rolled back", e);
+        } catch (SystemException e) {
+            throw new GenericTransactionException("System error, could not bind a resource to the transaction", e);
+        }
+    }
+
+    /**
+     * Registers a synchronization with the transaction in the current thread, either the local transaction (see
+     * {@link #beginLocalTransaction}) or the active JTA transaction. A local transaction calls it from
+     * {@link #commitLocalTransaction} and {@link #rollbackLocalTransaction}, after the connection is closed.
+     *
+     * @param synchronization the synchronization to register
+     * @return false if there is no transaction in the current thread, in which case nothing is registered
+     */
+    public static boolean registerSynchronization(final Synchronization synchronization) throws GenericTransactionException {
+        final LocalTransaction transaction = localTransaction.get();
+        if (transaction != null) {
+            transaction.addSynchronization(synchronization);
+            return true;
+        }
+        try {
+            final TransactionManager tm = TransactionFactory.getTransactionManager();
+            if (tm == null || tm.getStatus() != STATUS_ACTIVE) {
+                return false;
+            }
+            final Transaction tx = tm.getTransaction();
+            if (tx == null) {
+                return false;
+            }
+            tx.registerSynchronization(synchronization);
+            return true;
+        } catch (RollbackException e) {
+            throw new GenericTransactionException("Roll Back error, could not register a synchronization, current transaction rolled back", e);
+        } catch (SystemException e) {
+            throw new GenericTransactionException("System error, could not register a synchronization", e);
+        }
+    }
+
+    /**
+     * Returns the resource bound under the given key to the transaction in the current thread.
+     *
+     * @param key identifies the resource
+     * @return null if there is no transaction or nothing is bound to it under that key
+     */
+    public static Object getTransactionResource(final Object key) {
+        final LocalTransaction transaction = localTransaction.get();
+        if (transaction != null) {
+            return transaction.getResource(key);
+        }
+        if (jtaTransactionResources.get() == null) {
+            return null;
+        }
+        try {
+            final TransactionManager tm = TransactionFactory.getTransactionManager();
+            final Transaction tx = tm == null ? null : tm.getTransaction();
+            final JtaTransactionResources resources = tx == null ? null : getJtaTransactionResources(tx);
+            return resources == null ? null : resources.get(key);
+        } catch (SystemException e) {
+            Debug.logWarning(e, "Could not get the current transaction", module);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the resources bound to the given JTA transaction by this thread, discarding those of any earlier
+     * transaction.
+     */
+    private static JtaTransactionResources getJtaTransactionResources(final Transaction tx) {
+        final JtaTransactionResources resources = jtaTransactionResources.get();
+        if (resources != null && (resources.completed || !resources.transaction.equals(tx))) {
+            jtaTransactionResources.remove();
+            return null;
+        }
+        return resources;
+    }
+
     // -------------- Atlassian Added methods for Local Transactions -----------------------------------------
 
     /**
@@ -344,15 +461,19 @@ public class TransactionUtil implements javax.transaction.Status {
                 rollbackLocalTransaction(true);
                 throw new GenericTransactionException("Commit failed, rollback previously requested by nested transaction.");
             } else {
+                int status = STATUS_UNKNOWN;
                 try {
                     Debug.logInfo("[TransactionUtil.commitLocalTransaction] Transaction started and active so committing transaction.", module);
+                    transaction.beforeCompletion();
                     getLocalTransactionConnection().commit();
+                    status = STATUS_COMMITTED;
                     Debug.logInfo("[TransactionUtil.commitLocalTransaction] Transaction committed.", module);
 
                 } catch (SQLException e) {
                     throw new GenericTransactionException("Error occurred while committing transaction.", e);
                 } finally {
                     closeAndClearThreadLocalConnection();
+                    transaction.afterCompletion(status);
                 }
             }
         } else {
@@ -378,14 +499,18 @@ public class TransactionUtil implements javax.transaction.Status {
     public static void rollbackLocalTransaction(boolean beganTransaction) throws GenericTransactionException {
         if (isTransactionActive()) {
             if (beganTransaction) {
+                final LocalTransaction transaction = localTransaction.get();
+                int status = STATUS_UNKNOWN;
                 try {
                     Debug.logInfo("[TransactionUtil.rollbackLocalTransaction] Transaction started and active so rolling back.", module);
                     getLocalTransactionConnection().rollback();
+                    status = STATUS_ROLLEDBACK;
                     Debug.logInfo("[TransactionUtil.rollbackLocalTransaction] Transaction rolled back.", module);
                 } catch (SQLException e) {
                     throw new GenericTransactionException("Error occurred while rolling back transaction.", e);
                 } finally {
                     closeAndClearThreadLocalConnection();
+                    transaction.afterCompletion(status);
                 }
             } else {
                 Debug.logInfo("[TransactionUtil.rollbackLocalTransaction] Transaction not started, setting rollback required.", module);
@@ -436,6 +561,8 @@ public class TransactionUtil implements javax.transaction.Status {
     private static class LocalTransaction {
         private final Connection connection;
         private volatile boolean rollbackRequired;
+        private Map<Object, Object> resources;
+        private List<Synchronization> synchronizations;
 
         private LocalTransaction(final Connection connection) {
             this.connection = connection;
@@ -452,5 +579,77 @@ public class TransactionUtil implements javax.transaction.Status {
         public void setRollbackRequired() {
             this.rollbackRequired = true;
         }
+
+        public Object getResource(final Object key) {
+            return resources == null ? null : resources.get(key);
+        }
+
+        public void putResource(final Object key, final Object resource) {
+            if (resources == null) {
+                resources = new HashMap<>();
+            }
+            resources.put(key, resource);
+        }
+
+        public void addSynchronization(final Synchronization synchronization) {
+            if (synchronizations == null) {
+                synchronizations = new ArrayList<>();
+            }
+            synchronizations.add(synchronization);
+        }
+
+        public void beforeCompletion() {
+            if (synchronizations != null) {
+                for (Synchronization synchronization : synchronizations) {
+                    synchronization.beforeCompletion();
+                }
+            }
+        }
+
+        /**
+         * Tells each synchronization how the transaction ended; a failing one is logged so the others still run.
+         */
+        public void afterCompletion(final int status) {
+            if (synchronizations == null) {
+                return;
+            }
+            for (Synchronization synchronization : synchronizations) {
+                try {
+                    synchronization.afterCompletion(status);
+                } catch (RuntimeException e) {
+                    Debug.logError(e, "[TransactionUtil.LocalTransaction.afterCompletion] Synchronization failed.", module);
+                }
+            }
+        }
+    }
+
+    /**
+     * The resources bound to a JTA transaction, which are discarded once it completes; completion can happen on
+     * another thread, for example when the transaction times out, so the owning thread checks the flag.
+     */
+    private static class JtaTransactionResources implements Synchronization {
+        private final Transaction transaction;
+        private final Map<Object, Object> resources = new ConcurrentHashMap<>();
+        private volatile boolean completed;
+
+        private JtaTransactionResources(final Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        public Object get(final Object key) {
+            return resources.get(key);
+        }
+
+        public void put(final Object key, final Object resource) {
+            resources.put(key, resource);
+        }
+
+        public void beforeCompletion() {
+        }
+
+        public void afterCompletion(final int status) {
+            completed = true;
+            resources.clear();
+        }
     }
 }
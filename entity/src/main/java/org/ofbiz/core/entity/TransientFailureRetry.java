@@ -0,0 +1,260 @@
+package org.ofbiz.core.entity;
+
+import org.ofbiz.core.entity.config.ConnectionPoolInfo;
+import org.ofbiz.core.entity.config.DatasourceInfo;
+import org.ofbiz.core.entity.config.EntityConfigUtil;
+import org.ofbiz.core.entity.jdbc.dbtype.DatabaseType;
+import org.ofbiz.core.util.Debug;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static javax.transaction.Status.STATUS_ACTIVE;
+
+/**
+ * Runs work against one datasource again when it fails transiently, as when it is chosen as a deadlock victim or
+ * fails to serialize; what counts as transient is up to the {@link DatabaseType}. Between attempts it backs off
+ * exponentially with jitter, from {@value #INITIAL_BACKOFF} milliseconds up to the datasource's
+ * <code>pool-deadlock-retrywait</code>, and gives up once another attempt would take it past
+ * <code>pool-deadlock-maxwait</code> since the first.
+ * <p>
+ * Once a transaction has failed this way the database has rolled it back, so only work that is not part of an
+ * enclosing transaction is retried: either a single statement run outside one, or a whole unit of work that begins
+ * and ends its own. Work that starts while a transaction is active is run once.
+ */
+public final class TransientFailureRetry {
+
+    public static final String module = TransientFailureRetry.class.getName();
+
+    /**
+     * The back-off before the first retry in milliseconds; it doubles for each retry after that.
+     */
+    public static final long INITIAL_BACKOFF = 20;
+
+    private static final Map<String, TransientFailureRetry> retries = new ConcurrentHashMap<String, TransientFailureRetry>();
+
+    /**
+     * Work to be retried; it must be safe to run again after failing, which in practice means it must either leave
+     * no trace when it fails or be idempotent.
+     *
+     * @param <T> the type of result
+     */
+    public interface Work<T> {
+        T run() throws GenericEntityException;
+    }
+
+    private final String helperName;
+    private volatile DatabaseType databaseType;
+    private final long maxWait;
+    private final long retryWait;
+
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder recoveredCount = new LongAdder();
+    private final LongAdder exhaustedCount = new LongAdder();
+    private final LongAdder retryMillis = new LongAdder();
+    private final AtomicLong maxRetryMillis = new AtomicLong();
+
+    TransientFailureRetry(final String helperName, final DatabaseType databaseType, final long maxWait, final long retryWait) {
+        this.helperName = helperName;
+        this.databaseType = databaseType;
+        this.maxWait = maxWait;
+        this.retryWait = retryWait;
+    }
+
+    /**
+     * Returns the retry for the given datasource, creating it the first time.
+     *
+     * @param helperName the name of the datasource
+     */
+    public static TransientFailureRetry forHelper(final String helperName) {
+        return retries.computeIfAbsent(helperName, TransientFailureRetry::create);
+    }
+
+    private static TransientFailureRetry create(final String helperName) {
+        final DatasourceInfo datasourceInfo = EntityConfigUtil.getInstance().getDatasourceInfo(helperName);
+        ConnectionPoolInfo poolInfo = null;
+        if (datasourceInfo != null && datasourceInfo.getJdbcDatasource() != null) {
+            poolInfo = datasourceInfo.getJdbcDatasource().getConnectionPoolInfo();
+        }
+        if (poolInfo == null) {
+            poolInfo = ConnectionPoolInfo.builder().build();
+        }
+        return new TransientFailureRetry(helperName, null, poolInfo.getDeadLockMaxWait(), poolInfo.getDeadLockRetryWait());
+    }
+
+    /**
+     * Runs the work, running it again for as long as it fails transiently and the datasource's limits allow.
+     *
+     * @param work the work to run
+     * @return what the work returned
+     * @throws GenericEntityException the last failure of the work
+     */
+    public <T> T execute(final Work<T> work) throws GenericEntityException {
+        if (isInTransaction()) {
+            return work.run();
+        }
+        final long start = System.currentTimeMillis();
+        long backoff = Math.min(INITIAL_BACKOFF, retryWait);
+        int attempt = 0;
+        while (true) {
+            try {
+                final T result = work.run();
+                if (attempt > 0) {
+                    recoveredCount.increment();
+                    recordRetryMillis(System.currentTimeMillis() - start);
+                }
+                return result;
+            } catch (GenericEntityException e) {
+                if (!isTransientFailure(e)) {
+                    throw e;
+                }
+                final long elapsed = System.currentTimeMillis() - start;
+                final long delay = backoff <= 1 ? backoff : backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                if (elapsed + delay > maxWait || !sleep(delay)) {
+                    exhaustedCount.increment();
+                    recordRetryMillis(elapsed);
+                    throw e;
+                }
+                attempt++;
+                retryCount.increment();
+                Debug.logWarning("Transient failure on datasource " + helperName + ", retry " + attempt + " after " +
+                        delay + "ms: " + e.getMessage(), module);
+                backoff = Math.min(backoff * 2, retryWait);
+            }
+        }
+    }
+
+    /**
+     * Tells whether the given failure, or any failure it was caused by, is transient for this datasource. The
+     * standard SQLStates are checked first, so that the database type is only looked up for failures that might be
+     * specific to it; if it cannot be looked up, the failure is not treated as transient.
+     */
+    public boolean isTransientFailure(final Throwable failure) {
+        final List<SQLException> failures = new ArrayList<SQLException>();
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                    if (DatabaseType.isStandardTransientFailure(e)) {
+                        return true;
+                    }
+                    failures.add(e);
+                }
+            }
+        }
+        if (failures.isEmpty()) {
+            return false;
+        }
+        final DatabaseType type = getDatabaseType();
+        if (type == null) {
+            return false;
+        }
+        for (SQLException e : failures) {
+            if (type.isTransientFailure(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up the type of this datasource's database, which may need a connection; as this happens while handling
+     * a failure, which the database may be the cause of, a failed lookup is logged and tried again next time.
+     *
+     * @return the database type, or null if it could not be determined
+     */
+    private DatabaseType getDatabaseType() {
+        DatabaseType type = databaseType;
+        if (type == null) {
+            try {
+                final DatasourceInfo datasourceInfo = EntityConfigUtil.getInstance().getDatasourceInfo(helperName);
+                if (datasourceInfo != null) {
+                    type = datasourceInfo.getDatabaseTypeFromJDBCConnection();
+                }
+            } catch (RuntimeException e) {
+                Debug.logWarning(e, "Could not determine the database type of datasource " + helperName +
+                        " to tell whether a failure is transient", module);
+                return null;
+            }
+            if (type == null) {
+                Debug.logWarning("Could not determine the database type of datasource " + helperName +
+                        " to tell whether a failure is transient", module);
+            }
+            databaseType = type;
+        }
+        return type;
+    }
+
+    private static boolean isInTransaction() throws GenericTransactionException {
+        return TransactionUtil.isTransactionActive() || TransactionUtil.getStatus() == STATUS_ACTIVE;
+    }
+
+    private static boolean sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void recordRetryMillis(final long millis) {
+        retryMillis.add(millis);
+        long max = maxRetryMillis.get();
+        while (millis > max && !maxRetryMillis.compareAndSet(max, millis)) {
+            max = maxRetryMillis.get();
+        }
+    }
+
+    public String getHelperName() {
+        return helperName;
+    }
+
+    /**
+     * @return the number of times work was run again after failing transiently
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return the number of times work succeeded after being retried
+     */
+    public long getRecoveredCount() {
+        return recoveredCount.sum();
+    }
+
+    /**
+     * @return the number of times work was given up on while still failing transiently
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    /**
+     * @return the total time from the first attempt to the last, over all work that was retried or given up on
+     */
+    public long getTotalRetryMillis() {
+        return retryMillis.sum();
+    }
+
+    /**
+     * @return the longest time from the first attempt to the last for any one piece of work
+     */
+    public long getMaxRetryMillis() {
+        return maxRetryMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TransientFailureRetry[" + helperName + ",retryCount=" + getRetryCount() + ",recoveredCount=" +
+                getRecoveredCount() + ",exhaustedCount=" + getExhaustedCount() + ",totalRetryMillis=" +
+                getTotalRetryMillis() + ",maxRetryMillis=" + getMaxRetryMillis() + ']';
+    }
+}
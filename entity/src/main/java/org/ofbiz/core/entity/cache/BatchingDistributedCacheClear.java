@@ -0,0 +1,666 @@
+package org.ofbiz.core.entity.cache;
+
+import org.ofbiz.core.entity.DistributedCacheClear;
+import org.ofbiz.core.entity.GenericDelegator;
+import org.ofbiz.core.entity.GenericEntity;
+import org.ofbiz.core.entity.GenericPK;
+import org.ofbiz.core.entity.GenericValue;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.util.Debug;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DistributedCacheClear} that takes cache clearing off the write path. Each request is only queued;
+ * duplicates arriving within a short window are coalesced and the survivors are sent as one compact batch
+ * over a pluggable {@link CacheClearTransport}. Other nodes apply each batch to their own delegator of the same
+ * name via the non-distributing <code>clearCacheLine(..., false)</code> methods.
+ * <p>
+ * Batches are written in a fixed format that only carries strings, numbers, booleans, dates and byte arrays, so
+ * nothing received is ever deserialized as an arbitrary object; a request holding any other kind of field value is
+ * sent as a request to clear all caches instead. Batches that cannot be read are logged and dropped. When the nodes
+ * share a secret, each batch is signed with it and batches without a valid signature are dropped too; without one,
+ * anything that can reach the transport can clear caches, so it should then only be reachable by the other nodes.
+ * <p>
+ * To use it, set <code>distributed-cache-clear-class-name</code> to this class on the delegator. When created
+ * by the delegator it is configured from system properties:
+ * <ul>
+ * <li><code>entity.cache.clear.window</code> - how long in milliseconds to collect requests before sending,
+ * by default {@value #DEFAULT_WINDOW}</li>
+ * <li><code>entity.cache.clear.max.batch</code> - how many distinct requests trigger an immediate send,
+ * by default {@value #DEFAULT_MAX_BATCH}</li>
+ * <li><code>entity.cache.clear.transport</code> - the {@link CacheClearTransport} class, by default
+ * {@link UdpCacheClearTransport}</li>
+ * <li><code>entity.cache.clear.secret</code> - the secret shared by the nodes to sign batches with, by default none</li>
+ * </ul>
+ */
+public class BatchingDistributedCacheClear implements DistributedCacheClear, Closeable {
+
+    public static final String module = BatchingDistributedCacheClear.class.getName();
+
+    public static final long DEFAULT_WINDOW = 50;
+    public static final int DEFAULT_MAX_BATCH = 500;
+
+    private static final int MAGIC = 0x0fb1cc03;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32;
+
+    // the kinds of entry in a batch
+    private static final byte VALUE = 1;
+    private static final byte PRIMARY_KEY = 2;
+    private static final byte FLEXIBLE = 3;
+
+    // the kinds of field value in a batch
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte TIMESTAMP = 8;
+    private static final byte SQL_DATE = 9;
+    private static final byte SQL_TIME = 10;
+    private static final byte DATE = 11;
+    private static final byte BYTES = 12;
+
+    private final CacheClearTransport transport;
+    private final long window;
+    private final int maxBatch;
+    private final String senderId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService executor;
+    private final SecretKeySpec secret;
+
+    private final Object lock = new Object();
+    // all of the following are guarded by "lock"
+    private Set<Entry> pending = new LinkedHashSet<Entry>();
+    private boolean pendingClearAll;
+    private boolean flushScheduled;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong batchesReceived = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong batchesRejected = new AtomicLong();
+
+    private volatile GenericDelegator delegator;
+
+    /**
+     * Constructor used by the delegator, which takes its settings from system properties.
+     */
+    public BatchingDistributedCacheClear() {
+        this(createTransport(System.getProperty("entity.cache.clear.transport")),
+                Long.getLong("entity.cache.clear.window", DEFAULT_WINDOW),
+                Integer.getInteger("entity.cache.clear.max.batch", DEFAULT_MAX_BATCH),
+                getSecret(System.getProperty("entity.cache.clear.secret")));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport to send and receive batches with; it is started by {@link #setDelegator}
+     * @param window    how long in milliseconds to collect requests before sending them
+     * @param maxBatch  the number of distinct pending requests that triggers an immediate send
+     */
+    public BatchingDistributedCacheClear(final CacheClearTransport transport, final long window, final int maxBatch) {
+        this(transport, window, maxBatch, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport to send and receive batches with; it is started by {@link #setDelegator}
+     * @param window    how long in milliseconds to collect requests before sending them
+     * @param maxBatch  the number of distinct pending requests that triggers an immediate send
+     * @param secret    the secret shared by the nodes to sign batches with, or null to send them unsigned
+     */
+    public BatchingDistributedCacheClear(final CacheClearTransport transport, final long window, final int maxBatch,
+                                         final byte[] secret) {
+        this.transport = transport;
+        this.secret = secret == null || secret.length == 0 ? null : new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.window = Math.max(0, window);
+        this.maxBatch = Math.max(1, maxBatch);
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "BatchingDistributedCacheClear");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(true);
+        this.executor = scheduler;
+    }
+
+    private static byte[] getSecret(final String secret) {
+        return secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CacheClearTransport createTransport(final String className) {
+        if (className == null) {
+            return new UdpCacheClearTransport();
+        }
+        try {
+            return (CacheClearTransport) Thread.currentThread().getContextClassLoader().loadClass(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            Debug.logWarning(e, "Could not create cache clear transport " + className + ", using UDP", module);
+            return new UdpCacheClearTransport();
+        }
+    }
+
+    public void setDelegator(final GenericDelegator delegator, final String userLoginId) {
+        this.delegator = delegator;
+        try {
+            transport.start(this::receive);
+        } catch (IOException e) {
+            Debug.logError(e, "Could not start the cache clear transport; caches of delegator " +
+                    delegator.getDelegatorName() + " will not be cleared by other nodes", module);
+        }
+    }
+
+    public void distributedClearCacheLine(final GenericValue value) {
+        if (value == null) {
+            return;
+        }
+        final List<Entry> entries = new ArrayList<Entry>(2);
+        addEntries(value, entries);
+        for (Entry entry : entries) {
+            enqueue(entry);
+        }
+    }
+
+    private static void addEntries(final GenericValue value, final List<Entry> entries) {
+        entries.add(new Entry(VALUE, value.getEntityName(), value.getAllFields()));
+
+        // the by and lists that held the value before it was changed need clearing too
+        if (value.isModified() && value.originalDbValuesAvailable()) {
+            final Map<String, Object> originalFields = new HashMap<String, Object>();
+            for (String fieldName : value.getModelEntity().getAllFieldNames()) {
+                originalFields.put(fieldName, value.getOriginalDbValue(fieldName));
+            }
+            entries.add(new Entry(VALUE, value.getEntityName(), originalFields));
+        }
+    }
+
+    public void distributedClearCacheLineFlexible(final GenericEntity dummyPK) {
+        if (dummyPK != null) {
+            enqueue(new Entry(FLEXIBLE, dummyPK.getEntityName(), dummyPK.getAllFields()));
+        }
+    }
+
+    public void distributedClearCacheLine(final GenericPK primaryKey) {
+        if (primaryKey != null) {
+            enqueue(new Entry(PRIMARY_KEY, primaryKey.getEntityName(), primaryKey.getAllFields()));
+        }
+    }
+
+    /**
+     * Queues everything written by one committed transaction and sends it at once, without waiting for the window
+     * to pass, so that other nodes drop the old values as soon as possible.
+     */
+    @Override
+    public void distributedClearCacheLines(final Collection<GenericValue> values, final Collection<GenericPK> primaryKeys,
+                                           final Collection<GenericEntity> dummyPKs) {
+        final List<Entry> entries = new ArrayList<Entry>(values.size() + primaryKeys.size() + dummyPKs.size());
+        for (GenericValue value : values) {
+            addEntries(value, entries);
+        }
+        for (GenericPK primaryKey : primaryKeys) {
+            entries.add(new Entry(PRIMARY_KEY, primaryKey.getEntityName(), primaryKey.getAllFields()));
+        }
+        for (GenericEntity dummyPK : dummyPKs) {
+            entries.add(new Entry(FLEXIBLE, dummyPK.getEntityName(), dummyPK.getAllFields()));
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        requestCount.addAndGet(entries.size());
+        synchronized (lock) {
+            for (Entry entry : entries) {
+                if (pendingClearAll || !pending.add(entry)) {
+                    coalescedCount.incrementAndGet();
+                }
+            }
+            submitFlush(0);
+        }
+    }
+
+    public void clearAllCaches() {
+        requestCount.incrementAndGet();
+        synchronized (lock) {
+            // clearing everything makes anything else pending redundant
+            coalescedCount.addAndGet(pending.size());
+            pending = new LinkedHashSet<Entry>();
+            pendingClearAll = true;
+            scheduleFlush();
+        }
+    }
+
+    private void enqueue(final Entry entry) {
+        requestCount.incrementAndGet();
+        synchronized (lock) {
+            if (pendingClearAll || !pending.add(entry)) {
+                coalescedCount.incrementAndGet();
+                return;
+            }
+            if (pending.size() >= maxBatch) {
+                submitFlush(0);
+            } else {
+                scheduleFlush();
+            }
+        }
+    }
+
+    // must hold "lock"
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = submitFlush(window);
+        }
+    }
+
+    private boolean submitFlush(final long delay) {
+        try {
+            executor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // closed, so whatever is pending is sent by close()
+            return false;
+        }
+    }
+
+    /**
+     * Sends whatever is pending now, rather than waiting for the window to pass.
+     */
+    public void flush() {
+        final List<Entry> entries;
+        final boolean clearAll;
+        synchronized (lock) {
+            entries = new ArrayList<Entry>(pending);
+            clearAll = pendingClearAll;
+            pending = new LinkedHashSet<Entry>();
+            pendingClearAll = false;
+            flushScheduled = false;
+        }
+        if (clearAll) {
+            send(Collections.<Entry>emptyList(), true);
+        } else if (!entries.isEmpty()) {
+            send(entries, false);
+        }
+    }
+
+    private void send(final List<Entry> entries, final boolean clearAll) {
+        final GenericDelegator current = delegator;
+        if (current == null) {
+            return;
+        }
+        try {
+            final byte[] message = encode(current.getDelegatorName(), entries, clearAll);
+            if (message.length > transport.getMaxMessageSize()) {
+                if (entries.size() > 1) {
+                    send(entries.subList(0, entries.size() / 2), false);
+                    send(entries.subList(entries.size() / 2, entries.size()), false);
+                } else {
+                    // a single request too big to send, so fall back to something that is not
+                    Debug.logWarning("Cache clearing request for " + entries.get(0).entityName +
+                            " is too large to send, clearing all caches instead", module);
+                    send(Collections.<Entry>emptyList(), true);
+                }
+                return;
+            }
+            transport.send(message);
+            batchesSent.incrementAndGet();
+        } catch (UnsupportedValueException e) {
+            Debug.logWarning("Cache clearing request holds a " + e.getMessage() +
+                    " that cannot be sent, clearing all caches instead", module);
+            send(Collections.<Entry>emptyList(), true);
+        } catch (IOException e) {
+            sendFailures.incrementAndGet();
+            Debug.logWarning(e, "Could not send " + (clearAll ? "clear all caches" : entries.size() + " cache clearing requests") +
+                    " for delegator " + current.getDelegatorName(), module);
+        }
+    }
+
+    private byte[] encode(final String delegatorName, final List<Entry> entries, final boolean clearAll) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(senderId);
+            out.writeUTF(delegatorName);
+            out.writeBoolean(clearAll);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeByte(entry.type);
+                out.writeUTF(entry.entityName);
+                out.writeInt(entry.fields.size());
+                for (Map.Entry<String, Object> field : entry.fields.entrySet()) {
+                    out.writeUTF(field.getKey());
+                    writeValue(out, field.getValue());
+                }
+            }
+            if (secret != null) {
+                out.write(sign(bytes.toByteArray(), bytes.size()));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            // not writeUTF, which is limited to 64K bytes that a long text field can exceed
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Date) value).getTime());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else {
+            throw new UnsupportedValueException(value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(final DataInputStream in, final int limit) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                final byte[] utf8 = new byte[readCount(in, limit)];
+                in.readFully(utf8);
+                return new String(utf8, StandardCharsets.UTF_8);
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case BIG_DECIMAL:
+                try {
+                    return new BigDecimal(in.readUTF());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid decimal", e);
+                }
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(in.readLong());
+                try {
+                    timestamp.setNanos(in.readInt());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid timestamp", e);
+                }
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case SQL_TIME:
+                return new Time(in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            case BYTES:
+                final byte[] bytes = new byte[readCount(in, limit)];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    // reads a count, which can be no more than the bytes in the message, so that a bad one cannot exhaust the heap
+    private static int readCount(final DataInputStream in, final int limit) throws IOException {
+        final int count = in.readInt();
+        if (count < 0 || count > limit) {
+            throw new IOException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    private byte[] sign(final byte[] message, final int length) throws IOException {
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secret);
+            mac.update(message, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not sign cache clearing batch", e);
+        }
+    }
+
+    /**
+     * Applies a batch received from another node. Batches that cannot be read, or that are not signed with the
+     * shared secret when there is one, are logged and dropped.
+     *
+     * @param message the encoded batch
+     */
+    void receive(final byte[] message) {
+        final GenericDelegator current = delegator;
+        if (current == null) {
+            return;
+        }
+        int length = message.length;
+        if (secret != null) {
+            length -= MAC_LENGTH;
+            try {
+                if (length < 0 || !MessageDigest.isEqual(sign(message, length), Arrays.copyOfRange(message, length, message.length))) {
+                    reject("Ignoring cache clearing batch without a valid signature", null);
+                    return;
+                }
+            } catch (IOException e) {
+                reject("Could not check the signature of cache clearing batch", e);
+                return;
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message, 0, length))) {
+            if (in.readInt() != MAGIC) {
+                reject("Ignoring message that is not a cache clearing batch", null);
+                return;
+            }
+            if (senderId.equals(in.readUTF()) || !current.getDelegatorName().equals(in.readUTF())) {
+                // our own batch looped back, or one meant for another delegator
+                return;
+            }
+            final boolean clearAll = in.readBoolean();
+            final List<Entry> entries = new ArrayList<Entry>();
+            final int count = readCount(in, length);
+            for (int i = 0; i < count; i++) {
+                final byte type = in.readByte();
+                final String entityName = in.readUTF();
+                final int fieldCount = readCount(in, length);
+                final Map<String, Object> fields = new HashMap<String, Object>();
+                for (int j = 0; j < fieldCount; j++) {
+                    fields.put(in.readUTF(), readValue(in, length));
+                }
+                entries.add(new Entry(type, entityName, fields));
+            }
+
+            // only act once the whole batch has been read, so that a bad one is dropped without clearing anything
+            if (clearAll) {
+                current.clearAllCaches(false);
+            } else {
+                for (Entry entry : entries) {
+                    apply(current, entry.type, entry.entityName, entry.fields);
+                }
+            }
+            batchesReceived.incrementAndGet();
+        } catch (IOException e) {
+            reject("Ignoring cache clearing batch that could not be read", e);
+        }
+    }
+
+    private void reject(final String message, final Throwable cause) {
+        batchesRejected.incrementAndGet();
+        Debug.logWarning(cause, message, module);
+    }
+
+    private static void apply(final GenericDelegator delegator, final byte type, final String entityName,
+                              final Map<String, Object> fields) {
+        final ModelEntity modelEntity = delegator.getModelEntity(entityName);
+        if (modelEntity == null) {
+            Debug.logWarning("Ignoring cache clearing request for unknown entity " + entityName, module);
+            return;
+        }
+        switch (type) {
+            case VALUE:
+                delegator.clearCacheLine(delegator.makeValue(entityName, fields), false);
+                break;
+            case PRIMARY_KEY:
+                delegator.clearCacheLine(new GenericPK(delegator, modelEntity, fields), false);
+                break;
+            case FLEXIBLE:
+                delegator.clearCacheLineFlexible(new GenericPK(delegator, modelEntity, fields), false);
+                break;
+            default:
+                Debug.logWarning("Ignoring cache clearing request of unknown type " + type, module);
+        }
+    }
+
+    /**
+     * Sends anything pending and stops sending and receiving.
+     */
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(window + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.close();
+    }
+
+    /**
+     * Returns the number of cache clearing requests made of this node.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of requests that were not sent because an identical or broader one was already pending.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    public long getBatchesReceived() {
+        return batchesReceived.get();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.get();
+    }
+
+    /**
+     * Returns the number of messages received that were dropped because they could not be read or were not signed
+     * with the shared secret.
+     */
+    public long getBatchesRejected() {
+        return batchesRejected.get();
+    }
+
+    /**
+     * Thrown when a request holds a field value that cannot be written to a batch.
+     */
+    private static final class UnsupportedValueException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedValueException(final String className) {
+            super(className);
+        }
+    }
+
+    private static final class Entry {
+        final byte type;
+        final String entityName;
+        final Map<String, Object> fields;
+
+        Entry(final byte type, final String entityName, final Map<String, Object> fields) {
+            this.type = type;
+            this.entityName = entityName;
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry other = (Entry) o;
+            return type == other.type && entityName.equals(other.entityName) && fields.equals(other.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, entityName, fields);
+        }
+    }
+}
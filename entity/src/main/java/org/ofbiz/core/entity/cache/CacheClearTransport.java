@@ -0,0 +1,34 @@
+package org.ofbiz.core.entity.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded cache clearing batches between the nodes that share a database, on behalf of a
+ * {@link BatchingDistributedCacheClear}. Implementations only move opaque messages; they need not
+ * guarantee delivery or ordering, nor filter out messages sent by the same node.
+ */
+public interface CacheClearTransport extends Closeable {
+
+    /**
+     * Starts listening for messages from other nodes.
+     *
+     * @param receiver called with each message received, possibly from a transport thread
+     * @throws IOException if the transport could not be started
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Sends a message to the other nodes.
+     *
+     * @param message the message, no longer than {@link #getMaxMessageSize()}
+     * @throws IOException if the message could not be sent
+     */
+    void send(byte[] message) throws IOException;
+
+    /**
+     * Returns the largest message, in bytes, that can be sent in one go.
+     */
+    int getMaxMessageSize();
+}
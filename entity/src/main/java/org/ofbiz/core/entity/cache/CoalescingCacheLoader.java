@@ -0,0 +1,214 @@
+package org.ofbiz.core.entity.cache;
+
+import org.ofbiz.core.entity.GenericEntityException;
+import org.ofbiz.core.util.Debug;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces concurrent loads of the same missing cache line, so that when a popular line is cleared only one
+ * thread reads it from the database and the others that miss at the same time wait for and share its result,
+ * instead of all running the same query.
+ * <p>
+ * A waiting thread gives up after the timeout and loads the line itself, as it also does if the load it was
+ * waiting for failed; a slow or failing load therefore never leaves other callers worse off than without
+ * coalescing. A timeout of zero or less turns coalescing off.
+ * <p>
+ * Clearing a cache line must also {@link #invalidate} it here, before the line is removed from the cache. That
+ * stops later callers from joining a load that began before the data changed, and stops that load from putting
+ * what it read in the cache.
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the loaded values
+ */
+public class CoalescingCacheLoader<K, V> {
+
+    private static final String module = CoalescingCacheLoader.class.getName();
+
+    private static final Publisher ALWAYS = Runnable::run;
+
+    private final String name;
+    private final ConcurrentMap<K, Load<V>> loadsInProgress = new ConcurrentHashMap<K, Load<V>>();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * @param name the name of the cache being loaded, for logging
+     */
+    public CoalescingCacheLoader(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Loads the value for the given key, or waits for a load of the same key already in progress.
+     *
+     * @param key           the key of the missing cache line
+     * @param timeoutMillis how long to wait for another thread's load before loading anyway
+     * @param loader        reads the value and puts it in the cache through the given {@link Publisher}
+     * @return the loaded value, which may have been loaded by another thread
+     * @throws GenericEntityException if this thread's own load fails
+     */
+    public V load(final K key, final long timeoutMillis, final Loader<V> loader) throws GenericEntityException {
+        if (timeoutMillis <= 0 || key == null) {
+            loadCount.incrementAndGet();
+            return loader.load(ALWAYS);
+        }
+        final Load<V> load = new Load<V>();
+        final Load<V> loadInProgress = loadsInProgress.putIfAbsent(key, load);
+        if (loadInProgress == null) {
+            return loadAndPublish(key, load, loader);
+        }
+
+        try {
+            final V value = loadInProgress.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            coalescedCount.incrementAndGet();
+            return value;
+        } catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
+            if (Debug.infoOn()) {
+                Debug.logInfo("Gave up waiting " + timeoutMillis + "ms for another load of " + key + " into " + name +
+                        ", loading it again", module);
+            }
+        } catch (ExecutionException e) {
+            // the other thread's load failed; try our own so that our caller sees its own result
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        loadCount.incrementAndGet();
+        return loader.load(ALWAYS);
+    }
+
+    private V loadAndPublish(final K key, final Load<V> load, final Loader<V> loader) throws GenericEntityException {
+        loadCount.incrementAndGet();
+        try {
+            final V value = loader.load(load);
+            load.complete(value);
+            return value;
+        } catch (GenericEntityException | RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInProgress.remove(key, load);
+        }
+    }
+
+    /**
+     * Stops any load of the given key in progress from putting what it read in the cache, and makes later callers
+     * load the key afresh rather than wait for it. Callers already waiting still get its result.
+     *
+     * @param key the key of the cache line being cleared
+     */
+    public void invalidate(final Object key) {
+        if (key != null) {
+            final Load<V> load = loadsInProgress.remove(key);
+            if (load != null) {
+                load.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Invalidates the loads in progress of all keys that match the given condition.
+     *
+     * @param condition selects the keys to invalidate
+     * @see #invalidate
+     */
+    public void invalidateIf(final Predicate<? super K> condition) {
+        for (K key : loadsInProgress.keySet()) {
+            if (condition.test(key)) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Invalidates all loads in progress.
+     *
+     * @see #invalidate
+     */
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of loads that actually ran, including those after giving up waiting.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Returns the number of callers that were given the result of another thread's load instead of running
+     * their own.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of callers that gave up waiting for another thread's load.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the number of keys currently being loaded.
+     */
+    public int getLoadsInProgress() {
+        return loadsInProgress.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingCacheLoader[" + name + ",loads=" + loadCount + ",coalesced=" + coalescedCount +
+                ",timeouts=" + timeoutCount + ']';
+    }
+
+    /**
+     * Reads a missing cache line and puts it in the cache.
+     *
+     * @param <V> the type of the value
+     */
+    public interface Loader<V> {
+        /**
+         * @param publisher to put the value read in the cache with
+         * @return the value read
+         */
+        V load(Publisher publisher) throws GenericEntityException;
+    }
+
+    /**
+     * Puts a loaded value in the cache, unless its cache line was invalidated while it was being loaded.
+     */
+    public interface Publisher {
+        void publish(Runnable put);
+    }
+
+    private static final class Load<V> extends CompletableFuture<V> implements Publisher {
+        // guarded by "this", so that a put cannot slip in between invalidation and the cache line being removed
+        private boolean invalidated;
+
+        public synchronized void publish(final Runnable put) {
+            if (!invalidated) {
+                put.run();
+            }
+        }
+
+        synchronized void invalidate() {
+            invalidated = true;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.ofbiz.core.entity.cache;
+
+import org.ofbiz.core.util.Debug;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CacheClearTransport} that sends each message as a UDP datagram to a fixed list of peers.
+ * <p>
+ * When constructed without arguments it is configured from system properties:
+ * <ul>
+ * <li><code>entity.cache.clear.udp.bind</code> - the address to listen on, by default the loopback address</li>
+ * <li><code>entity.cache.clear.udp.port</code> - the port to listen on, by default {@value #DEFAULT_PORT}</li>
+ * <li><code>entity.cache.clear.udp.peers</code> - comma separated <code>host:port</code> pairs to send to,
+ * by default the address being listened on, which makes this a loopback stand-in for a real cluster</li>
+ * </ul>
+ * Datagrams are only accepted from the hosts of the peers, or from this host when there are none; any others are
+ * dropped.
+ */
+public class UdpCacheClearTransport implements CacheClearTransport {
+
+    public static final String module = UdpCacheClearTransport.class.getName();
+
+    public static final int DEFAULT_PORT = 47250;
+
+    /**
+     * Stays below the 65507 byte limit of a UDP payload.
+     */
+    public static final int MAX_MESSAGE_SIZE = 60000;
+
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers;
+    private final Set<InetAddress> peerHosts;
+    private volatile DatagramSocket socket;
+
+    /**
+     * Creates a transport configured from system properties.
+     */
+    public UdpCacheClearTransport() {
+        this(new InetSocketAddress(getBindAddress(), Integer.getInteger("entity.cache.clear.udp.port", DEFAULT_PORT)),
+                parsePeers(System.getProperty("entity.cache.clear.udp.peers")));
+    }
+
+    /**
+     * Creates a transport.
+     *
+     * @param bindAddress the address to listen on; port zero picks any free port
+     * @param peers       the addresses to send to; if empty, messages are sent to the address listened on
+     */
+    public UdpCacheClearTransport(final InetSocketAddress bindAddress, final List<InetSocketAddress> peers) {
+        this.bindAddress = bindAddress;
+        this.peers = Collections.unmodifiableList(new ArrayList<InetSocketAddress>(peers));
+        this.peerHosts = new HashSet<InetAddress>();
+        for (InetSocketAddress peer : peers) {
+            if (peer.getAddress() != null) {
+                peerHosts.add(peer.getAddress());
+            }
+        }
+    }
+
+    public synchronized void start(final Consumer<byte[]> receiver) throws IOException {
+        if (socket != null) {
+            throw new IllegalStateException("Already started");
+        }
+        socket = new DatagramSocket(bindAddress);
+        final DatagramSocket listening = socket;
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                receive(listening, receiver, peerHosts);
+            }
+        }, "UdpCacheClearTransport-" + listening.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void receive(final DatagramSocket listening, final Consumer<byte[]> receiver, final Set<InetAddress> peerHosts) {
+        final byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+        while (!listening.isClosed()) {
+            final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                listening.receive(packet);
+                if (!isAllowedSender(packet.getAddress(), peerHosts)) {
+                    Debug.logWarning("Ignoring cache clearing message from unknown host " + packet.getAddress(), module);
+                    continue;
+                }
+                receiver.accept(Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+            } catch (SocketException e) {
+                // closed
+            } catch (IOException e) {
+                Debug.logWarning(e, "Could not receive cache clearing message", module);
+            } catch (RuntimeException e) {
+                Debug.logError(e, "Could not apply cache clearing message", module);
+            }
+        }
+    }
+
+    static boolean isAllowedSender(final InetAddress sender, final Set<InetAddress> peerHosts) throws SocketException {
+        if (!peerHosts.isEmpty()) {
+            return peerHosts.contains(sender);
+        }
+        // without peers we only talk to ourselves
+        return sender.isLoopbackAddress() || NetworkInterface.getByInetAddress(sender) != null;
+    }
+
+    public void send(final byte[] message) throws IOException {
+        final DatagramSocket sending = socket;
+        if (sending == null) {
+            throw new IOException("Transport has not been started");
+        }
+        if (peers.isEmpty()) {
+            sending.send(new DatagramPacket(message, message.length, sending.getLocalSocketAddress()));
+            return;
+        }
+        for (InetSocketAddress peer : peers) {
+            sending.send(new DatagramPacket(message, message.length, peer));
+        }
+    }
+
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    /**
+     * Returns the address actually listened on, which tells the port chosen when binding to port zero.
+     *
+     * @return null if not started
+     */
+    public InetSocketAddress getLocalAddress() {
+        final DatagramSocket current = socket;
+        return current == null ? null : (InetSocketAddress) current.getLocalSocketAddress();
+    }
+
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    private static InetAddress getBindAddress() {
+        final String host = System.getProperty("entity.cache.clear.udp.bind");
+        try {
+            return host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+        } catch (IOException e) {
+            Debug.logWarning(e, "Unknown entity.cache.clear.udp.bind address " + host + ", using loopback", module);
+            return InetAddress.getLoopbackAddress();
+        }
+    }
+
+    static List<InetSocketAddress> parsePeers(final String peers) {
+        final List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+        if (peers == null) {
+            return addresses;
+        }
+        for (String peer : peers.split(",")) {
+            peer = peer.trim();
+            final int colon = peer.lastIndexOf(':');
+            if (colon <= 0) {
+                Debug.logWarning("Ignoring cache clearing peer without a port: " + peer, module);
+                continue;
+            }
+            try {
+                addresses.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                Debug.logWarning("Ignoring invalid cache clearing peer: " + peer, module);
+            }
+        }
+        return addresses;
+    }
+}
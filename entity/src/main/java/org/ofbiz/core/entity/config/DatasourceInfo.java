@@ -193,6 +193,7 @@ public class DatasourceInfo {
             Long minEvictableTimeMillis = getLongValueFromElement(jdbcDatasourceElement, "pool-minEvictableIdleTimeMillis", null);
             Long timeBetweenEvictionRunsMillis = getLongValueFromElement(jdbcDatasourceElement, "pool-timeBetweenEvictionRunsMillis", null);
             Properties connectionProperties = parsePropertyString(jdbcDatasourceElement.getAttribute("jdbc-connectionProperties"));
+            String poolType = jdbcDatasourceElement.getAttribute("pool-type");
             ConnectionPoolInfo connectionPoolInfo = ConnectionPoolInfo.builder()
                     .setPoolMaxSize(maxSize)
                     .setPoolMaxIdle(maxIdle)
@@ -206,7 +207,7 @@ public class DatasourceInfo {
                     .setMinEvictableTimeMillis(minEvictableTimeMillis)
                     .setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis)
                     .build();
-            jdbcDatasource = new JdbcDatasourceInfo(uri, driverClassName, username, password, transIso, connectionProperties, connectionPoolInfo);
+            jdbcDatasource = new JdbcDatasourceInfo(uri, driverClassName, username, password, transIso, connectionProperties, connectionPoolInfo, poolType);
         }
         tyrexDataSourceElement = UtilXml.firstChildElement(element, "tyrex-dataSource");
     }
@@ -323,8 +323,21 @@ public class EntityConfigUtil {
         public boolean useDistributedCacheClear;
         public String distributedCacheClearClassName;
         public String distributedCacheClearUserLoginId;
+        public String cacheSnapshotLocation;
+        public boolean cacheSnapshotValues;
+        public int cacheSnapshotMaxEntries = DEFAULT_CACHE_SNAPSHOT_MAX_ENTRIES;
+        public long cacheSnapshotMaxAge = DEFAULT_CACHE_SNAPSHOT_MAX_AGE;
+        public long cacheValidationInterval;
+        public long cacheLoadTimeout = DEFAULT_CACHE_LOAD_TIMEOUT;
+        public long notFoundCacheExpireTime;
+        public boolean deferCacheClear;
+        public boolean retryTransientFailures;
         public Map<String, String> groupMap = new HashMap<String, String>();
 
+        public static final int DEFAULT_CACHE_SNAPSHOT_MAX_ENTRIES = 10000;
+        public static final long DEFAULT_CACHE_SNAPSHOT_MAX_AGE = 60 * 60 * 1000;
+        public static final long DEFAULT_CACHE_LOAD_TIMEOUT = 10 * 1000;
+
         public DelegatorInfo(String name, String entityModelReader, String entityGroupReader, Map<String, String> groupMap) {
             this.name = name;
             this.entityModelReader = entityModelReader;
@@ -349,22 +362,57 @@ public class EntityConfigUtil {
                 this.distributedCacheClearUserLoginId = "admin";
             }
 
+            // no location means no snapshot is written or loaded
+            this.cacheSnapshotLocation = UtilValidate.isEmpty(element.getAttribute("cache-snapshot-location")) ?
+                    null : element.getAttribute("cache-snapshot-location");
+            // this defaults to false, ie anything but true is false
+            this.cacheSnapshotValues = "true".equals(element.getAttribute("cache-snapshot-values"));
+            this.cacheSnapshotMaxEntries = (int) getLongAttribute(element, "cache-snapshot-max-entries", DEFAULT_CACHE_SNAPSHOT_MAX_ENTRIES);
+            this.cacheSnapshotMaxAge = getLongAttribute(element, "cache-snapshot-max-age", DEFAULT_CACHE_SNAPSHOT_MAX_AGE);
+            // zero or less means cached lists are never checked against the stamps in the database
+            this.cacheValidationInterval = getLongAttribute(element, "cache-validation-interval", 0);
+            // zero or less means concurrent misses on the same cache line each load it themselves
+            this.cacheLoadTimeout = getLongAttribute(element, "cache-load-timeout", DEFAULT_CACHE_LOAD_TIMEOUT);
+            // zero or less means primary keys that are not found are not cached
+            this.notFoundCacheExpireTime = getLongAttribute(element, "not-found-cache-expire-time", 0);
+            // this defaults to false, ie anything but true is false
+            this.deferCacheClear = "true".equals(element.getAttribute("defer-cache-clear"));
+            // this defaults to false, ie anything but true is false
+            this.retryTransientFailures = "true".equals(element.getAttribute("retry-transient-failures"));
+
             List<Element> groupMapList = UtilXml.childElementList(element, "group-map");
 
             for (Element groupMapElement : groupMapList) {
                 groupMap.put(groupMapElement.getAttribute("group-name"), groupMapElement.getAttribute("datasource-name"));
             }
         }
+
+        private static long getLongAttribute(Element element, String attributeName, long defaultValue) {
+            final String value = element.getAttribute(attributeName);
+            if (UtilValidate.isEmpty(value)) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException nfe) {
+                Debug.logError(attributeName + " was not a number, but was \"" + value + "\", defaulting to " + defaultValue);
+                return defaultValue;
+            }
+        }
     }
 
 
     public static class EntityModelReaderInfo {
         public String name;
         public List<Element> resourceElements;
+        public String snapshotLocation;
 
         public EntityModelReaderInfo(Element element) {
             this.name = element.getAttribute("name");
             resourceElements = UtilXml.childElementList(element, "resource");
+            // no location means the model is always read from XML
+            this.snapshotLocation = UtilValidate.isEmpty(element.getAttribute("snapshot-location")) ?
+                    null : element.getAttribute("snapshot-location");
         }
     }
 
@@ -394,10 +442,13 @@ public class EntityConfigUtil {
     public static class FieldTypeInfo {
         public String name;
         public Element resourceElement;
+        public String snapshotLocation;
 
         public FieldTypeInfo(Element element) {
             this.name = element.getAttribute("name");
             resourceElement = element;
+            this.snapshotLocation = UtilValidate.isEmpty(element.getAttribute("snapshot-location")) ?
+                    null : element.getAttribute("snapshot-location");
         }
     }
 
@@ -8,6 +8,16 @@ import java.util.Properties;
  * JDBC datasource descriptor
  */
 public class JdbcDatasourceInfo {
+    /**
+     * The default pool type, a Commons DBCP pool.
+     */
+    public static final String POOL_TYPE_DBCP = "dbcp";
+
+    /**
+     * The built-in {@link org.ofbiz.core.entity.transaction.LightweightConnectionPool}.
+     */
+    public static final String POOL_TYPE_LIGHTWEIGHT = "lightweight";
+
     private final String uri;
     private final String driverClassName;
     private final String username;
@@ -15,9 +25,19 @@ public class JdbcDatasourceInfo {
     private final String isolationLevel;
     private final Properties connectionProperties;
     private final ConnectionPoolInfo connectionPoolInfo;
+    private final String poolType;
 
     public JdbcDatasourceInfo(final String uri, final String driverClassName, final String username, final String password,
                               final String isolationLevel, final Properties connectionProperties, final ConnectionPoolInfo connectionPoolInfo) {
+        this(uri, driverClassName, username, password, isolationLevel, connectionProperties, connectionPoolInfo, null);
+    }
+
+    /**
+     * @param poolType {@link #POOL_TYPE_DBCP} or {@link #POOL_TYPE_LIGHTWEIGHT}; null or empty for DBCP
+     */
+    public JdbcDatasourceInfo(final String uri, final String driverClassName, final String username, final String password,
+                              final String isolationLevel, final Properties connectionProperties, final ConnectionPoolInfo connectionPoolInfo,
+                              final String poolType) {
         this.uri = uri;
         this.driverClassName = driverClassName;
         this.username = username;
@@ -25,6 +45,7 @@ public class JdbcDatasourceInfo {
         this.isolationLevel = isolationLevel;
         this.connectionProperties = PropertyUtils.copyOf(connectionProperties);
         this.connectionPoolInfo = connectionPoolInfo;
+        this.poolType = poolType == null || poolType.isEmpty() ? POOL_TYPE_DBCP : poolType;
     }
 
     public String getUri() {
@@ -55,6 +76,13 @@ public class JdbcDatasourceInfo {
         return connectionPoolInfo;
     }
 
+    /**
+     * @return the kind of connection pool to use, never null
+     */
+    public String getPoolType() {
+        return poolType;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -66,6 +94,7 @@ public class JdbcDatasourceInfo {
         sb.append(", isolationLevel='").append(isolationLevel).append('\'');
         sb.append(", connectionProperties=").append(connectionProperties);
         sb.append(", connectionPoolInfo=").append(connectionPoolInfo);
+        sb.append(", poolType='").append(poolType).append('\'');
         sb.append('}');
         return sb.toString();
     }
@@ -0,0 +1,219 @@
+package org.ofbiz.core.entity.jdbc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.ofbiz.core.entity.GenericDataSourceException;
+import org.ofbiz.core.entity.GenericEntityException;
+import org.ofbiz.core.entity.GenericModelException;
+import org.ofbiz.core.entity.jdbc.SqlJdbcUtil.FieldType;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+import org.ofbiz.core.util.Debug;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.concurrent.ExecutionException;
+
+import static org.ofbiz.core.entity.jdbc.SqlJdbcUtil.getFieldType;
+
+/**
+ * Binds the values of one field to the parameters of a prepared statement. The field type, and so the
+ * {@link SQLProcessor} setter and the SQL type used for nulls, is resolved once when the binder is created,
+ * instead of for every parameter as {@link SqlJdbcUtil#setValue} used to.
+ * <p>
+ * Binders are immutable and cached by {@link #forField}, per field type reader and field. The model objects
+ * are held weakly, so a reloaded model gets new binders.
+ */
+public final class ParameterBinder {
+
+    private static final String module = ParameterBinder.class.getName();
+
+    private static final Cache<ModelFieldTypeReader, Cache<ModelField, ParameterBinder>> BINDERS =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    private final ModelField modelField;
+    private final ModelFieldType modelFieldType;
+    private final boolean byteArrayType;
+    // values of this class are bound with the setter below without checking their type
+    private final Class<?> javaClass;
+    private final Setter setter;
+
+    private ParameterBinder(final ModelField modelField, final ModelFieldType modelFieldType) {
+        final FieldType fieldType = getFieldType(modelFieldType.getJavaType());
+        this.modelField = modelField;
+        this.modelFieldType = modelFieldType;
+        this.byteArrayType = SqlJdbcUtil.isByteArrayType(modelFieldType);
+        this.javaClass = "java.lang.Object".equals(modelFieldType.getJavaType()) ? null : javaClass(fieldType);
+        this.setter = setter(fieldType, byteArrayType);
+    }
+
+    /**
+     * Returns the binder for the given field, creating it if it is not already cached.
+     *
+     * @param modelField           the field whose values are to be bound
+     * @param modelFieldTypeReader the field types of the helper the statement is for
+     * @param entityName           the name of the entity, for the error message
+     * @return the binder
+     * @throws GenericModelException if the type of the field is not defined
+     */
+    public static ParameterBinder forField(final ModelField modelField, final ModelFieldTypeReader modelFieldTypeReader,
+                                           final String entityName) throws GenericModelException {
+        try {
+            final Cache<ModelField, ParameterBinder> binders = BINDERS.get(modelFieldTypeReader,
+                    () -> CacheBuilder.newBuilder().weakKeys().<ModelField, ParameterBinder>build());
+            ParameterBinder binder = binders.getIfPresent(modelField);
+            if (binder == null) {
+                binder = new ParameterBinder(modelField, getModelFieldType(modelField, modelFieldTypeReader, entityName));
+                binders.put(modelField, binder);
+            }
+            return binder;
+        } catch (ExecutionException e) {
+            // creating an empty cache cannot fail
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ModelFieldType getModelFieldType(final ModelField modelField, final ModelFieldTypeReader modelFieldTypeReader,
+                                                    final String entityName) throws GenericModelException {
+        final ModelFieldType mft = modelFieldTypeReader.getModelFieldType(modelField.getType());
+        if (mft == null) {
+            throw new GenericModelException("GenericDAO.getValue: definition fieldType " + modelField.getType() + " not found, cannot setValue for field " +
+                    entityName + '.' + modelField.getName() + '.');
+        }
+        return mft;
+    }
+
+    /**
+     * Binds the given value to the next parameter of the statement.
+     *
+     * @param sqlP       the processor holding the prepared statement
+     * @param entityName the name of the entity, for logging
+     * @param fieldValue the value, which may be null
+     * @throws GenericEntityException if the value cannot be bound
+     */
+    public void bind(final SQLProcessor sqlP, final String entityName, final Object fieldValue) throws GenericEntityException {
+        try {
+            if (fieldValue == null || javaClass == null || fieldValue.getClass() == javaClass) {
+                setter.set(sqlP, fieldValue);
+            } else {
+                bindOtherClass(sqlP, entityName, fieldValue);
+            }
+        } catch (SQLException sqle) {
+            throw new GenericDataSourceException("SQL Exception while setting value: ", sqle);
+        }
+    }
+
+    // The value is not of the class the field type expects, which may still be fine, for example a subclass
+    // or a driver's own Clob implementation
+    private void bindOtherClass(final SQLProcessor sqlP, final String entityName, final Object fieldValue) throws SQLException {
+        final String javaType = modelFieldType.getJavaType();
+        final String fieldClassName = fieldValue.getClass().getName();
+
+        if (!fieldClassName.equals(javaType) && !fieldClassName.contains(javaType)) {
+            // this is only an info level message because under normal operation for most JDBC
+            // drivers this will be okay, but if not then the JDBC driver will throw an exception
+            // and when lower debug levels are on this should help give more info on what happened
+            if (Debug.verboseOn()) Debug.logVerbose("type of field " + entityName + '.' + modelField.getName() +
+                    " is " + fieldClassName + ", was expecting " + javaType + "; this may " +
+                    "indicate an error in the configuration or in the class, and may result " +
+                    "in an SQL-Java data conversion error. Will use the real field type: " +
+                    fieldClassName + ", not the definition.", module);
+            setter(getFieldType(fieldClassName), byteArrayType).set(sqlP, fieldValue);
+        } else {
+            setter.set(sqlP, fieldValue);
+        }
+    }
+
+    /**
+     * Returns the class of the values that need no checking for the given field type.
+     */
+    private static Class<?> javaClass(final FieldType fieldType) {
+        switch (fieldType) {
+            case STRING:
+                return String.class;
+            case TIMESTAMP:
+                return Timestamp.class;
+            case TIME:
+                return Time.class;
+            case DATE:
+                return Date.class;
+            case INTEGER:
+                return Integer.class;
+            case LONG:
+                return Long.class;
+            case FLOAT:
+                return Float.class;
+            case DOUBLE:
+                return Double.class;
+            case BOOLEAN:
+                return Boolean.class;
+            case BYTE_ARRAY:
+                return byte[].class;
+            default:
+                // always check the class of anything else
+                return Void.class;
+        }
+    }
+
+    private static Setter setter(final FieldType fieldType, final boolean byteArrayType) {
+        switch (fieldType) {
+            case STRING:
+                return (sqlP, fieldValue) -> sqlP.setValue((String) fieldValue);
+            case TIMESTAMP:
+                return (sqlP, fieldValue) -> sqlP.setValue((Timestamp) fieldValue);
+            case TIME:
+                return (sqlP, fieldValue) -> sqlP.setValue((Time) fieldValue);
+            case DATE:
+                return (sqlP, fieldValue) -> sqlP.setValue((Date) fieldValue);
+            case INTEGER:
+                return (sqlP, fieldValue) -> sqlP.setValue((Integer) fieldValue);
+            case LONG:
+                return (sqlP, fieldValue) -> sqlP.setValue((Long) fieldValue);
+            case FLOAT:
+                return (sqlP, fieldValue) -> sqlP.setValue((Float) fieldValue);
+            case DOUBLE:
+                return (sqlP, fieldValue) -> sqlP.setValue((Double) fieldValue);
+            case BOOLEAN:
+                return (sqlP, fieldValue) -> sqlP.setValue((Boolean) fieldValue);
+            case OBJECT:
+                if (byteArrayType) {
+                    return SQLProcessor::setByteArrayData;
+                }
+                return SQLProcessor::setBinaryStream;
+            case BLOB:
+                return (sqlP, fieldValue) -> {
+                    if (fieldValue == null && byteArrayType) {
+                        sqlP.setByteArrayData(null);
+                    } else if (fieldValue instanceof Blob) {
+                        sqlP.setValue((Blob) fieldValue);
+                    } else {
+                        sqlP.setBlob((byte[]) fieldValue);
+                    }
+                };
+            case CLOB:
+                return (sqlP, fieldValue) -> {
+                    if (fieldValue instanceof Clob) {
+                        sqlP.setValue((Clob) fieldValue);
+                    } else {
+                        sqlP.setValue((String) fieldValue);
+                    }
+                };
+            case BYTE_ARRAY:
+                if (byteArrayType) {
+                    return (sqlP, fieldValue) -> sqlP.setByteArray((byte[]) fieldValue);
+                }
+                return (sqlP, fieldValue) -> sqlP.setBlob((byte[]) fieldValue);
+            default:
+                throw new IllegalArgumentException("Java type " + fieldType + " not currently supported. Sorry.");
+        }
+    }
+
+    private interface Setter {
+        void set(SQLProcessor sqlP, Object fieldValue) throws SQLException;
+    }
+}
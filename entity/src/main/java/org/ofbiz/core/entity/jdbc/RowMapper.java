@@ -0,0 +1,216 @@
+package org.ofbiz.core.entity.jdbc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.ofbiz.core.entity.GenericDataSourceException;
+import org.ofbiz.core.entity.GenericEntity;
+import org.ofbiz.core.entity.GenericEntityException;
+import org.ofbiz.core.entity.GenericModelException;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.ofbiz.core.entity.jdbc.SqlJdbcUtil.getFieldType;
+
+/**
+ * Copies the columns of a result set row into an entity. The field type, column index and
+ * {@link ResultSet} getter of each column are resolved once, when the mapper is compiled, instead
+ * of for every cell as {@link SqlJdbcUtil#getValue} has to.
+ * <p>
+ * Mappers are immutable and cached by {@link #forFields}, so may be shared by every query that
+ * selects the same fields of the same entity through the same helper.
+ */
+public final class RowMapper {
+
+    private static final int MAX_CACHED_MAPPERS = 10000;
+
+    private static final Cache<Key, RowMapper> MAPPERS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_MAPPERS)
+            .build();
+
+    private final ColumnReader[] readers;
+
+    private RowMapper(final ColumnReader[] readers) {
+        this.readers = readers;
+    }
+
+    /**
+     * Returns the mapper for the given fields, which are expected in the same order as the columns of
+     * the result set, compiling it if it is not already cached.
+     *
+     * @param modelEntity          the entity being selected
+     * @param selectFields         the fields of the selected columns, in column order
+     * @param modelFieldTypeReader the field types of the helper being selected from
+     * @return the mapper
+     * @throws GenericModelException if the type of any of the fields is not defined
+     */
+    public static RowMapper forFields(final ModelEntity modelEntity, final List<ModelField> selectFields,
+                                      final ModelFieldTypeReader modelFieldTypeReader) throws GenericModelException {
+        final Key key = new Key(modelEntity, selectFields, modelFieldTypeReader);
+        try {
+            return MAPPERS.get(key, () -> compile(modelEntity, key.selectFields, modelFieldTypeReader));
+        } catch (ExecutionException e) {
+            throw (GenericModelException) e.getCause();
+        }
+    }
+
+    /**
+     * Compiles a mapper without caching it.
+     *
+     * @param modelEntity          the entity being selected
+     * @param selectFields         the fields of the selected columns, in column order
+     * @param modelFieldTypeReader the field types of the helper being selected from
+     * @return the mapper
+     * @throws GenericModelException if the type of any of the fields is not defined
+     */
+    public static RowMapper compile(final ModelEntity modelEntity, final List<ModelField> selectFields,
+                                    final ModelFieldTypeReader modelFieldTypeReader) throws GenericModelException {
+        final ColumnReader[] readers = new ColumnReader[selectFields.size()];
+        for (int i = 0; i < readers.length; i++) {
+            final ModelField field = selectFields.get(i);
+            readers[i] = columnReader(i + 1, field, getModelFieldType(modelEntity.getEntityName(), field, modelFieldTypeReader));
+        }
+        return new RowMapper(readers);
+    }
+
+    /**
+     * Reads the current row of the given result set into the given entity.
+     *
+     * @param rs     the result set, positioned on a row
+     * @param entity the entity to set the fields of
+     * @throws GenericEntityException if a value cannot be read
+     */
+    public void map(final ResultSet rs, final GenericEntity entity) throws GenericEntityException {
+        try {
+            for (ColumnReader reader : readers) {
+                reader.read(rs, entity);
+            }
+        } catch (SQLException sqle) {
+            throw new GenericDataSourceException("SQL Exception while getting value: ", sqle);
+        }
+    }
+
+    public int getColumnCount() {
+        return readers.length;
+    }
+
+    static ModelFieldType getModelFieldType(final String entityName, final ModelField field,
+                                            final ModelFieldTypeReader modelFieldTypeReader) throws GenericModelException {
+        final ModelFieldType mft = modelFieldTypeReader.getModelFieldType(field.getType());
+        if (mft == null) {
+            throw new GenericModelException("definition fieldType " + field.getType() + " not found, cannot getValue for field " +
+                    entityName + '.' + field.getName() + '.');
+        }
+        return mft;
+    }
+
+    /**
+     * Returns the reader for one column, with the getter chosen by the Java type of the field.
+     */
+    static ColumnReader columnReader(final int ind, final ModelField field, final ModelFieldType mft) {
+        switch (getFieldType(mft.getJavaType())) {
+            case STRING:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getString(ind));
+            case TIMESTAMP:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getTimestamp(ind));
+            case TIME:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getTime(ind));
+            case DATE:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getDate(ind));
+            // checking to see if the object is null is really only necessary for the numbers
+            case INTEGER:
+                return (rs, entity) -> {
+                    final int value = rs.getInt(ind);
+                    entity.dangerousSetNoCheckButFast(field, rs.wasNull() ? null : value);
+                };
+            case LONG:
+                return (rs, entity) -> {
+                    final long value = rs.getLong(ind);
+                    entity.dangerousSetNoCheckButFast(field, rs.wasNull() ? null : value);
+                };
+            case FLOAT:
+                return (rs, entity) -> {
+                    final float value = rs.getFloat(ind);
+                    entity.dangerousSetNoCheckButFast(field, rs.wasNull() ? null : value);
+                };
+            case DOUBLE:
+                return (rs, entity) -> {
+                    final double value = rs.getDouble(ind);
+                    entity.dangerousSetNoCheckButFast(field, rs.wasNull() ? null : value);
+                };
+            case BOOLEAN:
+                return (rs, entity) -> {
+                    final boolean value = rs.getBoolean(ind);
+                    entity.dangerousSetNoCheckButFast(field, rs.wasNull() ? null : value);
+                };
+            case OBJECT:
+                if (SqlJdbcUtil.isByteArrayType(mft)) {
+                    return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, SqlJdbcUtil.getByteArrayAsObject(rs, ind));
+                }
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, SqlJdbcUtil.getBlobAsObject(rs, ind));
+            case BLOB:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getBlob(ind));
+            case CLOB:
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getClob(ind));
+            case BYTE_ARRAY:
+                if (SqlJdbcUtil.isByteArrayType(mft)) {
+                    return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, rs.getBytes(ind));
+                }
+                return (rs, entity) -> entity.dangerousSetNoCheckButFast(field, SqlJdbcUtil.getBlobAsByteArray(rs, ind));
+            default:
+                throw new IllegalArgumentException("Java type " + mft.getJavaType() + " not currently supported. Sorry.");
+        }
+    }
+
+    /**
+     * Reads one column of the current row into an entity.
+     */
+    interface ColumnReader {
+        void read(ResultSet rs, GenericEntity entity) throws SQLException, GenericDataSourceException;
+    }
+
+    /**
+     * The entity, fields and field types a mapper was compiled for. The model objects are compared by
+     * identity, so a reloaded model gets new mappers.
+     */
+    private static final class Key {
+        private final ModelEntity modelEntity;
+        private final List<ModelField> selectFields;
+        private final ModelFieldTypeReader modelFieldTypeReader;
+        private final int hashCode;
+
+        Key(final ModelEntity modelEntity, final List<ModelField> selectFields, final ModelFieldTypeReader modelFieldTypeReader) {
+            this.modelEntity = modelEntity;
+            // copied, as the caller may go on to change its list
+            this.selectFields = new ArrayList<ModelField>(selectFields);
+            this.modelFieldTypeReader = modelFieldTypeReader;
+            this.hashCode = 31 * (31 * System.identityHashCode(modelEntity) + this.selectFields.hashCode()) +
+                    System.identityHashCode(modelFieldTypeReader);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return modelEntity == other.modelEntity && modelFieldTypeReader == other.modelFieldTypeReader &&
+                    selectFields.equals(other.selectFields);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -25,6 +25,7 @@ package org.ofbiz.core.entity.jdbc;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.ofbiz.core.entity.ConnectionFactory;
+import org.ofbiz.core.entity.ConnectionSession;
 import org.ofbiz.core.entity.GenericDataSourceException;
 import org.ofbiz.core.entity.GenericEntityException;
 import org.ofbiz.core.entity.GenericTransactionException;
@@ -52,6 +53,7 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -129,7 +131,7 @@ public class SQLProcessor {
     // The interceptor to use
     private SQLInterceptor _sqlInterceptor;
 
-    private List<String> _parameterValues;
+    private ParameterValues _parameterValues;
     private List<List<String>> _parameterValuesForBatch;
 
     public static final DatabaseType MSSQL = new MsSqlDatabaseType();
@@ -343,6 +345,22 @@ public class SQLProcessor {
             return _connection;
         }
 
+        if (_commitMode == CommitMode.READONLY || _commitMode == CommitMode.AUTO_COMMIT) {
+            // Reuse the connection of the thread's connection session, if any; it is the session's to close
+            final Connection sessionConnection;
+            try {
+                sessionConnection = ConnectionSession.getConnection(helperName);
+            } catch (SQLException sqle) {
+                throw new GenericDataSourceException("Unable to establish a connection with the database.", sqle);
+            }
+            if (sessionConnection != null) {
+                _manualTX = true;
+                _connection = sessionConnection;
+                _guard = null;
+                return _connection;
+            }
+        }
+
         // Seems like a good time to purge any abandoned processors...
         ConnectionGuard.closeAbandonedProcessors();
 
@@ -483,9 +501,9 @@ public class SQLProcessor {
             }
 
             if (MSSQL.matchesConnection(connection)) {
-                _parameterValues = new ArrayList<>();
+                _parameterValues = new ParameterValues(10);
             } else {
-                _parameterValues = new ArrayList<>(_ps.getParameterMetaData().getParameterCount());
+                _parameterValues = new ParameterValues(_ps.getParameterMetaData().getParameterCount());
             }
             _parameterValuesForBatch = new ArrayList<>();
             return this;
@@ -742,7 +760,7 @@ public class SQLProcessor {
     }
 
     private void recordParameter(final Object field) {
-        _parameterValues.add(String.valueOf(field));
+        _parameterValues.values.add(field);
     }
 
     /**
@@ -1073,8 +1091,8 @@ public class SQLProcessor {
      */
     public SQLProcessor addBatch() throws SQLException {
         _ps.addBatch();
-        _parameterValuesForBatch.add(new ArrayList<>(_parameterValues));
-        _parameterValues = new ArrayList<>(_ps.getParameterMetaData().getParameterCount());
+        _parameterValuesForBatch.add(_parameterValues);
+        _parameterValues = new ParameterValues(_parameterValues.size());
         _ind = 1;
 
         return this;
@@ -1118,4 +1136,27 @@ public class SQLProcessor {
                 ",parameters=" + _parameterValues + ",parametersForBatch=" + _parameterValuesForBatch + ']';
     }
 
+
+    /**
+     * The values bound to the parameters of a statement, as seen by {@link SQLInterceptor}s. Each value is only
+     * converted to a string if an interceptor actually looks at it, so statements are not slowed by formatting
+     * values for the {@link org.ofbiz.core.entity.jdbc.interceptors.NoopSQLInterceptorFactory no-op} interceptor.
+     */
+    private static final class ParameterValues extends AbstractList<String> {
+        final List<Object> values;
+
+        ParameterValues(final int expectedSize) {
+            values = new ArrayList<>(expectedSize);
+        }
+
+        @Override
+        public String get(final int index) {
+            return String.valueOf(values.get(index));
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
 }
@@ -51,7 +51,6 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
 import java.sql.Blob;
-import java.sql.Clob;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -606,124 +605,29 @@ public class SqlJdbcUtil {
         }
     }
 
+    /**
+     * Reads one column of the current row into the entity. When reading every row of a result set, prefer
+     * a {@link RowMapper}, which resolves the field types once rather than for every cell.
+     */
     public static void getValue(ResultSet rs, int ind, ModelField curField, GenericEntity entity, ModelFieldTypeReader modelFieldTypeReader) throws GenericEntityException {
-        ModelFieldType mft = modelFieldTypeReader.getModelFieldType(curField.getType());
-
-        if (mft == null) {
-            throw new GenericModelException("definition fieldType " + curField.getType() + " not found, cannot getValue for field " +
-                    entity.getEntityName() + '.' + curField.getName() + '.');
-        }
-        String fieldType = mft.getJavaType();
+        ModelFieldType mft = RowMapper.getModelFieldType(entity.getEntityName(), curField, modelFieldTypeReader);
 
         try {
-            // checking to see if the object is null is really only necessary for the numbers
-            FieldType type = getFieldType(fieldType);
-
-            switch (type) {
-                case STRING:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getString(ind));
-                    break;
-
-                case TIMESTAMP:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getTimestamp(ind));
-                    break;
-
-                case TIME:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getTime(ind));
-                    break;
-
-                case DATE:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getDate(ind));
-                    break;
-
-                case INTEGER:
-                    int intValue = rs.getInt(ind);
-
-                    if (rs.wasNull()) {
-                        entity.dangerousSetNoCheckButFast(curField, null);
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, intValue);
-                    }
-                    break;
-
-                case LONG:
-                    long longValue = rs.getLong(ind);
-
-                    if (rs.wasNull()) {
-                        entity.dangerousSetNoCheckButFast(curField, null);
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, longValue);
-                    }
-                    break;
-
-                case FLOAT:
-                    float floatValue = rs.getFloat(ind);
-
-                    if (rs.wasNull()) {
-                        entity.dangerousSetNoCheckButFast(curField, null);
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, floatValue);
-                    }
-                    break;
-
-                case DOUBLE:
-                    double doubleValue = rs.getDouble(ind);
-
-                    if (rs.wasNull()) {
-                        entity.dangerousSetNoCheckButFast(curField, null);
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, doubleValue);
-                    }
-                    break;
-
-                case BOOLEAN:
-                    boolean booleanValue = rs.getBoolean(ind);
-
-                    if (rs.wasNull()) {
-                        entity.dangerousSetNoCheckButFast(curField, null);
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, booleanValue);
-                    }
-                    break;
-
-                case OBJECT:
-                    if (isByteArrayType(mft)) {
-                        entity.dangerousSetNoCheckButFast(curField, getByteArrayAsObject(rs, ind));
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, getBlobAsObject(rs, ind));
-                    }
-                    break;
-
-                case BLOB:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getBlob(ind));
-                    break;
-
-                case CLOB:
-                    entity.dangerousSetNoCheckButFast(curField, rs.getClob(ind));
-                    break;
-
-                case BYTE_ARRAY:
-                    if (isByteArrayType(mft)) {
-                        entity.dangerousSetNoCheckButFast(curField, rs.getBytes(ind));
-                    } else {
-                        entity.dangerousSetNoCheckButFast(curField, getBlobAsByteArray(rs, ind));
-                    }
-                    break;
-            }
+            RowMapper.columnReader(ind, curField, mft).read(rs, entity);
         } catch (SQLException sqle) {
             throw new GenericDataSourceException("SQL Exception while getting value: ", sqle);
         }
     }
 
     @Nullable
-    private static Object getByteArrayAsObject(final ResultSet rs, final int ind)
+    static Object getByteArrayAsObject(final ResultSet rs, final int ind)
             throws SQLException, GenericDataSourceException {
         final byte[] bytes = rs.getBytes(ind);
         return (bytes != null && bytes.length > 0) ? deserialize(new ByteArrayInputStream(bytes)) : null;
     }
 
     @Nullable
-    private static Object getBlobAsObject(final ResultSet rs, final int ind)
+    static Object getBlobAsObject(final ResultSet rs, final int ind)
             throws SQLException, GenericDataSourceException {
         final Blob blob = rs.getBlob(ind);
         if (blob == null || blob.length() <= 0L) {
@@ -742,7 +646,7 @@ public class SqlJdbcUtil {
     }
 
     @Nullable
-    private static byte[] getBlobAsByteArray(final ResultSet rs, final int ind) throws SQLException {
+    static byte[] getBlobAsByteArray(final ResultSet rs, final int ind) throws SQLException {
         final Blob blob = rs.getBlob(ind);
         if (blob == null) {
             return null;
@@ -768,113 +672,10 @@ public class SqlJdbcUtil {
     }
 
     public static void setValue(SQLProcessor sqlP, ModelField modelField, String entityName, Object fieldValue, ModelFieldTypeReader modelFieldTypeReader) throws GenericEntityException {
-        ModelFieldType mft = modelFieldTypeReader.getModelFieldType(modelField.getType());
-
-        if (mft == null) {
-            throw new GenericModelException("GenericDAO.getValue: definition fieldType " + modelField.getType() + " not found, cannot setValue for field " +
-                    entityName + '.' + modelField.getName() + '.');
-        }
-
-        String fieldType = mft.getJavaType();
-
-        if (fieldValue != null) {
-            Class<?> fieldClass = fieldValue.getClass();
-            String fieldClassName = fieldClass.getName();
-
-            if (!fieldClassName.equals(mft.getJavaType()) && !fieldClassName.contains(mft.getJavaType()) && !"java.lang.Object".equals(mft.getJavaType())) {
-                // this is only an info level message because under normal operation for most JDBC
-                // drivers this will be okay, but if not then the JDBC driver will throw an exception
-                // and when lower debug levels are on this should help give more info on what happened
-                if (Debug.verboseOn()) Debug.logVerbose("type of field " + entityName + '.' + modelField.getName() +
-                        " is " + fieldClassName + ", was expecting " + mft.getJavaType() + "; this may " +
-                        "indicate an error in the configuration or in the class, and may result " +
-                        "in an SQL-Java data conversion error. Will use the real field type: " +
-                        fieldClassName + ", not the definition.", module);
-                fieldType = fieldClassName;
-            }
-        }
-
-        try {
-            FieldType type = getFieldType(fieldType);
-
-            switch (type) {
-                case STRING:
-                    sqlP.setValue((String) fieldValue);
-                    break;
-
-                case TIMESTAMP:
-                    sqlP.setValue((Timestamp) fieldValue);
-                    break;
-
-                case TIME:
-                    sqlP.setValue((Time) fieldValue);
-                    break;
-
-                case DATE:
-                    sqlP.setValue((Date) fieldValue);
-                    break;
-
-                case INTEGER:
-                    sqlP.setValue((Integer) fieldValue);
-                    break;
-
-                case LONG:
-                    sqlP.setValue((Long) fieldValue);
-                    break;
-
-                case FLOAT:
-                    sqlP.setValue((Float) fieldValue);
-                    break;
-
-                case DOUBLE:
-                    sqlP.setValue((Double) fieldValue);
-                    break;
-
-                case BOOLEAN:
-                    sqlP.setValue((Boolean) fieldValue);
-                    break;
-
-                case OBJECT:
-                    if (isByteArrayType(mft)) {
-                        sqlP.setByteArrayData(fieldValue);
-                    } else {
-                        sqlP.setBinaryStream(fieldValue);
-                    }
-                    break;
-
-                case BLOB:
-                    if (fieldValue == null && isByteArrayType(mft)) {
-                        sqlP.setByteArrayData(null);
-                    } else if (fieldValue instanceof Blob) {
-                        sqlP.setValue((Blob) fieldValue);
-                    } else {
-                        sqlP.setBlob((byte[]) fieldValue);
-                    }
-                    break;
-
-                case CLOB:
-                    if (fieldValue instanceof Clob) {
-                        sqlP.setValue((Clob) fieldValue);
-                    } else {
-                        sqlP.setValue((String) fieldValue);
-                    }
-                    break;
-
-                case BYTE_ARRAY:
-                    if (isByteArrayType(mft)) {
-                        sqlP.setByteArray((byte[]) fieldValue);
-                    } else {
-                        sqlP.setBlob((byte[]) fieldValue);
-                    }
-                    break;
-
-            }
-        } catch (SQLException sqle) {
-            throw new GenericDataSourceException("SQL Exception while setting value: ", sqle);
-        }
+        ParameterBinder.forField(modelField, modelFieldTypeReader, entityName).bind(sqlP, entityName, fieldValue);
     }
 
-    private static boolean isByteArrayType(ModelFieldType mft) {
+    static boolean isByteArrayType(ModelFieldType mft) {
         final String type = mft.getSqlType();
         return "BYTEA".equals(type)
                 || "IMAGE".equals(type)
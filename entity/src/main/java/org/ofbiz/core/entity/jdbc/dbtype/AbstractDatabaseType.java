@@ -7,13 +7,16 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toSet;
 
 public abstract class AbstractDatabaseType implements DatabaseType {
@@ -28,6 +31,9 @@ public abstract class AbstractDatabaseType implements DatabaseType {
 
     protected static final String STANDARD_SELECT_FOR_UPDATE_SYNTAX = "SELECT {0} FROM {1} WHERE {2} FOR UPDATE";
 
+    protected static final String UPSERT_TARGET_ALIAS = "upsert_tgt";
+    protected static final String UPSERT_SOURCE_ALIAS = "upsert_src";
+
     private final String name;
     private Set<String> sqlKeywords;
 
@@ -191,6 +197,57 @@ public abstract class AbstractDatabaseType implements DatabaseType {
                 .replaceAll("\\{indexName}", indexName);
     }
 
+    /**
+     * Builds a standard MERGE statement that upserts the row produced by the given source.
+     *
+     * @param source a derived table named {@link #UPSERT_SOURCE_ALIAS} with one column for each insert column, in
+     *               the same order, each bound to a parameter.
+     */
+    protected static String getMergeSQL(final String tableName, final String source, final List<String> pkColumnNames,
+                                        final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        return getMergeSQL(tableName, null, source, pkColumnNames, insertColumnNames, updateColumnNames);
+    }
+
+    /**
+     * Builds a standard MERGE statement that upserts the row produced by the given source, with the given hints on
+     * the target table.
+     *
+     * @param tableHints the hints to put after the target table, such as {@code WITH (HOLDLOCK)} (can be null)
+     * @param source     a derived table named {@link #UPSERT_SOURCE_ALIAS} with one column for each insert column, in
+     *                   the same order, each bound to a parameter.
+     */
+    protected static String getMergeSQL(final String tableName, final String tableHints, final String source,
+                                        final List<String> pkColumnNames, final List<String> insertColumnNames,
+                                        final List<String> updateColumnNames) {
+        final StringBuilder sql = new StringBuilder("MERGE INTO ").append(tableName);
+        if (tableHints != null) {
+            sql.append(' ').append(tableHints);
+        }
+        sql.append(' ').append(UPSERT_TARGET_ALIAS)
+                .append(" USING ").append(source)
+                .append(" ON (").append(join(pkColumnNames, " AND ",
+                        column -> UPSERT_TARGET_ALIAS + '.' + column + " = " + UPSERT_SOURCE_ALIAS + '.' + column)).append(')');
+        if (!updateColumnNames.isEmpty()) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ")
+                    .append(join(updateColumnNames, ", ", column -> column + " = " + UPSERT_SOURCE_ALIAS + '.' + column));
+        }
+        return sql.append(" WHEN NOT MATCHED THEN INSERT (").append(join(insertColumnNames, ", ", Function.identity()))
+                .append(") VALUES (").append(join(insertColumnNames, ", ", column -> UPSERT_SOURCE_ALIAS + '.' + column))
+                .append(')').toString();
+    }
+
+    /**
+     * Builds the source of a MERGE statement as a VALUES row constructor, which most databases accept.
+     */
+    protected static String getValuesMergeSource(final List<String> insertColumnNames) {
+        return "(VALUES (" + join(insertColumnNames, ", ", column -> "?") + ")) AS " + UPSERT_SOURCE_ALIAS +
+                " (" + join(insertColumnNames, ", ", Function.identity()) + ')';
+    }
+
+    protected static String join(final List<String> columnNames, final String separator, final Function<String, String> format) {
+        return columnNames.stream().map(format).collect(joining(separator));
+    }
+
     private static String appendDotIfNotEmpty(final String schemaName) {
         return schemaName != null && !schemaName.isEmpty() ? schemaName + '.' : "";
     }
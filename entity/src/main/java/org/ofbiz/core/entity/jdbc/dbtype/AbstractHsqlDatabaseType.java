@@ -3,6 +3,7 @@ package org.ofbiz.core.entity.jdbc.dbtype;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.StringTokenizer;
 
 abstract class AbstractHsqlDatabaseType extends AbstractDatabaseType {
@@ -63,4 +64,11 @@ abstract class AbstractHsqlDatabaseType extends AbstractDatabaseType {
     public String getDropIndexStructure() {
         return DROP_INDEX_SCHEMA_DOT_INDEX;
     }
+
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        return getMergeSQL(tableName, getValuesMergeSource(insertColumnNames), pkColumnNames, insertColumnNames,
+                updateColumnNames);
+    }
 }
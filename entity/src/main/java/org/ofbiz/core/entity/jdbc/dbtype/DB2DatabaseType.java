@@ -5,6 +5,7 @@ import org.ofbiz.core.util.Debug;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.List;
 
 public class DB2DatabaseType extends SimpleDatabaseType {
     public DB2DatabaseType() {
@@ -22,6 +23,22 @@ public class DB2DatabaseType extends SimpleDatabaseType {
         }
     }
 
+    /**
+     * Besides a rolled back deadlock (SQLCODE -911, SQLState 40001), DB2 reports a deadlock or timeout in which only
+     * the statement was rolled back as SQLCODE -913.
+     */
+    @Override
+    public boolean isTransientFailure(final SQLException e) {
+        return e.getErrorCode() == -913 || super.isTransientFailure(e);
+    }
+
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        return getMergeSQL(tableName, getValuesMergeSource(insertColumnNames), pkColumnNames, insertColumnNames,
+                updateColumnNames);
+    }
+
     /*
        not a supported DB, but this is how it would look like:
 
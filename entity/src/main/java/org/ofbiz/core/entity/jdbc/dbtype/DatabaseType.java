@@ -4,6 +4,7 @@ import org.ofbiz.core.entity.jdbc.sql.escape.ReservedKeywordsAware;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Interface representing the different types of databases.  If you implement this interface,
@@ -52,6 +53,44 @@ public interface DatabaseType extends ReservedKeywordsAware {
      */
     String getDropIndexSQL(String schemaName, String tableName, String indexName);
 
+    /**
+     * Builds a DB-specific SQL statement that inserts a row or, if a row with the same primary key already exists,
+     * updates it, in a single round trip. The statement takes one parameter for each insert column, in that order.
+     *
+     * @param tableName         the name of the table to be written.
+     * @param pkColumnNames     the primary key columns that identify an existing row.
+     * @param insertColumnNames the columns to write when inserting, including the primary key columns.
+     * @param updateColumnNames the non-primary key columns to overwrite when the row exists (can be empty).
+     * @return the SQL text to upsert the row, or {@code null}, if not supported.
+     */
+    default String getUpsertSQL(String tableName, List<String> pkColumnNames, List<String> insertColumnNames,
+                                List<String> updateColumnNames) {
+        return null;
+    }
+
+    /**
+     * Tells whether a failure is transient, such as being chosen as a deadlock victim or failing to serialize, so
+     * that the work that failed can be expected to succeed if it is simply run again. By default this means the
+     * standard SQLStates for a serialization failure (40001) and PostgreSQL's for a deadlock (40P01).
+     *
+     * @param e the failure, not including any chained by {@link SQLException#getNextException()}
+     * @return whether running the work again may succeed
+     */
+    default boolean isTransientFailure(SQLException e) {
+        return isStandardTransientFailure(e);
+    }
+
+    /**
+     * Tells whether a failure has one of the SQLStates that mean it is transient whatever the database: a
+     * serialization failure (40001) or PostgreSQL's deadlock (40P01).
+     *
+     * @param e the failure, not including any chained by {@link SQLException#getNextException()}
+     * @return whether running the work again may succeed
+     */
+    static boolean isStandardTransientFailure(SQLException e) {
+        return "40001".equals(e.getSQLState()) || "40P01".equals(e.getSQLState());
+    }
+
     /**
      * Based on the cluster mode parameter, and the capabilities of the database, return the appropriate SELECT
      * statement for usage.
@@ -1,5 +1,7 @@
 package org.ofbiz.core.entity.jdbc.dbtype;
 
+import java.util.List;
+
 public class H2DatabaseType extends SimpleDatabaseType {
     public H2DatabaseType() {
         super("H2", "h2", new String[]{"H2"});
@@ -15,6 +17,17 @@ public class H2DatabaseType extends SimpleDatabaseType {
         return DROP_INDEX_SCHEMA_DOT_INDEX;
     }
 
+    /**
+     * H2's own {@code MERGE ... KEY} would overwrite the columns we were not asked to store, so use the standard
+     * form with a SELECT source instead.
+     */
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        final String source = "(SELECT " + join(insertColumnNames, ", ", column -> "? " + column) + ") " + UPSERT_SOURCE_ALIAS;
+        return getMergeSQL(tableName, source, pkColumnNames, insertColumnNames, updateColumnNames);
+    }
+
     @Override
     public String getSimpleSelectSqlSyntax(boolean clusterMode) {
         if (clusterMode) {
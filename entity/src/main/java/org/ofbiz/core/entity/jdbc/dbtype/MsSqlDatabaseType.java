@@ -1,5 +1,8 @@
 package org.ofbiz.core.entity.jdbc.dbtype;
 
+import java.sql.SQLException;
+import java.util.List;
+
 public class MsSqlDatabaseType extends SimpleDatabaseType {
     public MsSqlDatabaseType() {
         super("MS SQL", "mssql", new String[]{"Microsoft SQL Server"});
@@ -19,6 +22,25 @@ public class MsSqlDatabaseType extends SimpleDatabaseType {
         }
     }
 
+    /**
+     * MS SQL reports being chosen as a deadlock victim by vendor code 1205.
+     */
+    @Override
+    public boolean isTransientFailure(final SQLException e) {
+        return e.getErrorCode() == 1205 || super.isTransientFailure(e);
+    }
+
+    /**
+     * MS SQL requires MERGE statements to be terminated by a semicolon. Without HOLDLOCK, MERGE does not lock the
+     * key it found missing, so two sessions upserting the same new row can both try to insert it.
+     */
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        return getMergeSQL(tableName, "WITH (HOLDLOCK)", getValuesMergeSource(insertColumnNames), pkColumnNames,
+                insertColumnNames, updateColumnNames) + ';';
+    }
+
     @Override
     public Character getStartEscapeCharacter() {
         return START_ESCAPE_CHARACTER_SQUARE_BRACKET;
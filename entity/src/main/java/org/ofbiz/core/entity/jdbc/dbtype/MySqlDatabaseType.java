@@ -1,5 +1,9 @@
 package org.ofbiz.core.entity.jdbc.dbtype;
 
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
 public class MySqlDatabaseType extends SimpleDatabaseType {
     public MySqlDatabaseType() {
         super("MySQL", "mysql", new String[]{"MySQL"});
@@ -15,6 +19,28 @@ public class MySqlDatabaseType extends SimpleDatabaseType {
         return ALTER_TABLE_DROP_INDEX;
     }
 
+    /**
+     * When there is nothing to update, a primary key column is assigned to itself so that an existing row is left
+     * alone without the errors that {@code INSERT IGNORE} would also swallow.
+     */
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        final List<String> columnsToUpdate = updateColumnNames.isEmpty() ? pkColumnNames.subList(0, 1) : updateColumnNames;
+        return "INSERT INTO " + tableName + " (" + join(insertColumnNames, ", ", Function.identity()) + ") VALUES (" +
+                join(insertColumnNames, ", ", column -> "?") + ") ON DUPLICATE KEY UPDATE " +
+                join(columnsToUpdate, ", ", column -> column + " = VALUES(" + column + ')');
+    }
+
+    /**
+     * MySQL reports a deadlock (1213) and, with InnoDB, a lock wait timeout (1205) by vendor code; neither leaves the
+     * statement applied.
+     */
+    @Override
+    public boolean isTransientFailure(final SQLException e) {
+        return e.getErrorCode() == 1213 || e.getErrorCode() == 1205 || super.isTransientFailure(e);
+    }
+
     @Override
     public String getSimpleSelectSqlSyntax(boolean clusterMode) {
         if (clusterMode) {
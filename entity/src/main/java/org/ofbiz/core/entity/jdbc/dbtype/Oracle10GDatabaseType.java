@@ -4,6 +4,7 @@ import org.ofbiz.core.entity.jdbc.DatabaseUtil;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 public class Oracle10GDatabaseType extends AbstractDatabaseType {
     public Oracle10GDatabaseType() {
@@ -56,6 +57,17 @@ public class Oracle10GDatabaseType extends AbstractDatabaseType {
                 && (4 * ccInfo.columnSize == ccInfo.maxSizeInBytes));
     }
 
+    /**
+     * Oracle has no VALUES row constructor, so the source row is selected from DUAL.
+     */
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        final String source = "(SELECT " + join(insertColumnNames, ", ", column -> "? " + column) + " FROM DUAL) " +
+                UPSERT_SOURCE_ALIAS;
+        return getMergeSQL(tableName, source, pkColumnNames, insertColumnNames, updateColumnNames);
+    }
+
     @Override
     public String getDropIndexStructure() {
         return DROP_INDEX_SCHEMA_DOT_INDEX;
@@ -70,4 +82,16 @@ public class Oracle10GDatabaseType extends AbstractDatabaseType {
         }
     }
 
+    @Override
+    public boolean isTransientFailure(final SQLException e) {
+        return isOracleTransientFailure(e) || super.isTransientFailure(e);
+    }
+
+    /**
+     * Oracle reports a deadlock as ORA-00060 and a failure to serialize as ORA-08177, by vendor code.
+     */
+    static boolean isOracleTransientFailure(final SQLException e) {
+        return e.getErrorCode() == 60 || e.getErrorCode() == 8177;
+    }
+
 }
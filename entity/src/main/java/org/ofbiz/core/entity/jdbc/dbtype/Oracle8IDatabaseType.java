@@ -75,4 +75,9 @@ class Oracle8IDatabaseType extends AbstractDatabaseType {
         }
     }
 
+    @Override
+    public boolean isTransientFailure(final SQLException e) {
+        return Oracle10GDatabaseType.isOracleTransientFailure(e) || super.isTransientFailure(e);
+    }
+
 }
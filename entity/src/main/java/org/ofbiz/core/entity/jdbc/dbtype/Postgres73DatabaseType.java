@@ -2,8 +2,16 @@ package org.ofbiz.core.entity.jdbc.dbtype;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
 
 public class Postgres73DatabaseType extends AbstractPostgresDatabaseType {
+
+    /**
+     * Whether the connected server is 9.5 or later, which introduced {@code INSERT ... ON CONFLICT}.
+     */
+    private volatile boolean onConflictSupported;
+
     public Postgres73DatabaseType() {
         super("PostGres 7.3 and higher", "postgres72");
     }
@@ -27,4 +35,27 @@ public class Postgres73DatabaseType extends AbstractPostgresDatabaseType {
         return DROP_INDEX_SCHEMA_DOT_INDEX;
     }
 
+    @Override
+    public DatabaseType initialize(Connection con) {
+        try {
+            onConflictSupported = postgresVersionGreaterThanOrEqual(con, 9, 5);
+        } catch (SQLException e) {
+            onConflictSupported = false;
+        }
+        return super.initialize(con);
+    }
+
+    @Override
+    public String getUpsertSQL(final String tableName, final List<String> pkColumnNames,
+                               final List<String> insertColumnNames, final List<String> updateColumnNames) {
+        if (!onConflictSupported) {
+            return null;
+        }
+        final String onConflict = updateColumnNames.isEmpty() ? "DO NOTHING" :
+                "DO UPDATE SET " + join(updateColumnNames, ", ", column -> column + " = EXCLUDED." + column);
+        return "INSERT INTO " + tableName + " (" + join(insertColumnNames, ", ", Function.identity()) + ") VALUES (" +
+                join(insertColumnNames, ", ", column -> "?") + ") ON CONFLICT (" +
+                join(pkColumnNames, ", ", Function.identity()) + ") " + onConflict;
+    }
+
 }
@@ -4,6 +4,7 @@ import org.ofbiz.core.entity.jdbc.dbtype.DatabaseType;
 import org.ofbiz.core.entity.jdbc.dbtype.DatabaseTypeFactory;
 
 import javax.annotation.Nullable;
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -27,8 +28,13 @@ import java.util.List;
  *      }
  *  }
  *  </pre>
+ *
+ *  Builders are written into entity model snapshots along with the rest of the model, so any fields a subclass
+ *  adds must be serializable as well; otherwise no snapshot is written and the model is read from XML every time.
  */
-public abstract class FunctionDefinitionBuilder {
+public abstract class FunctionDefinitionBuilder implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String virtualColumn;
     private final String type;
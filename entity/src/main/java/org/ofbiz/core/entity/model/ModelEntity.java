@@ -33,6 +33,7 @@ import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,7 +50,9 @@ import java.util.Map;
  * @version $Revision: 1.3 $
  * @since 2.0
  */
-public class ModelEntity implements Comparable<ModelEntity> {
+public class ModelEntity implements Comparable<ModelEntity>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final String module = ModelEntity.class.getName();
 
@@ -61,7 +64,7 @@ public class ModelEntity implements Comparable<ModelEntity> {
     /**
      * The ModelReader that created this Entity
      */
-    protected ModelReader modelReader = null;
+    protected transient ModelReader modelReader = null;
 
     /**
      * The entity-name of the Entity
@@ -153,6 +156,18 @@ public class ModelEntity implements Comparable<ModelEntity> {
      */
     protected boolean neverCache = false;
 
+    /**
+     * An indicator to specify if values of this entity found by primary key should
+     * also be kept in the delegator's off-heap cache, below the regular heap cache
+     */
+    protected boolean offHeapCache = false;
+
+    /**
+     * An indicator to specify if finds and counts by condition on this entity should be answered by filtering
+     * the delegator's ALL cache in memory instead of querying the database
+     */
+    protected boolean findFromAllCache = false;
+
     // ===== CONSTRUCTORS =====
 
     /**
@@ -234,6 +249,8 @@ public class ModelEntity implements Comparable<ModelEntity> {
         this.dependentOn = UtilXml.checkEmpty(entityElement.getAttribute("dependent-on"));
         this.doLock = UtilXml.checkBoolean(entityElement.getAttribute("enable-lock"), false);
         this.neverCache = UtilXml.checkBoolean(entityElement.getAttribute("never-cache"), false);
+        this.offHeapCache = UtilXml.checkBoolean(entityElement.getAttribute("off-heap-cache"), false);
+        this.findFromAllCache = UtilXml.checkBoolean(entityElement.getAttribute("find-from-all-cache"), false);
 
         if (docElementValues == null) {
             this.title = UtilXml.checkEmpty(entityElement.getAttribute("title"), UtilXml.childElementValue(docElement, "title"), "None");
@@ -431,6 +448,32 @@ public class ModelEntity implements Comparable<ModelEntity> {
         this.neverCache = neverCache;
     }
 
+    /**
+     * An indicator to specify if values of this entity found by primary key should
+     * also be kept in the delegator's off-heap cache, below the regular heap cache.
+     * Has no effect if never-cache is set.
+     */
+    public boolean getOffHeapCache() {
+        return this.offHeapCache;
+    }
+
+    public void setOffHeapCache(boolean offHeapCache) {
+        this.offHeapCache = offHeapCache;
+    }
+
+    /**
+     * An indicator to specify if finds and counts by condition on this entity should be answered by filtering
+     * the delegator's ALL cache in memory, for small reference entities that are read far more often than
+     * written. Has no effect if never-cache is set.
+     */
+    public boolean getFindFromAllCache() {
+        return this.findFromAllCache;
+    }
+
+    public void setFindFromAllCache(boolean findFromAllCache) {
+        this.findFromAllCache = findFromAllCache;
+    }
+
     /**
      * An indicator to specify if this entity requires locking for updates
      */
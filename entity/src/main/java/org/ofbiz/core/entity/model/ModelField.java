@@ -28,6 +28,7 @@ import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,7 +39,9 @@ import java.util.List;
  * @version $Revision: 1.1 $
  * @since 2.0
  */
-public class ModelField {
+public class ModelField implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The name of the Field
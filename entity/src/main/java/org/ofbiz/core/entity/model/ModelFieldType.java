@@ -27,6 +27,7 @@ import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,7 +38,9 @@ import java.util.List;
  * @version $Revision: 1.1 $
  * @since 2.0
  */
-public class ModelFieldType {
+public class ModelFieldType implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The type of the Field
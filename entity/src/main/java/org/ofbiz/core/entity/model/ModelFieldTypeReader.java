@@ -31,11 +31,15 @@ import org.ofbiz.core.util.Debug;
 import org.ofbiz.core.util.UtilCache;
 import org.ofbiz.core.util.UtilTimer;
 import org.ofbiz.core.util.UtilXml;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -60,6 +64,7 @@ public class ModelFieldTypeReader {
     public String modelName;
     public ResourceHandler fieldTypeResourceHandler;
     public String entityFileName;
+    public String snapshotLocation;
 
     public static ModelFieldTypeReader getModelFieldTypeReader(String helperName) {
         DatasourceInfo datasourceInfo = EntityConfigUtil.getInstance().getDatasourceInfo(helperName);
@@ -92,6 +97,7 @@ public class ModelFieldTypeReader {
             throw new IllegalStateException("Could not find a field-type definition with name \"" + modelName + "\"");
         }
         fieldTypeResourceHandler = new ResourceHandler(EntityConfigUtil.ENTITY_ENGINE_XML_FILENAME, fieldTypeInfo.resourceElement);
+        snapshotLocation = fieldTypeInfo.snapshotLocation;
 
         // preload caches...
         getFieldTypeCache();
@@ -104,62 +110,67 @@ public class ModelFieldTypeReader {
                 // must check if null again as one of the blocked threads can still enter
                 if (fieldTypeCache == null) // now it's safe
                 {
+                    ModelSnapshot snapshot = snapshotLocation == null ? null :
+                            new ModelSnapshot(new File(snapshotLocation), Collections.singletonList(fieldTypeResourceHandler));
+                    Object snapshotFieldTypes = snapshot == null ? null : snapshot.load();
+                    if (snapshotFieldTypes instanceof HashMap) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, ModelFieldType> fieldTypes = (Map<String, ModelFieldType>) snapshotFieldTypes;
+                        fieldTypeCache = fieldTypes;
+                        return fieldTypeCache;
+                    }
+
                     fieldTypeCache = new HashMap<String, ModelFieldType>();
 
                     UtilTimer utilTimer = new UtilTimer();
                     // utilTimer.timerString("Before getDocument");
 
-                    Document document = null;
+                    InputStream stream = null;
 
                     try {
-                        document = fieldTypeResourceHandler.getDocument();
+                        stream = fieldTypeResourceHandler.getStream();
                     } catch (GenericConfigException e) {
                         Debug.logError(e, "Error loading field type file");
                     }
-                    if (document == null) {
+                    if (stream == null) {
                         fieldTypeCache = null;
                         return null;
                     }
 
-                    // utilTimer.timerString("Before getDocumentElement");
-                    Element docElement = document.getDocumentElement();
+                    final int[] numRead = {0};
 
-                    if (docElement == null) {
-                        fieldTypeCache = null;
-                        return null;
-                    }
-                    docElement.normalize();
-
-                    Node curChild = docElement.getFirstChild();
-
-                    int i = 0;
-
-                    if (curChild != null) {
-                        utilTimer.timerString("Before start of field type loop");
-                        do {
-                            if (curChild.getNodeType() == Node.ELEMENT_NODE && "field-type-def".equals(curChild.getNodeName())) {
-                                i++;
-                                // utilTimer.timerString("Start loop -- " + i + " --");
-                                Element curFieldType = (Element) curChild;
+                    utilTimer.timerString("Before start of field type loop");
+                    try {
+                        // stream the definitions so that the DOM of the whole file is never held in memory
+                        UtilXml.readXmlElements(stream, true, fieldTypeResourceHandler.toString(), curFieldType -> {
+                            if ("field-type-def".equals(curFieldType.getTagName())) {
+                                int i = ++numRead[0];
                                 String fieldTypeName = UtilXml.checkEmpty(curFieldType.getAttribute("type"), "[No type name]");
-                                // utilTimer.timerString("  After fieldTypeName -- " + i + " --");
-                                ModelFieldType fieldType = createModelFieldType(curFieldType, docElement, null);
+                                ModelFieldType fieldType = createModelFieldType(curFieldType, null, null);
 
-                                // utilTimer.timerString("  After createModelFieldType -- " + i + " --");
                                 if (fieldType != null) {
                                     fieldTypeCache.put(fieldTypeName, fieldType);
-                                    // utilTimer.timerString("  After fieldTypeCache.put -- " + i + " --");
                                     if (Debug.verboseOn())
                                         Debug.logVerbose("-- getModelFieldType: #" + i + " Created fieldType: " + fieldTypeName, module);
                                 } else {
                                     Debug.logWarning("-- -- ENTITYGEN ERROR:getModelFieldType: Could not create fieldType for fieldTypeName: " + fieldTypeName, module);
                                 }
-
                             }
-                        } while ((curChild = curChild.getNextSibling()) != null);
-                    } else
+                        });
+                    } catch (SAXException | ParserConfigurationException | IOException e) {
+                        Debug.logError(e, "Error loading field type file");
+                        fieldTypeCache = null;
+                        return null;
+                    }
+                    int i = numRead[0];
+
+                    if (i == 0)
                         Debug.logWarning("No child nodes found.", module);
                     utilTimer.timerString("FINISHED - Total Field Types: " + i + " FINISHED");
+
+                    if (snapshot != null) {
+                        snapshot.write(new HashMap<String, ModelFieldType>(fieldTypeCache));
+                    }
                 }
             }
         }
@@ -31,6 +31,9 @@ import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -45,7 +48,9 @@ import java.util.Optional;
  * @version $Revision: 1.1 $
  * @since 2.0
  */
-public class ModelIndex {
+public class ModelIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * reference to the entity this index refers to
@@ -67,7 +72,12 @@ public class ModelIndex {
      */
     protected List<String> fieldNames = new ArrayList<>();
 
-    protected List<IndexAlternativeAction> alternativeActions = new ArrayList<>();
+    /**
+     * the actions are instantiated again by class name when the index is read from a model snapshot
+     */
+    protected transient List<IndexAlternativeAction> alternativeActions = new ArrayList<>();
+
+    protected List<String> alternativeActionClassNames = new ArrayList<>();
 
     /**
      * Default Constructor
@@ -105,19 +115,29 @@ public class ModelIndex {
         NodeList alternativeActionList = indexElement.getElementsByTagName("alternative");
 
         for (int i = 0; i < alternativeActionList.getLength(); i++) {
-            try {
-                Element alternativeAction = (Element) alternativeActionList.item(i);
-                String actionClass = alternativeAction.getAttribute("action");
-
-                IndexAlternativeAction indexAlternativeAction =
-                        (IndexAlternativeAction) ClassLoaderUtils
-                                .loadClass(actionClass, ModelIndex.class)
-                                .newInstance();
-
-                alternativeActions.add(indexAlternativeAction);
-            } catch (ReflectiveOperationException re) {
-                throw new RuntimeException(re);
-            }
+            Element alternativeAction = (Element) alternativeActionList.item(i);
+            String actionClass = alternativeAction.getAttribute("action");
+
+            alternativeActions.add(instantiateAlternativeAction(actionClass));
+            alternativeActionClassNames.add(actionClass);
+        }
+    }
+
+    private static IndexAlternativeAction instantiateAlternativeAction(String actionClass) {
+        try {
+            return (IndexAlternativeAction) ClassLoaderUtils
+                    .loadClass(actionClass, ModelIndex.class)
+                    .newInstance();
+        } catch (ReflectiveOperationException re) {
+            throw new RuntimeException(re);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        alternativeActions = new ArrayList<>(alternativeActionClassNames.size());
+        for (String actionClass : alternativeActionClassNames) {
+            alternativeActions.add(instantiateAlternativeAction(actionClass));
         }
     }
 
@@ -196,5 +216,6 @@ public class ModelIndex {
 
     public void addAlternativeAction(IndexAlternativeAction indexAlternativeAction) {
         alternativeActions.add(indexAlternativeAction);
+        alternativeActionClassNames.add(indexAlternativeAction.getClass().getName());
     }
 }
@@ -26,6 +26,8 @@ package org.ofbiz.core.entity.model;
 import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 
+import java.io.Serializable;
+
 /**
  * Generic Entity - KeyMap model class
  *
@@ -33,7 +35,9 @@ import org.w3c.dom.Element;
  * @version $Revision: 1.1 $
  * @since 2.0
  */
-public class ModelKeyMap {
+public class ModelKeyMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * name of the field in this entity
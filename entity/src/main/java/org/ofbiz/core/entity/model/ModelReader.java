@@ -23,6 +23,7 @@
  */
 package org.ofbiz.core.entity.model;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.ofbiz.core.config.GenericConfigException;
 import org.ofbiz.core.config.ResourceHandler;
 import org.ofbiz.core.entity.GenericEntityConfException;
@@ -33,10 +34,16 @@ import org.ofbiz.core.util.Debug;
 import org.ofbiz.core.util.UtilCache;
 import org.ofbiz.core.util.UtilTimer;
 import org.ofbiz.core.util.UtilXml;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -44,6 +51,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * Generic Entity - Entity Definition Reader
@@ -58,6 +69,11 @@ public class ModelReader {
     public static final String module = ModelReader.class.getName();
     public static final UtilCache<String, ModelReader> readers = new UtilCache<String, ModelReader>("entity.ModelReader", 0, 0);
 
+    /**
+     * the document level elements whose values are the defaults for each entity
+     */
+    private static final List<String> DOC_ELEMENT_VALUE_NAMES = Arrays.asList("title", "description", "copyright", "author", "version");
+
     protected Map<String, ModelEntity> entityCache = null;
 
     protected int numEntities = 0;
@@ -65,6 +81,11 @@ public class ModelReader {
     protected int numFields = 0;
     protected int numRelations = 0;
 
+    /**
+     * guards the counts above, as the entities of different resources are created on different threads
+     */
+    private final Object counterLock = new Object();
+
     protected String modelName;
 
     /**
@@ -82,6 +103,11 @@ public class ModelReader {
      */
     protected Map<String, ResourceHandler> entityResourceHandlerMap;
 
+    /**
+     * where the entities read from XML are written to, and loaded from on the next start; null if nowhere
+     */
+    protected String snapshotLocation;
+
     public static ModelReader getModelReader(String delegatorName) throws GenericEntityException {
         EntityConfigUtil.DelegatorInfo delegatorInfo = EntityConfigUtil.getInstance().getDelegatorInfo(delegatorName);
 
@@ -120,6 +146,7 @@ public class ModelReader {
         }
 
         List<Element> resourceElements = entityModelReaderInfo.resourceElements;
+        snapshotLocation = entityModelReaderInfo.snapshotLocation;
 
         for (Element elem : resourceElements) {
             ResourceHandler handler = new ResourceHandler(EntityConfigUtil.ENTITY_ENGINE_XML_FILENAME, elem);
@@ -132,6 +159,12 @@ public class ModelReader {
             synchronized (ModelReader.class) {
                 // must check if null again as one of the blocked threads can still enter
                 if (entityCache == null) { // now it's safe
+                    ModelSnapshot snapshot = snapshotLocation == null ? null :
+                            new ModelSnapshot(new File(snapshotLocation), entityResourceHandlers);
+                    if (snapshot != null && loadSnapshot(snapshot.load())) {
+                        return entityCache;
+                    }
+
                     numEntities = 0;
                     numViewEntities = 0;
                     numFields = 0;
@@ -142,105 +175,21 @@ public class ModelReader {
 
                     UtilTimer utilTimer = new UtilTimer();
 
-                    for (ResourceHandler handler : entityResourceHandlers) {
-
-                        // utilTimer.timerString("Before getDocument in file " + entityFileName);
-                        Document document = null;
-
-                        try {
-                            document = handler.getDocument();
-                        } catch (GenericConfigException e) {
-                            throw new GenericEntityConfException("Error getting document from resource handler", e);
-                        }
-                        if (document == null) {
-                            Debug.logError("Could not get document for " + handler.toString());
-                            entityCache = null;
-                            return null;
-                        }
+                    List<List<ModelEntity>> resourceEntities = readAllEntities();
 
-                        Hashtable<String, String> docElementValues = new Hashtable<String, String>();
-
-                        // utilTimer.timerString("Before getDocumentElement in " + entityResourceHandler.toString());
-                        Element docElement = document.getDocumentElement();
+                    if (resourceEntities == null) {
+                        entityCache = null;
+                        return null;
+                    }
+                    utilTimer.timerString("Finished reading " + resourceEntities.size() + " resources");
 
-                        if (docElement == null) {
-                            entityCache = null;
-                            return null;
-                        }
-                        docElement.normalize();
-                        Node curChild = docElement.getFirstChild();
-
-                        int i = 0;
-
-                        if (curChild != null) {
-                            utilTimer.timerString("Before start of entity loop in " + handler.toString());
-                            do {
-                                boolean isEntity = "entity".equals(curChild.getNodeName());
-                                boolean isViewEntity = "view-entity".equals(curChild.getNodeName());
-
-                                if ((isEntity || isViewEntity) && curChild.getNodeType() == Node.ELEMENT_NODE) {
-                                    i++;
-                                    Element curEntity = (Element) curChild;
-                                    String entityName = UtilXml.checkEmpty(curEntity.getAttribute("entity-name"));
-
-                                    // add entityName to appropriate resourceHandlerEntities collection
-                                    Collection<String> resourceHandlerEntityNames = resourceHandlerEntities.get(handler);
-
-                                    if (resourceHandlerEntityNames == null) {
-                                        resourceHandlerEntityNames = new LinkedList<String>();
-                                        resourceHandlerEntities.put(handler, resourceHandlerEntityNames);
-                                    }
-                                    resourceHandlerEntityNames.add(entityName);
-
-                                    // check to see if entity with same name has already been read
-                                    if (entityCache.containsKey(entityName)) {
-                                        Debug.logWarning("WARNING: Entity " + entityName +
-                                                " is defined more than once, most recent will over-write " +
-                                                "previous definition(s)", module);
-                                        Debug.logWarning("WARNING: Entity " + entityName + " was found in " +
-                                                handler + ", but was already defined in " +
-                                                entityResourceHandlerMap.get(entityName).toString(), module);
-                                    }
-
-                                    // add entityName, entityFileName pair to entityResourceHandlerMap map
-                                    entityResourceHandlerMap.put(entityName, handler);
-
-                                    // utilTimer.timerString("  After entityEntityName -- " + i + " --");
-                                    // ModelEntity entity = createModelEntity(curEntity, docElement, utilTimer, docElementValues);
-
-                                    ModelEntity entity = null;
-
-                                    if (isEntity) {
-                                        entity = createModelEntity(curEntity, docElement, null, docElementValues);
-                                    } else {
-                                        ModelViewEntity mve;
-                                        entity = mve = createModelViewEntity(curEntity, docElement, null, docElementValues);
-                                        // put the view entity in a list to get ready for the second pass to populate fields...
-                                        tempViewEntityList.add(mve);
-                                    }
-
-                                    // utilTimer.timerString("  After createModelEntity -- " + i + " --");
-                                    if (entity != null) {
-                                        entityCache.put(entityName, entity);
-                                        // utilTimer.timerString("  After entityCache.put -- " + i + " --");
-                                        if (isEntity) {
-                                            if (Debug.verboseOn())
-                                                Debug.logVerbose("-- [Entity]: #" + i + ": " + entityName, module);
-                                        } else {
-                                            if (Debug.verboseOn())
-                                                Debug.logVerbose("-- [ViewEntity]: #" + i + ": " + entityName, module);
-                                        }
-                                    } else {
-                                        Debug.logWarning("-- -- ENTITYGEN ERROR:getModelEntity: Could not create " +
-                                                "entity for entityName: " + entityName, module);
-                                    }
-
-                                }
-                            } while ((curChild = curChild.getNextSibling()) != null);
-                        } else {
-                            Debug.logWarning("No child nodes found.", module);
+                    // merge in the order of the resources, so that later definitions win as they always have
+                    Iterator<List<ModelEntity>> resourceEntitiesIter = resourceEntities.iterator();
+                    int i = 0;
+                    for (ResourceHandler handler : entityResourceHandlers) {
+                        for (ModelEntity entity : resourceEntitiesIter.next()) {
+                            addEntity(handler, entity, tempViewEntityList, ++i);
                         }
-                        utilTimer.timerString("Finished " + handler.toString() + " - Total Entities: " + i + " FINISHED");
                     }
 
                     // do a pass on all of the view entities now that all of the entities have
@@ -251,12 +200,207 @@ public class ModelReader {
 
                     Debug.log("FINISHED LOADING ENTITIES - ALL FILES; #Entities=" + numEntities + " #ViewEntities=" +
                             numViewEntities + " #Fields=" + numFields + " #Relationships=" + numRelations, module);
+
+                    if (snapshot != null) {
+                        snapshot.write(new SnapshotModel(this));
+                    }
                 }
             }
         }
         return entityCache;
     }
 
+    /**
+     * Reads the entities of all the resources, each on its own thread of a fork-join pool when there are several
+     * resources and processors.
+     *
+     * @return the entities of each resource in the order of the resources, or null if a resource could not be found
+     */
+    private List<List<ModelEntity>> readAllEntities() throws GenericEntityException {
+        List<List<ModelEntity>> resourceEntities = new ArrayList<List<ModelEntity>>(entityResourceHandlers.size());
+        int parallelism = Math.min(entityResourceHandlers.size(), getParallelism());
+
+        if (parallelism <= 1) {
+            for (ResourceHandler handler : entityResourceHandlers) {
+                List<ModelEntity> entities = readEntities(handler);
+                if (entities == null) {
+                    return null;
+                }
+                resourceEntities.add(entities);
+            }
+            return resourceEntities;
+        }
+
+        // plug-in classes named in the model must be found as they would be by the calling thread
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("ModelReader-" + modelName + "-" + thread.getPoolIndex());
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }, null, false);
+        try {
+            List<ForkJoinTask<List<ModelEntity>>> tasks = new ArrayList<ForkJoinTask<List<ModelEntity>>>(entityResourceHandlers.size());
+            for (final ResourceHandler handler : entityResourceHandlers) {
+                tasks.add(pool.submit(() -> readEntities(handler)));
+            }
+            for (ForkJoinTask<List<ModelEntity>> task : tasks) {
+                List<ModelEntity> entities = task.get();
+                if (entities == null) {
+                    return null;
+                }
+                resourceEntities.add(entities);
+            }
+            return resourceEntities;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericEntityConfException("Interrupted while reading entity model " + modelName, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GenericEntityException) {
+                throw (GenericEntityException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GenericEntityConfException("Error reading entity model " + modelName, cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the most resources to read at the same time.
+     */
+    @VisibleForTesting
+    int getParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Streams the entity and view entity definitions of one resource into model entities, one element at a
+     * time, so that the DOM of the whole resource is never held in memory.
+     *
+     * @return the entities in the order they are defined, or null if the resource could not be found
+     */
+    private List<ModelEntity> readEntities(final ResourceHandler handler) throws GenericEntityException {
+        InputStream stream;
+
+        try {
+            stream = handler.getStream();
+        } catch (GenericConfigException e) {
+            throw new GenericEntityConfException("Error getting document from resource handler", e);
+        }
+        if (stream == null) {
+            Debug.logError("Could not get document for " + handler.toString());
+            return null;
+        }
+
+        // the document level defaults come before any entity
+        final Hashtable<String, String> docElementValues = new Hashtable<String, String>();
+        for (String name : DOC_ELEMENT_VALUE_NAMES) {
+            docElementValues.put(name, "");
+        }
+        final List<ModelEntity> entities = new ArrayList<ModelEntity>();
+
+        try {
+            UtilXml.readXmlElements(stream, true, handler.toString(), element -> {
+                String elementName = element.getTagName();
+
+                if ("entity".equals(elementName)) {
+                    entities.add(createModelEntity(element, null, null, docElementValues));
+                } else if ("view-entity".equals(elementName)) {
+                    entities.add(createModelViewEntity(element, null, null, docElementValues));
+                } else if (DOC_ELEMENT_VALUE_NAMES.contains(elementName)) {
+                    docElementValues.put(elementName, UtilXml.checkEmpty(UtilXml.elementValue(element)));
+                }
+            });
+        } catch (SAXException | ParserConfigurationException | IOException e) {
+            throw new GenericEntityConfException("Error reading " + handler.toString(), e);
+        }
+        if (entities.isEmpty()) {
+            Debug.logWarning("No child nodes found.", module);
+        }
+        return entities;
+    }
+
+    private void addEntity(ResourceHandler handler, ModelEntity entity, List<ModelViewEntity> tempViewEntityList, int i) {
+        String entityName = entity.getEntityName();
+
+        // add entityName to appropriate resourceHandlerEntities collection
+        Collection<String> resourceHandlerEntityNames = resourceHandlerEntities.get(handler);
+
+        if (resourceHandlerEntityNames == null) {
+            resourceHandlerEntityNames = new LinkedList<String>();
+            resourceHandlerEntities.put(handler, resourceHandlerEntityNames);
+        }
+        resourceHandlerEntityNames.add(entityName);
+
+        // check to see if entity with same name has already been read
+        if (entityCache.containsKey(entityName)) {
+            Debug.logWarning("WARNING: Entity " + entityName +
+                    " is defined more than once, most recent will over-write " +
+                    "previous definition(s)", module);
+            Debug.logWarning("WARNING: Entity " + entityName + " was found in " +
+                    handler + ", but was already defined in " +
+                    entityResourceHandlerMap.get(entityName).toString(), module);
+        }
+
+        // add entityName, entityFileName pair to entityResourceHandlerMap map
+        entityResourceHandlerMap.put(entityName, handler);
+        entityCache.put(entityName, entity);
+
+        if (entity instanceof ModelViewEntity) {
+            // put the view entity in a list to get ready for the second pass to populate fields...
+            tempViewEntityList.add((ModelViewEntity) entity);
+            if (Debug.verboseOn())
+                Debug.logVerbose("-- [ViewEntity]: #" + i + ": " + entityName, module);
+        } else {
+            if (Debug.verboseOn())
+                Debug.logVerbose("-- [Entity]: #" + i + ": " + entityName, module);
+        }
+    }
+
+    /**
+     * Takes the entities from a model snapshot instead of reading them from XML.
+     *
+     * @return false if there was no snapshot
+     */
+    private boolean loadSnapshot(Object snapshot) {
+        if (!(snapshot instanceof SnapshotModel)) {
+            return false;
+        }
+        SnapshotModel snapshotModel = (SnapshotModel) snapshot;
+        if (snapshotModel.resourceHandlerEntityNames.size() != entityResourceHandlers.size()) {
+            return false;
+        }
+        Iterator<ArrayList<String>> entityNamesIter = snapshotModel.resourceHandlerEntityNames.iterator();
+        for (ResourceHandler handler : entityResourceHandlers) {
+            ArrayList<String> entityNames = entityNamesIter.next();
+            if (!entityNames.isEmpty()) {
+                resourceHandlerEntities.put(handler, new LinkedList<String>(entityNames));
+            }
+            for (String entityName : entityNames) {
+                entityResourceHandlerMap.put(entityName, handler);
+            }
+        }
+        for (ModelEntity entity : snapshotModel.entityCache.values()) {
+            entity.modelReader = this;
+        }
+        numEntities = snapshotModel.numEntities;
+        numViewEntities = snapshotModel.numViewEntities;
+        numFields = snapshotModel.numFields;
+        numRelations = snapshotModel.numRelations;
+        entityCache = snapshotModel.entityCache;
+
+        Debug.log("FINISHED LOADING ENTITIES - FROM SNAPSHOT; #Entities=" + numEntities + " #ViewEntities=" +
+                numViewEntities + " #Fields=" + numFields + " #Relationships=" + numRelations, module);
+        return true;
+    }
+
     /**
      * rebuilds the resourceHandlerEntities Map of Collections based on the current
      * entityResourceHandlerMap Map, must be done whenever a manual change is made to the
@@ -347,20 +491,26 @@ public class ModelReader {
 
     ModelEntity createModelEntity(Element entityElement, Element docElement, UtilTimer utilTimer, Hashtable<String, String> docElementValues) {
         if (entityElement == null) return null;
-        this.numEntities++;
+        synchronized (counterLock) {
+            this.numEntities++;
+        }
 
         return new ModelEntity(this, entityElement, docElement, utilTimer, docElementValues);
     }
 
     ModelViewEntity createModelViewEntity(Element entityElement, Element docElement, UtilTimer utilTimer, Hashtable<String, String> docElementValues) {
         if (entityElement == null) return null;
-        this.numViewEntities++;
+        synchronized (counterLock) {
+            this.numViewEntities++;
+        }
 
         return new ModelViewEntity(this, entityElement, docElement, utilTimer, docElementValues);
     }
 
     public ModelRelation createRelation(ModelEntity entity, Element relationElement) {
-        this.numRelations++;
+        synchronized (counterLock) {
+            this.numRelations++;
+        }
 
         return new ModelRelation(entity, relationElement);
     }
@@ -381,8 +531,37 @@ public class ModelReader {
             return null;
         }
 
-        this.numFields++;
+        synchronized (counterLock) {
+            this.numFields++;
+        }
 
         return new ModelField(fieldElement);
     }
+
+    /**
+     * What a model snapshot holds: the entities and the names of the entities read from each resource.
+     */
+    static class SnapshotModel implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final HashMap<String, ModelEntity> entityCache;
+        final ArrayList<ArrayList<String>> resourceHandlerEntityNames;
+        final int numEntities;
+        final int numViewEntities;
+        final int numFields;
+        final int numRelations;
+
+        SnapshotModel(ModelReader reader) {
+            this.entityCache = new HashMap<String, ModelEntity>(reader.entityCache);
+            this.resourceHandlerEntityNames = new ArrayList<ArrayList<String>>(reader.entityResourceHandlers.size());
+            for (ResourceHandler handler : reader.entityResourceHandlers) {
+                Collection<String> entityNames = reader.resourceHandlerEntities.get(handler);
+                resourceHandlerEntityNames.add(entityNames == null ? new ArrayList<String>() : new ArrayList<String>(entityNames));
+            }
+            this.numEntities = reader.numEntities;
+            this.numViewEntities = reader.numViewEntities;
+            this.numFields = reader.numFields;
+            this.numRelations = reader.numRelations;
+        }
+    }
 }
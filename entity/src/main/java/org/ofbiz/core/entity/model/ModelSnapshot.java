@@ -0,0 +1,151 @@
+package org.ofbiz.core.entity.model;
+
+import org.ofbiz.core.config.GenericConfigException;
+import org.ofbiz.core.config.ResourceHandler;
+import org.ofbiz.core.util.Debug;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A precompiled copy of a model read from XML, such as the entities of a {@link ModelReader} or the field types of
+ * a {@link ModelFieldTypeReader}, written to a local file so that the next start can load the model objects
+ * directly instead of parsing the XML and building them again.
+ * <p>
+ * The snapshot is keyed by a checksum of the XML resources it was built from, so it is only used while those are
+ * unchanged; a snapshot that is missing, stale, unreadable or written by incompatible model classes is ignored and
+ * the caller reads the XML as usual, after which it writes a fresh snapshot. Plug-ins referenced by the model, such
+ * as {@link FunctionDefinitionBuilder}s, are serialized along with it; if one of them cannot be, no snapshot is
+ * written and the model keeps being read from XML.
+ */
+public class ModelSnapshot {
+
+    public static final String module = ModelSnapshot.class.getName();
+
+    static final int MAGIC = 0x4f464d53;
+
+    /**
+     * The version of the snapshot format, written after {@link #MAGIC}; increase it whenever the serialized form of
+     * the model classes changes incompatibly, so that snapshots written before are ignored rather than misread.
+     */
+    static final int VERSION = 2;
+
+    private final File file;
+    private final Collection<ResourceHandler> resourceHandlers;
+    private byte[] checksum;
+
+    /**
+     * @param file             the file to read and write
+     * @param resourceHandlers the XML resources the model is read from, in the order they are read
+     */
+    public ModelSnapshot(File file, Collection<ResourceHandler> resourceHandlers) {
+        this.file = file;
+        this.resourceHandlers = resourceHandlers;
+    }
+
+    /**
+     * Loads the model from the snapshot, if there is one for the current contents of the XML resources.
+     *
+     * @return null if there is no usable snapshot
+     */
+    public Object load() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Debug.logWarning("Ignoring model snapshot " + file + " with unknown format", module);
+                return null;
+            }
+            final byte[] snapshotChecksum = (byte[]) in.readObject();
+            if (!Arrays.equals(snapshotChecksum, getChecksum())) {
+                Debug.logInfo("Model snapshot " + file + " is out of date, reading the model from XML", module);
+                return null;
+            }
+            final Object model = in.readObject();
+            if (Debug.infoOn()) {
+                Debug.logInfo("Loaded model snapshot " + file, module);
+            }
+            return model;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            Debug.logWarning(e, "Could not load model snapshot " + file + ", reading the model from XML", module);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the given model to the snapshot file, replacing it. Failures are logged rather than thrown, since
+     * the model has already been read and the only cost is reading it from XML again on the next start.
+     *
+     * @param model the model read from the XML resources
+     * @return whether the snapshot was written
+     */
+    public boolean write(Serializable model) {
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeObject(getChecksum());
+                out.writeObject(model);
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace model snapshot " + file);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename " + tempFile + " to " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            Debug.logWarning(e, "Could not write model snapshot " + file, module);
+            tempFile.delete();
+            return false;
+        }
+        if (Debug.infoOn()) {
+            Debug.logInfo("Wrote model snapshot " + file, module);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the SHA-256 digest of the location and contents of each XML resource, computed once.
+     */
+    private byte[] getChecksum() throws IOException {
+        if (checksum == null) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+            final byte[] buffer = new byte[8192];
+            for (ResourceHandler handler : resourceHandlers) {
+                digest.update(handler.toString().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = handler.getStream()) {
+                    if (in == null) {
+                        throw new IOException("Could not read " + handler);
+                    }
+                    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                        digest.update(buffer, 0, read);
+                    }
+                } catch (GenericConfigException e) {
+                    throw new IOException("Could not read " + handler, e);
+                }
+            }
+            checksum = digest.digest();
+        }
+        return checksum;
+    }
+}
@@ -31,6 +31,7 @@ import org.ofbiz.core.util.UtilXml;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -49,6 +50,7 @@ import java.util.Map;
  */
 public class ModelViewEntity extends ModelEntity {
     public static final String module = ModelViewEntity.class.getName();
+    private static final long serialVersionUID = 1L;
 
     /**
      * Contains member-entity alias name definitions: key is alias, value is ModelMemberEntity
@@ -315,7 +317,9 @@ public class ModelViewEntity extends ModelEntity {
         }
     }
 
-    public static class ModelMemberEntity {
+    public static class ModelMemberEntity implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         protected String entityAlias = "";
         protected String entityName = "";
 
@@ -334,7 +338,9 @@ public class ModelViewEntity extends ModelEntity {
     }
 
 
-    public static class ModelAlias {
+    public static class ModelAlias implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         protected String entityAlias = "";
         protected String name = "";
         protected String field = "";
@@ -397,7 +403,9 @@ public class ModelViewEntity extends ModelEntity {
     }
 
 
-    public static class ModelViewLink {
+    public static class ModelViewLink implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         protected String entityAlias = "";
         protected String relEntityAlias = "";
         protected boolean relOptional = false;
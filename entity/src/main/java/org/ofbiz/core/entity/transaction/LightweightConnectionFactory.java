@@ -0,0 +1,64 @@
+package org.ofbiz.core.entity.transaction;
+
+import com.atlassian.util.concurrent.CopyOnWriteMap;
+import org.ofbiz.core.entity.config.JdbcDatasourceInfo;
+import org.ofbiz.core.entity.jdbc.interceptors.connection.ConnectionTracker;
+import org.ofbiz.core.util.Debug;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Central source for JDBC connections from a {@link LightweightConnectionPool}, for datasources configured with
+ * <code>pool-type="lightweight"</code>; the counterpart of {@link DBCPConnectionFactory}.
+ */
+public class LightweightConnectionFactory {
+
+    protected static final Map<String, LightweightConnectionPool> poolCache = CopyOnWriteMap.newHashMap();
+    protected static final Map<String, ConnectionTracker> trackerCache = CopyOnWriteMap.newHashMap();
+
+    public static Connection getConnection(String helperName, JdbcDatasourceInfo jdbcDatasource) throws SQLException {
+        LightweightConnectionPool pool = poolCache.get(helperName);
+        if (pool == null) {
+            synchronized (LightweightConnectionFactory.class) {
+                //try again inside the synch just in case someone when through while we were waiting
+                pool = poolCache.get(helperName);
+                if (pool == null) {
+                    pool = new LightweightConnectionPool(helperName, jdbcDatasource);
+                    trackerCache.put(helperName, new ConnectionTracker(jdbcDatasource.getConnectionPoolInfo()));
+                    poolCache.put(helperName, pool);
+                }
+            }
+        }
+        final LightweightConnectionPool trackedPool = pool;
+        return trackerCache.get(helperName).trackConnection(helperName, trackedPool::getConnection);
+    }
+
+    /**
+     * Returns the pool for the given datasource, for example to read its borrow metrics.
+     *
+     * @param helperName the name of the datasource
+     * @return null if the datasource does not use a lightweight pool or has not been used yet
+     */
+    public static LightweightConnectionPool getPool(String helperName) {
+        return poolCache.get(helperName);
+    }
+
+    /**
+     * Shuts down and removes a datasource, if it exists
+     *
+     * @param helperName The name of the datasource to remove
+     */
+    public synchronized static void removeDatasource(String helperName) {
+        LightweightConnectionPool pool = poolCache.remove(helperName);
+        if (pool != null) {
+            try {
+                pool.close();
+            } catch (RuntimeException e) {
+                Debug.logError(e, "Error closing lightweight connection pool " + helperName);
+            }
+        }
+        trackerCache.remove(helperName);
+    }
+}
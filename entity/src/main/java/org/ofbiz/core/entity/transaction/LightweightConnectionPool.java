@@ -0,0 +1,881 @@
+package org.ofbiz.core.entity.transaction;
+
+import org.ofbiz.core.entity.config.ConnectionPoolInfo;
+import org.ofbiz.core.entity.config.JdbcDatasourceInfo;
+import org.ofbiz.core.entity.jdbc.interceptors.connection.DelegatingConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.ofbiz.core.entity.util.PropertyUtils.copyOf;
+import static org.ofbiz.core.util.UtilValidate.isNotEmpty;
+
+/**
+ * A small JDBC connection pool that borrows without taking a lock, used instead of DBCP for a datasource whose
+ * <code>inline-jdbc</code> element has <code>pool-type="lightweight"</code>.
+ * <p>
+ * Each pooled connection has an atomic state, and a connection is borrowed by switching it from idle to in use:
+ * first the connection this thread returned last, then any idle one, and only when there is none does the caller
+ * open a new connection (up to the maximum size) or wait for another thread to hand one over as it is returned.
+ * Validation and eviction of idle connections happen on a housekeeping thread, not when borrowing, unless
+ * <code>testOnBorrow</code> is explicitly enabled.
+ * <p>
+ * The {@link ConnectionPoolInfo} settings used are the same as for DBCP: the maximum size, minimum and maximum idle
+ * connections, initial size, maximum wait, validation query and its timeout, test on borrow, return and while idle,
+ * minimum evictable idle time, time between eviction runs and default catalog. Prepared statement pooling and
+ * abandoned connection removal are not supported.
+ */
+public class LightweightConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(LightweightConnectionPool.class);
+
+    /**
+     * How often idle connections are validated and evicted when no time between eviction runs is configured.
+     */
+    public static final long DEFAULT_HOUSEKEEPING_MILLIS = 30000L;
+
+    /**
+     * How long a connection may stay idle before it can be evicted, when no minimum is configured; the DBCP default.
+     */
+    public static final long DEFAULT_MIN_EVICTABLE_IDLE_MILLIS = 1800000L;
+
+    private static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private static final int STATE_REMOVED = -1;
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_IN_USE = 1;
+    private static final int STATE_RESERVED = 2;
+
+    private final String name;
+    private final JdbcDatasourceInfo jdbcDatasource;
+    private final ConnectionPoolInfo poolInfo;
+    private final Driver driver;
+    private final Properties connectionProperties;
+    private final Integer isolationLevel;
+
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<PoolEntry>();
+    private final ThreadLocal<PoolEntry> lastReturned = new ThreadLocal<PoolEntry>();
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * Creates the pool and opens its initial connections.
+     *
+     * @param name           the name of the datasource, for logging and thread names
+     * @param jdbcDatasource the JDBC settings, including the pool settings
+     * @throws SQLException if the JDBC driver could not be loaded
+     */
+    public LightweightConnectionPool(final String name, final JdbcDatasourceInfo jdbcDatasource) throws SQLException {
+        this.name = name;
+        this.jdbcDatasource = jdbcDatasource;
+        this.poolInfo = jdbcDatasource.getConnectionPoolInfo() != null ?
+                jdbcDatasource.getConnectionPoolInfo() : ConnectionPoolInfo.builder().build();
+        this.driver = loadDriver(jdbcDatasource.getDriverClassName());
+        this.connectionProperties = jdbcDatasource.getConnectionProperties() != null ?
+                copyOf(jdbcDatasource.getConnectionProperties()) : new Properties();
+        if (jdbcDatasource.getUsername() != null) {
+            connectionProperties.setProperty("user", jdbcDatasource.getUsername());
+        }
+        if (jdbcDatasource.getPassword() != null) {
+            connectionProperties.setProperty("password", jdbcDatasource.getPassword());
+        }
+        this.isolationLevel = isNotEmpty(jdbcDatasource.getIsolationLevel()) ?
+                TransactionIsolations.fromString(jdbcDatasource.getIsolationLevel()) : null;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "LightweightConnectionPool-housekeeper-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final int initialSize = poolInfo.getInitialSize() != null ? poolInfo.getInitialSize() : 0;
+        for (int i = 0; i < initialSize && reserveConnection(); i++) {
+            try {
+                makeAvailable(openConnection(STATE_IDLE));
+            } catch (SQLException e) {
+                log.warn("Could not open an initial connection for pool " + name, e);
+                break;
+            }
+        }
+        final long period = poolInfo.getTimeBetweenEvictionRunsMillis() != null && poolInfo.getTimeBetweenEvictionRunsMillis() > 0 ?
+                poolInfo.getTimeBetweenEvictionRunsMillis() : DEFAULT_HOUSEKEEPING_MILLIS;
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, MILLISECONDS);
+        housekeeper.execute(this::fillPool);
+    }
+
+    /**
+     * Borrows a connection, which is returned to the pool when it is closed.
+     *
+     * @return a connection
+     * @throws SQLException if the pool is closed, no connection became available within the maximum wait, or a
+     *                      new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        final long start = System.nanoTime();
+        final PoolEntry entry = borrow(start);
+        recordBorrow(System.nanoTime() - start);
+        return new PooledConnection(entry);
+    }
+
+    private PoolEntry borrow(final long start) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+
+        // fast path: the connection this thread used last, which is likely still idle
+        PoolEntry entry = lastReturned.get();
+        if (entry != null && entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE) && usable(entry)) {
+            return entry;
+        }
+        entry = borrowIdleOrNew();
+        if (entry != null) {
+            return entry;
+        }
+
+        final long maxWait = poolInfo.getMaxWait();
+        final long deadline = start + MILLISECONDS.toNanos(maxWait);
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                entry = borrowIdleOrNew();
+                if (entry != null) {
+                    return entry;
+                }
+                final long remaining = maxWait < 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount.increment();
+                    throw new SQLException("Timed out after " + maxWait + "ms waiting for a connection from pool " + name +
+                            " (" + getActiveCount() + " in use, maximum " + poolInfo.getMaxSize() + ")");
+                }
+                entry = handoffQueue.poll(remaining, NANOSECONDS);
+                if (entry != null && entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE) && usable(entry)) {
+                    return entry;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private PoolEntry borrowIdleOrNew() throws SQLException {
+        for (PoolEntry entry : entries) {
+            if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE) && usable(entry)) {
+                return entry;
+            }
+        }
+        if (reserveConnection()) {
+            return openConnection(STATE_IN_USE);
+        }
+        return null;
+    }
+
+    /**
+     * Checks a connection that has just been borrowed, if that has been asked for, removing it if it is not valid.
+     */
+    private boolean usable(final PoolEntry entry) {
+        if (Boolean.TRUE.equals(poolInfo.getTestOnBorrow()) && !isValid(entry)) {
+            remove(entry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a connection to the pool, or removes it if it is broken or the pool is closed.
+     */
+    private void release(final PoolEntry entry, final boolean reusable) {
+        if (!reusable || closed || (Boolean.TRUE.equals(poolInfo.getTestOnReturn()) && !isValid(entry))) {
+            remove(entry);
+            if (waiters.get() > 0 && !closed) {
+                housekeeper.execute(this::fillPool);
+            }
+            return;
+        }
+        entry.lastReturnedNanos = System.nanoTime();
+        lastReturned.set(entry);
+        makeAvailable(entry);
+    }
+
+    /**
+     * Marks the connection idle and, while other threads are waiting, tries to hand it to one of them directly.
+     */
+    private void makeAvailable(final PoolEntry entry) {
+        entry.state.set(STATE_IDLE);
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.state.get() != STATE_IDLE || handoffQueue.offer(entry)) {
+                return;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Claims room for one more connection, if the pool is not full.
+     */
+    private boolean reserveConnection() {
+        while (true) {
+            final int total = totalConnections.get();
+            if (total >= poolInfo.getMaxSize()) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(total, total + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Opens a connection for which room has been {@link #reserveConnection() reserved}, giving the room back if
+     * that fails.
+     */
+    private PoolEntry openConnection(final int state) throws SQLException {
+        final Connection connection;
+        try {
+            connection = driver.connect(jdbcDatasource.getUri(), connectionProperties);
+            if (connection == null) {
+                throw new SQLException("JDBC driver " + jdbcDatasource.getDriverClassName() + " does not accept " + jdbcDatasource.getUri());
+            }
+            if (isolationLevel != null) {
+                connection.setTransactionIsolation(isolationLevel);
+            }
+            if (isNotEmpty(poolInfo.getDefaultCatalog())) {
+                connection.setCatalog(poolInfo.getDefaultCatalog());
+            }
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+        final PoolEntry entry = new PoolEntry(connection, state);
+        entries.add(entry);
+        if (closed) {
+            remove(entry);
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        return entry;
+    }
+
+    private void remove(final PoolEntry entry) {
+        if (entry.state.getAndSet(STATE_REMOVED) == STATE_REMOVED) {
+            return;
+        }
+        entries.remove(entry);
+        totalConnections.decrementAndGet();
+        try {
+            entry.connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing a connection removed from pool " + name, e);
+        }
+    }
+
+    private boolean isValid(final PoolEntry entry) {
+        final int timeout = poolInfo.getValidationQueryTimeout() != null && poolInfo.getValidationQueryTimeout() > 0 ?
+                poolInfo.getValidationQueryTimeout() : DEFAULT_VALIDATION_TIMEOUT_SECONDS;
+        try {
+            if (isNotEmpty(poolInfo.getValidationQuery())) {
+                try (Statement statement = entry.connection.createStatement()) {
+                    statement.setQueryTimeout(timeout);
+                    statement.execute(poolInfo.getValidationQuery());
+                }
+                return true;
+            }
+            return entry.connection.isValid(timeout);
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Connection from pool " + name + " failed validation", e);
+            return false;
+        }
+    }
+
+    /**
+     * Validates and evicts idle connections, then opens connections up to the minimum number.
+     */
+    private void houseKeep() {
+        try {
+            final long now = System.nanoTime();
+            final long minEvictableNanos = MILLISECONDS.toNanos(poolInfo.getMinEvictableTimeMillis() != null ?
+                    poolInfo.getMinEvictableTimeMillis() : DEFAULT_MIN_EVICTABLE_IDLE_MILLIS);
+            final boolean testWhileIdle = !Boolean.FALSE.equals(poolInfo.getTestWhileIdle());
+            int idle = 0;
+            for (PoolEntry entry : entries) {
+                if (!entry.state.compareAndSet(STATE_IDLE, STATE_RESERVED)) {
+                    continue;
+                }
+                final boolean evictable = minEvictableNanos >= 0 && now - entry.lastReturnedNanos > minEvictableNanos &&
+                        totalConnections.get() > poolInfo.getMinSize();
+                if (evictable || idle >= poolInfo.getMaxIdle() || (testWhileIdle && !isValid(entry))) {
+                    remove(entry);
+                } else {
+                    idle++;
+                    makeAvailable(entry);
+                }
+            }
+            fillPool();
+        } catch (RuntimeException e) {
+            log.warn("Error maintaining connection pool " + name, e);
+        }
+    }
+
+    /**
+     * Opens connections while there are fewer than the minimum, or threads are waiting and there is room.
+     */
+    private void fillPool() {
+        while (!closed && (totalConnections.get() < poolInfo.getMinSize() || waiters.get() > 0) && reserveConnection()) {
+            try {
+                makeAvailable(openConnection(STATE_IDLE));
+            } catch (SQLException e) {
+                log.warn("Could not open a connection for pool " + name, e);
+                return;
+            }
+        }
+    }
+
+    private void recordBorrow(final long nanos) {
+        borrowCount.increment();
+        borrowNanos.add(nanos);
+        long max = maxBorrowNanos.get();
+        while (nanos > max && !maxBorrowNanos.compareAndSet(max, nanos)) {
+            max = maxBorrowNanos.get();
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeping thread; connections still in use are closed when
+     * they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : entries) {
+            if (entry.state.compareAndSet(STATE_IDLE, STATE_RESERVED)) {
+                remove(entry);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of connections borrowed so far
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return the total time spent borrowing connections, including waiting for one and opening new ones
+     */
+    public long getTotalBorrowNanos() {
+        return borrowNanos.sum();
+    }
+
+    /**
+     * @return the average time taken to borrow a connection, or zero if none has been borrowed
+     */
+    public long getMeanBorrowNanos() {
+        final long count = borrowCount.sum();
+        return count == 0 ? 0 : borrowNanos.sum() / count;
+    }
+
+    /**
+     * @return the longest time taken to borrow a connection
+     */
+    public long getMaxBorrowNanos() {
+        return maxBorrowNanos.get();
+    }
+
+    /**
+     * @return the number of times a caller gave up waiting for a connection
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * @return the number of open connections, in use or idle
+     */
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActiveCount() {
+        int active = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.state.get() == STATE_IN_USE) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return the number of threads waiting for a connection
+     */
+    public int getWaitingCount() {
+        return waiters.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LightweightConnectionPool[name=" + name + ",total=" + getTotalCount() + ",active=" + getActiveCount() +
+                ",waiting=" + getWaitingCount() + ",borrowCount=" + getBorrowCount() +
+                ",meanBorrowNanos=" + getMeanBorrowNanos() + ",maxBorrowNanos=" + getMaxBorrowNanos() +
+                ",timeoutCount=" + getTimeoutCount() + ']';
+    }
+
+    private static Driver loadDriver(final String driverClassName) throws SQLException {
+        try {
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            return (Driver) Class.forName(driverClassName, true, loader).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            throw new SQLException("Could not load JDBC driver " + driverClassName, e);
+        }
+    }
+
+    private static class PoolEntry {
+        final Connection connection;
+        final AtomicInteger state;
+        volatile long lastReturnedNanos = System.nanoTime();
+
+        PoolEntry(final Connection connection, final int state) {
+            this.connection = connection;
+            this.state = new AtomicInteger(state);
+        }
+    }
+
+    /**
+     * The connection handed out by the pool, which goes back to the pool when closed. Settings changed while it was
+     * borrowed are reset, and an open transaction rolled back, before the next borrower gets it. Once closed, it
+     * refuses to do anything more, since the physical connection may by then belong to another borrower.
+     */
+    private class PooledConnection extends DelegatingConnection {
+        private final PoolEntry entry;
+        private volatile boolean closed;
+        private boolean dirty;
+
+        PooledConnection(final PoolEntry entry) {
+            super(entry.connection);
+            this.entry = entry;
+        }
+
+        @Override
+        public void setAutoCommit(final boolean autoCommit) throws SQLException {
+            checkOpen();
+            dirty = true;
+            super.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public void setReadOnly(final boolean readOnly) throws SQLException {
+            checkOpen();
+            dirty = true;
+            super.setReadOnly(readOnly);
+        }
+
+        @Override
+        public void setTransactionIsolation(final int level) throws SQLException {
+            checkOpen();
+            dirty = true;
+            super.setTransactionIsolation(level);
+        }
+
+        @Override
+        public void setCatalog(final String catalog) throws SQLException {
+            checkOpen();
+            dirty = true;
+            super.setCatalog(catalog);
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return closed || super.isClosed();
+        }
+
+        @Override
+        public boolean isValid(final int timeout) throws SQLException {
+            return !closed && super.isValid(timeout);
+        }
+
+        @Override
+        public void abort(final Executor executor) throws SQLException {
+            if (!closed) {
+                super.abort(executor);
+            }
+        }
+
+        @Override
+        public void setClientInfo(final String name, final String value) throws SQLClientInfoException {
+            if (closed) {
+                throw new SQLClientInfoException("Connection is closed", null);
+            }
+            super.setClientInfo(name, value);
+        }
+
+        @Override
+        public void setClientInfo(final Properties properties) throws SQLClientInfoException {
+            if (closed) {
+                throw new SQLClientInfoException("Connection is closed", null);
+            }
+            super.setClientInfo(properties);
+        }
+
+        @Override
+        public Statement createStatement() throws SQLException {
+            checkOpen();
+            return super.createStatement();
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql);
+        }
+
+        @Override
+        public CallableStatement prepareCall(final String sql) throws SQLException {
+            checkOpen();
+            return super.prepareCall(sql);
+        }
+
+        @Override
+        public String nativeSQL(final String sql) throws SQLException {
+            checkOpen();
+            return super.nativeSQL(sql);
+        }
+
+        @Override
+        public boolean getAutoCommit() throws SQLException {
+            checkOpen();
+            return super.getAutoCommit();
+        }
+
+        @Override
+        public void commit() throws SQLException {
+            checkOpen();
+            super.commit();
+        }
+
+        @Override
+        public void rollback() throws SQLException {
+            checkOpen();
+            super.rollback();
+        }
+
+        @Override
+        public DatabaseMetaData getMetaData() throws SQLException {
+            checkOpen();
+            return super.getMetaData();
+        }
+
+        @Override
+        public boolean isReadOnly() throws SQLException {
+            checkOpen();
+            return super.isReadOnly();
+        }
+
+        @Override
+        public String getCatalog() throws SQLException {
+            checkOpen();
+            return super.getCatalog();
+        }
+
+        @Override
+        public int getTransactionIsolation() throws SQLException {
+            checkOpen();
+            return super.getTransactionIsolation();
+        }
+
+        @Override
+        public SQLWarning getWarnings() throws SQLException {
+            checkOpen();
+            return super.getWarnings();
+        }
+
+        @Override
+        public void clearWarnings() throws SQLException {
+            checkOpen();
+            super.clearWarnings();
+        }
+
+        @Override
+        public Statement createStatement(final int resultSetType, final int resultSetConcurrency) throws SQLException {
+            checkOpen();
+            return super.createStatement(resultSetType, resultSetConcurrency);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+
+        @Override
+        public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
+            checkOpen();
+            return super.prepareCall(sql, resultSetType, resultSetConcurrency);
+        }
+
+        @Override
+        public Map<String, Class<?>> getTypeMap() throws SQLException {
+            checkOpen();
+            return super.getTypeMap();
+        }
+
+        @Override
+        public void setTypeMap(final Map<String, Class<?>> map) throws SQLException {
+            checkOpen();
+            super.setTypeMap(map);
+        }
+
+        @Override
+        public void setHoldability(final int holdability) throws SQLException {
+            checkOpen();
+            super.setHoldability(holdability);
+        }
+
+        @Override
+        public int getHoldability() throws SQLException {
+            checkOpen();
+            return super.getHoldability();
+        }
+
+        @Override
+        public Savepoint setSavepoint() throws SQLException {
+            checkOpen();
+            return super.setSavepoint();
+        }
+
+        @Override
+        public Savepoint setSavepoint(final String name) throws SQLException {
+            checkOpen();
+            return super.setSavepoint(name);
+        }
+
+        @Override
+        public void rollback(final Savepoint savepoint) throws SQLException {
+            checkOpen();
+            super.rollback(savepoint);
+        }
+
+        @Override
+        public void releaseSavepoint(final Savepoint savepoint) throws SQLException {
+            checkOpen();
+            super.releaseSavepoint(savepoint);
+        }
+
+        @Override
+        public Statement createStatement(final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+            checkOpen();
+            return super.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+
+        @Override
+        public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+            checkOpen();
+            return super.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql, final int autoGeneratedKeys) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql, final int[] columnIndexes) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql, columnIndexes);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(final String sql, final String[] columnNames) throws SQLException {
+            checkOpen();
+            return super.prepareStatement(sql, columnNames);
+        }
+
+        @Override
+        public Clob createClob() throws SQLException {
+            checkOpen();
+            return super.createClob();
+        }
+
+        @Override
+        public Blob createBlob() throws SQLException {
+            checkOpen();
+            return super.createBlob();
+        }
+
+        @Override
+        public NClob createNClob() throws SQLException {
+            checkOpen();
+            return super.createNClob();
+        }
+
+        @Override
+        public SQLXML createSQLXML() throws SQLException {
+            checkOpen();
+            return super.createSQLXML();
+        }
+
+        @Override
+        public String getClientInfo(final String name) throws SQLException {
+            checkOpen();
+            return super.getClientInfo(name);
+        }
+
+        @Override
+        public Properties getClientInfo() throws SQLException {
+            checkOpen();
+            return super.getClientInfo();
+        }
+
+        @Override
+        public Array createArrayOf(final String typeName, final Object[] elements) throws SQLException {
+            checkOpen();
+            return super.createArrayOf(typeName, elements);
+        }
+
+        @Override
+        public Struct createStruct(final String typeName, final Object[] attributes) throws SQLException {
+            checkOpen();
+            return super.createStruct(typeName, attributes);
+        }
+
+        @Override
+        public <T> T unwrap(final Class<T> iface) throws SQLException {
+            checkOpen();
+            return super.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+            checkOpen();
+            return super.isWrapperFor(iface);
+        }
+
+        @Override
+        public void setSchema(final String schema) throws SQLException {
+            checkOpen();
+            super.setSchema(schema);
+        }
+
+        @Override
+        public String getSchema() throws SQLException {
+            checkOpen();
+            return super.getSchema();
+        }
+
+        @Override
+        public void setNetworkTimeout(final Executor executor, final int milliseconds) throws SQLException {
+            checkOpen();
+            super.setNetworkTimeout(executor, milliseconds);
+        }
+
+        @Override
+        public int getNetworkTimeout() throws SQLException {
+            checkOpen();
+            return super.getNetworkTimeout();
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(entry, reset());
+        }
+
+        private boolean reset() {
+            if (!dirty) {
+                return true;
+            }
+            try {
+                final Connection connection = entry.connection;
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                connection.setReadOnly(false);
+                if (isolationLevel != null) {
+                    connection.setTransactionIsolation(isolationLevel);
+                }
+                if (isNotEmpty(poolInfo.getDefaultCatalog())) {
+                    connection.setCatalog(poolInfo.getDefaultCatalog());
+                }
+                return true;
+            } catch (SQLException e) {
+                log.debug("Could not reset a connection returned to pool " + name, e);
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "PooledConnection[pool=" + name + ",connection=" + entry.connection + ']';
+        }
+    }
+}
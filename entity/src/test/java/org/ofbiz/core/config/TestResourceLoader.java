@@ -0,0 +1,74 @@
+package org.ofbiz.core.config;
+
+import org.junit.Test;
+import org.ofbiz.core.util.UtilXml;
+import org.w3c.dom.Document;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.ofbiz.core.config.ResourceLoader.MAX_SAVED_DOCUMENTS;
+
+public class TestResourceLoader {
+
+    // This file is in src/test/resources and is not otherwise read through ResourceLoader
+    private static final String XML_FILE = "entitydefs/entitymodel.xml";
+
+    @Test
+    public void leastRecentlyUsedDocumentShouldBeForgottenOnceTheMapIsFull() {
+        // Set up
+        final Map<String, WeakReference<Document>> documents = new ResourceLoader.SavedDocumentMap();
+        final Document document = UtilXml.makeEmptyXmlDocument("root");
+        for (int i = 0; i < MAX_SAVED_DOCUMENTS; i++) {
+            documents.put("document" + i, new WeakReference<Document>(document));
+        }
+        documents.get("document0");
+
+        // Invoke
+        documents.put("document" + MAX_SAVED_DOCUMENTS, new WeakReference<Document>(document));
+
+        // Check
+        assertEquals(MAX_SAVED_DOCUMENTS, documents.size());
+        assertTrue(documents.containsKey("document0"));
+        assertFalse(documents.containsKey("document1"));
+        assertTrue(documents.containsKey("document" + MAX_SAVED_DOCUMENTS));
+    }
+
+    @Test
+    public void savedDocumentShouldBeReusedWhileItIsReferenced() throws Exception {
+        // Set up
+        ResourceLoader.invalidateDocument(XML_FILE);
+        final Document document = ResourceLoader.getXmlDocument(XML_FILE);
+
+        // Invoke
+        final Document saved = ResourceLoader.getXmlDocument(XML_FILE);
+
+        // Check
+        assertSame(document, saved);
+    }
+
+    @Test
+    public void savedDocumentShouldBeReadAgainOnceNothingRefersToIt() throws Exception {
+        // Set up
+        ResourceLoader.invalidateDocument(XML_FILE);
+        final WeakReference<Document> first = new WeakReference<Document>(ResourceLoader.getXmlDocument(XML_FILE));
+        for (int i = 0; i < 20 && first.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("The saved document should not have been strongly held", first.get());
+
+        // Invoke
+        final Document document = ResourceLoader.getXmlDocument(XML_FILE);
+
+        // Check
+        assertNotNull(document);
+        assertEquals("entitymodel", document.getDocumentElement().getTagName());
+    }
+}
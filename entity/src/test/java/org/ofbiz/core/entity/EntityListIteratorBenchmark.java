@@ -0,0 +1,108 @@
+package org.ofbiz.core.entity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.ofbiz.core.entity.EntityFindOptions.findOptions;
+import static org.ofbiz.core.util.Benchmarks.intArg;
+import static org.ofbiz.core.util.Benchmarks.timeMillis;
+
+/**
+ * Compares the time taken and the peak heap used to scan a large table with a forward only
+ * {@link EntityListIterator} and with a scroll insensitive one, against the in-memory HSQLDB
+ * database used by the tests. Not run as part of the build; run the main method from the IDE,
+ * optionally passing the number of rows (by default one million).
+ */
+public class EntityListIteratorBenchmark {
+
+    private static final String PROJECT_ENTITY = "Project";
+    private static final int INSERT_BATCH_SIZE = 10000;
+    private static final int FETCH_SIZE = 1000;
+
+    public static void main(final String[] args) throws Exception {
+        final int rows = intArg(args, 0, 1000000);
+        final GenericDelegator delegator = GenericDelegator.getGenericDelegator("default");
+        populate(delegator, rows);
+
+        // warm up both paths before measuring
+        scan(delegator, findOptions().forwardOnly().fetchSize(FETCH_SIZE), "warm up (forward only)");
+        scan(delegator, findOptions().scrollInsensitive().fetchSize(FETCH_SIZE), "warm up (scroll insensitive)");
+
+        for (int i = 0; i < 3; i++) {
+            scan(delegator, findOptions().forwardOnly().fetchSize(FETCH_SIZE), "forward only");
+            scan(delegator, findOptions().scrollInsensitive().fetchSize(FETCH_SIZE), "scroll insensitive");
+        }
+        delegator.removeByCondition(PROJECT_ENTITY, null);
+    }
+
+    private static void populate(final GenericDelegator delegator, final int rows) throws Exception {
+        delegator.removeByCondition(PROJECT_ENTITY, null);
+        try (Connection connection = ConnectionFactory.getConnection(delegator.getEntityHelperName(PROJECT_ENTITY));
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO project (id, pkey, pcounter) VALUES (?, ?, ?)")) {
+            for (int id = 1; id <= rows; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "KEY-" + id);
+                insert.setLong(3, id % 1000);
+                insert.addBatch();
+                if (id % INSERT_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            if (rows % INSERT_BATCH_SIZE != 0) {
+                insert.executeBatch();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    private static void scan(final GenericDelegator delegator, final EntityFindOptions options, final String label)
+            throws Exception {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        final long baseline = heapUsed();
+
+        final long[] rows = new long[1];
+        final long[] checksum = new long[1];
+        final long elapsedMillis = timeMillis(() -> {
+            final EntityListIterator iterator = delegator.findListIteratorByCondition(PROJECT_ENTITY, null, null, null, null, options);
+            try {
+                while (iterator.hasNext()) {
+                    checksum[0] += iterator.next().getLong("counter");
+                    rows[0]++;
+                }
+            } finally {
+                iterator.close();
+            }
+        });
+
+        System.out.printf("%-30s %,10d rows %,8d ms  peak heap above baseline %,8d KB  (checksum %d)%n",
+                label, rows[0], elapsedMillis, (peakHeapUsed() - baseline) / 1024, checksum[0]);
+    }
+
+    private static long heapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long peakHeapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getPeakUsage().getUsed();
+            }
+        }
+        return used;
+    }
+}
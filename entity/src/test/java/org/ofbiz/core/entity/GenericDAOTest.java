@@ -129,6 +129,24 @@ public class GenericDAOTest {
         assertThat((EntityExpr) result, entityExpr("test", IN, ImmutableList.of(1, 2, 3, 4, 5)));
     }
 
+    @Test
+    public void primaryKeysShouldBeMatchedWithInOrWithAnOrOfTheirColumns() {
+        // Set up
+        when(mockDatasourceInfo.getDatabaseTypeFromJDBCConnection()).thenReturn(mockDatabaseType);
+        when(mockDatabaseType.escapeColumnName(anyString())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        final GenericDAO dao = new GenericDAO(
+                HELPER_NAME, mockModelFieldTypeReader, mockDatasourceInfo, mockLimitHelper, mockCountHelper);
+        final ModelField mockIdField = mock(ModelField.class);
+        when(mockIdField.getColName()).thenReturn("ID");
+        final ModelField mockVersionField = mock(ModelField.class);
+        when(mockVersionField.getColName()).thenReturn("VERSION");
+
+        // Invoke and check
+        assertEquals("ID IN (?, ?, ?)", dao.makeWhereStringForPrimaryKeys(singletonList(mockIdField), 3));
+        assertEquals("(ID=? AND VERSION=?) OR (ID=? AND VERSION=?)",
+                dao.makeWhereStringForPrimaryKeys(asList(mockIdField, mockVersionField), 2));
+    }
+
     private Matcher<EntityExpr> entityExpr(
             final String lhs, final EntityOperator operator, final ImmutableList<Integer> rhs) {
         return new BaseMatcher<EntityExpr>() {
@@ -0,0 +1,124 @@
+package org.ofbiz.core.entity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ofbiz.core.entity.jdbc.AutoCommitSQLProcessor;
+import org.ofbiz.core.entity.jdbc.ReadOnlySQLProcessor;
+import org.ofbiz.core.entity.jdbc.SQLProcessor;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Integration test of ConnectionSession using an in-memory database.
+ */
+public class TestConnectionSession {
+
+    // These names are from the test XML files in src/test/resources
+    private static final String DELEGATOR_NAME = "default";
+    private static final String PROJECT_ENTITY = "Project";
+
+    private GenericDelegator delegator;
+    private String helperName;
+
+    @Before
+    public void setUp() {
+        GenericDelegator.removeGenericDelegator(DELEGATOR_NAME);
+        GenericDelegator.unlock();
+        delegator = getGenericDelegator(DELEGATOR_NAME);
+        helperName = delegator.getEntityHelperName(PROJECT_ENTITY);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionUtil.closeAndClearThreadLocalConnection();
+        assertFalse("A test left a connection session open", ConnectionSession.isOpen());
+    }
+
+    @Test
+    public void readOnlyAndAutoCommitProcessorsShouldShareTheSessionConnection() throws Exception {
+        // Set up
+        final Connection first;
+        final Connection second;
+        final ConnectionSession session = delegator.openConnectionSession();
+        try {
+            // Invoke
+            first = connectionOf(new ReadOnlySQLProcessor(helperName));
+            second = connectionOf(new AutoCommitSQLProcessor(helperName));
+
+            // Check
+            assertSame(first, second);
+            assertFalse(first.isClosed());
+            assertTrue(first.getAutoCommit());
+            delegator.countAll(PROJECT_ENTITY);
+        } finally {
+            session.close();
+        }
+        assertTrue(first.isClosed());
+    }
+
+    @Test
+    public void processorShouldReturnItsConnectionWithoutSession() throws Exception {
+        // Invoke
+        final Connection connection = connectionOf(new ReadOnlySQLProcessor(helperName));
+
+        // Check
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    public void joinedSessionShouldNotReturnTheConnectionWhenClosed() throws Exception {
+        try (ConnectionSession outer = delegator.openConnectionSession()) {
+            // Set up
+            final Connection connection = connectionOf(new ReadOnlySQLProcessor(helperName));
+
+            // Invoke
+            try (ConnectionSession inner = delegator.openConnectionSession()) {
+                assertSame(outer, inner);
+            }
+
+            // Check
+            assertTrue(ConnectionSession.isOpen());
+            assertFalse(connection.isClosed());
+            assertSame(connection, connectionOf(new ReadOnlySQLProcessor(helperName)));
+        }
+    }
+
+    @Test
+    public void localTransactionShouldUseItsOwnConnection() throws Exception {
+        final ConnectionSession session = delegator.openConnectionSession();
+        try {
+            // Set up
+            final Connection sessionConnection = connectionOf(new ReadOnlySQLProcessor(helperName));
+            final boolean began = TransactionUtil.beginLocalTransaction(helperName, -1);
+            try {
+                // Invoke
+                final SQLProcessor processor = new ReadOnlySQLProcessor(helperName);
+                final Connection connection = processor.getConnection();
+                processor.close();
+
+                // Check
+                assertSame(TransactionUtil.getLocalTransactionConnection(), connection);
+                assertNotSame(sessionConnection, connection);
+            } finally {
+                TransactionUtil.rollbackLocalTransaction(began);
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    private static Connection connectionOf(final SQLProcessor processor) throws GenericEntityException {
+        try {
+            return processor.getConnection();
+        } finally {
+            processor.close();
+        }
+    }
+}
@@ -58,4 +58,13 @@ public class TestCount {
         assertEquals("Count with no field and a where clause produces correct result", COUNT_ALL_WITH_CONDITION,
                 helper.buildCountSelectStatement(TABLE_NAME, null, WHERE_CLAUSE, false));
     }
+
+    @Test
+    public void testStampSummary() {
+        assertEquals("Stamp summary produces correct result", "SELECT MAX(last_updated), COUNT(*) FROM cwd_user",
+                helper.buildStampSummarySelectStatement(TABLE_NAME, "last_updated", null));
+        assertEquals("Stamp summary with where clause produces correct result",
+                "SELECT MAX(last_updated), COUNT(*) FROM cwd_user WHERE user_name = 'fred'",
+                helper.buildStampSummarySelectStatement(TABLE_NAME, "last_updated", WHERE_CLAUSE));
+    }
 }
@@ -0,0 +1,141 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Integration test of EntityCacheSnapshot using an in-memory database.
+ */
+public class TestEntityCacheSnapshot {
+
+    private static final String PROJECT_ENTITY = "Project";
+    private static final String ISSUE_ENTITY = "Issue";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GenericDelegator genericDelegator;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws Exception {
+        GenericDelegator.removeGenericDelegator("default");
+        GenericDelegator.unlock();
+        genericDelegator = getGenericDelegator("default");
+        genericDelegator.removeByCondition(PROJECT_ENTITY, null);
+        genericDelegator.removeByCondition(ISSUE_ENTITY, null);
+        genericDelegator.clearAllCaches();
+        snapshotFile = new File(temporaryFolder.getRoot(), "entity-cache.snapshot");
+    }
+
+    @Test
+    public void loadingMissingSnapshotShouldDoNothing() throws Exception {
+        assertEquals(0, new EntityCacheSnapshot(genericDelegator, 100, true, 60000).load(snapshotFile));
+    }
+
+    @Test
+    public void keysShouldBeReloadedFromTheDatabase() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY, projectFields(1, "ONE", 10));
+        genericDelegator.create(PROJECT_ENTITY, projectFields(2, "TWO", 20));
+        genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey());
+        genericDelegator.findByAndCache(PROJECT_ENTITY, singletonMap("key", "TWO"));
+        final EntityCacheSnapshot snapshot = new EntityCacheSnapshot(genericDelegator, 100, false, 60000);
+        assertEquals(2, snapshot.write(snapshotFile));
+        genericDelegator.clearAllCaches();
+
+        // Invoke
+        final int restored = snapshot.load(snapshotFile);
+
+        // Check
+        assertEquals(2, restored);
+        assertEquals(project, genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+        final List<GenericValue> byAnd = genericDelegator.getFromAndCache(PROJECT_ENTITY, singletonMap("key", "TWO"));
+        assertNotNull(byAnd);
+        assertEquals(1, byAnd.size());
+        assertEquals(20L, byAnd.get(0).getLong("counter").longValue());
+    }
+
+    @Test
+    public void valuesOlderThanTheMaximumAgeShouldBeFetchedAgain() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY, projectFields(1, "ONE", 10));
+        genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey());
+        final EntityCacheSnapshot snapshot = new EntityCacheSnapshot(genericDelegator, 100, true, -1);
+        snapshot.write(snapshotFile);
+        project.set("counter", 11L);
+        genericDelegator.store(project);
+
+        // Invoke
+        snapshot.load(snapshotFile);
+
+        // Check
+        assertEquals(11L, genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()).getLong("counter").longValue());
+    }
+
+    @Test
+    public void byAndListShouldNotBeRestoredIfItsRowsHaveChanged() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, projectFields(1, "ONE", 10));
+        final Map<String, ?> condition = singletonMap("counter", 10L);
+        genericDelegator.findByAndCache(PROJECT_ENTITY, condition);
+        final EntityCacheSnapshot snapshot = new EntityCacheSnapshot(genericDelegator, 100, true, 60000);
+        snapshot.write(snapshotFile);
+        genericDelegator.create(PROJECT_ENTITY, projectFields(2, "TWO", 10));
+
+        // Invoke
+        snapshot.load(snapshotFile);
+
+        // Check
+        assertNull(genericDelegator.getFromAndCache(PROJECT_ENTITY, condition));
+    }
+
+    @Test
+    public void snapshotShouldNotExceedTheMaximumNumberOfEntries() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            genericDelegator.findByPrimaryKeyCache(genericDelegator.create(PROJECT_ENTITY, projectFields(i, "P" + i, i)).getPrimaryKey());
+        }
+        assertEquals(3, new EntityCacheSnapshot(genericDelegator, 3, true, 60000).write(snapshotFile));
+    }
+
+    @Test
+    public void delegatorShouldStartLoadingItsConfiguredSnapshotOnlyWhenStarted() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY, projectFields(1, "ONE", 10));
+        genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey());
+        genericDelegator.getDelegatorInfo().cacheSnapshotLocation = snapshotFile.getPath();
+        try {
+            assertEquals(1, genericDelegator.writeCacheSnapshot());
+            genericDelegator.clearAllCaches();
+            assertNull(genericDelegator.getCacheSnapshotLoad());
+
+            // Invoke
+            genericDelegator.startCacheSnapshot();
+
+            // Check
+            assertEquals(1, genericDelegator.getCacheSnapshotLoad().get(10, SECONDS).intValue());
+            assertEquals(project, genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+        } finally {
+            genericDelegator.stopCacheSnapshot();
+            genericDelegator.getDelegatorInfo().cacheSnapshotLocation = null;
+        }
+    }
+
+    private static Map<String, Object> projectFields(final long id, final String key, final long counter) {
+        return ImmutableMap.<String, Object>of("id", id, "key", key, "counter", counter);
+    }
+}
@@ -0,0 +1,174 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.ofbiz.core.entity.EntityOperator.AND;
+import static org.ofbiz.core.entity.EntityOperator.EQUALS;
+import static org.ofbiz.core.entity.EntityOperator.GREATER_THAN;
+import static org.ofbiz.core.entity.EntityOperator.IN;
+import static org.ofbiz.core.entity.EntityOperator.LESS_THAN_EQUAL_TO;
+import static org.ofbiz.core.entity.EntityOperator.LIKE;
+import static org.ofbiz.core.entity.EntityOperator.NOT_EQUAL;
+import static org.ofbiz.core.entity.EntityOperator.OR;
+
+public class TestEntityConditionCompiler {
+
+    private ModelEntity modelEntity;
+    private ModelFieldTypeReader fieldTypes;
+    private GenericValue foo;
+    private GenericValue bar;
+    private GenericValue noName;
+
+    @Before
+    public void setUp() {
+        modelEntity = new ModelEntity();
+        modelEntity.setEntityName("Thing");
+        modelEntity.addField(field("id", "numeric"));
+        modelEntity.addField(field("name", "text"));
+        fieldTypes = mock(ModelFieldTypeReader.class);
+        final ModelFieldType numeric = fieldType("Long");
+        final ModelFieldType text = fieldType("String");
+        when(fieldTypes.getModelFieldType("numeric")).thenReturn(numeric);
+        when(fieldTypes.getModelFieldType("text")).thenReturn(text);
+        foo = value(1L, "Foo");
+        bar = value(2L, "Bar");
+        noName = value(3L, null);
+    }
+
+    @Test
+    public void comparisonsShouldHaveTheirSqlMeaning() throws Exception {
+        assertMatches(new EntityExpr("name", EQUALS, "Foo"), foo);
+        assertMatches(new EntityExpr("name", NOT_EQUAL, "Foo"), bar);
+        assertMatches(new EntityExpr("name", EQUALS, null), noName);
+        assertMatches(new EntityExpr("name", NOT_EQUAL, null), foo, bar);
+        assertMatches(new EntityExpr("id", GREATER_THAN, 1), bar, noName);
+        assertMatches(new EntityExpr("id", LESS_THAN_EQUAL_TO, 2.0d), foo, bar);
+        assertMatches(new EntityExpr("name", GREATER_THAN, "Bar"), foo);
+    }
+
+    @Test
+    public void inShouldMatchAnyElementAndCompareNumbersByValue() throws Exception {
+        assertMatches(new EntityExpr("id", IN, Arrays.asList(1, 3L, null)), foo, noName);
+        assertMatches(new EntityExpr("name", IN, ImmutableList.of("Bar", "Baz")), bar);
+        assertMatches(new EntityExpr("name", IN, "Foo"), foo);
+    }
+
+    @Test
+    public void likeShouldTreatPercentAndUnderscoreAsWildcards() throws Exception {
+        assertMatches(new EntityExpr("name", LIKE, "F%"), foo);
+        assertMatches(new EntityExpr("name", LIKE, "_a_"), bar);
+        assertMatches(new EntityExpr("name", LIKE, "%.%"));
+        assertMatches(new EntityExpr("name", true, LIKE, "b%", true), bar);
+    }
+
+    @Test
+    public void junctionsShouldCombineTheirOperands() throws Exception {
+        final EntityExpr isFoo = new EntityExpr("name", EQUALS, "Foo");
+        final EntityExpr isBar = new EntityExpr("id", EQUALS, 2L);
+        assertMatches(new EntityConditionList(ImmutableList.of(isFoo, isBar), OR), foo, bar);
+        assertMatches(new EntityExprList(ImmutableList.of(isFoo, isBar), AND));
+        assertMatches(new EntityExpr(isFoo, OR, isBar), foo, bar);
+        assertMatches(new EntityConditionList(ImmutableList.<EntityCondition>of(), AND), foo, bar, noName);
+        final Map<String, Object> fields = new HashMap<String, Object>();
+        fields.put("id", 3L);
+        fields.put("name", null);
+        assertMatches(new EntityFieldMap(fields, AND), noName);
+        assertMatches(null, foo, bar, noName);
+    }
+
+    @Test
+    public void conditionsWithoutInMemoryMeaningShouldNotBeCompilable() {
+        assertFalse(EntityConditionCompiler.isCompilable(new EntityWhereString("id = 1")));
+        assertFalse(EntityConditionCompiler.isCompilable(new EntityExpr("id", IN, new EntityWhereString("select 1"))));
+        assertFalse(EntityConditionCompiler.isCompilable(new EntityConditionList(ImmutableList.of(
+                new EntityExpr("id", EQUALS, EntityConditionPlaceholder.placeholder("id"))), AND)));
+        assertTrue(EntityConditionCompiler.isCompilable(new EntityFieldMap(ImmutableMap.of("id", 1L), OR)));
+    }
+
+    @Test
+    public void constantsShouldBeConvertedToTheTypeOfTheirFieldWhenGivenTheFieldTypes() throws Exception {
+        assertMatchesConverted(new EntityExpr("id", EQUALS, "1"), foo);
+        assertMatchesConverted(new EntityExpr("id", GREATER_THAN, " 1 "), bar, noName);
+        assertMatchesConverted(new EntityExpr("id", LESS_THAN_EQUAL_TO, "2.5"), foo, bar);
+        assertMatchesConverted(new EntityExpr("id", IN, Arrays.asList("1", 3L, null)), foo, noName);
+        assertMatchesConverted(new EntityFieldMap(ImmutableMap.of("id", "2"), AND), bar);
+        assertMatchesConverted(new EntityExpr("name", LIKE, "F%"), foo);
+    }
+
+    @Test
+    public void constantsThatCannotBeConvertedShouldNotBeCompiled() throws Exception {
+        assertNotConverted(new EntityExpr("id", EQUALS, "one"));
+        assertNotConverted(new EntityExpr("name", EQUALS, 1L));
+        assertNotConverted(new EntityExpr("id", IN, Arrays.asList(1L, "two")));
+        assertNotConverted(new EntityExpr("id", LIKE, "1%"));
+    }
+
+    @Test(expected = GenericModelException.class)
+    public void unknownFieldShouldBeRejected() throws Exception {
+        EntityConditionCompiler.compile(modelEntity, new EntityExpr("colour", EQUALS, "red"));
+    }
+
+    private void assertMatches(final EntityCondition condition, final GenericValue... expected) throws Exception {
+        final Predicate<GenericEntity> predicate = EntityConditionCompiler.compile(modelEntity, condition);
+        final List<GenericValue> matched = EntityUtil.filterByCondition(Arrays.asList(foo, bar, noName), condition);
+        for (GenericValue value : Arrays.asList(foo, bar, noName)) {
+            assertEquals(condition + " on " + value, Arrays.asList(expected).contains(value), predicate.test(value));
+        }
+        assertEquals(Arrays.asList(expected), matched);
+    }
+
+    private void assertMatchesConverted(final EntityCondition condition, final GenericValue... expected) throws Exception {
+        final Predicate<GenericEntity> predicate = EntityConditionCompiler.compile(modelEntity, fieldTypes, condition);
+        for (GenericValue value : Arrays.asList(foo, bar, noName)) {
+            assertEquals(condition + " on " + value, Arrays.asList(expected).contains(value), predicate.test(value));
+        }
+    }
+
+    private void assertNotConverted(final EntityCondition condition) throws Exception {
+        try {
+            EntityConditionCompiler.compile(modelEntity, fieldTypes, condition);
+            fail("Expected " + condition + " not to be compiled");
+        } catch (UnsupportedOperationException expected) {
+            // only the database can evaluate it
+        }
+    }
+
+    private GenericValue value(final long id, final String name) {
+        final Map<String, Object> fields = new HashMap<String, Object>();
+        fields.put("id", id);
+        fields.put("name", name);
+        return new GenericValue(modelEntity, fields);
+    }
+
+    private static ModelField field(final String name, final String type) {
+        final ModelField field = new ModelField();
+        field.setName(name);
+        field.setType(type);
+        return field;
+    }
+
+    private static ModelFieldType fieldType(final String javaType) {
+        final ModelFieldType fieldType = mock(ModelFieldType.class);
+        when(fieldType.getJavaType()).thenReturn(javaType);
+        return fieldType;
+    }
+}
@@ -0,0 +1,226 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.ofbiz.core.entity.jdbc.SQLProcessor;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ofbiz.core.entity.EntityFindOptions.findOptions;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Tests the forward only mode of EntityListIterator.
+ */
+public class TestEntityListIterator {
+
+    private static final String PROJECT_ENTITY = "Project";
+
+    private GenericDelegator genericDelegator;
+
+    @Before
+    public void setUp() throws Exception {
+        GenericDelegator.removeGenericDelegator("default");
+        GenericDelegator.unlock();
+        genericDelegator = getGenericDelegator("default");
+        genericDelegator.removeByCondition(PROJECT_ENTITY, null);
+        for (long id = 1; id <= 5; id++) {
+            genericDelegator.create(PROJECT_ENTITY, ImmutableMap.<String, Object>of("id", id, "key", "P" + id, "counter", id));
+        }
+    }
+
+    @Test
+    public void forwardOnlyHasNextShouldNotAskTheResultSetForItsPosition() throws Exception {
+        // Set up
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, false);
+        final SQLProcessor sqlProcessor = mock(SQLProcessor.class);
+        when(sqlProcessor.getResultSet()).thenReturn(resultSet);
+        final EntityListIterator iterator = new EntityListIterator(
+                sqlProcessor, new ModelEntity(), Collections.<ModelField>emptyList(), null, true);
+
+        // Invoke
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertTrue(iterator.hasNext());
+            iterator.next();
+            count++;
+        }
+
+        // Check
+        assertEquals(2, count);
+        assertNull(iterator.next());
+        verify(resultSet, never()).isLast();
+        verify(resultSet, never()).isAfterLast();
+        verify(resultSet, never()).isBeforeFirst();
+        verify(resultSet, never()).isFirst();
+    }
+
+    @Test
+    public void defaultFindOptionsShouldGiveAForwardOnlyIterator() throws Exception {
+        final EntityListIterator forwardOnly = find(null);
+        final EntityListIterator scrollable = find(findOptions().scrollInsensitive());
+        try {
+            assertTrue(forwardOnly.isForwardOnly());
+            assertFalse(scrollable.isForwardOnly());
+        } finally {
+            forwardOnly.close();
+            scrollable.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyIteratorShouldReturnEveryRowOnce() throws Exception {
+        final EntityListIterator iterator = find(null);
+        try {
+            for (long id = 1; id <= 5; id++) {
+                assertTrue(iterator.hasNext());
+                final GenericValue value = iterator.next();
+                assertEquals(id, value.getLong("id").longValue());
+                assertSame(value, iterator.currentGenericValue());
+                assertEquals(id, iterator.currentIndex());
+            }
+            assertFalse(iterator.hasNext());
+            assertNull(iterator.next());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyPartialListShouldSkipForwards() throws Exception {
+        final EntityListIterator iterator = find(null);
+        try {
+            final List<GenericValue> values = iterator.getPartialList(2, 2);
+            assertEquals(2, values.size());
+            assertEquals(2L, values.get(0).getLong("id").longValue());
+            assertEquals(3L, values.get(1).getLong("id").longValue());
+            assertEquals(2, iterator.getPartialList(4, 10).size());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyCompleteListShouldIncludeARowAlreadyReadAhead() throws Exception {
+        final EntityListIterator iterator = find(null);
+        try {
+            assertTrue(iterator.hasNext());
+            assertEquals(5, iterator.getCompleteList().size());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyPartialListShouldRepositionAfterReadingAhead() throws Exception {
+        final EntityListIterator iterator = forwardOnlyOverScrollableResultSet();
+        try {
+            readIds(iterator, 3);
+            assertTrue(iterator.hasNext());
+
+            final List<GenericValue> values = iterator.getPartialList(1, 2);
+            assertEquals(2, values.size());
+            assertEquals(1L, values.get(0).getLong("id").longValue());
+            assertEquals(2L, values.get(1).getLong("id").longValue());
+            assertEquals(3L, iterator.next().getLong("id").longValue());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyPreviousShouldStepBackOverTheRowReadAhead() throws Exception {
+        final EntityListIterator iterator = forwardOnlyOverScrollableResultSet();
+        try {
+            readIds(iterator, 3);
+            assertTrue(iterator.hasNext());
+
+            assertEquals(2L, iterator.previous().getLong("id").longValue());
+            assertEquals(2L, iterator.currentGenericValue().getLong("id").longValue());
+            assertEquals(2, iterator.currentIndex());
+            assertEquals(3L, iterator.next().getLong("id").longValue());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void forwardOnlyIteratorShouldCarryOnFromWhereItIsMoved() throws Exception {
+        final EntityListIterator iterator = forwardOnlyOverScrollableResultSet();
+        try {
+            assertTrue(iterator.hasNext());
+
+            assertTrue(iterator.absolute(4));
+            assertEquals(4L, iterator.currentGenericValue().getLong("id").longValue());
+            assertEquals(4, iterator.currentIndex());
+            assertEquals(5L, iterator.next().getLong("id").longValue());
+            assertFalse(iterator.hasNext());
+
+            assertTrue(iterator.first());
+            assertEquals(1L, iterator.currentGenericValue().getLong("id").longValue());
+            assertEquals(2L, iterator.next().getLong("id").longValue());
+
+            assertTrue(iterator.last());
+            assertEquals(5L, iterator.currentGenericValue().getLong("id").longValue());
+            assertFalse(iterator.hasNext());
+
+            iterator.afterLast();
+            assertEquals(5L, iterator.previous().getLong("id").longValue());
+
+            iterator.beforeFirst();
+            assertEquals(1L, iterator.next().getLong("id").longValue());
+            assertEquals(5, iterator.getCompleteList().size());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test(expected = GenericEntityException.class)
+    public void forwardOnlyResultSetShouldRefuseToMoveBackwards() throws Exception {
+        final EntityListIterator iterator = find(null);
+        try {
+            readIds(iterator, 3);
+            assertTrue(iterator.hasNext());
+            iterator.getPartialList(1, 2);
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private static void readIds(final EntityListIterator iterator, final int count) {
+        for (long id = 1; id <= count; id++) {
+            assertEquals(id, iterator.next().getLong("id").longValue());
+        }
+    }
+
+    /**
+     * A forward only iterator can be moved about when the ResultSet beneath it allows it.
+     */
+    private EntityListIterator forwardOnlyOverScrollableResultSet() throws GenericEntityException {
+        final EntityListIterator scrollable = find(findOptions().scrollInsensitive());
+        final EntityListIterator iterator = new EntityListIterator(scrollable.sqlp, scrollable.modelEntity,
+                scrollable.selectFields, scrollable.modelFieldTypeReader, true);
+        iterator.setDelegator(genericDelegator);
+        return iterator;
+    }
+
+    private EntityListIterator find(final EntityFindOptions options) throws GenericEntityException {
+        return genericDelegator.findListIteratorByCondition(PROJECT_ENTITY, null, null, null, singletonList("id"), options);
+    }
+}
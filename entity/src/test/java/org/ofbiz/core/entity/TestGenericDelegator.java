@@ -8,12 +8,15 @@ import org.hamcrest.TypeSafeMatcher;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.ofbiz.core.entity.cache.CoalescingCacheLoader;
 import org.ofbiz.core.entity.config.DatasourceInfo;
 import org.ofbiz.core.entity.jdbc.dbtype.DatabaseType;
 import org.ofbiz.core.entity.jdbc.sql.escape.SqlEscapeHelper;
 import org.ofbiz.core.entity.model.ModelEntity;
 import org.ofbiz.core.util.Debug;
+import org.ofbiz.core.util.UtilCache;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -42,6 +45,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.is;
@@ -55,6 +59,9 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.ofbiz.core.entity.EntityOperator.EQUALS;
 import static org.ofbiz.core.entity.EntityOperator.LIKE;
@@ -71,6 +78,7 @@ public class TestGenericDelegator {
     private static final String ENTITY_GROUP_NAME = "default";
     private static final String ID_FIELD = "id";
     private static final String ISSUE_COUNT_FIELD = "counter";
+    private static final String COMPONENT_ENTITY = "Component";
     private static final String ISSUE_ENTITY = "Issue";
     private static final String ISSUE_KEY_FIELD = "key";
     private static final String PROJECT_ENTITY = "Project";
@@ -80,7 +88,7 @@ public class TestGenericDelegator {
     private static final String SEQUENCE_ENTITY = "SequenceValueItem";
 
     // Be sure to list all entities in the "default" group here
-    private static final String[] ENTITIES = {ISSUE_ENTITY, SEQUENCE_ENTITY, PROJECT_ENTITY};
+    private static final String[] ENTITIES = {COMPONENT_ENTITY, ISSUE_ENTITY, SEQUENCE_ENTITY, PROJECT_ENTITY};
     private static final int PROJECT_ID_1 = 23;
 
     private GenericDelegator genericDelegator;
@@ -103,6 +111,7 @@ public class TestGenericDelegator {
     private void resetDatabase() throws Exception {
         genericDelegator.removeByCondition(PROJECT_ENTITY, null);
         genericDelegator.removeByCondition(ISSUE_ENTITY, null);
+        genericDelegator.removeByCondition(COMPONENT_ENTITY, null);
     }
 
     @Test
@@ -183,7 +192,7 @@ public class TestGenericDelegator {
         for (final String entityName : ENTITIES) {
             assertThat(entities, hasEntry(is(entityName), modelEntity(entityName)));
         }
-        assertEquals(3, entities.size());
+        assertEquals(ENTITIES.length, entities.size());
     }
 
     @Test
@@ -446,6 +455,499 @@ public class TestGenericDelegator {
         assertNull(genericDelegator.getFromAndCache(ISSUE_ENTITY, null));
     }
 
+    @Test
+    public void findByPrimaryKeyCacheShouldFallBackToOffHeapCacheAfterHeapCacheMiss() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setOffHeapCache(true);
+        try {
+            final GenericValue project = genericDelegator.create(PROJECT_ENTITY, getProjectFields(123, "PROJ", 456));
+            assertNotNull(genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey()));
+            genericDelegator.getPrimaryKeyCache().clear();
+            final long offHeapHits = genericDelegator.getOffHeapPrimaryKeyCache().getHitCount();
+
+            // Invoke
+            final GenericValue cachedProject = genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey());
+
+            // Check
+            assertEquals(offHeapHits + 1, genericDelegator.getOffHeapPrimaryKeyCache().getHitCount());
+            assertProject(123, "PROJ", 456, cachedProject);
+            assertFalse(cachedProject.isModified());
+            assertSame(cachedProject, genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+        } finally {
+            projectModel.setOffHeapCache(false);
+        }
+    }
+
+    @Test
+    public void storingValueShouldClearItFromOffHeapCache() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setOffHeapCache(true);
+        try {
+            final GenericValue project = genericDelegator.create(PROJECT_ENTITY, getProjectFields(123, "PROJ", 456));
+            genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey());
+            assertTrue(genericDelegator.getOffHeapPrimaryKeyCache().containsKey(project.getPrimaryKey()));
+
+            // Invoke
+            project.set(ISSUE_COUNT_FIELD, 457L);
+            genericDelegator.store(project);
+
+            // Check
+            assertFalse(genericDelegator.getOffHeapPrimaryKeyCache().containsKey(project.getPrimaryKey()));
+            assertProject(123, "PROJ", 457, genericDelegator.findByPrimaryKeyCache(project.getPrimaryKey()));
+        } finally {
+            projectModel.setOffHeapCache(false);
+        }
+    }
+
+    @Test
+    public void removeAllShouldDeletePrimaryKeysInBulkAndClearTheirCacheLines() throws Exception {
+        // Set up, with more keys than fit in one IN list
+        final List<GenericValue> projects = new ArrayList<GenericValue>();
+        for (long id = 1; id <= 1200; id++) {
+            projects.add(genericDelegator.makeValue(PROJECT_ENTITY, getProjectFields(id, "P" + id, id % 3)));
+        }
+        genericDelegator.storeAll(projects);
+        final GenericPK cachedKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 7L));
+        assertNotNull(genericDelegator.findByPrimaryKeyCache(cachedKey));
+        final List<GenericEntity> toRemove = new ArrayList<GenericEntity>();
+        for (long id = 1; id <= 1100; id++) {
+            toRemove.add(genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, id)));
+        }
+        toRemove.add(genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 5000L)));
+        toRemove.add(genericDelegator.makeValue(PROJECT_ENTITY, singletonMap(ISSUE_COUNT_FIELD, 0L)));
+
+        // Invoke
+        final int removed = genericDelegator.removeAll(toRemove);
+
+        // Check, the last 100 projects having ids 1101 to 1200, of which 34 have a count of 0
+        assertEquals(1100 + 34, removed);
+        assertEquals(100 - 34, genericDelegator.countAll(PROJECT_ENTITY));
+        assertNull(genericDelegator.getPrimaryKeyCache().get(cachedKey));
+        assertNull(genericDelegator.findByPrimaryKeyCache(cachedKey));
+    }
+
+    @Test
+    public void removeByConditionInSlicesShouldRemoveMatchingRowsASliceAtATime() throws Exception {
+        // Set up
+        final List<GenericValue> projects = new ArrayList<GenericValue>();
+        for (long id = 1; id <= 250; id++) {
+            projects.add(genericDelegator.makeValue(PROJECT_ENTITY, getProjectFields(id, "P" + id, id % 2)));
+        }
+        genericDelegator.storeAll(projects);
+        final GenericPK cachedKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 2L));
+        assertNotNull(genericDelegator.findByPrimaryKeyCache(cachedKey));
+        final List<Integer> progress = new ArrayList<Integer>();
+        final EntityPurgeOptions options = EntityPurgeOptions.purgeOptions()
+                .sliceSize(40)
+                .listener((entityName, sliceRemoved, totalRemoved, sliceMillis) -> progress.add(totalRemoved));
+
+        // Invoke
+        final int removed = genericDelegator.removeByConditionInSlices(
+                PROJECT_ENTITY, new EntityExpr(ISSUE_COUNT_FIELD, EQUALS, 0L), options);
+
+        // Check
+        assertEquals(125, removed);
+        assertEquals(asList(40, 80, 120, 125), progress);
+        assertEquals(125, genericDelegator.countAll(PROJECT_ENTITY));
+        assertNull(genericDelegator.findByPrimaryKeyCache(cachedKey));
+    }
+
+    @Test
+    public void removeByConditionInSlicesShouldCommitEachSlice() throws Exception {
+        // Set up
+        final List<GenericValue> projects = new ArrayList<GenericValue>();
+        for (long id = 1; id <= 100; id++) {
+            projects.add(genericDelegator.makeValue(PROJECT_ENTITY, getProjectFields(id, "P" + id, 0)));
+        }
+        genericDelegator.storeAll(projects);
+        final List<Long> remaining = new ArrayList<Long>();
+        final EntityPurgeOptions options = EntityPurgeOptions.purgeOptions()
+                .sliceSize(30)
+                .listener((entityName, sliceRemoved, totalRemoved, sliceMillis) -> {
+                    assertFalse(TransactionUtil.isTransactionActive());
+                    try {
+                        // read on a connection of its own, so only sees what has been committed
+                        remaining.add((long) genericDelegator.countAll(PROJECT_ENTITY));
+                    } catch (GenericEntityException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+
+        // Invoke
+        genericDelegator.removeByConditionInSlices(PROJECT_ENTITY, null, options);
+
+        // Check
+        assertEquals(asList(70L, 40L, 10L, 0L), remaining);
+    }
+
+    @Test
+    public void removeByConditionInSlicesShouldRefuseToRunInsideATransaction() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 0));
+        final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+        try {
+            // Invoke
+            genericDelegator.removeByConditionInSlices(PROJECT_ENTITY, null, null);
+            fail("Expected a GenericTransactionException");
+        } catch (GenericTransactionException expected) {
+            // Check
+            assertEquals(1, genericDelegator.countAll(PROJECT_ENTITY));
+        } finally {
+            TransactionUtil.rollbackLocalTransaction(began);
+        }
+    }
+
+    @Test
+    public void sliceSizeShouldAdaptTowardsTheTargetDurationWithinItsRange() {
+        final EntityPurgeOptions fixed = new EntityPurgeOptions();
+        assertEquals(100, GenericDelegator.nextSliceSize(100, 5000, fixed));
+
+        final EntityPurgeOptions adaptive = new EntityPurgeOptions().targetSliceMillis(100).sliceSizeRange(10, 150);
+        assertEquals(80, GenericDelegator.nextSliceSize(100, 125, adaptive));
+        assertEquals(50, GenericDelegator.nextSliceSize(100, 5000, adaptive));
+        assertEquals(150, GenericDelegator.nextSliceSize(100, 0, adaptive));
+        assertEquals(10, GenericDelegator.nextSliceSize(12, 5000, adaptive));
+    }
+
+    @Test
+    public void cacheMissInATransactionShouldNotWaitForAnotherThreadsLoad() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final GenericPK primaryKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 1L));
+        genericDelegator.clearAllCaches();
+        final CoalescingCacheLoader<GenericPK, GenericValue> loader = genericDelegator.getPrimaryKeyCacheLoader();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<GenericValue> otherLoad = holdLoad(loader, primaryKey, release);
+        final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+        try {
+            final GenericValue project = genericDelegator.findByPrimaryKey(primaryKey);
+            project.set(ISSUE_COUNT_FIELD, 2L);
+            project.store();
+            genericDelegator.clearAllCaches();
+
+            // Invoke
+            final GenericValue found = genericDelegator.findByPrimaryKeyCache(primaryKey);
+
+            // Check
+            assertProject(1, "ONE", 2, found);
+            assertEquals(0, loader.getCoalescedCount());
+            assertEquals(0, loader.getTimeoutCount());
+        } finally {
+            TransactionUtil.rollbackLocalTransaction(began);
+            release.countDown();
+            otherLoad.get();
+            genericDelegator.clearAllCaches();
+        }
+    }
+
+    @Test
+    public void cacheMissAfterClearingTheLineShouldNotJoinALoadThatBeganBefore() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final GenericPK primaryKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 1L));
+        final CoalescingCacheLoader<GenericPK, GenericValue> loader = genericDelegator.getPrimaryKeyCacheLoader();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<GenericValue> staleLoad = holdLoad(loader, primaryKey, release);
+        try {
+            final GenericValue project = genericDelegator.findByPrimaryKey(primaryKey);
+            project.set(ISSUE_COUNT_FIELD, 2L);
+            project.store();
+
+            // Invoke
+            final GenericValue found = genericDelegator.findByPrimaryKeyCache(primaryKey);
+
+            // Check
+            assertProject(1, "ONE", 2, found);
+            assertEquals(0, loader.getCoalescedCount());
+            assertEquals(0, loader.getTimeoutCount());
+        } finally {
+            release.countDown();
+            staleLoad.get();
+        }
+    }
+
+    @Test
+    public void orderedCacheMissShouldNotShareAnotherThreadsLoad() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final Map<String, Object> fields = singletonMap(PROJECT_KEY_FIELD, "ONE");
+        final CoalescingCacheLoader<GenericPK, List<GenericValue>> loader = genericDelegator.getAndCacheLoader();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<List<GenericValue>> otherLoad = holdLoad(loader, genericDelegator.makePK(PROJECT_ENTITY, fields), release);
+        try {
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByAndCache(PROJECT_ENTITY, fields, singletonList(ID_FIELD));
+
+            // Check
+            assertEquals(1, found.size());
+            assertEquals(0, loader.getCoalescedCount());
+            assertEquals(0, loader.getTimeoutCount());
+        } finally {
+            release.countDown();
+            otherLoad.get();
+        }
+    }
+
+    /**
+     * Starts a load of the given key on another thread that stays in progress until released, and returns null.
+     */
+    private static <K, V> Future<V> holdLoad(final CoalescingCacheLoader<K, V> loader, final K key, final CountDownLatch release)
+            throws InterruptedException {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<V> load = executor.submit(() -> loader.load(key, 60000, publisher -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+            return null;
+        }));
+        executor.shutdown();
+        assertTrue(loading.await(10, SECONDS));
+        return load;
+    }
+
+    @Test
+    public void primaryKeyNotFoundShouldBeCachedUntilValueIsCreated() throws Exception {
+        // Set up
+        genericDelegator.getDelegatorInfo().notFoundCacheExpireTime = 60000;
+        try {
+            GenericDelegator.removeGenericDelegator(DELEGATOR_NAME);
+            genericDelegator = getGenericDelegator(DELEGATOR_NAME);
+            final GenericPK primaryKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 42L));
+            assertNull(genericDelegator.findByPrimaryKeyCache(primaryKey));
+            final UtilCache<GenericPK, Boolean> notFoundCache = genericDelegator.getNotFoundPrimaryKeyCache();
+            final long notFoundHits = notFoundCache.getHitCount();
+            final long foundHits = genericDelegator.getPrimaryKeyCache().getHitCount();
+
+            // Invoke
+            final GenericValue notFound = genericDelegator.findByPrimaryKeyCache(primaryKey);
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(42, "FOO", 1));
+            final GenericValue found = genericDelegator.findByPrimaryKeyCache(primaryKey);
+
+            // Check
+            assertNull(notFound);
+            assertEquals(notFoundHits + 1, notFoundCache.getHitCount());
+            assertEquals(foundHits, genericDelegator.getPrimaryKeyCache().getHitCount());
+            assertProject(42, "FOO", 1, found);
+            assertFalse(genericDelegator.isInNotFoundPrimaryKeyCache(primaryKey));
+        } finally {
+            genericDelegator.getDelegatorInfo().notFoundCacheExpireTime = 0;
+            GenericDelegator.removeGenericDelegator(DELEGATOR_NAME);
+        }
+    }
+
+    @Test
+    public void transactionIdentityMapShouldHoldFindsAndWritesUntilTransactionEnds() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final GenericPK primaryKey = genericDelegator.makePK(PROJECT_ENTITY, singletonMap(ID_FIELD, 1L));
+        assertFalse(genericDelegator.enableTransactionIdentityMap());
+        final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+        try {
+            assertTrue(genericDelegator.enableTransactionIdentityMap());
+            assertProject(1, "ONE", 1, genericDelegator.findByPrimaryKey(primaryKey));
+            assertEquals(1, genericDelegator.findByAnd(PROJECT_ENTITY, singletonMap(PROJECT_KEY_FIELD, "ONE")).size());
+            TransactionUtil.getLocalTransactionConnection().createStatement()
+                    .executeUpdate("UPDATE project SET pcounter = 5 WHERE id = 1");
+
+            // Invoke
+            final GenericValue held = genericDelegator.findByPrimaryKey(primaryKey);
+            held.set(ISSUE_COUNT_FIELD, 2L);
+            final GenericValue heldAgain = genericDelegator.findByPrimaryKey(primaryKey);
+            genericDelegator.store(held);
+            final GenericValue written = genericDelegator.findByPrimaryKey(primaryKey);
+            final List<GenericValue> writtenByAnd = genericDelegator.findByAnd(PROJECT_ENTITY, singletonMap(PROJECT_KEY_FIELD, "ONE"));
+
+            // Check
+            assertProject(1, "ONE", 1, heldAgain);
+            assertProject(1, "ONE", 2, written);
+            assertProject(1, "ONE", 2, writtenByAnd.get(0));
+        } finally {
+            TransactionUtil.commitLocalTransaction(began);
+        }
+        assertFalse(genericDelegator.enableTransactionIdentityMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deferredCacheClearingShouldBeSentAsOneBatchAfterCommit() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final GenericPK primaryKey = project.getPrimaryKey();
+        final DistributedCacheClear distributedCacheClear = mock(DistributedCacheClear.class);
+        genericDelegator.distributedCacheClear = distributedCacheClear;
+        genericDelegator.getDelegatorInfo().deferCacheClear = true;
+        try {
+            final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+            try {
+                // Invoke
+                project.set(ISSUE_COUNT_FIELD, 2L);
+                genericDelegator.store(project);
+                genericDelegator.store(project);
+                genericDelegator.removeByPrimaryKey(primaryKey);
+                // as a concurrent reader would, before the commit
+                genericDelegator.getPrimaryKeyCache().put(primaryKey, new GenericValue(project));
+                verifyZeroInteractions(distributedCacheClear);
+            } finally {
+                TransactionUtil.commitLocalTransaction(began);
+            }
+
+            // Check
+            assertNull(genericDelegator.getFromPrimaryKeyCache(primaryKey));
+            final ArgumentCaptor<Collection> values = ArgumentCaptor.forClass(Collection.class);
+            final ArgumentCaptor<Collection> primaryKeys = ArgumentCaptor.forClass(Collection.class);
+            final ArgumentCaptor<Collection> dummyPKs = ArgumentCaptor.forClass(Collection.class);
+            verify(distributedCacheClear).distributedClearCacheLines(values.capture(), primaryKeys.capture(), dummyPKs.capture());
+            verifyNoMoreInteractions(distributedCacheClear);
+            // the by and lists holding the value as it was before the transaction need clearing too
+            final GenericValue original = genericDelegator.makeValue(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+            assertEquals(asList(project, original), new ArrayList<Object>(values.getValue()));
+            assertEquals(singletonList(primaryKey), new ArrayList<Object>(primaryKeys.getValue()));
+            assertTrue(dummyPKs.getValue().isEmpty());
+        } finally {
+            genericDelegator.getDelegatorInfo().deferCacheClear = false;
+        }
+    }
+
+    @Test
+    public void deferredCacheClearingShouldNotBeSentAfterRollback() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "ONE", 1));
+        final DistributedCacheClear distributedCacheClear = mock(DistributedCacheClear.class);
+        genericDelegator.distributedCacheClear = distributedCacheClear;
+        genericDelegator.getDelegatorInfo().deferCacheClear = true;
+        try {
+            final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+            try {
+                // Invoke
+                project.set(ISSUE_COUNT_FIELD, 2L);
+                genericDelegator.store(project);
+            } finally {
+                TransactionUtil.rollbackLocalTransaction(began);
+            }
+
+            // Check
+            verifyZeroInteractions(distributedCacheClear);
+        } finally {
+            genericDelegator.getDelegatorInfo().deferCacheClear = false;
+        }
+    }
+
+    @Test
+    public void findAndCountByConditionShouldFilterAllCacheWhenEnabled() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setFindFromAllCache(true);
+        try {
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "FOO", 100));
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(2, "BAR", 500));
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(3, "BAZ", 600));
+            assertEquals(3, genericDelegator.findAllCache(PROJECT_ENTITY).size());
+            // remove the rows behind the delegator's back, so that only the cache can still find them
+            deleteAllProjectsWithJdbc();
+            final EntityCondition condition = new EntityExpr(ISSUE_COUNT_FIELD, EntityOperator.GREATER_THAN_EQUAL_TO, 500);
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByCondition(PROJECT_ENTITY, condition, null, singletonList("key"));
+            final int count = genericDelegator.countByCondition(PROJECT_ENTITY, null, condition, null);
+
+            // Check
+            assertEquals(2, found.size());
+            assertProject(2, "BAR", 500, found.get(0));
+            assertProject(3, "BAZ", 600, found.get(1));
+            assertNotSame(genericDelegator.findAllCache(PROJECT_ENTITY).get(1), found.get(0));
+            assertEquals(2, count);
+        } finally {
+            projectModel.setFindFromAllCache(false);
+            genericDelegator.getAllCache().clear();
+        }
+    }
+
+    @Test
+    public void findByConditionShouldQueryDatabaseWhenConditionCannotBeEvaluatedInMemory() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setFindFromAllCache(true);
+        try {
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "FOO", 100));
+            assertEquals(1, genericDelegator.findAllCache(PROJECT_ENTITY).size());
+            deleteAllProjectsWithJdbc();
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByCondition(PROJECT_ENTITY,
+                    new EntityWhereString("pcounter = 100"), null, null);
+
+            // Check
+            assertEquals(0, found.size());
+        } finally {
+            projectModel.setFindFromAllCache(false);
+            genericDelegator.getAllCache().clear();
+        }
+    }
+
+    @Test
+    public void findByConditionShouldConvertConstantsToTheFieldTypeWhenFilteringAllCache() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setFindFromAllCache(true);
+        try {
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "FOO", 100));
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(2, "BAR", 500));
+            assertEquals(2, genericDelegator.findAllCache(PROJECT_ENTITY).size());
+            deleteAllProjectsWithJdbc();
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByCondition(PROJECT_ENTITY,
+                    new EntityExpr(ISSUE_COUNT_FIELD, EntityOperator.EQUALS, "500"), null, null);
+
+            // Check
+            assertEquals(1, found.size());
+            assertProject(2, "BAR", 500, found.get(0));
+        } finally {
+            projectModel.setFindFromAllCache(false);
+            genericDelegator.getAllCache().clear();
+        }
+    }
+
+    @Test
+    public void findByConditionInATransactionShouldNotFillTheAllCache() throws Exception {
+        // Set up
+        final ModelEntity projectModel = genericDelegator.getModelEntity(PROJECT_ENTITY);
+        projectModel.setFindFromAllCache(true);
+        final boolean began = TransactionUtil.beginLocalTransaction(genericDelegator.getEntityHelperName(PROJECT_ENTITY), -1);
+        try {
+            genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "FOO", 100));
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByCondition(PROJECT_ENTITY,
+                    new EntityExpr(ISSUE_COUNT_FIELD, EntityOperator.EQUALS, 100L), null, null);
+            final int count = genericDelegator.countByCondition(PROJECT_ENTITY, null, null, null);
+
+            // Check
+            assertEquals(1, found.size());
+            assertEquals(1, count);
+            assertNull(genericDelegator.getFromAllCache(PROJECT_ENTITY));
+        } finally {
+            TransactionUtil.rollbackLocalTransaction(began);
+            projectModel.setFindFromAllCache(false);
+            genericDelegator.getAllCache().clear();
+        }
+    }
+
+    private void deleteAllProjectsWithJdbc() throws Exception {
+        try (Connection connection = ConnectionFactory.getConnection(genericDelegator.getEntityHelperName(PROJECT_ENTITY))) {
+            connection.createStatement().executeUpdate("DELETE FROM project");
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
     @Test
     public void makeValuesShouldReturnNullForNullXmlDocument() {
         assertNull(genericDelegator.makeValues(null));
@@ -533,6 +1035,25 @@ public class TestGenericDelegator {
         assertProject(24, "BAR", 568, matchingProjects.get(1));
     }
 
+    @Test
+    public void storeAllShouldInsertNewRowsAndUpdateOnlyTheGivenFieldsOfExistingRows() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, getProjectFields(1, "FOO", 10));
+        final GenericValue existingProject = genericDelegator.makeValue(PROJECT_ENTITY,
+                ImmutableMap.<String, Object>of(ID_FIELD, 1L, ISSUE_COUNT_FIELD, 20L));
+        final GenericValue newProject = genericDelegator.makeValue(PROJECT_ENTITY, getProjectFields(2, "BAR", 30));
+
+        // Invoke
+        final int stored = genericDelegator.storeAll(asList(existingProject, newProject));
+
+        // Check
+        assertEquals(2, stored);
+        assertProject(1, "FOO", 20, genericDelegator.findByPrimaryKey(PROJECT_ENTITY, singletonMap(ID_FIELD, 1L)));
+        assertProject(2, "BAR", 30, genericDelegator.findByPrimaryKey(PROJECT_ENTITY, singletonMap(ID_FIELD, 2L)));
+        assertFalse(existingProject.isModified());
+        assertFalse(newProject.isModified());
+    }
+
     @Test
     public void shouldBeAbleToFindUsingNullSelectAndOrderByColumns() throws Exception {
         // Set up
@@ -680,6 +1201,144 @@ public class TestGenericDelegator {
         assertFalse("Duplicate sequence id returned", duplicateFound.get());
     }
 
+    @Test
+    public void cachedListShouldBeKeptIfItsStampsAreUnchanged() throws Exception {
+        // Set up
+        genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 10, "A"));
+        final Map<String, ?> condition = singletonMap("project", 10L);
+        final long originalInterval = genericDelegator.getDelegatorInfo().cacheValidationInterval;
+        genericDelegator.getDelegatorInfo().cacheValidationInterval = 1;
+        try {
+            genericDelegator.findByAndCache(COMPONENT_ENTITY, condition);
+            final List<GenericValue> cached = genericDelegator.getFromAndCache(COMPONENT_ENTITY, condition);
+            Thread.sleep(5);
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByAndCache(COMPONENT_ENTITY, condition);
+
+            // Check
+            assertSame(cached, found);
+        } finally {
+            genericDelegator.getDelegatorInfo().cacheValidationInterval = originalInterval;
+        }
+    }
+
+    @Test
+    public void cachedByAndListShouldBeReloadedIfRowsAreAddedBehindTheCache() throws Exception {
+        // Set up
+        genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 10, "A"));
+        final Map<String, ?> condition = singletonMap("project", 10L);
+        final long originalInterval = genericDelegator.getDelegatorInfo().cacheValidationInterval;
+        genericDelegator.getDelegatorInfo().cacheValidationInterval = 1;
+        try {
+            assertEquals(1, genericDelegator.findByAndCache(COMPONENT_ENTITY, condition).size());
+            // as if another node had inserted the row, so that nothing is cleared from this node's caches
+            final GenericValue otherComponent = genericDelegator.makeValue(COMPONENT_ENTITY, componentFields(2, 10, "B"));
+            genericDelegator.getEntityHelper(COMPONENT_ENTITY).create(otherComponent);
+            Thread.sleep(5);
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findByAndCache(COMPONENT_ENTITY, condition);
+
+            // Check
+            assertEquals(2, found.size());
+        } finally {
+            genericDelegator.getDelegatorInfo().cacheValidationInterval = originalInterval;
+        }
+    }
+
+    @Test
+    public void cachedAllListShouldBeReloadedIfARowIsUpdatedBehindTheCache() throws Exception {
+        // Set up
+        final GenericValue component = genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 10, "A"));
+        final long originalInterval = genericDelegator.getDelegatorInfo().cacheValidationInterval;
+        genericDelegator.getDelegatorInfo().cacheValidationInterval = 1;
+        try {
+            genericDelegator.findAllCache(COMPONENT_ENTITY);
+            Thread.sleep(5);
+            final GenericValue changed = new GenericValue(component);
+            changed.set("name", "Renamed");
+            genericDelegator.getEntityHelper(COMPONENT_ENTITY).store(changed);
+            Thread.sleep(5);
+
+            // Invoke
+            final List<GenericValue> found = genericDelegator.findAllCache(COMPONENT_ENTITY);
+
+            // Check
+            assertEquals("Renamed", found.get(0).getString("name"));
+        } finally {
+            genericDelegator.getDelegatorInfo().cacheValidationInterval = originalInterval;
+        }
+    }
+
+    @Test
+    public void cachedListShouldNotBeValidatedUnlessAnIntervalIsConfigured() throws Exception {
+        // Set up
+        genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 10, "A"));
+        genericDelegator.findAllCache(COMPONENT_ENTITY);
+        final List<GenericValue> cached = genericDelegator.getFromAllCache(COMPONENT_ENTITY);
+        final GenericValue otherComponent = genericDelegator.makeValue(COMPONENT_ENTITY, componentFields(2, 10, "B"));
+        genericDelegator.getEntityHelper(COMPONENT_ENTITY).create(otherComponent);
+
+        // Invoke
+        final List<GenericValue> found = genericDelegator.findAllCache(COMPONENT_ENTITY);
+
+        // Check
+        assertSame(cached, found);
+    }
+
+    @Test
+    public void relatedOneShouldBeFoundAgainFromTheRelationCache() throws Exception {
+        // Set up
+        genericDelegator.create(PROJECT_ENTITY, ImmutableMap.<String, Object>of(ID_FIELD, 1L, PROJECT_KEY_FIELD, "ONE", ISSUE_COUNT_FIELD, 0L));
+        final GenericValue component = genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 1, "A"));
+        final GenericValue parent = genericDelegator.getRelatedOneCache("ParentProject", component);
+
+        // Invoke
+        final GenericValue parentAgain = genericDelegator.getRelatedOneCache("ParentProject", new GenericValue(component));
+
+        // Check
+        assertEquals("ONE", parent.getString(PROJECT_KEY_FIELD));
+        assertSame(parent, parentAgain);
+        assertEquals(1, genericDelegator.getRelatedOneValueCache().getCache().size());
+    }
+
+    @Test
+    public void relatedOneCacheShouldBeClearedWhenTheRelatedValueIsStored() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY,
+                ImmutableMap.<String, Object>of(ID_FIELD, 1L, PROJECT_KEY_FIELD, "ONE", ISSUE_COUNT_FIELD, 0L));
+        final GenericValue component = genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 1, "A"));
+        genericDelegator.getRelatedOneCache("ParentProject", component);
+        project.set(ISSUE_COUNT_FIELD, 5L);
+
+        // Invoke
+        genericDelegator.store(project);
+
+        // Check
+        assertEquals(0, genericDelegator.getRelatedOneValueCache().getCache().size());
+        assertEquals(5L, genericDelegator.getRelatedOneCache("ParentProject", component).getLong(ISSUE_COUNT_FIELD).longValue());
+    }
+
+    @Test
+    public void relatedOneCacheShouldBeClearedByPrimaryKey() throws Exception {
+        // Set up
+        final GenericValue project = genericDelegator.create(PROJECT_ENTITY,
+                ImmutableMap.<String, Object>of(ID_FIELD, 1L, PROJECT_KEY_FIELD, "ONE", ISSUE_COUNT_FIELD, 0L));
+        final GenericValue component = genericDelegator.create(COMPONENT_ENTITY, componentFields(1, 1, "A"));
+        genericDelegator.getRelatedOneCache("ParentProject", component);
+
+        // Invoke
+        genericDelegator.clearCacheLine(project.getPrimaryKey());
+
+        // Check
+        assertEquals(0, genericDelegator.getRelatedOneValueCache().getCache().size());
+    }
+
+    private static Map<String, Object> componentFields(final long id, final long projectId, final String name) {
+        return ImmutableMap.<String, Object>of("id", id, "project", projectId, "name", name);
+    }
+
     private static List<Matcher<? super ModelEntity>> modelEntities(final String... expectedNames) {
         final ImmutableList.Builder<Matcher<? super ModelEntity>> list = ImmutableList.builder();
         for (String expectedName : expectedNames) {
@@ -0,0 +1,134 @@
+package org.ofbiz.core.entity;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.ofbiz.core.entity.EntityConditionPlaceholder.placeholder;
+import static org.ofbiz.core.entity.EntityFindOptions.findOptions;
+import static org.ofbiz.core.entity.EntityOperator.AND;
+import static org.ofbiz.core.entity.EntityOperator.EQUALS;
+import static org.ofbiz.core.entity.EntityOperator.GREATER_THAN_EQUAL_TO;
+import static org.ofbiz.core.entity.EntityOperator.IN;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Tests prepared conditions against the in-memory database.
+ */
+public class TestPreparedEntityCondition {
+
+    private static final String PROJECT_ENTITY = "Project";
+
+    private GenericDelegator genericDelegator;
+
+    @Before
+    public void setUp() throws Exception {
+        GenericDelegator.removeGenericDelegator("default");
+        GenericDelegator.unlock();
+        genericDelegator = getGenericDelegator("default");
+        genericDelegator.removeByCondition(PROJECT_ENTITY, null);
+        for (long id = 1; id <= 6; id++) {
+            genericDelegator.create(PROJECT_ENTITY, ImmutableMap.<String, Object>of("id", id, "key", "P" + id, "counter", id % 2));
+        }
+    }
+
+    @Test
+    public void preparedConditionShouldBeExecutableWithDifferentValues() throws Exception {
+        // Set up
+        final EntityCondition condition = new EntityConditionList(asList(
+                new EntityExpr("counter", EQUALS, placeholder("parity")),
+                new EntityExpr("id", GREATER_THAN_EQUAL_TO, placeholder("min"))), AND);
+
+        // Invoke
+        final PreparedEntityCondition prepared = genericDelegator.prepareCondition(PROJECT_ENTITY, condition, null, singletonList("id"), null);
+        final List<GenericValue> even = genericDelegator.findByPreparedCondition(prepared, values(0L, 3L));
+        final List<GenericValue> odd = genericDelegator.findByPreparedCondition(prepared, values(1L, 1L));
+
+        // Check
+        assertEquals(asList(4L, 6L), ids(even));
+        assertEquals(asList(1L, 3L, 5L), ids(odd));
+        assertEquals(2, prepared.getPlaceholderNames().size());
+        assertTrue(prepared.getSql(), prepared.getSql().contains("WHERE"));
+    }
+
+    @Test
+    public void fixedValuesAndPlaceholdersShouldBeBoundInOrder() throws Exception {
+        // Set up
+        final EntityCondition condition = new EntityConditionList(asList(
+                new EntityExpr("id", IN, asList(2L, placeholder("id"), 5L)),
+                new EntityExpr("counter", EQUALS, 0L)), AND);
+        final PreparedEntityCondition prepared = genericDelegator.prepareCondition(PROJECT_ENTITY, condition, null, singletonList("id"), null);
+
+        // Invoke
+        final List<GenericValue> values = genericDelegator.findByPreparedCondition(prepared, singletonMap("id", 4L));
+
+        // Check
+        assertEquals(asList(2L, 4L), ids(values));
+    }
+
+    @Test
+    public void limitAndOrderingShouldBePartOfThePreparedQuery() throws Exception {
+        // Set up
+        final EntityCondition condition = new EntityExpr("id", GREATER_THAN_EQUAL_TO, placeholder("min"));
+        final PreparedEntityCondition prepared = genericDelegator.prepareCondition(PROJECT_ENTITY, condition,
+                asList("id", "counter"), singletonList("id DESC"), findOptions().maxResults(2));
+
+        // Invoke
+        final List<GenericValue> values = genericDelegator.findByPreparedCondition(prepared, singletonMap("min", 1L));
+
+        // Check
+        assertEquals(asList(6L, 5L), ids(values));
+        assertNull(values.get(0).get("key"));
+    }
+
+    @Test
+    public void missingValueShouldBeRejectedBeforeQuerying() throws Exception {
+        final PreparedEntityCondition prepared = genericDelegator.prepareCondition(PROJECT_ENTITY,
+                new EntityExpr("key", EQUALS, placeholder("key")), null, null, null);
+        try {
+            genericDelegator.findByPreparedCondition(prepared, emptyMap());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(":key"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void upperCasedPlaceholderShouldBeRejected() throws Exception {
+        genericDelegator.prepareCondition(PROJECT_ENTITY, new EntityExpr("key", true, EQUALS, placeholder("key"), true), null, null, null);
+    }
+
+    @Test
+    public void bindConditionShouldReplacePlaceholders() {
+        final PreparedEntityCondition prepared = new PreparedEntityCondition("memory", genericDelegator.getModelEntity(PROJECT_ENTITY),
+                new EntityExpr("id", IN, asList(placeholder("a"), placeholder("b"))), null, null, null);
+
+        final EntityExpr bound = (EntityExpr) prepared.bindCondition(ImmutableMap.of("a", 1L, "b", 2L));
+
+        assertEquals(asList(1L, 2L), bound.getRhs());
+    }
+
+    private static Map<String, Object> values(final long parity, final long min) {
+        return ImmutableMap.<String, Object>of("parity", parity, "min", min);
+    }
+
+    private static List<Long> ids(final List<GenericValue> values) {
+        final List<Long> ids = new ArrayList<Long>();
+        for (GenericValue value : values) {
+            ids.add(value.getLong("id"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,163 @@
+package org.ofbiz.core.entity;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ofbiz.core.entity.jdbc.dbtype.DatabaseTypeFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Unit test of TransientFailureRetry.
+ */
+public class TestTransientFailureRetry {
+
+    // These names are from the test XML files in src/test/resources
+    private static final String DELEGATOR_NAME = "default";
+    private static final String PROJECT_ENTITY = "Project";
+
+    private final TransientFailureRetry retry =
+            new TransientFailureRetry("test", DatabaseTypeFactory.HSQL, 1000, 10);
+
+    @After
+    public void tearDown() {
+        TransactionUtil.closeAndClearThreadLocalConnection();
+    }
+
+    @Test
+    public void transientFailureShouldBeRetriedUntilTheWorkSucceeds() throws Exception {
+        // Set up
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // Invoke
+        final String result = retry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw deadlock();
+            }
+            return "done";
+        });
+
+        // Check
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, retry.getRetryCount());
+        assertEquals(1, retry.getRecoveredCount());
+        assertEquals(0, retry.getExhaustedCount());
+    }
+
+    @Test
+    public void otherFailuresShouldNotBeRetried() throws Exception {
+        // Set up
+        final AtomicInteger attempts = new AtomicInteger();
+        final GenericEntityException failure =
+                new GenericDataSourceException("SQL Exception", new SQLException("Syntax error", "42000"));
+
+        // Invoke
+        try {
+            retry.execute(() -> {
+                attempts.incrementAndGet();
+                throw failure;
+            });
+            fail("Expected a GenericEntityException");
+        } catch (GenericEntityException e) {
+            // Check
+            assertSame(failure, e);
+        }
+        assertEquals(1, attempts.get());
+        assertEquals(0, retry.getRetryCount());
+    }
+
+    @Test
+    public void retryShouldGiveUpOnceTheMaximumWaitIsReached() throws Exception {
+        // Set up
+        final TransientFailureRetry shortRetry = new TransientFailureRetry("test", DatabaseTypeFactory.HSQL, 50, 10);
+
+        // Invoke
+        try {
+            shortRetry.execute(() -> {
+                throw deadlock();
+            });
+            fail("Expected a GenericEntityException");
+        } catch (GenericEntityException e) {
+            // Check
+            assertTrue(shortRetry.isTransientFailure(e));
+        }
+        assertEquals(1, shortRetry.getExhaustedCount());
+        assertEquals(0, shortRetry.getRecoveredCount());
+        assertTrue(shortRetry.getMaxRetryMillis() <= 50);
+    }
+
+    @Test
+    public void workInsideATransactionShouldBeRunOnce() throws Exception {
+        // Set up
+        final String helperName = getGenericDelegator(DELEGATOR_NAME).getEntityHelperName(PROJECT_ENTITY);
+        final AtomicInteger attempts = new AtomicInteger();
+        final boolean began = TransactionUtil.beginLocalTransaction(helperName, -1);
+        try {
+            // Invoke
+            retry.execute(() -> {
+                attempts.incrementAndGet();
+                throw deadlock();
+            });
+            fail("Expected a GenericEntityException");
+        } catch (GenericEntityException e) {
+            // Check
+            assertEquals(1, attempts.get());
+            assertEquals(0, retry.getRetryCount());
+        } finally {
+            TransactionUtil.rollbackLocalTransaction(began);
+        }
+    }
+
+    @Test
+    public void chainedSqlExceptionsShouldBeClassified() {
+        // Set up
+        final SQLException outer = new SQLException("Batch failed", "HY000");
+        outer.setNextException(new SQLException("Deadlock found", "40P01"));
+
+        // Invoke and check
+        assertTrue(retry.isTransientFailure(new GenericDataSourceException("SQL Exception", outer)));
+        assertFalse(retry.isTransientFailure(new GenericDataSourceException("SQL Exception",
+                new SQLException("Bad", "HY000"))));
+    }
+
+    @Test
+    public void failureShouldBeRethrownWhenTheDatabaseTypeCannotBeDetermined() throws Exception {
+        // Set up
+        final TransientFailureRetry unknownRetry = new TransientFailureRetry("no-such-datasource", null, 1000, 10);
+        final GenericEntityException failure =
+                new GenericDataSourceException("SQL Exception", new SQLException("Connection refused", "08001"));
+
+        // Invoke
+        try {
+            unknownRetry.execute(() -> {
+                throw failure;
+            });
+            fail("Expected a GenericEntityException");
+        } catch (GenericEntityException e) {
+            // Check
+            assertSame(failure, e);
+        }
+        assertEquals(0, unknownRetry.getRetryCount());
+    }
+
+    @Test
+    public void standardSqlStatesShouldBeTransientWithoutTheDatabaseType() {
+        // Set up
+        final TransientFailureRetry unknownRetry = new TransientFailureRetry("no-such-datasource", null, 1000, 10);
+
+        // Invoke and check
+        assertTrue(unknownRetry.isTransientFailure(deadlock()));
+    }
+
+    private static GenericEntityException deadlock() {
+        return new GenericDataSourceException("SQL Exception", new SQLException("Serialization failure", "40001"));
+    }
+}
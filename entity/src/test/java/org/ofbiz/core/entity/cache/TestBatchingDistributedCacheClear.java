@@ -0,0 +1,372 @@
+package org.ofbiz.core.entity.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ofbiz.core.entity.GenericDelegator;
+import org.ofbiz.core.entity.GenericPK;
+import org.ofbiz.core.entity.GenericValue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.ofbiz.core.entity.GenericDelegator.getGenericDelegator;
+
+/**
+ * Tests BatchingDistributedCacheClear against the in-memory database.
+ */
+public class TestBatchingDistributedCacheClear {
+
+    private static final String PROJECT_ENTITY = "Project";
+    private static final byte[] SECRET = "shared secret".getBytes(UTF_8);
+
+    private GenericDelegator genericDelegator;
+    private final List<BatchingDistributedCacheClear> cacheClears = new ArrayList<BatchingDistributedCacheClear>();
+
+    @Before
+    public void setUp() throws Exception {
+        GenericDelegator.removeGenericDelegator("default");
+        GenericDelegator.unlock();
+        genericDelegator = getGenericDelegator("default");
+        genericDelegator.clearAllCaches();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (BatchingDistributedCacheClear cacheClear : cacheClears) {
+            cacheClear.close();
+        }
+    }
+
+    @Test
+    public void duplicateRequestsShouldBeSentAsOneBatch() throws Exception {
+        // Set up
+        final MemoryTransport transport = new MemoryTransport();
+        final BatchingDistributedCacheClear cacheClear = create(transport, 60000, 100);
+        final GenericPK primaryKey = projectKey(1);
+
+        // Invoke
+        for (int i = 0; i < 5; i++) {
+            cacheClear.distributedClearCacheLine(primaryKey);
+        }
+        cacheClear.distributedClearCacheLine(projectKey(2));
+        cacheClear.flush();
+
+        // Check
+        assertEquals(1, transport.sent.size());
+        assertEquals(6, cacheClear.getRequestCount());
+        assertEquals(4, cacheClear.getCoalescedCount());
+        assertEquals(1, cacheClear.getBatchesSent());
+    }
+
+    @Test
+    public void clearingAllCachesShouldSupersedeOtherRequests() throws Exception {
+        // Set up
+        final MemoryTransport transport = new MemoryTransport();
+        final BatchingDistributedCacheClear cacheClear = create(transport, 60000, 100);
+        cacheClear.distributedClearCacheLine(projectKey(1));
+
+        // Invoke
+        cacheClear.clearAllCaches();
+        cacheClear.distributedClearCacheLine(projectKey(2));
+        cacheClear.flush();
+
+        // Check
+        assertEquals(1, transport.sent.size());
+        assertEquals(2, cacheClear.getCoalescedCount());
+    }
+
+    @Test
+    public void pendingRequestsShouldBeSentOnceTheWindowHasPassed() throws Exception {
+        // Set up
+        final MemoryTransport transport = new MemoryTransport();
+        final BatchingDistributedCacheClear cacheClear = create(transport, 10, 100);
+
+        // Invoke
+        cacheClear.distributedClearCacheLine(projectKey(1));
+
+        // Check
+        assertTrue(transport.awaitSent(1));
+    }
+
+    @Test
+    public void reachingTheMaximumBatchShouldSendWithoutWaitingForTheWindow() throws Exception {
+        // Set up
+        final MemoryTransport transport = new MemoryTransport();
+        final BatchingDistributedCacheClear cacheClear = create(transport, 60000, 3);
+
+        // Invoke
+        for (int i = 1; i <= 3; i++) {
+            cacheClear.distributedClearCacheLine(projectKey(i));
+        }
+
+        // Check
+        assertTrue(transport.awaitSent(1));
+    }
+
+    @Test
+    public void receivedBatchShouldClearTheCacheLines() throws Exception {
+        // Set up
+        final MemoryTransport sender = new MemoryTransport();
+        final MemoryTransport receiver = new MemoryTransport();
+        sender.peer = receiver;
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100);
+        create(receiver, 60000, 100);
+        final GenericValue project = genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE"));
+        genericDelegator.putInPrimaryKeyCache(project.getPrimaryKey(), project);
+        genericDelegator.putInAndCache(PROJECT_ENTITY, singletonMap("key", "ONE"), singletonList(project));
+
+        // Invoke
+        sending.distributedClearCacheLine(project);
+        sending.flush();
+
+        // Check
+        assertNull(genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+        assertNull(genericDelegator.getFromAndCache(PROJECT_ENTITY, singletonMap("key", "ONE")));
+    }
+
+    @Test
+    public void malformedBatchShouldBeDroppedWithoutClearingCaches() throws Exception {
+        // Set up
+        final MemoryTransport receiver = new MemoryTransport();
+        final BatchingDistributedCacheClear receiving = create(receiver, 60000, 100);
+        final GenericValue project = genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE"));
+        genericDelegator.putInPrimaryKeyCache(project.getPrimaryKey(), project);
+
+        // Invoke
+        receiver.receiver.accept(new byte[] {(byte) 0xac, (byte) 0xed, 0, 5, 1, 2, 3});
+        receiver.receiver.accept(new byte[0]);
+
+        // Check
+        assertEquals(2, receiving.getBatchesRejected());
+        assertEquals(0, receiving.getBatchesReceived());
+        assertNotNull(genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+    }
+
+    @Test
+    public void truncatedBatchShouldBeDroppedWithoutClearingAnything() throws Exception {
+        // Set up
+        final MemoryTransport sender = new MemoryTransport();
+        final MemoryTransport receiver = new MemoryTransport();
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100);
+        final BatchingDistributedCacheClear receiving = create(receiver, 60000, 100);
+        final GenericPK first = projectKey(1);
+        genericDelegator.putInPrimaryKeyCache(first, genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE")));
+        sending.distributedClearCacheLine(first);
+        sending.distributedClearCacheLine(projectKey(2));
+        sending.flush();
+        final byte[] message = sender.sent.get(0);
+
+        // Invoke
+        receiver.receiver.accept(Arrays.copyOf(message, message.length - 1));
+
+        // Check
+        assertEquals(1, receiving.getBatchesRejected());
+        assertNotNull(genericDelegator.getFromPrimaryKeyCache(first));
+    }
+
+    @Test
+    public void signedBatchShouldOnlyBeAppliedWithTheSharedSecret() throws Exception {
+        // Set up
+        final MemoryTransport sender = new MemoryTransport();
+        final MemoryTransport forger = new MemoryTransport();
+        final MemoryTransport receiver = new MemoryTransport();
+        sender.peer = receiver;
+        forger.peer = receiver;
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100, SECRET);
+        final BatchingDistributedCacheClear forging = create(forger, 60000, 100, "guess".getBytes(UTF_8));
+        final BatchingDistributedCacheClear receiving = create(receiver, 60000, 100, SECRET);
+        final GenericPK first = projectKey(1);
+        final GenericPK second = projectKey(2);
+        genericDelegator.putInPrimaryKeyCache(first, genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE")));
+        genericDelegator.putInPrimaryKeyCache(second, genericDelegator.makeValue(PROJECT_ENTITY, projectFields(2, "TWO")));
+
+        // Invoke
+        forging.distributedClearCacheLine(first);
+        forging.flush();
+        sending.distributedClearCacheLine(second);
+        sending.flush();
+
+        // Check
+        assertEquals(1, receiving.getBatchesRejected());
+        assertEquals(1, receiving.getBatchesReceived());
+        assertNotNull(genericDelegator.getFromPrimaryKeyCache(first));
+        assertNull(genericDelegator.getFromPrimaryKeyCache(second));
+    }
+
+    @Test
+    public void typedFieldValuesShouldSurviveTheRoundTrip() throws Exception {
+        // Set up
+        final MemoryTransport sender = new MemoryTransport();
+        final MemoryTransport receiver = new MemoryTransport();
+        sender.peer = receiver;
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100);
+        create(receiver, 60000, 100);
+        final GenericValue project = genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE"));
+        genericDelegator.putInAndCache(PROJECT_ENTITY, singletonMap("counter", 0L), singletonList(project));
+
+        // Invoke
+        sending.distributedClearCacheLine(project);
+        sending.flush();
+
+        // Check
+        assertNull(genericDelegator.getFromAndCache(PROJECT_ENTITY, singletonMap("counter", 0L)));
+    }
+
+    @Test
+    public void stringsLongerThanSixtyFourKilobytesShouldSurviveTheRoundTrip() throws Exception {
+        // Set up
+        final MemoryTransport sender = new MemoryTransport();
+        final MemoryTransport receiver = new MemoryTransport();
+        sender.peer = receiver;
+        sender.maxMessageSize = 1000000;
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100);
+        final BatchingDistributedCacheClear receiving = create(receiver, 60000, 100);
+        final char[] text = new char[70000];
+        Arrays.fill(text, 'x');
+        final String longKey = new String(text);
+        final GenericValue project = genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, longKey));
+        genericDelegator.putInAndCache(PROJECT_ENTITY, singletonMap("key", longKey), singletonList(project));
+
+        // Invoke
+        sending.distributedClearCacheLine(project);
+        sending.flush();
+
+        // Check
+        assertEquals(0, sending.getSendFailures());
+        assertEquals(1, receiving.getBatchesReceived());
+        assertNull(genericDelegator.getFromAndCache(PROJECT_ENTITY, singletonMap("key", longKey)));
+    }
+
+    @Test
+    public void ownBatchesShouldBeIgnored() throws Exception {
+        // Set up
+        final MemoryTransport transport = new MemoryTransport();
+        transport.peer = transport;
+        final BatchingDistributedCacheClear cacheClear = create(transport, 60000, 100);
+        final GenericValue project = genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE"));
+        genericDelegator.putInPrimaryKeyCache(project.getPrimaryKey(), project);
+
+        // Invoke
+        cacheClear.distributedClearCacheLine(project.getPrimaryKey());
+        cacheClear.flush();
+
+        // Check
+        assertEquals(0, cacheClear.getBatchesReceived());
+        assertNotNull(genericDelegator.getFromPrimaryKeyCache(project.getPrimaryKey()));
+    }
+
+    @Test
+    public void udpTransportShouldDeliverBatchesToItsPeers() throws Exception {
+        // Set up
+        final InetSocketAddress anyLoopbackPort = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        final UdpCacheClearTransport receiver = new UdpCacheClearTransport(anyLoopbackPort, Collections.<InetSocketAddress>emptyList());
+        final BatchingDistributedCacheClear receiving = create(receiver, 60000, 100);
+        final UdpCacheClearTransport sender = new UdpCacheClearTransport(anyLoopbackPort, singletonList(receiver.getLocalAddress()));
+        final BatchingDistributedCacheClear sending = create(sender, 60000, 100);
+        final GenericPK primaryKey = projectKey(1);
+        genericDelegator.putInPrimaryKeyCache(primaryKey, genericDelegator.makeValue(PROJECT_ENTITY, projectFields(1, "ONE")));
+
+        // Invoke
+        sending.distributedClearCacheLine(primaryKey);
+        sending.flush();
+
+        // Check
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (receiving.getBatchesReceived() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, receiving.getBatchesReceived());
+        assertNull(genericDelegator.getFromPrimaryKeyCache(primaryKey));
+    }
+
+    @Test
+    public void udpTransportShouldOnlyAcceptItsPeers() throws Exception {
+        final InetAddress peer = InetAddress.getByName("192.0.2.1");
+        assertTrue(UdpCacheClearTransport.isAllowedSender(peer, singleton(peer)));
+        assertFalse(UdpCacheClearTransport.isAllowedSender(InetAddress.getByName("192.0.2.2"), singleton(peer)));
+        assertTrue(UdpCacheClearTransport.isAllowedSender(InetAddress.getLoopbackAddress(), Collections.<InetAddress>emptySet()));
+        assertFalse(UdpCacheClearTransport.isAllowedSender(peer, Collections.<InetAddress>emptySet()));
+    }
+
+    @Test
+    public void peersShouldBeParsedFromHostAndPortPairs() {
+        final List<InetSocketAddress> peers = UdpCacheClearTransport.parsePeers("127.0.0.1:4000, localhost:4001,bad");
+        assertEquals(2, peers.size());
+        assertEquals(4000, peers.get(0).getPort());
+        assertEquals(4001, peers.get(1).getPort());
+    }
+
+    private BatchingDistributedCacheClear create(final CacheClearTransport transport, final long window, final int maxBatch) {
+        return create(transport, window, maxBatch, null);
+    }
+
+    private BatchingDistributedCacheClear create(final CacheClearTransport transport, final long window, final int maxBatch,
+                                                 final byte[] secret) {
+        final BatchingDistributedCacheClear cacheClear = new BatchingDistributedCacheClear(transport, window, maxBatch, secret);
+        cacheClear.setDelegator(genericDelegator, null);
+        cacheClears.add(cacheClear);
+        return cacheClear;
+    }
+
+    private GenericPK projectKey(final long id) {
+        return genericDelegator.makePK(PROJECT_ENTITY, singletonMap("id", id));
+    }
+
+    private static ImmutableMap<String, Object> projectFields(final long id, final String key) {
+        return ImmutableMap.<String, Object>of("id", id, "key", key, "counter", 0L);
+    }
+
+    /**
+     * Records what is sent and hands it straight to a peer, if there is one.
+     */
+    private static class MemoryTransport implements CacheClearTransport {
+        final List<byte[]> sent = new CopyOnWriteArrayList<byte[]>();
+        final CountDownLatch sentLatch = new CountDownLatch(1);
+        int maxMessageSize = 60000;
+        MemoryTransport peer;
+        Consumer<byte[]> receiver;
+
+        public void start(final Consumer<byte[]> receiver) {
+            this.receiver = receiver;
+        }
+
+        public void send(final byte[] message) {
+            sent.add(message);
+            sentLatch.countDown();
+            if (peer != null) {
+                peer.receiver.accept(message);
+            }
+        }
+
+        public int getMaxMessageSize() {
+            return maxMessageSize;
+        }
+
+        boolean awaitSent(final int count) throws InterruptedException {
+            return sentLatch.await(5, TimeUnit.SECONDS) && sent.size() >= count;
+        }
+
+        public void close() throws IOException {
+        }
+    }
+}
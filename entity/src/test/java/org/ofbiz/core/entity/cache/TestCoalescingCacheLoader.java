@@ -0,0 +1,182 @@
+package org.ofbiz.core.entity.cache;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ofbiz.core.entity.GenericEntityException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCoalescingCacheLoader {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CoalescingCacheLoader<String, String> loader = new CoalescingCacheLoader<String, String>("test");
+    private final Map<String, String> cache = new ConcurrentHashMap<String, String>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentMissShouldWaitForLoadInProgress() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> first = executor.submit(() -> loader.load("key", 10000, blockingLoad(loading, release, "first")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // Invoke
+        final Future<String> second = executor.submit(() -> loader.load("key", 10000, publisher -> "second"));
+        waitForWaiter(second);
+        release.countDown();
+
+        // Check
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        assertEquals("first", second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loader.getLoadCount());
+        assertEquals(1, loader.getCoalescedCount());
+        assertEquals(0, loader.getLoadsInProgress());
+    }
+
+    @Test
+    public void waiterShouldLoadItselfAfterTimeout() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> first = executor.submit(() -> loader.load("key", 10000, blockingLoad(loading, release, "first")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // Invoke
+        final String second = loader.load("key", 50, publisher -> "second");
+        release.countDown();
+
+        // Check
+        assertEquals("second", second);
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        assertEquals(2, loader.getLoadCount());
+        assertEquals(0, loader.getCoalescedCount());
+        assertEquals(1, loader.getTimeoutCount());
+    }
+
+    @Test
+    public void failedLoadShouldBeRethrownAndNotShared() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> first = executor.submit(() -> loader.load("key", 10000, publisher -> {
+            blockingLoad(loading, release, "first").load(publisher);
+            throw new GenericEntityException("failed");
+        }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        final Future<String> second = executor.submit(() -> loader.load("key", 10000, publisher -> "second"));
+        waitForWaiter(second);
+
+        // Invoke
+        release.countDown();
+
+        // Check
+        try {
+            first.get(10, TimeUnit.SECONDS);
+            fail("Expected the load to fail");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof GenericEntityException);
+        }
+        assertEquals("second", second.get(10, TimeUnit.SECONDS));
+        assertEquals(0, loader.getCoalescedCount());
+    }
+
+    @Test
+    public void invalidatedLoadShouldNotBeJoinedOrCached() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> stale = executor.submit(() -> loader.load("key", 10000, blockingLoad(loading, release, "stale")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // Invoke
+        loader.invalidate("key");
+        final String fresh = loader.load("key", 10000, publisher -> "fresh");
+        release.countDown();
+
+        // Check
+        assertEquals("fresh", fresh);
+        assertEquals("stale", stale.get(10, TimeUnit.SECONDS));
+        assertNull(cache.get("key"));
+        assertEquals(0, loader.getCoalescedCount());
+        assertEquals(0, loader.getLoadsInProgress());
+    }
+
+    @Test
+    public void invalidatingAllShouldStopEveryLoadInProgressFromBeingCached() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> stale = executor.submit(() -> loader.load("key", 10000, blockingLoad(loading, release, "stale")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // Invoke
+        loader.invalidateAll();
+        release.countDown();
+
+        // Check
+        assertEquals("stale", stale.get(10, TimeUnit.SECONDS));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void loadThatIsNotInvalidatedShouldBeCached() throws Exception {
+        // Set up
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> load = executor.submit(() -> loader.load("key", 10000, blockingLoad(loading, release, "value")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // Invoke
+        loader.invalidate("other");
+        release.countDown();
+
+        // Check
+        assertEquals("value", load.get(10, TimeUnit.SECONDS));
+        assertEquals("value", cache.get("key"));
+    }
+
+    @Test
+    public void zeroTimeoutShouldNotCoalesce() throws Exception {
+        assertEquals("value", loader.load("key", 0, publisher -> "value"));
+        assertEquals(0, loader.getLoadsInProgress());
+        assertEquals(1, loader.getLoadCount());
+    }
+
+    private CoalescingCacheLoader.Loader<String> blockingLoad(final CountDownLatch loading, final CountDownLatch release,
+                                                              final String value) {
+        return publisher -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            publisher.publish(() -> cache.put("key", value));
+            return value;
+        };
+    }
+
+    // there is no hook for the moment the second caller starts waiting, so give it time to get there
+    private static void waitForWaiter(final Future<?> waiter) throws InterruptedException {
+        Thread.sleep(100);
+        assertFalse(waiter.isDone());
+    }
+}
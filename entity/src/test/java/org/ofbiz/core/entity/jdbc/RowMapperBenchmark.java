@@ -0,0 +1,78 @@
+package org.ofbiz.core.entity.jdbc;
+
+import org.ofbiz.core.entity.ConnectionFactory;
+import org.ofbiz.core.entity.GenericDelegator;
+import org.ofbiz.core.entity.GenericValue;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.ofbiz.core.util.Benchmarks.intArg;
+import static org.ofbiz.core.util.Benchmarks.timeMillis;
+
+/**
+ * Compares decoding rows with {@link SqlJdbcUtil#getValue} for every cell against decoding them with a
+ * {@link RowMapper}, reading the same scrollable result set from the in-memory HSQLDB database used by the
+ * tests so that only the decoding differs. Not run as part of the build; run the main method from the IDE,
+ * optionally passing the number of rows (by default 100000) and the number of passes over them.
+ */
+public class RowMapperBenchmark {
+
+    private static final String PROJECT_ENTITY = "Project";
+
+    public static void main(final String[] args) throws Exception {
+        final int rows = intArg(args, 0, 100000);
+        final int passes = intArg(args, 1, 20);
+        final GenericDelegator delegator = GenericDelegator.getGenericDelegator("default");
+        final String helperName = delegator.getEntityHelperName(PROJECT_ENTITY);
+        final ModelEntity modelEntity = delegator.getModelEntity(PROJECT_ENTITY);
+        final List<ModelField> fields = modelEntity.getFieldsCopy();
+        final ModelFieldTypeReader modelFieldTypeReader = ModelFieldTypeReader.getModelFieldTypeReader(helperName);
+
+        delegator.removeByCondition(PROJECT_ENTITY, null);
+        try (Connection connection = ConnectionFactory.getConnection(helperName)) {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO project (id, pkey, pcounter) VALUES (?, ?, ?)")) {
+                for (int id = 1; id <= rows; id++) {
+                    insert.setLong(1, id);
+                    insert.setString(2, "KEY-" + id);
+                    insert.setLong(3, id % 1000);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+
+            try (PreparedStatement select = connection.prepareStatement("SELECT id, pkey, pcounter FROM project",
+                    ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+                 ResultSet resultSet = select.executeQuery()) {
+                for (int i = 0; i < passes; i++) {
+                    final long perCell = timeMillis(() -> {
+                        resultSet.beforeFirst();
+                        while (resultSet.next()) {
+                            final GenericValue value = delegator.makeValue(PROJECT_ENTITY, null);
+                            for (int j = 0; j < fields.size(); j++) {
+                                SqlJdbcUtil.getValue(resultSet, j + 1, fields.get(j), value, modelFieldTypeReader);
+                            }
+                        }
+                    });
+                    final long mapped = timeMillis(() -> {
+                        final RowMapper rowMapper = RowMapper.forFields(modelEntity, fields, modelFieldTypeReader);
+                        resultSet.beforeFirst();
+                        while (resultSet.next()) {
+                            rowMapper.map(resultSet, delegator.makeValue(PROJECT_ENTITY, null));
+                        }
+                    });
+                    System.out.printf("pass %2d: getValue per cell %,6d ms  row mapper %,6d ms%n", i + 1, perCell, mapped);
+                }
+            }
+        }
+        delegator.removeByCondition(PROJECT_ENTITY, null);
+    }
+}
@@ -72,6 +72,20 @@ public class SQLProcessorTest {
         assertThat("Abandoned connection event count", ConnectionGuard.ABANDONED_COUNTER.get(), is(0));
     }
 
+    @Test
+    public void boundParametersShouldBeReportedAsStrings() throws Exception {
+        final SQLProcessor fixture = new SQLProcessor("defaultDS");
+        try {
+            fixture.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE USER_NAME = ? AND ? IS NULL");
+            fixture.setValue("SA");
+            fixture.setValue((Long) null);
+
+            assertThat(fixture.toString().contains("parameters=[SA, null]"), is(true));
+        } finally {
+            fixture.close();
+        }
+    }
+
     private static AtomicBoolean abandonConnection() throws Exception {
         final AtomicBoolean closed = new AtomicBoolean();
         final SQLProcessor sqlProcessor = new SQLProcessor("defaultDS") {
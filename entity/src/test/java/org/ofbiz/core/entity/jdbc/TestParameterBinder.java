@@ -0,0 +1,89 @@
+package org.ofbiz.core.entity.jdbc;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.ofbiz.core.entity.GenericModelException;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestParameterBinder {
+
+    @Mock
+    private ModelFieldTypeReader modelFieldTypeReader;
+    @Mock
+    private SQLProcessor sqlProcessor;
+
+    @Test
+    public void valuesShouldBeBoundWithTheSetterForTheFieldType() throws Exception {
+        // Set up
+        final ParameterBinder binder = ParameterBinder.forField(field("count", "numeric", "java.lang.Long"), modelFieldTypeReader, "Thing");
+
+        // Invoke
+        binder.bind(sqlProcessor, "Thing", 3L);
+        binder.bind(sqlProcessor, "Thing", null);
+
+        // Check
+        verify(sqlProcessor).setValue(3L);
+        verify(sqlProcessor).setValue((Long) null);
+    }
+
+    @Test
+    public void valueOfAnotherClassShouldBeBoundAsItsOwnType() throws Exception {
+        // Set up
+        final ParameterBinder binder = ParameterBinder.forField(field("count", "numeric", "Long"), modelFieldTypeReader, "Thing");
+
+        // Invoke
+        binder.bind(sqlProcessor, "Thing", 3);
+
+        // Check
+        verify(sqlProcessor).setValue(Integer.valueOf(3));
+    }
+
+    @Test
+    public void binderShouldBeCreatedOncePerField() throws Exception {
+        // Set up
+        final ModelField field = field("created", "date-time", "java.sql.Timestamp");
+
+        // Invoke
+        final ParameterBinder binder = ParameterBinder.forField(field, modelFieldTypeReader, "Thing");
+        for (int i = 0; i < 3; i++) {
+            assertSame(binder, ParameterBinder.forField(field, modelFieldTypeReader, "Thing"));
+            SqlJdbcUtil.setValue(sqlProcessor, field, "Thing", new Timestamp(0L), modelFieldTypeReader);
+        }
+
+        // Check
+        verify(modelFieldTypeReader, times(1)).getModelFieldType("date-time");
+        verify(sqlProcessor, times(3)).setValue(new Timestamp(0L));
+    }
+
+    @Test(expected = GenericModelException.class)
+    public void undefinedFieldTypeShouldBeAModelError() throws Exception {
+        final ModelField field = new ModelField();
+        field.setName("name");
+        field.setType("no-such-type");
+
+        ParameterBinder.forField(field, modelFieldTypeReader, "Thing");
+    }
+
+    private ModelField field(final String name, final String type, final String javaType) {
+        final ModelField field = new ModelField();
+        field.setName(name);
+        field.setType(type);
+        final ModelFieldType modelFieldType = mock(ModelFieldType.class);
+        when(modelFieldType.getJavaType()).thenReturn(javaType);
+        when(modelFieldTypeReader.getModelFieldType(type)).thenReturn(modelFieldType);
+        return field;
+    }
+}
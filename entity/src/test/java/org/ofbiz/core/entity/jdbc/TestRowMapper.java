@@ -0,0 +1,114 @@
+package org.ofbiz.core.entity.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.ofbiz.core.entity.GenericDelegator;
+import org.ofbiz.core.entity.GenericModelException;
+import org.ofbiz.core.entity.GenericValue;
+import org.ofbiz.core.entity.model.ModelEntity;
+import org.ofbiz.core.entity.model.ModelField;
+import org.ofbiz.core.entity.model.ModelFieldType;
+import org.ofbiz.core.entity.model.ModelFieldTypeReader;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestRowMapper {
+
+    @Mock
+    private GenericDelegator delegator;
+    @Mock
+    private ModelFieldTypeReader modelFieldTypeReader;
+    @Mock
+    private ResultSet resultSet;
+
+    private ModelEntity modelEntity;
+    private ModelField nameField;
+    private ModelField countField;
+
+    @Before
+    public void setUp() {
+        modelEntity = new ModelEntity();
+        modelEntity.setEntityName("Thing");
+        nameField = field("name", "short-varchar", "String");
+        countField = field("count", "numeric", "Long");
+        modelEntity.addField(nameField);
+        modelEntity.addField(countField);
+    }
+
+    @Test
+    public void mapperShouldReadEachColumnWithTheGetterForItsType() throws Exception {
+        // Set up
+        when(resultSet.getString(1)).thenReturn("widget");
+        when(resultSet.getLong(2)).thenReturn(0L);
+        when(resultSet.wasNull()).thenReturn(true);
+        final GenericValue value = new GenericValue(delegator, modelEntity);
+
+        // Invoke
+        RowMapper.compile(modelEntity, asList(nameField, countField), modelFieldTypeReader).map(resultSet, value);
+
+        // Check
+        assertEquals("widget", value.getString("name"));
+        assertNull(value.get("count"));
+    }
+
+    @Test
+    public void fieldTypesShouldBeResolvedOnceForAllRows() throws Exception {
+        // Set up
+        final RowMapper rowMapper = RowMapper.compile(modelEntity, asList(nameField, countField), modelFieldTypeReader);
+        when(resultSet.getLong(2)).thenReturn(7L);
+
+        // Invoke
+        for (int i = 0; i < 3; i++) {
+            rowMapper.map(resultSet, new GenericValue(delegator, modelEntity));
+        }
+
+        // Check
+        verify(modelFieldTypeReader, times(1)).getModelFieldType("short-varchar");
+        verify(modelFieldTypeReader, times(1)).getModelFieldType("numeric");
+        verify(resultSet, times(3)).getLong(2);
+    }
+
+    @Test
+    public void mappersShouldBeCachedByEntityAndFields() throws Exception {
+        final RowMapper both = RowMapper.forFields(modelEntity, asList(nameField, countField), modelFieldTypeReader);
+
+        assertSame(both, RowMapper.forFields(modelEntity, asList(nameField, countField), modelFieldTypeReader));
+        assertNotSame(both, RowMapper.forFields(modelEntity, singletonList(nameField), modelFieldTypeReader));
+        assertEquals(1, RowMapper.forFields(modelEntity, singletonList(countField), modelFieldTypeReader).getColumnCount());
+    }
+
+    @Test(expected = GenericModelException.class)
+    public void undefinedFieldTypeShouldBeAModelError() throws Exception {
+        final ModelField unknown = mock(ModelField.class);
+        when(unknown.getType()).thenReturn("no-such-type");
+        final List<ModelField> fields = singletonList(unknown);
+
+        RowMapper.forFields(modelEntity, fields, modelFieldTypeReader);
+    }
+
+    private ModelField field(final String name, final String type, final String javaType) {
+        final ModelField field = new ModelField();
+        field.setName(name);
+        field.setType(type);
+        final ModelFieldType modelFieldType = mock(ModelFieldType.class);
+        when(modelFieldType.getJavaType()).thenReturn(javaType);
+        when(modelFieldTypeReader.getModelFieldType(type)).thenReturn(modelFieldType);
+        return field;
+    }
+}
@@ -0,0 +1,31 @@
+package org.ofbiz.core.entity.jdbc.dbtype;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTransientFailure {
+
+    @Test
+    public void standardSqlStatesShouldBeTransientForEveryDatabase() {
+        for (DatabaseType databaseType : DatabaseTypeFactory.DATABASE_TYPES) {
+            assertTrue(databaseType.getName(), databaseType.isTransientFailure(new SQLException("", "40001")));
+            assertTrue(databaseType.getName(), databaseType.isTransientFailure(new SQLException("", "40P01")));
+            assertFalse(databaseType.getName(), databaseType.isTransientFailure(new SQLException("", "23505")));
+        }
+    }
+
+    @Test
+    public void vendorCodesShouldBeTransient() {
+        assertTrue(DatabaseTypeFactory.MYSQL.isTransientFailure(new SQLException("", "HY000", 1205)));
+        assertTrue(DatabaseTypeFactory.MYSQL.isTransientFailure(new SQLException("", "HY000", 1213)));
+        assertTrue(DatabaseTypeFactory.MSSQL.isTransientFailure(new SQLException("", "S0001", 1205)));
+        assertTrue(DatabaseTypeFactory.DB2.isTransientFailure(new SQLException("", "57033", -913)));
+        assertTrue(DatabaseTypeFactory.ORACLE_10G.isTransientFailure(new SQLException("", "61000", 60)));
+        assertTrue(DatabaseTypeFactory.ORACLE_8I.isTransientFailure(new SQLException("", "72000", 8177)));
+        assertFalse(DatabaseTypeFactory.POSTGRES.isTransientFailure(new SQLException("", "HY000", 1205)));
+    }
+}
@@ -0,0 +1,86 @@
+package org.ofbiz.core.entity.jdbc.dbtype;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestUpsertSQL {
+
+    private static final List<String> PK = Collections.singletonList("id");
+    private static final List<String> ALL = asList("id", "pkey", "pcounter");
+    private static final List<String> NOPK = asList("pkey", "pcounter");
+
+    @Test
+    public void hsqlShouldMergeFromValues() {
+        assertEquals("MERGE INTO project upsert_tgt USING (VALUES (?, ?, ?)) AS upsert_src (id, pkey, pcounter)" +
+                        " ON (upsert_tgt.id = upsert_src.id)" +
+                        " WHEN MATCHED THEN UPDATE SET pkey = upsert_src.pkey, pcounter = upsert_src.pcounter" +
+                        " WHEN NOT MATCHED THEN INSERT (id, pkey, pcounter) VALUES (upsert_src.id, upsert_src.pkey, upsert_src.pcounter)",
+                DatabaseTypeFactory.HSQL_2_3_3.getUpsertSQL("project", PK, ALL, NOPK));
+    }
+
+    @Test
+    public void mergeWithNothingToUpdateShouldOnlyInsert() {
+        assertEquals("MERGE INTO project WITH (HOLDLOCK) upsert_tgt USING (VALUES (?, ?, ?)) AS upsert_src (id, pkey, pcounter)" +
+                        " ON (upsert_tgt.id = upsert_src.id)" +
+                        " WHEN NOT MATCHED THEN INSERT (id, pkey, pcounter) VALUES (upsert_src.id, upsert_src.pkey, upsert_src.pcounter);",
+                DatabaseTypeFactory.MSSQL.getUpsertSQL("project", PK, ALL, Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void oracleShouldMergeFromDual() {
+        assertEquals("MERGE INTO project upsert_tgt USING (SELECT ? id, ? pkey, ? pcounter FROM DUAL) upsert_src" +
+                        " ON (upsert_tgt.id = upsert_src.id)" +
+                        " WHEN MATCHED THEN UPDATE SET pcounter = upsert_src.pcounter" +
+                        " WHEN NOT MATCHED THEN INSERT (id, pkey, pcounter) VALUES (upsert_src.id, upsert_src.pkey, upsert_src.pcounter)",
+                DatabaseTypeFactory.ORACLE_10G.getUpsertSQL("project", PK, ALL, Collections.singletonList("pcounter")));
+        assertNull(DatabaseTypeFactory.ORACLE_8I.getUpsertSQL("project", PK, ALL, NOPK));
+    }
+
+    @Test
+    public void mySqlShouldInsertOnDuplicateKeyUpdate() {
+        assertEquals("INSERT INTO project (id, pkey, pcounter) VALUES (?, ?, ?)" +
+                        " ON DUPLICATE KEY UPDATE pkey = VALUES(pkey), pcounter = VALUES(pcounter)",
+                DatabaseTypeFactory.MYSQL.getUpsertSQL("project", PK, ALL, NOPK));
+        assertEquals("INSERT INTO project (id, pkey, pcounter) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE id = VALUES(id)",
+                DatabaseTypeFactory.MYSQL.getUpsertSQL("project", PK, ALL, Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void postgresShouldInsertOnConflictFrom95() throws Exception {
+        // registering an equal instance with the factory leaves the shared one in place
+        final Postgres73DatabaseType postgres = new Postgres73DatabaseType();
+
+        postgres.initialize(connectionToVersion(9, 4));
+        assertNull(postgres.getUpsertSQL("project", PK, ALL, NOPK));
+
+        postgres.initialize(connectionToVersion(9, 5));
+        assertEquals("INSERT INTO project (id, pkey, pcounter) VALUES (?, ?, ?)" +
+                        " ON CONFLICT (id) DO UPDATE SET pkey = EXCLUDED.pkey, pcounter = EXCLUDED.pcounter",
+                postgres.getUpsertSQL("project", PK, ALL, NOPK));
+    }
+
+    @Test
+    public void unknownDatabasesShouldHaveNoUpsert() {
+        assertNull(DatabaseTypeFactory.SYBASE.getUpsertSQL("project", PK, ALL, NOPK));
+        assertNull(DatabaseTypeFactory.POSTGRES.getUpsertSQL("project", PK, ALL, NOPK));
+    }
+
+    private static Connection connectionToVersion(final int major, final int minor) throws Exception {
+        final DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseMajorVersion()).thenReturn(major);
+        when(metaData.getDatabaseMinorVersion()).thenReturn(minor);
+        final Connection connection = mock(Connection.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        return connection;
+    }
+}
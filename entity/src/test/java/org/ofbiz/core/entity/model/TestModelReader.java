@@ -0,0 +1,50 @@
+package org.ofbiz.core.entity.model;
+
+import org.junit.Test;
+import org.ofbiz.core.config.ResourceHandler;
+import org.ofbiz.core.entity.config.EntityConfigUtil;
+
+import java.util.Collection;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestModelReader {
+
+    private static final String MODEL_NAME = "main";
+
+    @Test
+    public void resourcesReadInParallelShouldBeMergedInTheirConfiguredOrder() throws Exception {
+        // Set up
+        final ModelReader reader = new ModelReader(MODEL_NAME) {
+            @Override
+            int getParallelism() {
+                return 2;
+            }
+        };
+        final ResourceHandler main = reader.entityResourceHandlers.iterator().next();
+        final ResourceHandler override = new ResourceHandler(EntityConfigUtil.ENTITY_ENGINE_XML_FILENAME, "maincp",
+                "entitydefs/entitymodel-override.xml");
+        reader.entityResourceHandlers.add(override);
+
+        // Invoke
+        final ModelEntity sequence = reader.getModelEntity("SequenceValueItem");
+        final ModelEntity projectKey = reader.getModelEntity("ProjectKey");
+
+        // Check
+        assertEquals("SEQUENCE_VALUE_ITEM_OVERRIDE", sequence.tableName);
+        assertEquals(override, reader.getEntityResourceHandler("SequenceValueItem"));
+        assertEquals(main, reader.getEntityResourceHandler("Project"));
+        final Collection<String> overrideEntities = reader.getResourceHandlerEntities(override);
+        assertEquals(asList("SequenceValueItem", "ProjectKey"), overrideEntities);
+        assertTrue(reader.getResourceHandlerEntities(main).contains("SequenceValueItem"));
+
+        // the view entity is resolved against the entities of the other resource
+        assertTrue(projectKey instanceof ModelViewEntity);
+        assertEquals(2, projectKey.getFieldsSize());
+        assertEquals("P.pkey", projectKey.getField("key").getColName());
+        assertEquals("For testing that later entity model resources override earlier ones", projectKey.getDescription());
+        assertEquals("For integration testing the Entity Engine", reader.getModelEntity("Project").getDescription());
+    }
+}
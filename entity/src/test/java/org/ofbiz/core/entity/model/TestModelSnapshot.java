@@ -0,0 +1,133 @@
+package org.ofbiz.core.entity.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ofbiz.core.config.ResourceHandler;
+import org.ofbiz.core.entity.config.EntityConfigUtil;
+import org.ofbiz.core.entity.jdbc.alternative.ShouldNotRunIndexAlternativeAction;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestModelSnapshot {
+
+    private static final String MODEL_NAME = "main";
+    private static final String PROJECT_ENTITY = "Project";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private EntityConfigUtil.EntityModelReaderInfo modelReaderInfo;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() {
+        modelReaderInfo = EntityConfigUtil.getInstance().getEntityModelReaderInfo(MODEL_NAME);
+        snapshotFile = new File(temporaryFolder.getRoot(), "entity-model.snapshot");
+        modelReaderInfo.snapshotLocation = snapshotFile.getPath();
+    }
+
+    @After
+    public void tearDown() {
+        modelReaderInfo.snapshotLocation = null;
+    }
+
+    @Test
+    public void readingTheModelFromXmlShouldWriteASnapshot() throws Exception {
+        // Invoke
+        final ModelReader reader = new ModelReader(MODEL_NAME);
+        reader.getEntityCache();
+
+        // Check
+        assertTrue(snapshotFile.isFile());
+        assertNotNull(new ModelSnapshot(snapshotFile, reader.entityResourceHandlers).load());
+    }
+
+    @Test
+    public void modelShouldBeLoadedFromTheSnapshotWhileTheXmlIsUnchanged() throws Exception {
+        // Set up
+        final ModelReader xmlReader = new ModelReader(MODEL_NAME);
+        xmlReader.getModelEntity(PROJECT_ENTITY).setDescription("from the snapshot");
+        new ModelSnapshot(snapshotFile, xmlReader.entityResourceHandlers).write(new ModelReader.SnapshotModel(xmlReader));
+
+        // Invoke
+        final ModelReader reader = new ModelReader(MODEL_NAME);
+        final ModelEntity project = reader.getModelEntity(PROJECT_ENTITY);
+
+        // Check
+        assertEquals("from the snapshot", project.getDescription());
+        assertSame(reader, project.getModelReader());
+        assertEquals(xmlReader.getEntityNames(), reader.getEntityNames());
+        assertEquals(xmlReader.getEntityResourceHandler(PROJECT_ENTITY), reader.getEntityResourceHandler(PROJECT_ENTITY));
+        assertEquals("pkey", project.getField("key").getColName());
+        assertEquals(1, project.getPksSize());
+        final ModelIndex index = project.getIndex("idx_project_key");
+        assertSame(project, index.getMainEntity());
+        assertEquals(1, index.alternativeActions.size());
+        assertTrue(index.alternativeActions.get(0) instanceof ShouldNotRunIndexAlternativeAction);
+    }
+
+    @Test
+    public void snapshotShouldNotBeLoadedWhenTheXmlHasChanged() throws Exception {
+        // Set up
+        final ModelReader reader = new ModelReader(MODEL_NAME);
+        reader.getEntityCache();
+        final ResourceHandler otherResource = new ResourceHandler(EntityConfigUtil.ENTITY_ENGINE_XML_FILENAME, "maincp",
+                "entitydefs/entitygroup.xml");
+
+        // Invoke
+        final Object model = new ModelSnapshot(snapshotFile, Collections.singletonList(otherResource)).load();
+
+        // Check
+        assertNull(model);
+    }
+
+    @Test
+    public void unusableSnapshotShouldBeReplaced() throws Exception {
+        // Set up
+        final ModelReader xmlReader = new ModelReader(MODEL_NAME);
+        assertTrue(new ModelSnapshot(snapshotFile, xmlReader.entityResourceHandlers).write("not a model"));
+
+        // Invoke
+        final ModelReader reader = new ModelReader(MODEL_NAME);
+        reader.getEntityCache();
+
+        // Check
+        assertNotNull(reader.getModelEntity(PROJECT_ENTITY));
+        assertTrue(new ModelSnapshot(snapshotFile, reader.entityResourceHandlers).load() instanceof ModelReader.SnapshotModel);
+    }
+
+    @Test
+    public void snapshotOfAnotherFormatVersionShouldNotBeLoaded() throws Exception {
+        // Set up
+        final ModelReader reader = new ModelReader(MODEL_NAME);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(snapshotFile))) {
+            out.writeInt(ModelSnapshot.MAGIC);
+            out.writeInt(ModelSnapshot.VERSION - 1);
+        }
+
+        // Invoke
+        final Object model = new ModelSnapshot(snapshotFile, reader.entityResourceHandlers).load();
+
+        // Check
+        assertNull(model);
+    }
+
+    @Test
+    public void missingSnapshotShouldNotBeLoaded() {
+        assertNull(new ModelSnapshot(snapshotFile, Collections.<ResourceHandler>emptyList()).load());
+        assertFalse(snapshotFile.exists());
+    }
+}
@@ -0,0 +1,75 @@
+package org.ofbiz.core.entity.transaction;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.ofbiz.core.entity.config.ConnectionPoolInfo;
+import org.ofbiz.core.entity.config.JdbcDatasourceInfo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.Callable;
+
+import static org.ofbiz.core.util.Benchmarks.intArg;
+import static org.ofbiz.core.util.Benchmarks.timeThreads;
+
+/**
+ * Compares the throughput of borrowing a connection, running a trivial query and returning the connection, with a
+ * DBCP pool and with a {@link LightweightConnectionPool} of the same size, against an in-memory HSQLDB database,
+ * with more threads than connections. Not run as part of the build; run the main method from the IDE, optionally
+ * passing the number of threads (by default 32), the pool size (by default 8) and the borrows per thread (by
+ * default 100000).
+ */
+public class ConnectionPoolBenchmark {
+
+    private static final String URI = "jdbc:hsqldb:mem:poolbenchmark";
+    private static final String DRIVER = "org.hsqldb.jdbcDriver";
+    private static final String QUERY = "VALUES (1)";
+
+    public static void main(final String[] args) throws Exception {
+        final int threads = intArg(args, 0, 32);
+        final int poolSize = intArg(args, 1, 8);
+        final int borrows = intArg(args, 2, 100000);
+
+        final BasicDataSource dbcp = new BasicDataSource();
+        dbcp.setDriverClassName(DRIVER);
+        dbcp.setUrl(URI);
+        dbcp.setUsername("sa");
+        dbcp.setPassword("");
+        dbcp.setMaxTotal(poolSize);
+        dbcp.setMaxIdle(poolSize);
+
+        final ConnectionPoolInfo poolInfo = ConnectionPoolInfo.builder().setPoolMaxSize(poolSize).setPoolMinSize(poolSize).build();
+        final LightweightConnectionPool lightweight = new LightweightConnectionPool("benchmark",
+                new JdbcDatasourceInfo(URI, DRIVER, "sa", "", null, null, poolInfo, JdbcDatasourceInfo.POOL_TYPE_LIGHTWEIGHT));
+        try {
+            // warm up both pools before measuring
+            run("warm up (DBCP)", threads, borrows, dbcp::getConnection);
+            run("warm up (lightweight)", threads, borrows, lightweight::getConnection);
+
+            for (int i = 0; i < 3; i++) {
+                run("DBCP", threads, borrows, dbcp::getConnection);
+                run("lightweight", threads, borrows, lightweight::getConnection);
+            }
+            System.out.println(lightweight);
+        } finally {
+            dbcp.close();
+            lightweight.close();
+        }
+    }
+
+    private static void run(final String label, final int threads, final int borrows, final Callable<Connection> pool)
+            throws Exception {
+        final long millis = timeThreads(threads, () -> {
+            for (int i = 0; i < borrows; i++) {
+                try (Connection connection = pool.call();
+                     PreparedStatement statement = connection.prepareStatement(QUERY);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        });
+        final long total = (long) threads * borrows;
+        System.out.println(label + ": " + total + " borrows by " + threads + " threads in " + millis + " ms (" +
+                (millis == 0 ? total : total * 1000 / millis) + " per second)");
+    }
+}
@@ -0,0 +1,208 @@
+package org.ofbiz.core.entity.transaction;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ofbiz.core.entity.config.ConnectionPoolInfo;
+import org.ofbiz.core.entity.config.JdbcDatasourceInfo;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LightweightConnectionPoolTest {
+
+    private LightweightConnectionPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static JdbcDatasourceInfo hsqldb(final ConnectionPoolInfo poolInfo) {
+        return new JdbcDatasourceInfo("jdbc:hsqldb:mem:lightweightpool", "org.hsqldb.jdbcDriver", "sa", "", "ReadCommitted",
+                null, poolInfo, JdbcDatasourceInfo.POOL_TYPE_LIGHTWEIGHT);
+    }
+
+    private static Connection physical(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return statement.getConnection();
+        }
+    }
+
+    @Test
+    public void returnedConnectionShouldBeReusedByTheSameThread() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder().setPoolMaxSize(4).setPoolMinSize(0).build()));
+        final Connection first = pool.getConnection();
+        final Connection physicalFirst = physical(first);
+        first.close();
+
+        // Invoke
+        final Connection second = pool.getConnection();
+
+        // Check
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertSame(physicalFirst, physical(second));
+        assertEquals(1, pool.getTotalCount());
+        assertEquals(2, pool.getBorrowCount());
+        second.close();
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    public void closingTwiceShouldOnlyReturnTheConnectionOnce() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder().setPoolMaxSize(4).setPoolMinSize(0).build()));
+        final Connection connection = pool.getConnection();
+
+        // Invoke
+        connection.close();
+        connection.close();
+        final Connection first = pool.getConnection();
+        final Connection second = pool.getConnection();
+
+        // Check
+        assertNotSame(physical(first), physical(second));
+        assertEquals(2, pool.getActiveCount());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void settingsChangedWhileBorrowedShouldBeReset() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder().setPoolMaxSize(1).setPoolMinSize(0).build()));
+        final Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+
+        // Invoke
+        connection.close();
+        final Connection reused = pool.getConnection();
+
+        // Check
+        assertTrue(reused.getAutoCommit());
+        assertFalse(reused.isReadOnly());
+        reused.close();
+    }
+
+    @Test
+    public void closedConnectionShouldNotReachTheNextBorrowersConnection() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder().setPoolMaxSize(1).setPoolMinSize(0).build()));
+        final Connection stale = pool.getConnection();
+        stale.close();
+        final Connection borrowed = pool.getConnection();
+        borrowed.setAutoCommit(false);
+
+        // Invoke and check
+        try {
+            stale.createStatement();
+            fail("Expected a SQLException");
+        } catch (SQLException e) {
+            assertEquals("Connection is closed", e.getMessage());
+        }
+        try {
+            stale.commit();
+            fail("Expected a SQLException");
+        } catch (SQLException e) {
+            assertEquals("Connection is closed", e.getMessage());
+        }
+        try {
+            stale.setAutoCommit(true);
+            fail("Expected a SQLException");
+        } catch (SQLException e) {
+            assertEquals("Connection is closed", e.getMessage());
+        }
+        assertFalse(stale.isValid(1));
+        assertFalse(borrowed.getAutoCommit());
+        borrowed.rollback();
+        borrowed.close();
+    }
+
+    @Test
+    public void borrowingFromAFullPoolShouldTimeOut() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder()
+                .setPoolMaxSize(1).setPoolMinSize(0).setPoolMaxWait(50L).build()));
+        final Connection connection = pool.getConnection();
+
+        // Invoke
+        try {
+            pool.getConnection();
+            fail("Expected a SQLException");
+        } catch (SQLException e) {
+            // Check
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out after 50ms"));
+        }
+        assertEquals(1, pool.getTimeoutCount());
+        connection.close();
+    }
+
+    @Test
+    public void returnedConnectionShouldBeHandedToAWaitingThread() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder()
+                .setPoolMaxSize(1).setPoolMinSize(0).setPoolMaxWait(10000L).build()));
+        final Connection connection = pool.getConnection();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> borrowed = executor.submit(() -> {
+                waiting.countDown();
+                try (Connection other = pool.getConnection()) {
+                    return !other.isClosed();
+                }
+            });
+            waiting.await();
+            while (pool.getWaitingCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            // Invoke
+            connection.close();
+
+            // Check
+            assertTrue(borrowed.get(10, SECONDS));
+            assertEquals(1, pool.getTotalCount());
+            assertEquals(0, pool.getTimeoutCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void brokenConnectionShouldBeReplaced() throws Exception {
+        // Set up
+        pool = new LightweightConnectionPool("test", hsqldb(ConnectionPoolInfo.builder()
+                .setPoolMaxSize(1).setPoolMinSize(0).setTestOnBorrow(true).build()));
+        final Connection connection = pool.getConnection();
+        final Connection broken = physical(connection);
+        connection.close();
+        broken.close();
+
+        // Invoke
+        final Connection replacement = pool.getConnection();
+
+        // Check
+        assertNotSame(broken, physical(replacement));
+        assertFalse(replacement.isClosed());
+        assertEquals(1, pool.getTotalCount());
+        replacement.close();
+    }
+}
@@ -0,0 +1,72 @@
+package org.ofbiz.core.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * What the benchmarks run from their main methods have in common: reading their optional arguments and timing
+ * a pass, either on the calling thread or on several threads released together.
+ */
+public final class Benchmarks {
+
+    /**
+     * Work to be timed.
+     */
+    public interface Pass {
+        void run() throws Exception;
+    }
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Returns the argument at the given index as an int, or the default if there are fewer arguments.
+     */
+    public static int intArg(final String[] args, final int index, final int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    /**
+     * Runs the pass on the calling thread.
+     *
+     * @return how long it took in milliseconds
+     */
+    public static long timeMillis(final Pass pass) throws Exception {
+        final long start = System.nanoTime();
+        pass.run();
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Runs the pass on each of the given number of threads, all started before any of them is let go.
+     *
+     * @return how long it took in milliseconds from letting the threads go until the last one finished
+     * @throws Exception the first failure of the pass on any thread
+     */
+    public static long timeThreads(final int threads, final Pass pass) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    pass.run();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        final long millis = (System.nanoTime() - begin) / 1000000;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,62 @@
+package org.ofbiz.core.util;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Compares the time taken to convert strings to numbers and timestamps with a format created for every value,
+ * as {@link ObjectType#simpleTypeConvert} used to do, and with the conversion registry it now delegates to, on
+ * one thread and on several. Not run as part of the build; run the main method from the IDE, optionally passing
+ * the number of conversions per thread (by default one million) and the number of threads (by default four).
+ */
+public class ObjectTypeConversionBenchmark {
+
+    private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm";
+
+    public static void main(final String[] args) throws Exception {
+        final int conversions = Benchmarks.intArg(args, 0, 1000000);
+        final int threads = Benchmarks.intArg(args, 1, 4);
+
+        // warm up both paths before measuring
+        run("warm up (format per value)", conversions, 1, ObjectTypeConversionBenchmark::convertWithNewFormats);
+        run("warm up (registry)", conversions, 1, ObjectTypeConversionBenchmark::convertWithRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            run("format per value, 1 thread", conversions, 1, ObjectTypeConversionBenchmark::convertWithNewFormats);
+            run("registry, 1 thread", conversions, 1, ObjectTypeConversionBenchmark::convertWithRegistry);
+            run("format per value, " + threads + " threads", conversions, threads, ObjectTypeConversionBenchmark::convertWithNewFormats);
+            run("registry, " + threads + " threads", conversions, threads, ObjectTypeConversionBenchmark::convertWithRegistry);
+        }
+    }
+
+    private interface Conversion {
+        Object convert(int i) throws Exception;
+    }
+
+    private static Object convertWithNewFormats(final int i) throws Exception {
+        if ((i & 1) == 0) {
+            return NumberFormat.getNumberInstance(Locale.US).parse(Integer.toString(i)).longValue();
+        }
+        return new java.sql.Timestamp(new SimpleDateFormat(TIMESTAMP_FORMAT).parse("2020-01-01 12:00").getTime());
+    }
+
+    private static Object convertWithRegistry(final int i) throws Exception {
+        if ((i & 1) == 0) {
+            return ObjectType.simpleTypeConvert(Integer.toString(i), "Long", null, Locale.US);
+        }
+        return ObjectType.simpleTypeConvert("2020-01-01 12:00", "Timestamp", TIMESTAMP_FORMAT, Locale.US);
+    }
+
+    private static void run(final String label, final int conversions, final int threads, final Conversion conversion)
+            throws Exception {
+        final long millis = Benchmarks.timeThreads(threads, () -> {
+            for (int i = 0; i < conversions; i++) {
+                if (conversion.convert(i) == null) {
+                    throw new IllegalStateException("No result for " + i);
+                }
+            }
+        });
+        System.out.println(label + ": " + ((long) conversions * threads) + " conversions in " + millis + " ms");
+    }
+}
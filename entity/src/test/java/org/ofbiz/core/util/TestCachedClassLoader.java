@@ -0,0 +1,114 @@
+package org.ofbiz.core.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCachedClassLoader {
+
+    private static final int THREADS = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final CachedClassLoader loader = new CachedClassLoader(getClass().getClassLoader(), "test");
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLookupsShouldAllGetTheSameClass() throws Exception {
+        // Invoke
+        final List<Class<?>> classes = runConcurrently(() -> loader.loadClass("com.google.common.collect.ImmutableList"));
+
+        // Check
+        for (Class<?> loaded : classes) {
+            assertSame(com.google.common.collect.ImmutableList.class, loaded);
+        }
+        assertSame(com.google.common.collect.ImmutableList.class,
+                loader.localClassNameClassMap.get("com.google.common.collect.ImmutableList"));
+    }
+
+    @Test
+    public void concurrentMissesShouldAllFailAndBeRememberedOnce() throws Exception {
+        // Invoke
+        final List<Boolean> failures = runConcurrently(() -> {
+            try {
+                loader.loadClass("com.example.NoSuchClass");
+                return false;
+            } catch (ClassNotFoundException e) {
+                return true;
+            }
+        });
+
+        // Check
+        assertFalse(failures.contains(false));
+        assertTrue(loader.localBadClassNameSet.contains("com.example.NoSuchClass"));
+        assertEquals(1, loader.localBadClassNameSet.size());
+    }
+
+    @Test
+    public void missesShouldOnlyBeRememberedByTheInstanceThatMadeThem() throws Exception {
+        // Set up
+        final CachedClassLoader other = new CachedClassLoader(getClass().getClassLoader(), "other");
+
+        // Invoke
+        assertNull(loader.getResource("com/example/no-such-resource.xml"));
+
+        // Check
+        assertTrue(loader.localBadResourceNameSet.contains("com/example/no-such-resource.xml"));
+        assertFalse(other.localBadResourceNameSet.contains("com/example/no-such-resource.xml"));
+        assertFalse(CachedClassLoader.globalBadResourceNameSet.contains("com/example/no-such-resource.xml"));
+    }
+
+    @Test
+    public void negativeCacheShouldStopGrowingAtItsLimit() throws Exception {
+        // Set up
+        final Set<String> badNames = loader.localBadClassNameSet;
+        for (int i = 0; badNames.size() < CachedClassLoader.MAX_BAD_NAMES; i++) {
+            badNames.add("com.example.Filler" + i);
+        }
+
+        // Invoke
+        try {
+            loader.loadClass("com.example.OneTooMany");
+            fail("Expected a ClassNotFoundException");
+        } catch (ClassNotFoundException expected) {
+            // Check
+            assertEquals(CachedClassLoader.MAX_BAD_NAMES, badNames.size());
+            assertFalse(badNames.contains("com.example.OneTooMany"));
+        }
+    }
+
+    private <T> List<T> runConcurrently(final Callable<T> task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        final List<T> results = new ArrayList<T>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+}
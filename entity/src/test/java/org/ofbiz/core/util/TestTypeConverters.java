@@ -0,0 +1,102 @@
+package org.ofbiz.core.util;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TestTypeConverters {
+
+    @Test
+    public void stringsShouldBeParsedWithTheGivenLocale() throws Exception {
+        assertEquals(1234L, ObjectType.simpleTypeConvert("1,234", "Long", null, Locale.US));
+        assertEquals(1234L, ObjectType.simpleTypeConvert("1.234", "java.lang.Long", null, Locale.GERMANY));
+        assertEquals(2.5d, ObjectType.simpleTypeConvert("2,5", "Double", null, Locale.GERMANY));
+        assertEquals(Boolean.TRUE, ObjectType.simpleTypeConvert("true", "Boolean", null, null));
+    }
+
+    @Test
+    public void emptyStringShouldConvertToNullExceptToString() throws Exception {
+        assertNull(ObjectType.simpleTypeConvert("", "Long", null, null));
+        assertNull(ObjectType.simpleTypeConvert("", "NoSuchType", null, null));
+        assertEquals("", ObjectType.simpleTypeConvert("", "String", null, null));
+    }
+
+    @Test
+    public void legacyDateTypesShouldUseTheGivenFormat() throws Exception {
+        // Set up
+        final java.sql.Timestamp expected = java.sql.Timestamp.valueOf("2020-03-04 05:06:00");
+
+        // Invoke
+        final Object timestamp = ObjectType.simpleTypeConvert("04/03/2020 05:06", "Timestamp", "dd/MM/yyyy HH:mm", null);
+        final Object string = ObjectType.simpleTypeConvert(expected, "String", "yyyyMMdd", null);
+
+        // Check
+        assertEquals(expected, timestamp);
+        assertEquals("20200304", string);
+        assertEquals(java.sql.Date.valueOf("2020-03-04"), ObjectType.simpleTypeConvert("2020-03-04", "Date", null, null));
+    }
+
+    @Test
+    public void javaTimeTypesShouldBeSupported() throws Exception {
+        assertEquals(LocalDate.of(2020, 3, 4), ObjectType.simpleTypeConvert("2020-03-04", "LocalDate", null, null));
+        assertEquals(LocalDate.of(2020, 3, 4), ObjectType.simpleTypeConvert("04.03.2020", "java.time.LocalDate", "dd.MM.yyyy", null));
+        assertEquals(Instant.parse("2020-03-04T05:06:07Z"), ObjectType.simpleTypeConvert("2020-03-04T05:06:07Z", "Instant", null, null));
+        assertEquals(java.sql.Timestamp.valueOf("2020-03-04 05:06:07"),
+                ObjectType.simpleTypeConvert(LocalDateTime.of(2020, 3, 4, 5, 6, 7), "Timestamp", null, null));
+        assertEquals("2020/03/04", ObjectType.simpleTypeConvert(LocalDate.of(2020, 3, 4), "String", "yyyy/MM/dd", null));
+    }
+
+    @Test
+    public void converterShouldBeResolvedOnce() {
+        assertSame(TypeConverters.getConverter(Long.class, "String"), TypeConverters.getConverter(Long.class, "String"));
+    }
+
+    @Test
+    public void resolvedConvertersShouldNotKeepTheSourceClassFromBeingUnloaded() throws Exception {
+        // Invoke
+        final WeakReference<ClassLoader> loader = convertFromClassOfOwnLoader();
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // Check
+        assertNull(loader.get());
+    }
+
+    @Test
+    public void unsupportedConversionShouldFail() {
+        try {
+            ObjectType.simpleTypeConvert(java.sql.Date.valueOf("2020-03-04"), "Time", null, null);
+            fail("Expected a GeneralException");
+        } catch (GeneralException e) {
+            assertEquals("Conversion from Date to Time not currently supported", e.getMessage());
+        }
+    }
+
+    // in a method of its own, so that nothing on the stack of the test still refers to the loader
+    private static WeakReference<ClassLoader> convertFromClassOfOwnLoader() throws Exception {
+        final URL classes = Convertible.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null)) {
+            final Class<?> convertible = loader.loadClass(Convertible.class.getName());
+            assertNotSame(Convertible.class, convertible);
+            TypeConverters.getConverter(convertible, "String");
+            return new WeakReference<ClassLoader>(loader);
+        }
+    }
+
+    public static class Convertible {
+    }
+}
@@ -0,0 +1,127 @@
+package org.ofbiz.core.util;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestUtilXml {
+
+    private static final String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!DOCTYPE model [\n" +
+            "  <!ELEMENT model (entity*)>\n" +
+            "  <!ELEMENT entity (field*, description?)>\n" +
+            "  <!ATTLIST entity name CDATA #REQUIRED package CDATA \"default\">\n" +
+            "  <!ELEMENT field EMPTY>\n" +
+            "  <!ATTLIST field name CDATA #REQUIRED>\n" +
+            "  <!ELEMENT description (#PCDATA)>\n" +
+            "]>\n" +
+            "<model>\n" +
+            "  <entity name=\"Project\" package=\"test\">\n" +
+            "    <field name=\"id\"/>\n" +
+            "    <field name=\"name\"/>\n" +
+            "    <description>Projects &amp; their <![CDATA[<keys>]]></description>\n" +
+            "  </entity>\n" +
+            "  <entity name=\"Issue\"/>\n" +
+            "</model>\n";
+
+    @Test
+    public void streamedElementsShouldMatchTheChildrenOfTheRootElement() throws Exception {
+        assertSameElements(DOCUMENT, true);
+    }
+
+    @Test
+    public void streamedElementsOfAnEntityModelShouldMatchTheChildrenOfTheRootElement() throws Exception {
+        // Set up
+        final URL entityModel = UtilURL.fromResource("entitydefs/entitymodel.xml");
+        assertNotNull(entityModel);
+        final Document document = UtilXml.readXmlDocument(entityModel, false);
+
+        // Invoke
+        final List<Element> elements = readXmlElements(entityModel.openStream(), false);
+
+        // Check
+        assertSameElements(document, elements);
+    }
+
+    @Test
+    public void invalidElementsShouldBeHandedOverWhenValidating() throws Exception {
+        assertSameElements(DOCUMENT.replace("<entity name=\"Issue\"/>", "<entity/><unknown/>"), true);
+    }
+
+    @Test
+    public void malformedDocumentShouldFailAfterHandingOverTheElementsBeforeTheError() throws Exception {
+        // Set up
+        final List<Element> elements = new ArrayList<Element>();
+        final String malformed = DOCUMENT.replace("<entity name=\"Issue\"/>", "<entity name=\"Issue\">");
+
+        // Invoke
+        try {
+            UtilXml.readXmlElements(stream(malformed), true, "malformed", elements::add);
+            fail("Expected a SAXParseException");
+        } catch (SAXParseException expected) {
+            // Check
+            assertEquals(1, elements.size());
+            assertEquals("Project", elements.get(0).getAttribute("name"));
+        }
+    }
+
+    private static void assertSameElements(final String xml, final boolean validate) throws Exception {
+        // Set up
+        final Document document = UtilXml.readXmlDocument(stream(xml), validate, "document");
+
+        // Invoke
+        final List<Element> elements = readXmlElements(stream(xml), validate);
+
+        // Check
+        assertSameElements(document, elements);
+    }
+
+    private static void assertSameElements(final Document document, final List<Element> elements) {
+        final List<Element> expected = UtilXml.childElementList(document.getDocumentElement(), null);
+        assertTrue(!expected.isEmpty());
+        assertEquals(expected.size(), elements.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(describe(expected.get(i)), describe(elements.get(i)));
+        }
+    }
+
+    private static List<Element> readXmlElements(final InputStream in, final boolean validate) throws Exception {
+        final List<Element> elements = new ArrayList<Element>();
+        UtilXml.readXmlElements(in, validate, "document", elements::add);
+        return elements;
+    }
+
+    // the DOM parser keeps whitespace that the validating SAX parser reports as ignorable, so compare without it
+    private static String describe(final Element element) {
+        final StringBuilder description = new StringBuilder(element.getTagName()).append('[');
+        for (int i = 0; i < element.getAttributes().getLength(); i++) {
+            description.append(element.getAttributes().item(i)).append(' ');
+        }
+        description.append(']');
+        final List<Element> children = UtilXml.childElementList(element, null);
+        if (children.isEmpty()) {
+            description.append('"').append(element.getTextContent().trim()).append('"');
+        }
+        for (Element child : children) {
+            description.append(describe(child));
+        }
+        return description.toString();
+    }
+
+    private static InputStream stream(final String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
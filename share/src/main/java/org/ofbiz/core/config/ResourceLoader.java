@@ -34,8 +34,9 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 
@@ -48,7 +49,18 @@ import java.util.Map;
  */
 public abstract class ResourceLoader {
     protected static UtilCache<String, ResourceLoader> loaderCache = new UtilCache<String, ResourceLoader>("resource.ResourceLoaders", 0, 0);
-    protected static Map<String, Document> docSaveMap = new HashMap<String, Document>();
+
+    /**
+     * The maximum number of parsed XML files that are remembered.
+     */
+    public static final int MAX_SAVED_DOCUMENTS = 32;
+
+    /**
+     * The most recently used parsed XML files. They are only weakly held, so that a document is released once
+     * whatever was configured from it, such as the entity config, no longer refers to any of its elements.
+     * Guarded by the ResourceLoader class lock.
+     */
+    protected static Map<String, WeakReference<Document>> docSaveMap = new SavedDocumentMap();
 
     protected String name;
     protected String prefix;
@@ -102,35 +114,33 @@ public abstract class ResourceLoader {
     }
 
     public static Document getXmlDocument(String xmlFilename) throws GenericConfigException {
-        Document document = docSaveMap.get(xmlFilename);
+        synchronized (ResourceLoader.class) {
+            WeakReference<Document> savedDocument = docSaveMap.get(xmlFilename);
+            Document document = savedDocument == null ? null : savedDocument.get();
 
-        if (document == null) {
-            synchronized (ResourceLoader.class) {
-                document = docSaveMap.get(xmlFilename);
-                if (document == null) {
-                    URL confUrl = UtilURL.fromResource(xmlFilename);
+            if (document == null) {
+                URL confUrl = UtilURL.fromResource(xmlFilename);
 
-                    if (confUrl == null) {
-                        throw new GenericConfigException("ERROR: could not find the [" + xmlFilename + "] XML file on the classpath");
-                    }
+                if (confUrl == null) {
+                    throw new GenericConfigException("ERROR: could not find the [" + xmlFilename + "] XML file on the classpath");
+                }
 
-                    try {
-                        document = UtilXml.readXmlDocument(confUrl);
-                    } catch (org.xml.sax.SAXException e) {
-                        throw new GenericConfigException("Error reading " + xmlFilename + "", e);
-                    } catch (javax.xml.parsers.ParserConfigurationException e) {
-                        throw new GenericConfigException("Error reading " + xmlFilename + "", e);
-                    } catch (java.io.IOException e) {
-                        throw new GenericConfigException("Error reading " + xmlFilename + "", e);
-                    }
+                try {
+                    document = UtilXml.readXmlDocument(confUrl);
+                } catch (org.xml.sax.SAXException e) {
+                    throw new GenericConfigException("Error reading " + xmlFilename + "", e);
+                } catch (javax.xml.parsers.ParserConfigurationException e) {
+                    throw new GenericConfigException("Error reading " + xmlFilename + "", e);
+                } catch (java.io.IOException e) {
+                    throw new GenericConfigException("Error reading " + xmlFilename + "", e);
+                }
 
-                    if (document != null) {
-                        docSaveMap.put(xmlFilename, document);
-                    }
+                if (document != null) {
+                    docSaveMap.put(xmlFilename, new WeakReference<Document>(document));
                 }
             }
+            return document;
         }
-        return document;
     }
 
     public static ResourceLoader makeLoader(Element loaderElement) throws GenericConfigException {
@@ -174,6 +184,23 @@ public abstract class ResourceLoader {
     protected ResourceLoader() {
     }
 
+    /**
+     * Keeps the {@link #MAX_SAVED_DOCUMENTS} most recently used documents, in access order.
+     */
+    static class SavedDocumentMap extends LinkedHashMap<String, WeakReference<Document>> {
+
+        private static final long serialVersionUID = 1L;
+
+        SavedDocumentMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WeakReference<Document>> eldest) {
+            return size() > MAX_SAVED_DOCUMENTS;
+        }
+    }
+
     public void init(String name, String prefix, String envName) {
         this.name = name;
         this.prefix = prefix;
@@ -26,33 +26,46 @@ package org.ofbiz.core.util;
 
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Caching Class Loader
+ * <p>
+ * The caches are concurrent maps, so lookups take no lock; classes and resources found under a {@link #isGlobalPath
+ * global path} are shared between all instances only when they come from a loader every instance shares, and
+ * otherwise kept per instance. Names that could not be found are remembered per instance, except for the
+ * <code>java</code> packages which no loader can override, and at most {@link #MAX_BAD_NAMES} of them in each set.
  *
  * @author <a href="mailto:jonesde@ofbiz.org">David E. Jones</a>
  * @version $Revision: 1.1 $
  * @since 2.1
  */
 public class CachedClassLoader extends URLClassLoader {
+
+    /**
+     * The most names remembered as not found in each negative cache; further misses are simply looked up again.
+     */
+    public static final int MAX_BAD_NAMES = 10000;
+
     private String contextName;
 
-    public static Map<String, Class<?>> globalClassNameClassMap = new HashMap<String, Class<?>>();
-    public static HashSet<String> globalBadClassNameSet = new HashSet<String>();
+    public static Map<String, Class<?>> globalClassNameClassMap = new ConcurrentHashMap<String, Class<?>>();
+    public static Set<String> globalBadClassNameSet = ConcurrentHashMap.newKeySet();
 
-    public Map<String, Class<?>> localClassNameClassMap = new HashMap<String, Class<?>>();
-    public HashSet<String> localBadClassNameSet = new HashSet<String>();
+    public Map<String, Class<?>> localClassNameClassMap = new ConcurrentHashMap<String, Class<?>>();
+    public Set<String> localBadClassNameSet = ConcurrentHashMap.newKeySet();
 
-    public static Map<String, URL> globalResourceMap = new HashMap<String, URL>();
-    public static HashSet<String> globalBadResourceNameSet = new HashSet<String>();
+    public static Map<String, URL> globalResourceMap = new ConcurrentHashMap<String, URL>();
+    public static Set<String> globalBadResourceNameSet = ConcurrentHashMap.newKeySet();
 
-    public Map<String, URL> localResourceMap = new HashMap<String, URL>();
-    public HashSet<String> localBadResourceNameSet = new HashSet<String>();
+    public Map<String, URL> localResourceMap = new ConcurrentHashMap<String, URL>();
+    public Set<String> localBadResourceNameSet = ConcurrentHashMap.newKeySet();
 
     static {
+        registerAsParallelCapable();
+
         // setup some commonly used classes...
         globalClassNameClassMap.put("Object", java.lang.Object.class);
         globalClassNameClassMap.put("java.lang.Object", java.lang.Object.class);
@@ -128,40 +141,28 @@ public class CachedClassLoader extends URLClassLoader {
 
         //check local classes, ie for this instance
         if (theClass == null) theClass = localClassNameClassMap.get(name);
+        if (theClass != null) return theClass;
 
         //make sure it is not a known bad class name
-        if (theClass == null) {
-            if (localBadClassNameSet.contains(name) || globalBadClassNameSet.contains(name)) {
-                if (Debug.verboseOn()) Debug.logVerbose("Cached loader got a known bad class name: [" + name + "]");
-                throw new ClassNotFoundException("Cached loader got a known bad class name: " + name);
-            }
+        if (localBadClassNameSet.contains(name) || globalBadClassNameSet.contains(name)) {
+            if (Debug.verboseOn()) Debug.logVerbose("Cached loader got a known bad class name: [" + name + "]");
+            throw new ClassNotFoundException("Cached loader got a known bad class name: " + name);
         }
 
-        if (theClass == null) {
-            if (Debug.verboseOn()) Debug.logVerbose("Cached loader cache miss for class name: [" + name + "]");
-
-            synchronized (this) {
-                theClass = localClassNameClassMap.get(name);
-                if (theClass == null) {
-                    try {
-                        theClass = super.loadClass(name, resolve);
-                        if (isGlobalPath(name)) {
-                            globalClassNameClassMap.put(name, theClass);
-                        } else {
-                            localClassNameClassMap.put(name, theClass);
-                        }
-                    } catch (ClassNotFoundException e) {
-                        //Debug.logInfo(e);
-                        if (Debug.verboseOn()) Debug.logVerbose("Remembering invalid class name: [" + name + "]");
-                        if (isGlobalPath(name)) {
-                            globalBadClassNameSet.add(name);
-                        } else {
-                            localBadClassNameSet.add(name);
-                        }
-                        throw e;
-                    }
-                }
-            }
+        if (Debug.verboseOn()) Debug.logVerbose("Cached loader cache miss for class name: [" + name + "]");
+
+        // the parent loaders lock per class name, so concurrent misses for the same name get the same class
+        try {
+            theClass = super.loadClass(name, resolve);
+        } catch (ClassNotFoundException e) {
+            if (Debug.verboseOn()) Debug.logVerbose("Remembering invalid class name: [" + name + "]");
+            rememberBadName(isBootstrapPath(name) ? globalBadClassNameSet : localBadClassNameSet, name);
+            throw e;
+        }
+        if (isGlobalPath(name) && isSharedLoader(theClass.getClassLoader())) {
+            globalClassNameClassMap.put(name, theClass);
+        } else {
+            localClassNameClassMap.put(name, theClass);
         }
         return theClass;
     }
@@ -172,40 +173,26 @@ public class CachedClassLoader extends URLClassLoader {
 
         //check local resources, ie for this instance
         if (theResource == null) theResource = localResourceMap.get(name);
+        if (theResource != null) return theResource;
 
         //make sure it is not a known bad resource name
-        if (theResource == null) {
-            if (localBadResourceNameSet.contains(name) || globalBadResourceNameSet.contains(name)) {
-                if (Debug.verboseOn()) Debug.logVerbose("Cached loader got a known bad resource name: [" + name + "]");
-                return null;
-            }
+        if (localBadResourceNameSet.contains(name) || globalBadResourceNameSet.contains(name)) {
+            if (Debug.verboseOn()) Debug.logVerbose("Cached loader got a known bad resource name: [" + name + "]");
+            return null;
         }
 
+        //if (Debug.verboseOn()) Debug.logVerbose("Cached loader cache miss for resource name: [" + name + "]");
+        Debug.logInfo("Cached loader cache miss for resource name: [" + name + "]");
+
+        theResource = super.getResource(name);
         if (theResource == null) {
-            //if (Debug.verboseOn()) Debug.logVerbose("Cached loader cache miss for resource name: [" + name + "]");
-            Debug.logInfo("Cached loader cache miss for resource name: [" + name + "]");
-
-            synchronized (this) {
-                theResource = localResourceMap.get(name);
-                if (theResource == null) {
-                    theResource = super.getResource(name);
-                    if (theResource == null) {
-                        //if (Debug.verboseOn()) Debug.logVerbose("Remembering invalid resource name: [" + name + "]");
-                        Debug.logInfo("Remembering invalid resource name: [" + name + "]");
-                        if (isGlobalPath(name)) {
-                            globalBadResourceNameSet.add(name);
-                        } else {
-                            localBadResourceNameSet.add(name);
-                        }
-                    } else {
-                        if (isGlobalPath(name)) {
-                            globalResourceMap.put(name, theResource);
-                        } else {
-                            localResourceMap.put(name, theResource);
-                        }
-                    }
-                }
-            }
+            //if (Debug.verboseOn()) Debug.logVerbose("Remembering invalid resource name: [" + name + "]");
+            Debug.logInfo("Remembering invalid resource name: [" + name + "]");
+            rememberBadName(isBootstrapPath(name) ? globalBadResourceNameSet : localBadResourceNameSet, name);
+        } else if (isGlobalPath(name) && isSharedResource(name, theResource)) {
+            globalResourceMap.put(name, theResource);
+        } else {
+            localResourceMap.put(name, theResource);
         }
         return theResource;
     }
@@ -217,4 +204,32 @@ public class CachedClassLoader extends URLClassLoader {
         if (name.startsWith("org.ofbiz.core.")) return true;
         return false;
     }
+
+    /**
+     * Returns whether the name is in the <code>java</code> packages, which are always loaded by the bootstrap loader,
+     * so that a name not found there is not found by any instance.
+     */
+    protected boolean isBootstrapPath(String name) {
+        return name.startsWith("java.") || name.startsWith("java/") || name.startsWith("/java/");
+    }
+
+    /**
+     * Returns whether classes from the given loader are seen the same way by every instance, being loaded by the
+     * bootstrap loader or by the loader of this class.
+     */
+    private static boolean isSharedLoader(ClassLoader loader) {
+        return loader == null || loader == CachedClassLoader.class.getClassLoader();
+    }
+
+    private static boolean isSharedResource(String name, URL resource) {
+        ClassLoader sharedLoader = CachedClassLoader.class.getClassLoader();
+        URL sharedResource = sharedLoader != null ? sharedLoader.getResource(name) : ClassLoader.getSystemResource(name);
+        return sharedResource != null && resource.toExternalForm().equals(sharedResource.toExternalForm());
+    }
+
+    private static void rememberBadName(Set<String> badNames, String name) {
+        if (badNames.size() < MAX_BAD_NAMES) {
+            badNames.add(name);
+        }
+    }
 }
@@ -23,15 +23,10 @@
  */
 package org.ofbiz.core.util;
 
-import java.text.DateFormat;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilities for analyzing and converting Object types in Java - takes advantage of a lot of reflection and other stuff
@@ -46,7 +41,7 @@ public class ObjectType {
 
     public static final String module = ObjectType.class.getName();
 
-    protected static Map<String, Class<?>> classCache = new HashMap<String, Class<?>>();
+    protected static Map<String, Class<?>> classCache = new ConcurrentHashMap<String, Class<?>>();
 
     public static final String LANG_PACKAGE = "java.lang."; // We will test both the raw value and this + raw value
     public static final String SQL_PACKAGE = "java.sql.";   // We will test both the raw value and this + raw value
@@ -83,15 +78,9 @@ public class ObjectType {
         } catch (Exception e) {
             theClass = classCache.get(className);
             if (theClass == null) {
-                synchronized (ObjectType.class) {
-                    theClass = classCache.get(className);
-                    if (theClass == null) {
-                        theClass = Class.forName(className);
-                        if (theClass != null) {
-                            if (Debug.verboseOn()) Debug.logVerbose("Loaded Class: " + theClass.getName(), module);
-                            classCache.put(className, theClass);
-                        }
-                    }
+                theClass = Class.forName(className);
+                if (classCache.putIfAbsent(className, theClass) == null) {
+                    if (Debug.verboseOn()) Debug.logVerbose("Loaded Class: " + theClass.getName(), module);
                 }
             }
         }
@@ -278,7 +267,8 @@ public class ObjectType {
     /**
      * Converts the passed object to the named simple type; supported types
      * include: String, Boolean, Double, Float, Long, Integer, Date (java.sql.Date),
-     * Time, Timestamp;
+     * Time, Timestamp, Locale, and the java.time LocalDate, LocalTime, LocalDateTime and Instant;
+     * the conversion for each source class and type is looked up once, see {@link TypeConverters}
      *
      * @param obj    Object to convert
      * @param type   Name of type to convert to
@@ -286,368 +276,7 @@ public class ObjectType {
      * @param locale Optional (can be null) Locale for formatting and parsing Double, Float, Long, Integer
      */
     public static Object simpleTypeConvert(Object obj, String type, String format, Locale locale) throws GeneralException {
-        if (obj == null)
-            return null;
-
-        if ("PlainString".equals(type)) {
-            return obj.toString();
-        }
-        if ("Object".equals(type)) {
-            return obj;
-        }
-
-        String fromType = null;
-
-        if (obj instanceof java.lang.String) {
-            fromType = "String";
-            String str = (String) obj;
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                return obj;
-            }
-            if (str.length() == 0) {
-                return null;
-            }
-
-            if ("Boolean".equals(type) || "java.lang.Boolean".equals(type)) {
-                return str.equalsIgnoreCase("TRUE");
-            } else if ("Locale".equals(type) || "java.util.Locale".equals(type)) {
-                Locale loc = UtilMisc.parseLocale(str);
-                if (loc != null) {
-                    return loc;
-                } else {
-                    throw new GeneralException("Could not convert " + str + " to " + type + ": ");
-                }
-            } else if ("Double".equals(type) || "java.lang.Double".equals(type)) {
-                try {
-                    NumberFormat nf = null;
-
-                    if (locale == null)
-                        nf = NumberFormat.getNumberInstance();
-                    else
-                        nf = NumberFormat.getNumberInstance(locale);
-                    Number tempNum = nf.parse(str);
-
-                    return tempNum.doubleValue();
-                } catch (ParseException e) {
-                    throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                }
-            } else if ("Float".equals(type) || "java.lang.Float".equals(type)) {
-                try {
-                    NumberFormat nf = null;
-
-                    if (locale == null)
-                        nf = NumberFormat.getNumberInstance();
-                    else
-                        nf = NumberFormat.getNumberInstance(locale);
-                    Number tempNum = nf.parse(str);
-
-                    return tempNum.floatValue();
-                } catch (ParseException e) {
-                    throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                }
-            } else if ("Long".equals(type) || "java.lang.Long".equals(type)) {
-                try {
-                    NumberFormat nf = null;
-
-                    if (locale == null)
-                        nf = NumberFormat.getNumberInstance();
-                    else
-                        nf = NumberFormat.getNumberInstance(locale);
-                    nf.setMaximumFractionDigits(0);
-                    Number tempNum = nf.parse(str);
-
-                    return tempNum.longValue();
-                } catch (ParseException e) {
-                    throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                }
-            } else if ("Integer".equals(type) || "java.lang.Integer".equals(type)) {
-                try {
-                    NumberFormat nf = null;
-
-                    if (locale == null)
-                        nf = NumberFormat.getNumberInstance();
-                    else
-                        nf = NumberFormat.getNumberInstance(locale);
-                    nf.setMaximumFractionDigits(0);
-                    Number tempNum = nf.parse(str);
-
-                    return tempNum.intValue();
-                } catch (ParseException e) {
-                    throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                }
-            } else if ("Date".equals(type) || "java.sql.Date".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    try {
-                        return java.sql.Date.valueOf(str);
-                    } catch (Exception e) {
-                        try {
-                            DateFormat df = null;
-                            if (locale != null) {
-                                df = DateFormat.getDateInstance(DateFormat.SHORT, locale);
-                            } else {
-                                df = DateFormat.getDateInstance(DateFormat.SHORT);
-                            }
-                            Date fieldDate = df.parse(str);
-
-                            return new java.sql.Date(fieldDate.getTime());
-                        } catch (ParseException e1) {
-                            throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                        }
-                    }
-                } else {
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat(format);
-                        java.util.Date fieldDate = sdf.parse(str);
-
-                        return new java.sql.Date(fieldDate.getTime());
-                    } catch (ParseException e) {
-                        throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                    }
-                }
-            } else if ("Time".equals(type) || "java.sql.Time".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    try {
-                        return java.sql.Time.valueOf(str);
-                    } catch (Exception e) {
-                        try {
-                            DateFormat df = null;
-                            if (locale != null) {
-                                df = DateFormat.getTimeInstance(DateFormat.SHORT, locale);
-                            } else {
-                                df = DateFormat.getTimeInstance(DateFormat.SHORT);
-                            }
-                            Date fieldDate = df.parse(str);
-
-                            return new java.sql.Time(fieldDate.getTime());
-                        } catch (ParseException e1) {
-                            throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                        }
-                    }
-                } else {
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat(format);
-                        java.util.Date fieldDate = sdf.parse(str);
-
-                        return new java.sql.Time(fieldDate.getTime());
-                    } catch (ParseException e) {
-                        throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                    }
-                }
-            } else if ("Timestamp".equals(type) || "java.sql.Timestamp".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    try {
-                        return java.sql.Timestamp.valueOf(str);
-                    } catch (Exception e) {
-                        try {
-                            DateFormat df = null;
-                            if (locale != null) {
-                                df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
-                            } else {
-                                df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
-                            }
-                            Date fieldDate = df.parse(str);
-
-                            return new java.sql.Timestamp(fieldDate.getTime());
-                        } catch (ParseException e1) {
-                            throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                        }
-                    }
-                } else {
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat(format);
-                        java.util.Date fieldDate = sdf.parse(str);
-
-                        return new java.sql.Timestamp(fieldDate.getTime());
-                    } catch (ParseException e) {
-                        throw new GeneralException("Could not convert " + str + " to " + type + ": ", e);
-                    }
-                }
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.lang.Double) {
-            fromType = "Double";
-            Double dbl = (Double) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                NumberFormat nf = null;
-
-                if (locale == null)
-                    nf = NumberFormat.getNumberInstance();
-                else
-                    nf = NumberFormat.getNumberInstance(locale);
-                return nf.format(dbl.doubleValue());
-            } else if ("Double".equals(type) || "java.lang.Double".equals(type)) {
-                return obj;
-            } else if ("Float".equals(type) || "java.lang.Float".equals(type)) {
-                return dbl.floatValue();
-            } else if ("Long".equals(type) || "java.lang.Long".equals(type)) {
-                return Math.round(dbl);
-            } else if ("Integer".equals(type) || "java.lang.Integer".equals(type)) {
-                return (int) Math.round(dbl);
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.lang.Float) {
-            fromType = "Float";
-            Float flt = (Float) obj;
-
-            if ("String".equals(type)) {
-                NumberFormat nf = null;
-
-                if (locale == null)
-                    nf = NumberFormat.getNumberInstance();
-                else
-                    nf = NumberFormat.getNumberInstance(locale);
-                return nf.format(flt.doubleValue());
-            } else if ("Double".equals(type)) {
-                return flt.doubleValue();
-            } else if ("Float".equals(type)) {
-                return obj;
-            } else if ("Long".equals(type)) {
-                return Math.round(flt.doubleValue());
-            } else if ("Integer".equals(type)) {
-                return (int) Math.round(flt.doubleValue());
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.lang.Long) {
-            fromType = "Long";
-            Long lng = (Long) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                NumberFormat nf = null;
-
-                if (locale == null)
-                    nf = NumberFormat.getNumberInstance();
-                else
-                    nf = NumberFormat.getNumberInstance(locale);
-                return nf.format(lng.longValue());
-            } else if ("Double".equals(type) || "java.lang.Double".equals(type)) {
-                return lng.doubleValue();
-            } else if ("Float".equals(type) || "java.lang.Float".equals(type)) {
-                return lng.floatValue();
-            } else if ("Long".equals(type) || "java.lang.Long".equals(type)) {
-                return obj;
-            } else if ("Integer".equals(type) || "java.lang.Integer".equals(type)) {
-                return lng.intValue();
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.lang.Integer) {
-            fromType = "Integer";
-            Integer intgr = (Integer) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                NumberFormat nf = null;
-
-                if (locale == null)
-                    nf = NumberFormat.getNumberInstance();
-                else
-                    nf = NumberFormat.getNumberInstance(locale);
-                return nf.format(intgr.longValue());
-            } else if ("Double".equals(type) || "java.lang.Double".equals(type)) {
-                return intgr.doubleValue();
-            } else if ("Float".equals(type) || "java.lang.Float".equals(type)) {
-                return intgr.floatValue();
-            } else if ("Long".equals(type) || "java.lang.Long".equals(type)) {
-                return intgr.longValue();
-            } else if ("Integer".equals(type) || "java.lang.Integer".equals(type)) {
-                return obj;
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.sql.Date) {
-            fromType = "Date";
-            java.sql.Date dte = (java.sql.Date) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    return dte.toString();
-                } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat(format);
-
-                    return sdf.format(new java.util.Date(dte.getTime()));
-                }
-            } else if ("Date".equals(type) || "java.sql.Date".equals(type)) {
-                return obj;
-            } else if ("Time".equals(type) || "java.sql.Time".equals(type)) {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            } else if ("Timestamp".equals(type) || "java.sql.Timestamp".equals(type)) {
-                return new java.sql.Timestamp(dte.getTime());
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.sql.Time) {
-            fromType = "Time";
-            java.sql.Time tme = (java.sql.Time) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    return tme.toString();
-                } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat(format);
-
-                    return sdf.format(new java.util.Date(tme.getTime()));
-                }
-            } else if ("Date".equals(type) || "java.sql.Date".equals(type)) {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            } else if ("Time".equals(type) || "java.sql.Time".equals(type)) {
-                return obj;
-            } else if ("Timestamp".equals(type) || "java.sql.Timestamp".equals(type)) {
-                return new java.sql.Timestamp(tme.getTime());
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.sql.Timestamp) {
-            fromType = "Timestamp";
-            java.sql.Timestamp tme = (java.sql.Timestamp) obj;
-
-            if ("String".equals(type) || "java.lang.String".equals(type)) {
-                if (format == null || format.length() == 0) {
-                    return tme.toString();
-                } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat(format);
-
-                    return sdf.format(new java.util.Date(tme.getTime()));
-                }
-            } else if ("Date".equals(type) || "java.sql.Date".equals(type)) {
-                return new java.sql.Date(tme.getTime());
-            } else if ("Time".equals(type) || "java.sql.Time".equals(type)) {
-                return new java.sql.Time(tme.getTime());
-            } else if ("Timestamp".equals(type) || "java.sql.Timestamp".equals(type)) {
-                return obj;
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.lang.Boolean) {
-            fromType = "Boolean";
-            Boolean bol = (Boolean) obj;
-            if ("Boolean".equals(type) || "java.lang.Boolean".equals(type)) {
-                return bol;
-            } else if ("String".equals(type) || "java.lang.String".equals(type)) {
-                return bol.toString();
-            } else if ("Integer".equals(type) || "java.lang.Integer".equals(type)) {
-                if (bol)
-                    return 1;
-                else
-                    return 0;
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else if (obj instanceof java.util.Locale) {
-            fromType = "Locale";
-            Locale loc = (Locale) obj;
-            if ("Locale".equals(type) || "java.util.Locale".equals(type)) {
-                return loc;
-            } else if ("String".equals(type) || "java.lang.String".equals(type)) {
-                return loc.toString();
-            } else {
-                throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
-            }
-        } else {
-            throw new GeneralException("Conversion from " + obj.getClass().getName() + " to " + type + " not currently supported");
-        }
+        return TypeConverters.convert(obj, type, format, locale);
     }
 
     public static Boolean doRealCompare(Object value1, Object value2, String operator, String type, String format,
@@ -0,0 +1,329 @@
+package org.ofbiz.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache that keeps its values outside of the Java heap, so that large amounts of read-mostly data neither
+ * inflate the old generation nor get thrown away as soon as the collector comes under pressure (as happens to
+ * the soft references used by {@link UtilCache}).
+ * <p>
+ * Values are serialized into a fixed number of direct {@link ByteBuffer} slabs that are written to in turn.
+ * When every slab is full the oldest slab is recycled, evicting all of the entries that were written to it.
+ * Only the keys and the location of each value are held on the heap. The slabs are allocated lazily, so a cache
+ * that is never written to costs nothing.
+ * <p>
+ * The size of the cache can be overridden in cache.properties using <code>&lt;name&gt;.slabSize</code> (bytes)
+ * and <code>&lt;name&gt;.slabCount</code>.
+ *
+ * @param <K> the key type, which is held on the heap
+ * @param <V> the value type, which is serialized off the heap; values that turn out not to be serializable are
+ *            not cached
+ */
+public class OffHeapCache<K, V> {
+
+    public static final String module = OffHeapCache.class.getName();
+
+    /**
+     * The default size of each slab, in bytes.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The default number of slabs.
+     */
+    public static final int DEFAULT_SLAB_COUNT = 16;
+
+    /**
+     * A static Map to keep track of all of the OffHeapCache instances.
+     */
+    public static final Map<String, OffHeapCache<?, ?>> offHeapCacheTable = new ConcurrentHashMap<String, OffHeapCache<?, ?>>();
+
+    private final String name;
+    private int slabSize;
+    private int slabCount;
+
+    // all of the following are guarded by "this"
+    private ByteBuffer[] slabs;
+    private List<Set<K>> slabKeys;
+    private int currentSlab;
+    private final Map<K, Location> locations = new HashMap<K, Location>();
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor which specifies the name and the dimensions of the cache. The passed slabSize and slabCount
+     * will be overridden by values from cache.properties if found.
+     *
+     * @param cacheName the name of the cache
+     * @param slabSize  the size in bytes of each slab; this is also the largest value that can be cached
+     * @param slabCount the number of slabs
+     */
+    public OffHeapCache(String cacheName, int slabSize, int slabCount) {
+        this.name = cacheName;
+        this.slabSize = slabSize;
+        this.slabCount = slabCount;
+        setPropertiesParams(cacheName);
+        if (this.slabSize <= 0 || this.slabCount <= 0) {
+            throw new IllegalArgumentException("Invalid dimensions for off-heap cache " + cacheName + ": slabSize=" +
+                    this.slabSize + ", slabCount=" + this.slabCount);
+        }
+        offHeapCacheTable.put(name, this);
+    }
+
+    /**
+     * Constructor which uses the default dimensions, subject to any overrides in cache.properties.
+     *
+     * @param cacheName the name of the cache
+     */
+    public OffHeapCache(String cacheName) {
+        this(cacheName, DEFAULT_SLAB_SIZE, DEFAULT_SLAB_COUNT);
+    }
+
+    private void setPropertiesParams(String cacheName) {
+        final ResourceBundle res;
+        try {
+            res = ResourceBundle.getBundle("cache");
+        } catch (MissingResourceException e) {
+            return;
+        }
+        try {
+            slabSize = Integer.parseInt(res.getString(cacheName + ".slabSize"));
+        } catch (Exception e) {
+        }
+        try {
+            slabCount = Integer.parseInt(res.getString(cacheName + ".slabCount"));
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Serializes the given value into the cache. Values larger than a single slab are not cached, and any
+     * previous value for the key is discarded.
+     *
+     * @param key   the key, not null
+     * @param value the value, not null
+     * @return true if the value was cached
+     */
+    public boolean put(K key, V value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        final byte[] bytes;
+        try {
+            bytes = serialize(value);
+        } catch (IOException e) {
+            Debug.logWarning(e, "Could not serialize value for key " + key + " into off-heap cache " + name, module);
+            remove(key);
+            return false;
+        }
+
+        synchronized (this) {
+            removeLocation(key);
+            if (bytes.length > slabSize) {
+                return false;
+            }
+            ensureAllocated();
+            ByteBuffer slab = slabs[currentSlab];
+            if (slab == null) {
+                slab = slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            } else if (slab.remaining() < bytes.length) {
+                slab = recycleNextSlab();
+            }
+            final int offset = slab.position();
+            slab.put(bytes);
+            locations.put(key, new Location(currentSlab, offset, bytes.length));
+            slabKeys.get(currentSlab).add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value for the given key, deserializing it from off-heap memory.
+     *
+     * @param key the key to look up
+     * @return a new copy of the cached value, or null if there is none
+     */
+    public V get(K key) {
+        final byte[] bytes;
+        synchronized (this) {
+            final Location location = key == null ? null : locations.get(key);
+            if (location == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            bytes = new byte[location.length];
+            final ByteBuffer view = slabs[location.slab].duplicate();
+            view.position(location.offset);
+            view.get(bytes);
+        }
+
+        try {
+            return deserialize(bytes);
+        } catch (IOException | ClassNotFoundException e) {
+            Debug.logWarning(e, "Could not deserialize value for key " + key + " from off-heap cache " + name, module);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Removes the value for the given key. The memory it occupied is reclaimed when its slab is next recycled.
+     *
+     * @param key the key to remove
+     * @return true if there was a value for the key
+     */
+    public synchronized boolean remove(Object key) {
+        return key != null && removeLocation(key);
+    }
+
+    /**
+     * Removes all elements from this cache. The slabs themselves are kept for reuse.
+     */
+    public synchronized void clear() {
+        locations.clear();
+        if (slabs != null) {
+            for (int i = 0; i < slabCount; i++) {
+                if (slabs[i] != null) {
+                    slabs[i].clear();
+                }
+                slabKeys.get(i).clear();
+            }
+        }
+        currentSlab = 0;
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    public synchronized boolean containsKey(Object key) {
+        return locations.containsKey(key);
+    }
+
+    /**
+     * Returns the number of elements currently in the cache.
+     */
+    public synchronized long size() {
+        return locations.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of entries that have been evicted because their slab was recycled.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the total number of bytes this cache can hold once all of its slabs are allocated.
+     */
+    public long getCapacity() {
+        return (long) slabSize * slabCount;
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory currently allocated by this cache.
+     */
+    public synchronized long getAllocatedBytes() {
+        long allocated = 0;
+        if (slabs != null) {
+            for (ByteBuffer slab : slabs) {
+                if (slab != null) {
+                    allocated += slab.capacity();
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private void ensureAllocated() {
+        if (slabs == null) {
+            slabs = new ByteBuffer[slabCount];
+            slabKeys = new ArrayList<Set<K>>(slabCount);
+            for (int i = 0; i < slabCount; i++) {
+                slabKeys.add(new HashSet<K>());
+            }
+        }
+    }
+
+    private ByteBuffer recycleNextSlab() {
+        currentSlab = (currentSlab + 1) % slabCount;
+        final Set<K> evicted = slabKeys.get(currentSlab);
+        for (K evictedKey : evicted) {
+            locations.remove(evictedKey);
+        }
+        evictionCount += evicted.size();
+        evicted.clear();
+
+        ByteBuffer slab = slabs[currentSlab];
+        if (slab == null) {
+            slab = slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            slab.clear();
+        }
+        return slab;
+    }
+
+    private boolean removeLocation(Object key) {
+        final Location location = locations.remove(key);
+        if (location == null) {
+            return false;
+        }
+        slabKeys.get(location.slab).remove(key);
+        return true;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (V) in.readObject();
+        }
+    }
+
+    private static final class Location {
+        final int slab;
+        final int offset;
+        final int length;
+
+        Location(int slab, int offset, int length) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package org.ofbiz.core.util;
+
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * The registry of conversions behind {@link ObjectType#simpleTypeConvert}. The converter for each pair of source
+ * class and target type name is looked up once and then reused, instead of walking a chain of type name
+ * comparisons for every value.
+ * <p>
+ * Numbers and the legacy <code>java.sql</code> date types are parsed and formatted exactly as before, but with
+ * <code>NumberFormat</code> and <code>DateFormat</code> instances that are kept per thread rather than created for
+ * every conversion, since they are not thread-safe. The <code>java.time</code> types use the immutable, thread-safe
+ * <code>DateTimeFormatter</code>s, shared between threads.
+ */
+public final class TypeConverters {
+
+    public static final String module = TypeConverters.class.getName();
+
+    /**
+     * The most target type names remembered for one source class; type names beyond this are still converted,
+     * just looked up again each time.
+     */
+    static final int MAX_RESOLVED_TYPES = 256;
+
+    private static final int MAX_FORMATS = 64;
+
+    /**
+     * Converts a value whose class is known to be supported by the converter.
+     */
+    public interface Converter {
+        /**
+         * @param obj    the non-null value to convert
+         * @param type   the name of the type to convert to, for error messages
+         * @param format optional (can be null) format for dates and times
+         * @param locale optional (can be null) locale for formatting and parsing numbers and dates
+         */
+        Object convert(Object obj, String type, String format, Locale locale) throws GeneralException;
+    }
+
+    /**
+     * The classes that can be converted, tried in order so that the first one the value is an instance of wins.
+     */
+    private static final List<SourceType> sourceTypes = new CopyOnWriteArrayList<SourceType>();
+
+    /**
+     * The converters resolved so far, by source class and then type name. They are kept in a ClassValue so that
+     * the classes of converted values, which may come from a web application, can still be unloaded; it is
+     * replaced by an empty one whenever a conversion is registered.
+     */
+    private static volatile ClassValue<ConcurrentMap<String, Converter>> resolvedConverters = newResolvedConverters();
+
+    private static final ConcurrentMap<String, DateTimeFormatter> dateTimeFormatters = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+    private static final ThreadLocal<Map<Locale, NumberFormat>> numberFormats = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, CachedDateFormat>> dateFormats = ThreadLocal.withInitial(HashMap::new);
+
+    private static final Converter IDENTITY = (obj, type, format, locale) -> obj;
+    private static final Converter TO_STRING = (obj, type, format, locale) -> obj.toString();
+
+    static {
+        registerStringConversions();
+        registerNumberConversions();
+        registerSqlDateConversions();
+        registerJavaTimeConversions();
+
+        register(Boolean.class, "Boolean", IDENTITY, "Boolean", "java.lang.Boolean");
+        register(Boolean.class, "Boolean", TO_STRING, "String", "java.lang.String");
+        register(Boolean.class, "Boolean", (obj, type, format, locale) -> (Boolean) obj ? 1 : 0, "Integer", "java.lang.Integer");
+
+        register(Locale.class, "Locale", IDENTITY, "Locale", "java.util.Locale");
+        register(Locale.class, "Locale", TO_STRING, "String", "java.lang.String");
+    }
+
+    private TypeConverters() {
+    }
+
+    /**
+     * Converts the given value to the named type.
+     *
+     * @see ObjectType#simpleTypeConvert(Object, String, String, Locale)
+     */
+    public static Object convert(Object obj, String type, String format, Locale locale) throws GeneralException {
+        if (obj == null) {
+            return null;
+        }
+        return getConverter(obj.getClass(), type).convert(obj, type, format, locale);
+    }
+
+    /**
+     * Returns the converter from the given class to the named type. A pair that cannot be converted gets a
+     * converter that throws a {@link GeneralException} saying so.
+     *
+     * @param sourceClass the class of the values to convert
+     * @param type        the name of the type to convert to, for example "Long" or "java.lang.Long"
+     * @return never null
+     */
+    public static Converter getConverter(Class<?> sourceClass, String type) {
+        ConcurrentMap<String, Converter> converters = resolvedConverters.get(sourceClass);
+        Converter converter = converters.get(type);
+        if (converter == null) {
+            converter = resolve(sourceClass, type);
+            if (converters.size() < MAX_RESOLVED_TYPES) {
+                converters.putIfAbsent(type, converter);
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * Registers a conversion from the given class, and its sub-classes, to the given type names. Classes not
+     * registered before are tried after all the existing ones.
+     *
+     * @param sourceClass the class of the values to convert
+     * @param sourceName  the short name of the class used in error messages
+     * @param converter   does the conversion
+     * @param typeNames   the names of the target type, for example "Long" and "java.lang.Long"
+     */
+    public static synchronized void register(Class<?> sourceClass, String sourceName, Converter converter, String... typeNames) {
+        SourceType sourceType = null;
+        for (SourceType existing : sourceTypes) {
+            if (existing.sourceClass == sourceClass) {
+                sourceType = existing;
+            }
+        }
+        if (sourceType == null) {
+            sourceType = new SourceType(sourceClass, sourceName);
+            sourceTypes.add(sourceType);
+        }
+        for (String typeName : typeNames) {
+            sourceType.converters.put(typeName, converter);
+        }
+        resolvedConverters = newResolvedConverters();
+    }
+
+    private static ClassValue<ConcurrentMap<String, Converter>> newResolvedConverters() {
+        return new ClassValue<ConcurrentMap<String, Converter>>() {
+            @Override
+            protected ConcurrentMap<String, Converter> computeValue(Class<?> sourceClass) {
+                return new ConcurrentHashMap<String, Converter>();
+            }
+        };
+    }
+
+    private static Converter resolve(Class<?> sourceClass, String type) {
+        if ("PlainString".equals(type)) {
+            return TO_STRING;
+        }
+        if ("Object".equals(type)) {
+            return IDENTITY;
+        }
+        for (SourceType sourceType : sourceTypes) {
+            if (sourceType.sourceClass.isAssignableFrom(sourceClass)) {
+                Converter converter = sourceType.converters.get(type);
+                if (converter == null) {
+                    converter = unsupported(sourceType.name);
+                }
+                if (sourceType.sourceClass == String.class && converter != IDENTITY) {
+                    return emptyStringAsNull(converter);
+                }
+                return converter;
+            }
+        }
+        return unsupported(sourceClass.getName());
+    }
+
+    private static Converter unsupported(final String fromType) {
+        return (obj, type, format, locale) -> {
+            throw new GeneralException("Conversion from " + fromType + " to " + type + " not currently supported");
+        };
+    }
+
+    private static Converter emptyStringAsNull(final Converter converter) {
+        return (obj, type, format, locale) -> ((String) obj).length() == 0 ? null : converter.convert(obj, type, format, locale);
+    }
+
+    private static void registerStringConversions() {
+        register(String.class, "String", IDENTITY, "String", "java.lang.String");
+        register(String.class, "String", (obj, type, format, locale) -> ((String) obj).equalsIgnoreCase("TRUE"),
+                "Boolean", "java.lang.Boolean");
+        register(String.class, "String", (obj, type, format, locale) -> {
+            Locale loc = UtilMisc.parseLocale((String) obj);
+            if (loc == null) {
+                throw new GeneralException("Could not convert " + obj + " to " + type + ": ");
+            }
+            return loc;
+        }, "Locale", "java.util.Locale");
+        register(String.class, "String", (obj, type, format, locale) -> parseNumber(obj, type, locale).doubleValue(),
+                "Double", "java.lang.Double");
+        register(String.class, "String", (obj, type, format, locale) -> parseNumber(obj, type, locale).floatValue(),
+                "Float", "java.lang.Float");
+        register(String.class, "String", (obj, type, format, locale) -> parseNumber(obj, type, locale).longValue(),
+                "Long", "java.lang.Long");
+        register(String.class, "String", (obj, type, format, locale) -> parseNumber(obj, type, locale).intValue(),
+                "Integer", "java.lang.Integer");
+        register(String.class, "String", (obj, type, format, locale) -> {
+            String str = (String) obj;
+            if (format == null || format.length() == 0) {
+                try {
+                    return java.sql.Date.valueOf(str);
+                } catch (Exception e) {
+                    return new java.sql.Date(parseDate(str, type, shortDateFormat(DateFormat.SHORT, -1, locale), e).getTime());
+                }
+            }
+            return new java.sql.Date(parseDate(str, type, patternDateFormat(format), null).getTime());
+        }, "Date", "java.sql.Date");
+        register(String.class, "String", (obj, type, format, locale) -> {
+            String str = (String) obj;
+            if (format == null || format.length() == 0) {
+                try {
+                    return java.sql.Time.valueOf(str);
+                } catch (Exception e) {
+                    return new java.sql.Time(parseDate(str, type, shortDateFormat(-1, DateFormat.SHORT, locale), e).getTime());
+                }
+            }
+            return new java.sql.Time(parseDate(str, type, patternDateFormat(format), null).getTime());
+        }, "Time", "java.sql.Time");
+        register(String.class, "String", (obj, type, format, locale) -> {
+            String str = (String) obj;
+            if (format == null || format.length() == 0) {
+                try {
+                    return java.sql.Timestamp.valueOf(str);
+                } catch (Exception e) {
+                    return new java.sql.Timestamp(parseDate(str, type, shortDateFormat(DateFormat.SHORT, DateFormat.SHORT, locale), e).getTime());
+                }
+            }
+            return new java.sql.Timestamp(parseDate(str, type, patternDateFormat(format), null).getTime());
+        }, "Timestamp", "java.sql.Timestamp");
+    }
+
+    private static void registerNumberConversions() {
+        register(Double.class, "Double", (obj, type, format, locale) -> numberFormat(locale).format(((Double) obj).doubleValue()),
+                "String", "java.lang.String");
+        register(Double.class, "Double", IDENTITY, "Double", "java.lang.Double");
+        register(Double.class, "Double", (obj, type, format, locale) -> ((Double) obj).floatValue(), "Float", "java.lang.Float");
+        register(Double.class, "Double", (obj, type, format, locale) -> Math.round((Double) obj), "Long", "java.lang.Long");
+        register(Double.class, "Double", (obj, type, format, locale) -> (int) Math.round((Double) obj), "Integer", "java.lang.Integer");
+
+        register(Float.class, "Float", (obj, type, format, locale) -> numberFormat(locale).format(((Float) obj).doubleValue()),
+                "String", "java.lang.String");
+        register(Float.class, "Float", (obj, type, format, locale) -> ((Float) obj).doubleValue(), "Double", "java.lang.Double");
+        register(Float.class, "Float", IDENTITY, "Float", "java.lang.Float");
+        register(Float.class, "Float", (obj, type, format, locale) -> Math.round(((Float) obj).doubleValue()), "Long", "java.lang.Long");
+        register(Float.class, "Float", (obj, type, format, locale) -> (int) Math.round(((Float) obj).doubleValue()),
+                "Integer", "java.lang.Integer");
+
+        register(Long.class, "Long", (obj, type, format, locale) -> numberFormat(locale).format(((Long) obj).longValue()),
+                "String", "java.lang.String");
+        register(Long.class, "Long", (obj, type, format, locale) -> ((Long) obj).doubleValue(), "Double", "java.lang.Double");
+        register(Long.class, "Long", (obj, type, format, locale) -> ((Long) obj).floatValue(), "Float", "java.lang.Float");
+        register(Long.class, "Long", IDENTITY, "Long", "java.lang.Long");
+        register(Long.class, "Long", (obj, type, format, locale) -> ((Long) obj).intValue(), "Integer", "java.lang.Integer");
+
+        register(Integer.class, "Integer", (obj, type, format, locale) -> numberFormat(locale).format(((Integer) obj).longValue()),
+                "String", "java.lang.String");
+        register(Integer.class, "Integer", (obj, type, format, locale) -> ((Integer) obj).doubleValue(), "Double", "java.lang.Double");
+        register(Integer.class, "Integer", (obj, type, format, locale) -> ((Integer) obj).floatValue(), "Float", "java.lang.Float");
+        register(Integer.class, "Integer", (obj, type, format, locale) -> ((Integer) obj).longValue(), "Long", "java.lang.Long");
+        register(Integer.class, "Integer", IDENTITY, "Integer", "java.lang.Integer");
+    }
+
+    private static void registerSqlDateConversions() {
+        final Converter formatDate = (obj, type, format, locale) ->
+                format == null || format.length() == 0 ? obj.toString() : patternDateFormat(format).format(obj);
+
+        register(java.sql.Date.class, "Date", formatDate, "String", "java.lang.String");
+        register(java.sql.Date.class, "Date", IDENTITY, "Date", "java.sql.Date");
+        register(java.sql.Date.class, "Date", (obj, type, format, locale) -> new java.sql.Timestamp(((java.sql.Date) obj).getTime()),
+                "Timestamp", "java.sql.Timestamp");
+        register(java.sql.Date.class, "Date", (obj, type, format, locale) -> ((java.sql.Date) obj).toLocalDate(),
+                "LocalDate", "java.time.LocalDate");
+
+        register(java.sql.Time.class, "Time", formatDate, "String", "java.lang.String");
+        register(java.sql.Time.class, "Time", IDENTITY, "Time", "java.sql.Time");
+        register(java.sql.Time.class, "Time", (obj, type, format, locale) -> new java.sql.Timestamp(((java.sql.Time) obj).getTime()),
+                "Timestamp", "java.sql.Timestamp");
+        register(java.sql.Time.class, "Time", (obj, type, format, locale) -> ((java.sql.Time) obj).toLocalTime(),
+                "LocalTime", "java.time.LocalTime");
+
+        register(java.sql.Timestamp.class, "Timestamp", formatDate, "String", "java.lang.String");
+        register(java.sql.Timestamp.class, "Timestamp", (obj, type, format, locale) -> new java.sql.Date(((java.sql.Timestamp) obj).getTime()),
+                "Date", "java.sql.Date");
+        register(java.sql.Timestamp.class, "Timestamp", (obj, type, format, locale) -> new java.sql.Time(((java.sql.Timestamp) obj).getTime()),
+                "Time", "java.sql.Time");
+        register(java.sql.Timestamp.class, "Timestamp", IDENTITY, "Timestamp", "java.sql.Timestamp");
+        register(java.sql.Timestamp.class, "Timestamp", (obj, type, format, locale) -> ((java.sql.Timestamp) obj).toLocalDateTime(),
+                "LocalDateTime", "java.time.LocalDateTime");
+        register(java.sql.Timestamp.class, "Timestamp", (obj, type, format, locale) -> ((java.sql.Timestamp) obj).toInstant(),
+                "Instant", "java.time.Instant");
+    }
+
+    private static void registerJavaTimeConversions() {
+        register(String.class, "String", (obj, type, format, locale) ->
+                parseTemporal(obj, type, format, locale, DateTimeFormatter.ISO_LOCAL_DATE, LocalDate::from), "LocalDate", "java.time.LocalDate");
+        register(String.class, "String", (obj, type, format, locale) ->
+                parseTemporal(obj, type, format, locale, DateTimeFormatter.ISO_LOCAL_TIME, LocalTime::from), "LocalTime", "java.time.LocalTime");
+        register(String.class, "String", (obj, type, format, locale) ->
+                        parseTemporal(obj, type, format, locale, DateTimeFormatter.ISO_LOCAL_DATE_TIME, LocalDateTime::from),
+                "LocalDateTime", "java.time.LocalDateTime");
+        register(String.class, "String", (obj, type, format, locale) ->
+                parseTemporal(obj, type, format, locale, DateTimeFormatter.ISO_INSTANT, Instant::from), "Instant", "java.time.Instant");
+
+        final Converter formatTemporal = (obj, type, format, locale) -> format == null || format.length() == 0 ?
+                obj.toString() : dateTimeFormatter(format, locale).format((TemporalAccessor) obj);
+
+        register(LocalDate.class, "LocalDate", formatTemporal, "String", "java.lang.String");
+        register(LocalDate.class, "LocalDate", IDENTITY, "LocalDate", "java.time.LocalDate");
+        register(LocalDate.class, "LocalDate", (obj, type, format, locale) -> java.sql.Date.valueOf((LocalDate) obj),
+                "Date", "java.sql.Date");
+        register(LocalDate.class, "LocalDate", (obj, type, format, locale) -> java.sql.Timestamp.valueOf(((LocalDate) obj).atStartOfDay()),
+                "Timestamp", "java.sql.Timestamp");
+
+        register(LocalTime.class, "LocalTime", formatTemporal, "String", "java.lang.String");
+        register(LocalTime.class, "LocalTime", IDENTITY, "LocalTime", "java.time.LocalTime");
+        register(LocalTime.class, "LocalTime", (obj, type, format, locale) -> java.sql.Time.valueOf((LocalTime) obj),
+                "Time", "java.sql.Time");
+
+        register(LocalDateTime.class, "LocalDateTime", formatTemporal, "String", "java.lang.String");
+        register(LocalDateTime.class, "LocalDateTime", IDENTITY, "LocalDateTime", "java.time.LocalDateTime");
+        register(LocalDateTime.class, "LocalDateTime", (obj, type, format, locale) -> java.sql.Timestamp.valueOf((LocalDateTime) obj),
+                "Timestamp", "java.sql.Timestamp");
+
+        register(Instant.class, "Instant", TO_STRING, "String", "java.lang.String");
+        register(Instant.class, "Instant", IDENTITY, "Instant", "java.time.Instant");
+        register(Instant.class, "Instant", (obj, type, format, locale) -> java.sql.Timestamp.from((Instant) obj),
+                "Timestamp", "java.sql.Timestamp");
+    }
+
+    private static Number parseNumber(Object obj, String type, Locale locale) throws GeneralException {
+        try {
+            return numberFormat(locale).parse((String) obj);
+        } catch (ParseException e) {
+            throw new GeneralException("Could not convert " + obj + " to " + type + ": ", e);
+        }
+    }
+
+    private static java.util.Date parseDate(String str, String type, DateFormat dateFormat, Exception cause) throws GeneralException {
+        try {
+            return dateFormat.parse(str);
+        } catch (ParseException e) {
+            throw new GeneralException("Could not convert " + str + " to " + type + ": ", cause != null ? cause : e);
+        }
+    }
+
+    private static <T> T parseTemporal(Object obj, String type, String format, Locale locale, DateTimeFormatter isoFormatter,
+                                       TemporalQuery<T> query) throws GeneralException {
+        DateTimeFormatter formatter = format == null || format.length() == 0 ? isoFormatter : dateTimeFormatter(format, locale);
+        try {
+            return formatter.parse((String) obj, query);
+        } catch (DateTimeException e) {
+            throw new GeneralException("Could not convert " + obj + " to " + type + ": ", e);
+        }
+    }
+
+    private static DateTimeFormatter dateTimeFormatter(String pattern, Locale locale) {
+        Locale formatLocale = locale != null ? locale : Locale.getDefault(Locale.Category.FORMAT);
+        String key = formatLocale.toString() + '|' + pattern;
+        DateTimeFormatter formatter = dateTimeFormatters.get(key);
+        if (formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(pattern, formatLocale);
+            if (dateTimeFormatters.size() < MAX_FORMATS) {
+                dateTimeFormatters.putIfAbsent(key, formatter);
+            }
+        }
+        return formatter;
+    }
+
+    /**
+     * Returns this thread's number format for the given locale, or for the default locale if there is none.
+     */
+    private static NumberFormat numberFormat(Locale locale) {
+        Locale formatLocale = locale != null ? locale : Locale.getDefault(Locale.Category.FORMAT);
+        Map<Locale, NumberFormat> formats = numberFormats.get();
+        NumberFormat numberFormat = formats.get(formatLocale);
+        if (numberFormat == null) {
+            if (formats.size() >= MAX_FORMATS) {
+                formats.clear();
+            }
+            numberFormat = NumberFormat.getNumberInstance(formatLocale);
+            formats.put(formatLocale, numberFormat);
+        }
+        return numberFormat;
+    }
+
+    private static DateFormat patternDateFormat(final String pattern) {
+        return dateFormat(pattern, () -> new SimpleDateFormat(pattern));
+    }
+
+    private static DateFormat shortDateFormat(final int dateStyle, final int timeStyle, final Locale locale) {
+        final Locale formatLocale = locale != null ? locale : Locale.getDefault(Locale.Category.FORMAT);
+        return dateFormat("style:" + dateStyle + ':' + timeStyle + ':' + formatLocale, () -> {
+            if (timeStyle < 0) {
+                return DateFormat.getDateInstance(dateStyle, formatLocale);
+            }
+            if (dateStyle < 0) {
+                return DateFormat.getTimeInstance(timeStyle, formatLocale);
+            }
+            return DateFormat.getDateTimeInstance(dateStyle, timeStyle, formatLocale);
+        });
+    }
+
+    /**
+     * Returns this thread's date format for the given key, created again if the default time zone or locale,
+     * which a date format captures when it is created, has changed since.
+     */
+    private static DateFormat dateFormat(String key, Supplier<DateFormat> factory) {
+        TimeZone timeZone = TimeZone.getDefault();
+        Locale defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+        Map<String, CachedDateFormat> formats = dateFormats.get();
+        CachedDateFormat cached = formats.get(key);
+        if (cached == null || !cached.timeZone.equals(timeZone) || !cached.defaultLocale.equals(defaultLocale)) {
+            if (formats.size() >= MAX_FORMATS) {
+                formats.clear();
+            }
+            cached = new CachedDateFormat(factory.get(), timeZone, defaultLocale);
+            formats.put(key, cached);
+        }
+        return cached.dateFormat;
+    }
+
+    private static final class SourceType {
+        final Class<?> sourceClass;
+        final String name;
+        final Map<String, Converter> converters = new ConcurrentHashMap<String, Converter>();
+
+        SourceType(Class<?> sourceClass, String name) {
+            this.sourceClass = sourceClass;
+            this.name = name;
+        }
+    }
+
+    private static final class CachedDateFormat {
+        final DateFormat dateFormat;
+        final TimeZone timeZone;
+        final Locale defaultLocale;
+
+        CachedDateFormat(DateFormat dateFormat, TimeZone timeZone, Locale defaultLocale) {
+            this.dateFormat = dateFormat;
+            this.timeZone = timeZone;
+            this.defaultLocale = defaultLocale;
+        }
+    }
+}
@@ -28,6 +28,8 @@ import org.apache.xml.serialize.XMLSerializer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -38,6 +40,8 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -185,6 +189,34 @@ public class UtilXml {
         return document;
     }
 
+    /**
+     * Reads an XML document with SAX, handing each child element of the root element to the given handler as a
+     * detached DOM element of its own, instead of building a DOM for the whole document. Only one such element
+     * is held in memory at a time, which suits large documents made of many independent definitions.
+     *
+     * @param is             the document, which is closed when done
+     * @param validate       whether to validate the document against its DTD
+     * @param docDescription describes the document in error messages
+     * @param handler        receives each child element of the root element, in document order
+     */
+    public static void readXmlElements(InputStream is, boolean validate, String docDescription, ElementHandler handler)
+            throws SAXException, ParserConfigurationException, java.io.IOException {
+        if (is == null) {
+            Debug.logWarning("[UtilXml.readXmlElements] InputStream was null, doing nothing", module);
+            return;
+        }
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+
+        factory.setValidating(validate);
+        SAXParser parser = factory.newSAXParser();
+        try {
+            parser.parse(is, new ElementStreamHandler(validate, docDescription, handler));
+        } finally {
+            is.close();
+        }
+    }
+
     public static Document makeEmptyXmlDocument() {
         return makeEmptyXmlDocument(null);
     }
@@ -463,6 +495,99 @@ public class UtilXml {
     }
 
 
+    /**
+     * Receives the child elements of the root element from {@link #readXmlElements}.
+     */
+    public interface ElementHandler {
+        void handleElement(Element element) throws SAXException;
+    }
+
+    /**
+     * Builds a detached DOM element for each child of the root element and hands it on once it is complete.
+     */
+    private static class ElementStreamHandler extends DefaultHandler {
+
+        private final ElementHandler handler;
+        private final LocalResolver localResolver;
+        private final ErrorHandler errorHandler;
+        private final Document document = makeEmptyXmlDocument();
+        private Element current;
+        private int depth;
+
+        ElementStreamHandler(boolean validate, String docDescription, ElementHandler handler) {
+            this.handler = handler;
+            this.localResolver = validate ? new LocalResolver(new DefaultHandler()) : null;
+            this.errorHandler = validate ? new LocalErrorHandler(docDescription, localResolver) : null;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+            if (depth < 2) {
+                return;
+            }
+            Element element = document.createElement(qName);
+            for (int i = 0; i < attributes.getLength(); i++) {
+                element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+            }
+            if (current != null) {
+                current.appendChild(element);
+            }
+            current = element;
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            depth--;
+            if (current == null) {
+                return;
+            }
+            Node parent = current.getParentNode();
+            if (parent == null) {
+                Element element = current;
+                current = null;
+                handler.handleElement(element);
+            } else {
+                current = (Element) parent;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (current == null) {
+                return;
+            }
+            // keep the text normalized, as the parser may report it in several chunks
+            Node last = current.getLastChild();
+            if (last instanceof Text) {
+                ((Text) last).appendData(new String(ch, start, length));
+            } else {
+                current.appendChild(document.createTextNode(new String(ch, start, length)));
+            }
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+            return localResolver != null ? localResolver.resolveEntity(publicId, systemId) : null;
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            if (errorHandler != null) errorHandler.error(e);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            if (errorHandler != null) errorHandler.fatalError(e);
+            throw e;
+        }
+
+        @Override
+        public void warning(SAXParseException e) throws SAXException {
+            if (errorHandler != null) errorHandler.warning(e);
+        }
+    }
+
     /**
      * Local error handler for entity resolver to DocumentBuilder parser.
      * Error is printed to output just if DTD was detected in the XML file.